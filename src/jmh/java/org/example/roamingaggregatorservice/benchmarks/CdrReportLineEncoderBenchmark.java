@@ -0,0 +1,94 @@
+package org.example.roamingaggregatorservice.benchmarks;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.utils.CdrReportLineEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение кодирования строк cdr-отчета через {@code String.format} и
+ * {@link CdrReportLineEncoder}.
+ * <p>
+ * Оба варианта пишут одинаковые байты в поток-заглушку, поэтому измеряется только
+ * стоимость форматирования и кодирования. Распределение памяти на строку
+ * показывает запуск с профилировщиком {@code -prof gc}.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CdrReportLineEncoderBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private List<Cdr> cdrs;
+    private BufferedWriter writer;
+    private CdrReportLineEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        cdrs = new ArrayList<>(ROWS);
+        LocalDateTime base = LocalDateTime.of(2023, 1, 1, 0, 0);
+        for (int i = 0; i < ROWS; i++) {
+            LocalDateTime start = base.plusSeconds(ThreadLocalRandom.current().nextLong(365L * 24 * 60 * 60));
+            Cdr cdr = new Cdr();
+            cdr.setCallType(i % 2 == 0 ? "01" : "02");
+            cdr.setCaller(subscriber("7912" + (1_000_000 + i)));
+            cdr.setCalled(subscriber("7987" + (1_000_000 + i)));
+            cdr.setStartDateTime(start);
+            cdr.setFinishDateTime(start.plusSeconds(ThreadLocalRandom.current().nextLong(1, 5 * 60 * 60)));
+            cdrs.add(cdr);
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8));
+        encoder = new CdrReportLineEncoder(Channels.newChannel(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void stringFormat() throws IOException {
+        for (Cdr cdr : cdrs) {
+            writer.write(String.format("%s,%s,%s,%s,%s",
+                    cdr.getCallType(),
+                    cdr.getCallerNumber(),
+                    cdr.getCalledNumber(),
+                    cdr.getStartDateTime(),
+                    cdr.getFinishDateTime()
+            ));
+            writer.newLine();
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void lineEncoder() throws IOException {
+        for (Cdr cdr : cdrs) {
+            encoder.write(cdr);
+        }
+        encoder.flush();
+    }
+
+    private static Subscriber subscriber(String msisdn) {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setMsisdn(msisdn);
+        return subscriber;
+    }
+}
@@ -2,7 +2,6 @@ package org.example.roamingaggregatorservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.scheduling.annotation.EnableAsync;
 
 @SpringBootApplication
 public class RoamingAggregatorServiceApplication {
@@ -0,0 +1,128 @@
+package org.example.roamingaggregatorservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Конфигурация асинхронного выполнения фоновых заданий.
+ * <p>
+ * Формирование cdr-отчетов и массовая генерация CDR выполняются в отдельных ограниченных
+ * пулах потоков, а не в потоках Tomcat: длинные задания не занимают потоки обработки запросов.
+ * При заполнении очереди новые задания отклоняются, а не накапливаются без предела.
+ * Порции массовой генерации сохраняются в общем пуле из {@code cdr.generation.parallelism}
+ * потоков, одном на все задания генерации.
+ * </p>
+ * <p>
+ * В режиме виртуальных потоков ({@code spring.threads.virtual.enabled}, Java 21+) задания
+ * выполняются в виртуальных потоках; количество одновременно выполняемых заданий
+ * по-прежнему ограничено размером пула.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    /**
+     * Имя исполнителя заданий на формирование cdr-отчетов.
+     */
+    public static final String CDR_REPORT_EXECUTOR = "cdrReportExecutor";
+
+    /**
+     * Имя исполнителя заданий на массовую генерацию CDR.
+     */
+    public static final String CDR_GENERATION_JOB_EXECUTOR = "cdrGenerationJobExecutor";
+
+    /**
+     * Имя исполнителя, сохраняющего порции массовой генерации CDR.
+     */
+    public static final String CDR_GENERATION_EXECUTOR = "cdrGenerationExecutor";
+
+    /**
+     * Создает исполнитель заданий на формирование cdr-отчетов.
+     *
+     * @param poolSize Количество потоков
+     * @param queueCapacity Максимальное количество ожидающих заданий
+     * @param environment Окружение, по которому определяется режим потоков
+     * @return Настроенный исполнитель
+     */
+    @Bean(name = CDR_REPORT_EXECUTOR)
+    public ThreadPoolTaskExecutor cdrReportExecutor(
+            @Value("${cdr.report.executor.pool-size:2}") int poolSize,
+            @Value("${cdr.report.executor.queue-capacity:100}") int queueCapacity,
+            Environment environment) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("cdr-report-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Создает исполнитель заданий на массовую генерацию CDR.
+     * <p>
+     * Поток задания только нарезает генерацию на порции и передает их исполнителю
+     * {@link #CDR_GENERATION_EXECUTOR}, поэтому по умолчанию задания выполняются по одному.
+     * </p>
+     *
+     * @param poolSize Количество одновременно выполняемых заданий
+     * @param queueCapacity Максимальное количество ожидающих заданий
+     * @param environment Окружение, по которому определяется режим потоков
+     * @return Настроенный исполнитель
+     */
+    @Bean(name = CDR_GENERATION_JOB_EXECUTOR)
+    public ThreadPoolTaskExecutor cdrGenerationJobExecutor(
+            @Value("${cdr.generation.jobs.executor.pool-size:1}") int poolSize,
+            @Value("${cdr.generation.jobs.executor.queue-capacity:10}") int queueCapacity,
+            Environment environment) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("cdr-generation-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Создает общий исполнитель, генерирующий и сохраняющий порции CDR.
+     * <p>
+     * Задания генерации ограничивают количество переданных, но не сохраненных порций
+     * суммой размера пула и емкости очереди, поэтому порции не отклоняются, а в памяти
+     * находится не больше этого количества порций независимо от объема генерации.
+     * </p>
+     *
+     * @param parallelism Количество потоков
+     * @param queueCapacity Максимальное количество ожидающих порций
+     * @param environment Окружение, по которому определяется режим потоков
+     * @return Настроенный исполнитель
+     */
+    @Bean(name = CDR_GENERATION_EXECUTOR)
+    public ThreadPoolTaskExecutor cdrGenerationExecutor(
+            @Value("${cdr.generation.parallelism:4}") int parallelism,
+            @Value("${cdr.generation.queue-capacity:4}") int queueCapacity,
+            Environment environment) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("cdr-generation-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
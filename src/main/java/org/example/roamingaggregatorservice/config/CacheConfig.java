@@ -0,0 +1,62 @@
+package org.example.roamingaggregatorservice.config;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Конфигурация кэширования результатов UDR.
+ * <p>
+ * Кэши создаются Spring Boot на Caffeine по настройкам {@code spring.cache.*}:
+ * размер и время жизни записей задаются спецификацией {@code spring.cache.caffeine.spec},
+ * а статистика обращений и вытеснений публикуется в метриках {@code cache.*}.
+ * Записи инвалидируются {@link org.example.roamingaggregatorservice.services.UdrCacheInvalidator}
+ * при сохранении новых CDR; обращения к кэшам UDR идут через {@link GenerationCheckedCacheResolver},
+ * поэтому значение, вычисленное до инвалидации, не остается в кэше.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Кэш UDR абонента за месяц; ключ - {@code msisdn:yyyy-MM}.
+     */
+    public static final String UDR_BY_MONTH_CACHE = "udrByMonth";
+
+    /**
+     * Кэш UDR абонента за все время; ключ - MSISDN.
+     */
+    public static final String UDR_ALL_TIME_CACHE = "udrAllTime";
+
+    /**
+     * Имя резолвера кэшей UDR.
+     */
+    public static final String UDR_CACHE_RESOLVER = "udrCacheResolver";
+
+    /**
+     * Формирует ключ кэша UDR за месяц.
+     *
+     * @param msisdn Номер абонента
+     * @param yearAndMonth Год и месяц в формате "yyyy-MM"
+     * @return Ключ кэша
+     */
+    public static String udrByMonthKey(String msisdn, String yearAndMonth) {
+        return msisdn + ":" + yearAndMonth;
+    }
+
+    /**
+     * Создает резолвер кэшей UDR с проверкой поколения ключей.
+     *
+     * @param cacheManager Менеджер кэшей Spring Boot
+     * @return Резолвер кэшей UDR
+     */
+    @Bean(name = UDR_CACHE_RESOLVER)
+    public GenerationCheckedCacheResolver udrCacheResolver(CacheManager cacheManager) {
+        return new GenerationCheckedCacheResolver(cacheManager);
+    }
+}
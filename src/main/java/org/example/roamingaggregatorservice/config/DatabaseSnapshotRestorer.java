@@ -0,0 +1,83 @@
+package org.example.roamingaggregatorservice.config;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Восстановление файловой базы данных H2 из снимка при старте приложения.
+ * <p>
+ * Если задан параметр {@code h2.snapshot.restore-from}, а файла базы данных в каталоге
+ * {@code h2.data-dir} еще нет, файлы базы извлекаются из архива снимка, созданного
+ * командой {@code BACKUP TO}, так же как это делает {@code org.h2.tools.Restore}. Восстановление выполняется до создания бинов, в том
+ * числе источника данных, поэтому приложение открывает уже восстановленную базу.
+ * Время восстановления определяется распаковкой файла MVStore и не зависит от
+ * количества строк: записи не вставляются заново, индексы не перестраиваются.
+ * Существующая база данных не перезаписывается.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Component
+@Profile("persistent")
+public class DatabaseSnapshotRestorer implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    /**
+     * Имя базы данных H2 в каталоге {@code h2.data-dir}.
+     */
+    public static final String DATABASE_NAME = "roaming-aggregator-db";
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        String snapshot = environment.getProperty("h2.snapshot.restore-from");
+        if (snapshot == null || snapshot.isBlank()) return;
+
+        restoreIfAbsent(Path.of(snapshot), Path.of(environment.getRequiredProperty("h2.data-dir")));
+    }
+
+    /**
+     * Восстанавливает базу данных из снимка, если в каталоге еще нет базы данных.
+     *
+     * @param snapshot Архив снимка
+     * @param dataDir Каталог файлов базы данных
+     * @return true, если база данных восстановлена; false, если она уже существует
+     * @throws IllegalStateException если архив снимка не найден
+     */
+    public static boolean restoreIfAbsent(Path snapshot, Path dataDir) {
+        if (Files.exists(dataDir.resolve(DATABASE_NAME + ".mv.db"))) return false;
+        if (!Files.isRegularFile(snapshot)) {
+            throw new IllegalStateException("Снимок базы данных не найден: " + snapshot.toAbsolutePath());
+        }
+
+        try (InputStream in = Files.newInputStream(snapshot); ZipInputStream zip = new ZipInputStream(in)) {
+            Files.createDirectories(dataDir);
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                String fileName = Path.of(entry.getName()).getFileName().toString();
+                if (entry.isDirectory() || !fileName.startsWith(DATABASE_NAME + ".")) continue;
+                Files.copy(zip, dataDir.resolve(fileName));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+}
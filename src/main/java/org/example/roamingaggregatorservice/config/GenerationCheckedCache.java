@@ -0,0 +1,171 @@
+package org.example.roamingaggregatorservice.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Кэш, не сохраняющий значения, вычисленные до инвалидации их ключа.
+ * <p>
+ * Запрос, начавший вычисление до фиксации новых данных, может положить устаревшее
+ * значение в кэш уже после их инвалидации, и оно прожило бы до истечения времени жизни.
+ * Поэтому каждой группе ключей (по хэшу ключа) соответствует счетчик поколений, а общий
+ * счетчик меняется при удалении многих ключей сразу. Чтение запоминает поколение ключа
+ * в текущем потоке, и значение, положенное этим потоком после промаха, удаляется сразу
+ * после записи, если поколение с тех пор изменилось; значения, вычисленные самим кэшем
+ * ({@link #get(Object, Callable)}, {@link #retrieve(Object, Supplier)}), проверяются так же
+ * по поколению на момент вызова. Инвалидация сначала меняет поколение, затем удаляет запись,
+ * поэтому устаревшее значение не остается в кэше при любом порядке записи и инвалидации.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class GenerationCheckedCache implements Cache {
+
+    private static final int STRIPES = 1024;
+
+    private final Cache delegate;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final AtomicLong epoch = new AtomicLong();
+    private final ThreadLocal<Miss> lastMiss = new ThreadLocal<>();
+
+    public GenerationCheckedCache(Cache delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        long generation = generation(key);
+        ValueWrapper value = delegate.get(key);
+        if (value == null) lastMiss.set(new Miss(key, generation));
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        long generation = generation(key);
+        T value = delegate.get(key, type);
+        if (value == null) lastMiss.set(new Miss(key, generation));
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        long generation = generation(key);
+        T value = delegate.get(key, valueLoader);
+        evictIfInvalidatedSince(key, generation);
+        return value;
+    }
+
+    /**
+     * Возвращает значение асинхронно, запоминая поколение ключа в текущем потоке.
+     * <p>
+     * Значение, положенное этим потоком после пустого результата, проверяется так же,
+     * как после промаха {@link #get(Object)}.
+     * </p>
+     *
+     * @param key Ключ
+     * @return Результат чтения из исходного кэша
+     */
+    @Override
+    public CompletableFuture<?> retrieve(Object key) {
+        lastMiss.set(new Miss(key, generation(key)));
+        return delegate.retrieve(key);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+        long generation = generation(key);
+        return delegate.retrieve(key, valueLoader)
+                .whenComplete((value, failure) -> evictIfInvalidatedSince(key, generation));
+    }
+
+    /**
+     * Сохраняет значение, если поколение ключа не изменилось с момента, когда значение
+     * начали вычислять.
+     * <p>
+     * После промаха текущего потока по тому же ключу это поколение промаха, иначе -
+     * поколение на момент вызова: такое значение удаляется, только если ключ
+     * инвалидирован во время записи.
+     * </p>
+     *
+     * @param key Ключ
+     * @param value Значение
+     */
+    @Override
+    public void put(Object key, Object value) {
+        Miss miss = lastMiss.get();
+        lastMiss.remove();
+        long generation = miss != null && miss.key().equals(key) ? miss.generation() : generation(key);
+
+        delegate.put(key, value);
+        evictIfInvalidatedSince(key, generation);
+    }
+
+    @Override
+    public void evict(Object key) {
+        generations.incrementAndGet(stripe(key));
+        delegate.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        epoch.incrementAndGet();
+        delegate.clear();
+    }
+
+    /**
+     * Удаляет записи, ключи которых удовлетворяют условию.
+     * <p>
+     * Для кэша Caffeine удаляются только подходящие записи, для других кэшей - все.
+     * </p>
+     *
+     * @param filter Условие на ключ
+     */
+    public void evictIf(Predicate<Object> filter) {
+        epoch.incrementAndGet();
+        if (delegate.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+            nativeCache.asMap().keySet().removeIf(filter);
+        } else {
+            delegate.clear();
+        }
+    }
+
+    private void evictIfInvalidatedSince(Object key, long generation) {
+        if (generation(key) != generation) delegate.evict(key);
+    }
+
+    private long generation(Object key) {
+        return epoch.get() + generations.get(stripe(key));
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Промах кэша в текущем потоке.
+     *
+     * @param key        Ключ
+     * @param generation Поколение ключа на момент промаха
+     */
+    private record Miss(Object key, long generation) {
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.roamingaggregatorservice.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheResolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Выбор кэшей UDR с проверкой поколения ключей (см. {@link GenerationCheckedCache}).
+ * <p>
+ * Кэши создаются и настраиваются {@link CacheManager} Spring Boot, в том числе
+ * метрики {@code cache.*}; резолвер лишь оборачивает их. Аннотации кэширования
+ * и инвалидация должны обращаться к кэшам через резолвер, иначе поколения не меняются.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class GenerationCheckedCacheResolver implements CacheResolver {
+
+    private final CacheManager cacheManager;
+    private final Map<String, GenerationCheckedCache> caches = new ConcurrentHashMap<>();
+
+    public GenerationCheckedCacheResolver(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        List<Cache> result = new ArrayList<>();
+        for (String name : context.getOperation().getCacheNames()) {
+            GenerationCheckedCache cache = getCache(name);
+            if (cache == null) throw new IllegalArgumentException("Cannot find cache named '" + name + "' for " + context.getOperation());
+            result.add(cache);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает кэш с проверкой поколения ключей.
+     *
+     * @param name Имя кэша
+     * @return Кэш или {@code null}, если кэша с таким именем нет
+     */
+    public GenerationCheckedCache getCache(String name) {
+        GenerationCheckedCache cache = caches.get(name);
+        if (cache != null) return cache;
+
+        Cache delegate = cacheManager.getCache(name);
+        if (delegate == null) return null;
+        return caches.computeIfAbsent(name, key -> new GenerationCheckedCache(delegate));
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.roamingaggregatorservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Конфигурация периодических заданий.
+ * <p>
+ * Периодически выполняется только обслуживание: удаление завершенных заданий
+ * на cdr-отчеты и файлов отчетов с истекшим сроком хранения.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
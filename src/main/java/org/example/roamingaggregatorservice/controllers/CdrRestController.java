@@ -7,22 +7,38 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.example.roamingaggregatorservice.dto.CdrGenerationJobDTO;
+import org.example.roamingaggregatorservice.dto.CdrIngestResultDTO;
+import org.example.roamingaggregatorservice.dto.CdrReportJobDTO;
 import org.example.roamingaggregatorservice.dto.ExceptionDTO;
+import org.example.roamingaggregatorservice.services.CdrGenerationJobService;
+import org.example.roamingaggregatorservice.services.CdrReportJobService;
 import org.example.roamingaggregatorservice.services.CdrService;
+import org.example.roamingaggregatorservice.utils.FileTransfers;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * REST-контроллер для работы с записями данных вызовов (CDR - Call Data Records).
  * <p>
  * Контроллер предоставляет API для генерации записей данных вызовов
- * за один год и для формирования отчетов по звонкам для конкретного
- * абонента за указанный период времени.
+ * за один год, фоновой массовой генерации записей, загрузки записей из CSV и для фонового
+ * формирования отчетов по звонкам для конкретного абонента за указанный период времени с получением состояния и результата.
  * </p>
  * 
  * @author Сервис роуминговой агрегации
@@ -30,18 +46,26 @@ import java.util.concurrent.CompletableFuture;
  */
 @RestController
 @RequestMapping("/v1/cdr")
+@Validated
 @Tag(name = "CDR", description = "Операции с записями данных вызовов (Call Data Records)")
 public class CdrRestController {
 
     private final CdrService cdrService;
+    private final CdrReportJobService cdrReportJobService;
+    private final CdrGenerationJobService cdrGenerationJobService;
 
     /**
      * Конструктор контроллера CDR.
      *
      * @param cdrService Сервис для работы с CDR данными
+     * @param cdrReportJobService Сервис заданий на формирование cdr-отчетов
+     * @param cdrGenerationJobService Сервис заданий на массовую генерацию CDR
      */
-    public CdrRestController(CdrService cdrService) {
+    public CdrRestController(CdrService cdrService, CdrReportJobService cdrReportJobService,
+                             CdrGenerationJobService cdrGenerationJobService) {
         this.cdrService = cdrService;
+        this.cdrReportJobService = cdrReportJobService;
+        this.cdrGenerationJobService = cdrGenerationJobService;
     }
 
     /**
@@ -69,12 +93,102 @@ public class CdrRestController {
     }
 
     /**
-     * Генерация отчета по записям вызовов для конкретного абонента.
+     * Запуск массовой генерации записей данных вызовов за прошлый год.
      * <p>
-     * Метод инициирует процесс формирования отчета о
-     * входящих и исходящих звонках для указанного абонента за
-     * определенный период времени. Отчет сохраняется в файловой системе
-     * и может быть идентифицирован по возвращаемому UUID.
+     * Метод ставит в очередь задание на генерацию указанного количества случайных
+     * записей о звонках между абонентами системы. Ответ возвращается сразу, не дожидаясь
+     * генерации; ход генерации и достигнутая пропускная способность доступны по
+     * возвращаемому UUID. Используется для подготовки наборов данных для нагрузочного тестирования.
+     * </p>
+     *
+     * @param count Количество записей для генерации
+     * @return Объект ResponseEntity с информацией о запуске генерации и UUID задания
+     */
+    @PostMapping("/bulk")
+    @Operation(
+            summary = "Массово сгенерировать CDR",
+            description = "Ставит в очередь параллельную генерацию заданного количества записей данных вызовов (CDR) за прошлый год с сохранением JDBC-пакетами"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Задание на генерацию поставлено в очередь",
+                    content = @Content(schema = @Schema(type = "string", example = "Генерация cdr-записей запущена. UUID: 3f1c2a9e-7b4d-4e8a-9c51-0d2b6f8e4a17"))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации: недопустимое количество записей",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class))),
+            @ApiResponse(responseCode = "503", description = "Очередь заданий на генерацию переполнена",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public ResponseEntity<String> generateCdrs(
+            @Parameter(description = "Количество записей для генерации", required = true, example = "10000000")
+            @RequestParam @Min(1) @Max(1_000_000_000) long count)
+    {
+        UUID uuid = cdrGenerationJobService.submitCdrGeneration(count);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/v1/cdr/bulk/%s/status".formatted(uuid)))
+                .body("Генерация cdr-записей запущена. UUID: %s".formatted(uuid));
+    }
+
+    /**
+     * Получение состояния задания на массовую генерацию записей.
+     *
+     * @param uuid UUID задания, полученный при запуске генерации
+     * @return Объект ResponseEntity с состоянием задания
+     */
+    @GetMapping("/bulk/{uuid}/status")
+    @Operation(
+            summary = "Получить состояние массовой генерации CDR",
+            description = "Возвращает состояние задания (QUEUED, RUNNING, DONE, FAILED), количество сохраненных записей, время выполнения и пропускную способность"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                    content = @Content(schema = @Schema(implementation = CdrGenerationJobDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public ResponseEntity<CdrGenerationJobDTO> getCdrGenerationStatus(
+            @Parameter(description = "UUID задания", required = true, example = "3f1c2a9e-7b4d-4e8a-9c51-0d2b6f8e4a17")
+            @PathVariable UUID uuid)
+    {
+        return ResponseEntity.ok(cdrGenerationJobService.getCdrGenerationJob(uuid));
+    }
+
+    /**
+     * Потоковая загрузка записей данных вызовов из CSV.
+     * <p>
+     * Метод принимает тело запроса в формате cdr-отчета: по строке
+     * {@code тип,вызывающий,вызываемый,начало,окончание} на звонок. Тело читается
+     * построчно по мере поступления, записи сохраняются JDBC-пакетами с фиксацией
+     * транзакции на каждую порцию, поэтому потребление памяти не зависит от размера
+     * загрузки. Строки неверного формата и с незарегистрированными номерами отклоняются.
+     * </p>
+     *
+     * @param csv Тело запроса
+     * @return Объект ResponseEntity с количеством сохраненных и отклоненных записей и скоростью загрузки
+     */
+    @PostMapping(value = "/ingest", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @Operation(
+            summary = "Загрузить CDR из CSV",
+            description = "Потоково загружает записи данных вызовов (CDR) в формате cdr-отчета и сохраняет их JDBC-пакетами",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true,
+                    content = @Content(mediaType = "text/csv",
+                            schema = @Schema(type = "string", example = "01,79123456789,79876543210,2024-05-10T12:00,2024-05-10T12:15:30")))
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "CSV загружен",
+                    content = @Content(schema = @Schema(implementation = CdrIngestResultDTO.class)))
+    })
+    public ResponseEntity<CdrIngestResultDTO> ingestCdrs(InputStream csv) {
+        return ResponseEntity.ok(cdrService.ingestCdrs(csv));
+    }
+
+    /**
+     * Запуск формирования отчета по записям вызовов для конкретного абонента.
+     * <p>
+     * Метод проверяет параметры запроса и ставит в очередь задание на
+     * формирование отчета о входящих и исходящих звонках для указанного
+     * абонента за определенный период времени. Ответ возвращается сразу,
+     * не дожидаясь формирования отчета; состояние задания доступно по
+     * возвращаемому UUID.
      * </p>
      *
      * @param msisdn Номер мобильного телефона абонента
@@ -85,12 +199,14 @@ public class CdrRestController {
     @PostMapping("/report")
     @Operation(
             summary = "Сгенерировать отчет по CDR",
-            description = "Генерирует отчет по записям данных вызовов (CDR) для указанного MSISDN в заданном временном диапазоне"
+            description = "Ставит в очередь формирование отчета по записям данных вызовов (CDR) для указанного MSISDN в заданном временном диапазоне"
     )
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Процесс генерации отчета успешно запущен",
-                    content = @Content(schema = @Schema(type = "string", example = "Успешно сформирован cdr-отчет. UUID: a718ae8f-edf4-4c00-88d5-9d53eea95178"))),
+            @ApiResponse(responseCode = "202", description = "Задание на формирование отчета поставлено в очередь",
+                    content = @Content(schema = @Schema(type = "string", example = "Формирование cdr-отчета запущено. UUID: a718ae8f-edf4-4c00-88d5-9d53eea95178"))),
             @ApiResponse(responseCode = "400", description = "Ошибка валидации: неправильный формат параметров запроса (например, неверный формат года и месяца)",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class))),
+            @ApiResponse(responseCode = "503", description = "Очередь заданий на формирование отчетов переполнена",
                     content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
     })
     public ResponseEntity<String> generateCdrReport(
@@ -103,10 +219,76 @@ public class CdrRestController {
             @Parameter(description = "Дата окончания периода", required = true, example = "2024-07-01")
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate)
     {
-        UUID requestUUID = UUID.randomUUID();
+        UUID requestUUID = cdrReportJobService.submitCdrReport(msisdn, startDate, endDate);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/v1/cdr/report/%s/status".formatted(requestUUID)))
+                .body("Формирование cdr-отчета запущено. UUID: %s".formatted(requestUUID));
+    }
 
-        cdrService.generateCdrReport(msisdn, startDate, endDate, requestUUID);
+    /**
+     * Получение состояния задания на формирование отчета.
+     *
+     * @param uuid UUID задания, полученный при запуске формирования отчета
+     * @return Объект ResponseEntity с состоянием задания
+     */
+    @GetMapping("/report/{uuid}/status")
+    @Operation(
+            summary = "Получить состояние формирования отчета по CDR",
+            description = "Возвращает состояние задания (QUEUED, RUNNING, DONE, FAILED), количество записанных строк и время выполнения"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                    content = @Content(schema = @Schema(implementation = CdrReportJobDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public ResponseEntity<CdrReportJobDTO> getCdrReportStatus(
+            @Parameter(description = "UUID задания", required = true, example = "a718ae8f-edf4-4c00-88d5-9d53eea95178")
+            @PathVariable UUID uuid)
+    {
+        return ResponseEntity.ok(cdrReportJobService.getCdrReportJob(uuid));
+    }
+
+    /**
+     * Получение файла сформированного отчета.
+     * <p>
+     * Файл отдается через sendfile без копирования через кучу JVM, если коннектор
+     * его поддерживает, иначе копируется в поток ответа. Поддерживаются запросы диапазона байт
+     * ({@code Range}, {@code If-Range}) для докачки больших отчетов и условные
+     * запросы по {@code ETag} и {@code Last-Modified}.
+     * </p>
+     *
+     * @param uuid UUID задания, полученный при запуске формирования отчета
+     * @param request HTTP-запрос
+     * @param response HTTP-ответ, в который записывается содержимое файла
+     * @throws IOException при ошибке чтения файла отчета
+     */
+    @GetMapping("/report/{uuid}")
+    @Operation(
+            summary = "Получить отчет по CDR",
+            description = "Возвращает файл сформированного отчета по записям данных вызовов (CDR). Поддерживает заголовки Range, If-Range, If-None-Match и If-Modified-Since"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Файл отчета",
+                    content = @Content(mediaType = "text/plain", schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "206", description = "Запрошенный диапазон байт файла отчета",
+                    content = @Content(mediaType = "text/plain", schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "304", description = "Файл отчета не изменился", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class))),
+            @ApiResponse(responseCode = "409", description = "Отчет еще не сформирован или задание завершилось ошибкой",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class))),
+            @ApiResponse(responseCode = "416", description = "Запрошенный диапазон байт выходит за пределы файла", content = @Content)
+    })
+    public void getCdrReport(
+            @Parameter(description = "UUID задания", required = true, example = "a718ae8f-edf4-4c00-88d5-9d53eea95178")
+            @PathVariable UUID uuid,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException
+    {
+        Path reportFilePath = cdrReportJobService.getCdrReportPath(uuid);
 
-        return ResponseEntity.ok("Успешно сформирован cdr-отчет. UUID: %s".formatted(requestUUID));
+        FileTransfers.sendAttachment(request, response, reportFilePath, new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,62 @@
+package org.example.roamingaggregatorservice.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.roamingaggregatorservice.services.DatabaseSnapshotService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+
+/**
+ * REST-контроллер снимков базы данных.
+ * <p>
+ * Доступен в профиле {@code persistent}, в котором база данных H2 хранится в файле.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/v1/snapshot")
+@Profile("persistent")
+@Tag(name = "Snapshot", description = "Снимки базы данных для быстрого восстановления при старте")
+public class DatabaseSnapshotRestController {
+
+    private final DatabaseSnapshotService snapshotService;
+
+    public DatabaseSnapshotRestController(DatabaseSnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    /**
+     * Создание снимка базы данных.
+     * <p>
+     * Метод копирует файл базы данных в zip-архив без остановки приложения. Для
+     * восстановления путь к архиву передается при старте в параметре
+     * {@code h2.snapshot.restore-from}.
+     * </p>
+     *
+     * @return Объект ResponseEntity с путем к архиву снимка
+     */
+    @PostMapping
+    @Operation(
+            summary = "Создать снимок базы данных",
+            description = "Копирует файл базы данных H2 в zip-архив в каталоге h2.snapshot.dir и возвращает путь к архиву"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Снимок создан",
+                    content = @Content(schema = @Schema(type = "string", example = "Снимок базы данных создан: /var/lib/roaming-aggregator/snapshots/roaming-aggregator-db-20250101-120000.zip")))
+    })
+    public ResponseEntity<String> createSnapshot() {
+        Path snapshot = snapshotService.createSnapshot();
+        return ResponseEntity.ok("Снимок базы данных создан: %s".formatted(snapshot));
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.roamingaggregatorservice.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Pattern;
+import org.example.roamingaggregatorservice.dto.ExceptionDTO;
+import org.example.roamingaggregatorservice.dto.UdrDTO;
+import org.example.roamingaggregatorservice.services.ReactiveUdrService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+
+/**
+ * REST-контроллер асинхронного чтения UDR для профиля {@code reactive}.
+ * <p>
+ * Дополняет {@link UdrRestController} запросами по пути {@code /v1/udr/reactive}, которые
+ * возвращают {@link Mono} и {@link Flux}: Spring MVC обрабатывает их в асинхронном режиме
+ * сервлета, и поток Tomcat освобождается на время чтения. Ответы совпадают с ответами
+ * {@link UdrRestController}, поскольку формируются тем же сервисом UDR
+ * (см. {@link ReactiveUdrService}).
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/v1/udr/reactive")
+@Validated
+@Profile("reactive")
+@Tag(name = "UDR", description = "Операции с записями данных пользователя (User Data Records)")
+public class ReactiveUdrRestController {
+
+    private final ReactiveUdrService reactiveUdrService;
+
+    /**
+     * Конструктор контроллера асинхронного чтения UDR.
+     *
+     * @param reactiveUdrService Сервис асинхронного чтения UDR
+     */
+    public ReactiveUdrRestController(ReactiveUdrService reactiveUdrService) {
+        this.reactiveUdrService = reactiveUdrService;
+    }
+
+    /**
+     * Асинхронное получение записей данных по конкретному абоненту.
+     * <p>
+     * Если параметр yearAndMonth не указан, возвращаются данные за все время.
+     * </p>
+     *
+     * @param msisdn Номер мобильного телефона абонента
+     * @param yearAndMonth Опционально: год и месяц в формате yyyy-mm (например, 2023-05)
+     * @return Данные абонента за месяц или за все время
+     */
+    @GetMapping
+    @Operation(
+            summary = "Получить UDR для абонента асинхронно",
+            description = "Возвращает записи данных для конкретного абонента за все время или за указанный месяц, освобождая поток обработки запроса на время чтения"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                    content = @Content(schema = @Schema(implementation = UdrDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации: неправильный формат года и месяца или абонент не найден",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public Mono<UdrDTO> getUdrForSubscriber(
+            @Parameter(description = "Номер мобильного телефона абонента", example = "79999999999")
+            @RequestParam
+            String msisdn,
+
+            @Parameter(description = "Год и месяц в формате yyyy-mm (например, 2024-05)", example = "2024-05")
+            @RequestParam(required = false)
+            @Pattern(regexp = "^\\d{4}-(0[1-9]|1[0-2])$", message = "Предоставленный год и месяц не соответствуют формату yyyy-mm")
+            String yearAndMonth
+    ) {
+        if (Objects.nonNull(yearAndMonth)) {
+            return reactiveUdrService.generateUdrForSubscriberForMonth(msisdn, yearAndMonth);
+        }
+        return reactiveUdrService.generateUdrForSubscriberForAllTime(msisdn);
+    }
+
+    /**
+     * Асинхронное получение записей данных для всех абонентов за указанный месяц.
+     * <p>
+     * При запросе {@code application/json} UDR собираются в массив, при
+     * {@code application/x-ndjson} записываются по одной строке JSON на абонента.
+     * </p>
+     *
+     * @param yearAndMonth Год и месяц в формате yyyy-mm (например, 2023-05)
+     * @return Поток данных по всем абонентам
+     */
+    @GetMapping(value = "/all", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(
+            summary = "Получить UDR для всех абонентов за месяц асинхронно",
+            description = "Возвращает записи данных для всех абонентов за указанный месяц массивом JSON или потоком NDJSON"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный ответ", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = UdrDTO.class))),
+                    @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = UdrDTO.class))}),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации: неправильный формат года и месяца",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public Flux<UdrDTO> getUdrForAllSubscribersForOneMonth(
+            @Parameter(description = "Год и месяц в формате yyyy-mm (например, 2024-05)", example = "2024-05")
+            @Pattern(regexp = "^\\d{4}-(0[1-9]|1[0-2])$", message = "Предоставленный год и месяц не соответствуют формату yyyy-mm")
+            @RequestParam
+            String yearAndMonth
+    ) {
+        return reactiveUdrService.generateUdrForAllSubscribersForMonth(yearAndMonth);
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.roamingaggregatorservice.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -7,19 +9,27 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Pattern;
-import org.example.roamingaggregatorservice.dto.CallDataDTO;
 import org.example.roamingaggregatorservice.dto.ExceptionDTO;
+import org.example.roamingaggregatorservice.dto.UdrBatchRequestDTO;
 import org.example.roamingaggregatorservice.dto.UdrDTO;
-import org.example.roamingaggregatorservice.services.CdrService;
+import org.example.roamingaggregatorservice.dto.UdrHistogramDTO;
+import org.example.roamingaggregatorservice.dto.UdrPageDTO;
 import org.example.roamingaggregatorservice.services.UdrService;
-
-
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalTime;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 
@@ -41,14 +51,17 @@ import java.util.Objects;
 public class UdrRestController {
 
     private final UdrService udrService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Конструктор контроллера UDR.
      *
      * @param udrService Сервис для работы с UDR данными
+     * @param objectMapper Сериализатор JSON для потоковой выдачи
      */
-    public UdrRestController(UdrService udrService) {
+    public UdrRestController(UdrService udrService, ObjectMapper objectMapper) {
         this.udrService = udrService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -93,6 +106,82 @@ public class UdrRestController {
         return ResponseEntity.ok(dto);
     }
 
+    /**
+     * Получение записей данных по конкретному абоненту за период.
+     * <p>
+     * Метод возвращает информацию о входящих и исходящих звонках указанного абонента,
+     * начатых с первого по последний день периода включительно. Время вычисляется
+     * по накопленному по дням времени звонков и не зависит от длины периода.
+     * </p>
+     *
+     * @param msisdn Номер мобильного телефона абонента
+     * @param startDate Первый день периода
+     * @param endDate Последний день периода
+     * @return Объект ResponseEntity, содержащий данные абонента за период
+     */
+    @GetMapping("/period")
+    @Operation(
+            summary = "Получить UDR для абонента за период",
+            description = "Возвращает записи данных для конкретного абонента за произвольный период по дням начала звонков"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                    content = @Content(schema = @Schema(implementation = UdrDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации: неправильный формат дат или дата начала периода позже даты окончания",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public ResponseEntity<UdrDTO> getUdrForSubscriberForPeriod(
+            @Parameter(description = "Номер мобильного телефона абонента", example = "79999999999")
+            @RequestParam
+            String msisdn,
+
+            @Parameter(description = "Первый день периода", example = "2024-03-01")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate startDate,
+
+            @Parameter(description = "Последний день периода", example = "2024-07-01")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate endDate
+    ) {
+        return ResponseEntity.ok(udrService.generateUdrForSubscriberForPeriod(msisdn, startDate, endDate));
+    }
+
+    /**
+     * Получение гистограммы использования связи абонентом за месяц.
+     * <p>
+     * Метод возвращает время входящих и исходящих звонков абонента за месяц,
+     * распределенное по часам суток, дням недели и часам каждого дня недели.
+     * Звонок, пересекающий границу часа, учитывается в каждом пересеченном часе.
+     * </p>
+     *
+     * @param msisdn Номер мобильного телефона абонента
+     * @param yearAndMonth Год и месяц в формате yyyy-mm (например, 2023-05)
+     * @return Объект ResponseEntity, содержащий гистограмму использования абонента
+     */
+    @GetMapping("/histogram")
+    @Operation(
+            summary = "Получить гистограмму использования абонента за месяц",
+            description = "Возвращает время входящих и исходящих звонков абонента за месяц по часам суток и дням недели, в секундах"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                    content = @Content(schema = @Schema(implementation = UdrHistogramDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации: неправильный формат года и месяца или абонент не найден",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public ResponseEntity<UdrHistogramDTO> getUsageHistogramForSubscriber(
+            @Parameter(description = "Номер мобильного телефона абонента", example = "79999999999")
+            @RequestParam
+            String msisdn,
+
+            @Parameter(description = "Год и месяц в формате yyyy-mm (например, 2024-05)", example = "2024-05")
+            @RequestParam
+            @Pattern(regexp = "^\\d{4}-(0[1-9]|1[0-2])$", message = "Предоставленный год и месяц не соответствуют формату yyyy-mm")
+            String yearAndMonth
+    ) {
+        return ResponseEntity.ok(udrService.generateUsageHistogramForSubscriberForMonth(msisdn, yearAndMonth));
+    }
+
     /**
      * Получение записей данных для всех абонентов за указанный месяц.
      * <p>
@@ -103,7 +192,7 @@ public class UdrRestController {
      * @param yearAndMonth Год и месяц в формате yyyy-mm (например, 2023-05)
      * @return Объект ResponseEntity, содержащий список данных по всем абонентам
      */
-    @GetMapping("/all")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(
             summary = "Получить UDR для всех абонентов за месяц",
             description = "Возвращает записи данных для всех абонентов за указанный месяц"
@@ -123,4 +212,142 @@ public class UdrRestController {
         List<UdrDTO> dtos = udrService.generateUdrForAllSubscribersForMonth(yearAndMonth);
         return ResponseEntity.ok(dtos);
     }
+
+    /**
+     * Получение страницы записей данных для всех абонентов за указанный месяц.
+     * <p>
+     * Абоненты упорядочены по номеру. Первая страница запрашивается без токена,
+     * следующие - с токеном {@code nextPageToken} из предыдущей страницы; на последней
+     * странице токен отсутствует.
+     * </p>
+     *
+     * @param yearAndMonth Год и месяц в формате yyyy-mm (например, 2023-05)
+     * @param pageSize Максимальное количество UDR на странице
+     * @param pageToken Опционально: токен продолжения из предыдущей страницы
+     * @return Объект ResponseEntity со страницей UDR и токеном следующей страницы
+     */
+    @GetMapping("/all/page")
+    @Operation(
+            summary = "Получить страницу UDR для всех абонентов за месяц",
+            description = "Возвращает записи данных для абонентов за указанный месяц постранично по возрастанию номера, с токеном продолжения"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                    content = @Content(schema = @Schema(implementation = UdrPageDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации: неправильный формат года и месяца, размер страницы или токен продолжения",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public ResponseEntity<UdrPageDTO> getUdrPageForAllSubscribersForOneMonth(
+            @Parameter(description = "Год и месяц в формате yyyy-mm (например, 2024-05)", example = "2024-05")
+            @Pattern(regexp = "^\\d{4}-(0[1-9]|1[0-2])$", message = "Предоставленный год и месяц не соответствуют формату yyyy-mm")
+            @RequestParam
+            String yearAndMonth,
+
+            @Parameter(description = "Максимальное количество UDR на странице", example = "1000")
+            @RequestParam(defaultValue = "1000") @Min(1) @Max(10_000)
+            int pageSize,
+
+            @Parameter(description = "Токен продолжения из предыдущей страницы")
+            @RequestParam(required = false)
+            String pageToken
+    ) {
+        return ResponseEntity.ok(udrService.generateUdrPageForAllSubscribersForMonth(yearAndMonth, pageSize, pageToken));
+    }
+
+    /**
+     * Потоковая выдача записей данных для всех абонентов за указанный месяц в формате NDJSON.
+     * <p>
+     * Выбирается при запросе {@code Accept: application/x-ndjson}. UDR каждого абонента
+     * записывается в ответ отдельной строкой JSON сразу после чтения, без построения
+     * списка, поэтому время до первого байта и потребление памяти не зависят от количества
+     * абонентов. Ошибка после начала выдачи обрывает ответ.
+     * </p>
+     *
+     * @param yearAndMonth Год и месяц в формате yyyy-mm (например, 2023-05)
+     * @param response HTTP-ответ
+     * @throws IOException при ошибке записи ответа
+     */
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Получить UDR для всех абонентов за месяц потоком NDJSON",
+            description = "Возвращает записи данных для всех абонентов за указанный месяц, по одной строке JSON на абонента"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = UdrDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации: неправильный формат года и месяца",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public void streamUdrForAllSubscribersForOneMonth(
+            @Parameter(description = "Год и месяц в формате yyyy-mm (например, 2024-05)", example = "2024-05")
+            @Pattern(regexp = "^\\d{4}-(0[1-9]|1[0-2])$", message = "Предоставленный год и месяц не соответствуют формату yyyy-mm")
+            @RequestParam
+            String yearAndMonth,
+            HttpServletResponse response
+    ) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            udrService.forEachUdrForAllSubscribersForMonth(yearAndMonth, dto -> {
+                try {
+                    generator.writeObject(dto);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Получение записей данных для набора абонентов.
+     * <p>
+     * Все номера проверяются, а время звонков суммируется одним запросом. Если хотя бы
+     * один номер не зарегистрирован, возвращается ошибка со списком не найденных номеров.
+     * Результаты возвращаются в порядке номеров в запросе.
+     * </p>
+     *
+     * @param request Номера абонентов и опционально год и месяц
+     * @return Объект ResponseEntity со списком UDR
+     */
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Получить UDR для набора абонентов",
+            description = "Возвращает записи данных для указанных абонентов за все время или за указанный месяц в порядке номеров в запросе"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешный ответ",
+                    content = @Content(schema = @Schema(implementation = List.class))),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации запроса или часть абонентов не найдена",
+                    content = @Content(schema = @Schema(implementation = ExceptionDTO.class)))
+    })
+    public ResponseEntity<List<UdrDTO>> getUdrForSubscribers(@Valid @RequestBody UdrBatchRequestDTO request) {
+        return ResponseEntity.ok(udrService.generateUdrForSubscribers(request.msisdns(), request.yearAndMonth()));
+    }
+
+    /**
+     * Перестройка помесячной витрины использования.
+     * <p>
+     * Метод пересчитывает витрину по всем сохраненным записям CDR. Нужен для данных,
+     * сохраненных до появления витрины или в обход репозитория CDR.
+     * </p>
+     *
+     * @return Объект ResponseEntity с количеством строк витрины
+     */
+    @PostMapping("/rollup/rebuild")
+    @Operation(
+            summary = "Перестроить помесячную витрину использования",
+            description = "Пересчитывает суммарное время и количество звонков абонентов по месяцам по всем сохраненным CDR"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Витрина успешно перестроена",
+                    content = @Content(schema = @Schema(type = "string", example = "Помесячная витрина использования перестроена. Строк: 24")))
+    })
+    public ResponseEntity<String> rebuildMonthlyUsage() {
+        long rows = udrService.rebuildMonthlyUsage();
+        return ResponseEntity.ok("Помесячная витрина использования перестроена. Строк: %d".formatted(rows));
+    }
 }
@@ -0,0 +1,35 @@
+package org.example.roamingaggregatorservice.converters;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Преобразователь типа вызова ("01", "02") в числовой код для хранения в столбце {@code TINYINT}.
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Converter
+public class CallTypeConverter implements AttributeConverter<String, Byte> {
+
+    /**
+     * @param callType Тип вызова из двух цифр
+     * @return Числовой код типа вызова
+     * @throws IllegalArgumentException если тип вызова не является двузначным числом
+     */
+    @Override
+    public Byte convertToDatabaseColumn(String callType) {
+        if (callType == null) return null;
+
+        if (callType.length() != 2 || !Character.isDigit(callType.charAt(0)) || !Character.isDigit(callType.charAt(1))) {
+            throw new IllegalArgumentException("Тип вызова должен состоять из двух цифр: " + callType);
+        }
+        return (byte) ((callType.charAt(0) - '0') * 10 + (callType.charAt(1) - '0'));
+    }
+
+    @Override
+    public String convertToEntityAttribute(Byte code) {
+        if (code == null) return null;
+        return code < 10 ? "0" + code : code.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.roamingaggregatorservice.converters;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Преобразователь даты и времени в количество миллисекунд от начала эпохи
+ * для хранения в столбце {@code BIGINT}.
+ * <p>
+ * Дата и время кодируются как время UTC без пересчета часовых поясов, поэтому
+ * значение восстанавливается с точностью до миллисекунды, а порядок значений
+ * совпадает с порядком дат. Применяется и к параметрам запросов, в которых
+ * дата сравнивается с атрибутом сущности.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Converter
+public class EpochMilliConverter implements AttributeConverter<LocalDateTime, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(LocalDateTime dateTime) {
+        return dateTime == null ? null : toEpochMilli(dateTime);
+    }
+
+    @Override
+    public LocalDateTime convertToEntityAttribute(Long epochMilli) {
+        return epochMilli == null ? null : fromEpochMilli(epochMilli);
+    }
+
+    /**
+     * @param dateTime Дата и время
+     * @return Количество миллисекунд от начала эпохи; доли миллисекунды отбрасываются
+     */
+    public static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000 + dateTime.getNano() / 1_000_000;
+    }
+
+    /**
+     * @param epochMilli Количество миллисекунд от начала эпохи
+     * @return Дата и время
+     */
+    public static LocalDateTime fromEpochMilli(long epochMilli) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMilli, 1000), (int) Math.floorMod(epochMilli, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
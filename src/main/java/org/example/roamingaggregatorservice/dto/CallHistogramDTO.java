@@ -0,0 +1,25 @@
+package org.example.roamingaggregatorservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO для представления распределения времени звонков по часам суток и дням недели.
+ * Время указывается в секундах; дни недели нумеруются с понедельника.
+ *
+ * @param byHourOfDay Время звонков по часам суток (24 значения)
+ * @param byDayOfWeek Время звонков по дням недели (7 значений)
+ * @param byDayOfWeekAndHour Время звонков по дням недели и часам суток (7 x 24 значения)
+ */
+@Schema(description = "Распределение времени звонков по часам суток и дням недели, в секундах")
+public record CallHistogramDTO(
+        @Schema(description = "Время звонков по часам суток с 0 до 23, в секундах")
+        long[] byHourOfDay,
+
+        @Schema(description = "Время звонков по дням недели с понедельника по воскресенье, в секундах")
+        long[] byDayOfWeek,
+
+        @Schema(description = "Время звонков по дням недели с понедельника и часам суток, в секундах")
+        int[][] byDayOfWeekAndHour
+) {
+
+}
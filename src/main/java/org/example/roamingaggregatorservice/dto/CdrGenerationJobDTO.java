@@ -0,0 +1,43 @@
+package org.example.roamingaggregatorservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.example.roamingaggregatorservice.jobs.CdrGenerationJobStatus;
+
+import java.util.UUID;
+
+/**
+ * DTO для представления состояния задания на массовую генерацию CDR.
+ *
+ * @param uuid Идентификатор задания
+ * @param status Состояние задания
+ * @param requestedCdrs Количество записей для генерации
+ * @param generatedCdrs Количество сгенерированных и сохраненных записей
+ * @param elapsedMillis Время выполнения задания в миллисекундах
+ * @param cdrsPerSecond Пропускная способность в записях в секунду
+ * @param errorMessage Сообщение об ошибке для завершившегося с ошибкой задания
+ */
+@Schema(description = "Состояние задания на массовую генерацию CDR")
+public record CdrGenerationJobDTO(
+        @Schema(description = "Идентификатор задания", example = "3f1c2a9e-7b4d-4e8a-9c51-0d2b6f8e4a17")
+        UUID uuid,
+
+        @Schema(description = "Состояние задания", example = "RUNNING")
+        CdrGenerationJobStatus status,
+
+        @Schema(description = "Количество записей для генерации", example = "10000000")
+        long requestedCdrs,
+
+        @Schema(description = "Количество сохраненных записей", example = "4500000")
+        long generatedCdrs,
+
+        @Schema(description = "Время выполнения в миллисекундах", example = "42000")
+        long elapsedMillis,
+
+        @Schema(description = "Пропускная способность, записей в секунду", example = "107142")
+        long cdrsPerSecond,
+
+        @Schema(description = "Сообщение об ошибке, если задание завершилось с ошибкой", example = "Could not execute JDBC batch")
+        String errorMessage
+) {
+
+}
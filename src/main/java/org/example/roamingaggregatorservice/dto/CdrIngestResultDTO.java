@@ -0,0 +1,28 @@
+package org.example.roamingaggregatorservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO для представления результата загрузки CDR из CSV.
+ *
+ * @param acceptedCdrs Количество сохраненных записей
+ * @param rejectedCdrs Количество отклоненных строк
+ * @param elapsedMillis Время загрузки в миллисекундах
+ * @param cdrsPerSecond Пропускная способность в сохраненных записях в секунду
+ */
+@Schema(description = "Результат загрузки CDR из CSV")
+public record CdrIngestResultDTO(
+        @Schema(description = "Количество сохраненных записей", example = "999990")
+        long acceptedCdrs,
+
+        @Schema(description = "Количество отклоненных строк: неверный формат или незарегистрированный номер", example = "10")
+        long rejectedCdrs,
+
+        @Schema(description = "Время загрузки в миллисекундах", example = "9500")
+        long elapsedMillis,
+
+        @Schema(description = "Пропускная способность, записей в секунду", example = "105262")
+        long cdrsPerSecond
+) {
+
+}
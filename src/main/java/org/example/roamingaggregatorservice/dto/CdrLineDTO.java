@@ -0,0 +1,26 @@
+package org.example.roamingaggregatorservice.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO для представления записи CDR из строки cdr-отчета.
+ * <p>
+ * Стороны звонка заданы номерами, а не ссылками на абонентов: номера заменяются
+ * ссылками при сохранении через {@code CdrBatchRepository#batchInsertLines(List)}.
+ * </p>
+ *
+ * @param callType Тип вызова (01 - входящий, 02 - исходящий)
+ * @param callerNumber Номер вызывающего абонента
+ * @param calledNumber Номер вызываемого абонента
+ * @param startDateTime Время начала вызова
+ * @param finishDateTime Время завершения вызова
+ */
+public record CdrLineDTO(
+        String callType,
+        String callerNumber,
+        String calledNumber,
+        LocalDateTime startDateTime,
+        LocalDateTime finishDateTime
+) {
+
+}
@@ -0,0 +1,39 @@
+package org.example.roamingaggregatorservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.example.roamingaggregatorservice.jobs.CdrReportJobStatus;
+
+import java.util.UUID;
+
+/**
+ * DTO для представления состояния задания на формирование cdr-отчета.
+ *
+ * @param uuid Идентификатор задания и отчета
+ * @param msisdn Номер абонента
+ * @param status Состояние задания
+ * @param rowsWritten Количество записей, записанных в отчет
+ * @param elapsedMillis Время выполнения задания в миллисекундах
+ * @param errorMessage Сообщение об ошибке для завершившегося с ошибкой задания
+ */
+@Schema(description = "Состояние задания на формирование cdr-отчета")
+public record CdrReportJobDTO(
+        @Schema(description = "Идентификатор задания и отчета", example = "a718ae8f-edf4-4c00-88d5-9d53eea95178")
+        UUID uuid,
+
+        @Schema(description = "Номер абонента (MSISDN)", example = "79123456789")
+        String msisdn,
+
+        @Schema(description = "Состояние задания", example = "RUNNING")
+        CdrReportJobStatus status,
+
+        @Schema(description = "Количество записей, записанных в отчет", example = "15000")
+        long rowsWritten,
+
+        @Schema(description = "Время выполнения в миллисекундах", example = "1200")
+        long elapsedMillis,
+
+        @Schema(description = "Сообщение об ошибке, если задание завершилось с ошибкой", example = "Cant write to file.")
+        String errorMessage
+) {
+
+}
@@ -0,0 +1,29 @@
+package org.example.roamingaggregatorservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO запроса UDR для набора абонентов.
+ *
+ * @param msisdns Номера абонентов
+ * @param yearAndMonth Опционально: год и месяц в формате yyyy-mm; без него UDR формируются за все время
+ */
+@Schema(description = "Запрос записей данных пользователя (UDR) для набора абонентов")
+public record UdrBatchRequestDTO(
+        @Schema(description = "Номера абонентов (MSISDN); UDR возвращаются в том же порядке", example = "[\"79123456789\", \"79876543210\"]")
+        @NotEmpty(message = "Список номеров абонентов не должен быть пустым")
+        @Size(max = 100_000, message = "Список номеров абонентов не должен содержать больше 100000 номеров")
+        List<@NotBlank(message = "Номер абонента не должен быть пустым") String> msisdns,
+
+        @Schema(description = "Год и месяц в формате yyyy-mm; если не указан, UDR формируются за все время", example = "2024-05")
+        @Pattern(regexp = "^\\d{4}-(0[1-9]|1[0-2])$", message = "Предоставленный год и месяц не соответствуют формату yyyy-mm")
+        String yearAndMonth
+) {
+
+}
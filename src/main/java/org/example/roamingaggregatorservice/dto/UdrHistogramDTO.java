@@ -0,0 +1,28 @@
+package org.example.roamingaggregatorservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO для представления помесячной гистограммы использования связи абонентом.
+ *
+ * @param msisdn Номер мобильного телефона абонента
+ * @param yearAndMonth Год и месяц в формате yyyy-mm
+ * @param incomingCall Распределение времени входящих звонков
+ * @param outcomingCall Распределение времени исходящих звонков
+ */
+@Schema(description = "Гистограмма использования связи абонентом за месяц")
+public record UdrHistogramDTO(
+        @Schema(description = "Номер мобильного телефона абонента", example = "79123456789")
+        String msisdn,
+
+        @Schema(description = "Год и месяц в формате yyyy-mm", example = "2024-05")
+        String yearAndMonth,
+
+        @Schema(description = "Распределение времени входящих звонков")
+        CallHistogramDTO incomingCall,
+
+        @Schema(description = "Распределение времени исходящих звонков")
+        CallHistogramDTO outcomingCall
+) {
+
+}
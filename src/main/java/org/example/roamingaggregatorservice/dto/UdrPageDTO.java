@@ -0,0 +1,22 @@
+package org.example.roamingaggregatorservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * DTO для представления страницы UDR всех абонентов.
+ *
+ * @param udrs UDR абонентов страницы в порядке возрастания номера
+ * @param nextPageToken Токен продолжения для следующей страницы или {@code null} для последней страницы
+ */
+@Schema(description = "Страница записей данных пользователя (UDR)")
+public record UdrPageDTO(
+        @Schema(description = "UDR абонентов страницы в порядке возрастания номера")
+        List<UdrDTO> udrs,
+
+        @Schema(description = "Токен продолжения для следующей страницы; отсутствует на последней странице", example = "MjAyMy0wNTo3OTAwMDAwMDAwNQ")
+        String nextPageToken
+) {
+
+}
@@ -2,8 +2,14 @@ package org.example.roamingaggregatorservice.entities;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
+import org.example.roamingaggregatorservice.converters.CallTypeConverter;
+import org.example.roamingaggregatorservice.converters.EpochMilliConverter;
+import org.example.roamingaggregatorservice.projections.DailyCallTimeView;
+import org.example.roamingaggregatorservice.projections.MonthlyCallTimeView;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 /**
@@ -13,23 +19,62 @@ import java.util.Objects;
  * включая время начала и окончания звонка, типа звонка, а также
  * номера вызывающего и вызываемого абонентов.
  * </p>
+ * <p>
+ * Составные индексы по номеру абонента и времени начала вызова позволяют
+ * выбирать звонки абонента за период диапазонным сканированием индекса,
+ * а индекс по времени начала - звонки всех абонентов за период.
+ * </p>
+ * <p>
+ * Запись хранится в компактном виде: стороны звонка - внешними ключами на абонентов
+ * {@code caller_id} и {@code called_id}, тип вызова - кодом {@code TINYINT}, время
+ * начала - количеством миллисекунд от начала эпохи {@code BIGINT}, время окончания -
+ * продолжительностью звонка в миллисекундах {@code BIGINT}. Преобразование выполняется
+ * при записи и чтении, поэтому тип вызова остается строкой, а время - {@link LocalDateTime}
+ * с точностью до миллисекунды. Стороны звонка задаются только ссылками на абонентов,
+ * номер стороны берется из связанного абонента; записи с номерами
+ * сторон ({@link org.example.roamingaggregatorservice.dto.CdrLineDTO}) сохраняются через
+ * {@code CdrBatchRepository#batchInsertLines(List)}, который заменяет номера ссылками.
+ * </p>
+ * <p>
+ * Время начала звонка предполагается не ранее 1970 года: день начала вычисляется в SQL
+ * целочисленным делением. Отображения {@code MonthlyCallTimeView} и {@code DailyCallTimeView}
+ * используются SQL-запросами с группировкой по месяцу и дню начала звонка.
+ * </p>
  * 
  * @author Сервис роуминговой агрегации
  * @since 1.0
  */
 @Entity
-@Table(name = "cdrs")
+@Table(name = "cdrs", indexes = {
+        @Index(name = "idx_cdrs_caller_id_start_epoch_milli", columnList = "caller_id, start_epoch_milli"),
+        @Index(name = "idx_cdrs_called_id_start_epoch_milli", columnList = "called_id, start_epoch_milli"),
+        @Index(name = "idx_cdrs_start_epoch_milli", columnList = "start_epoch_milli")
+})
+@SqlResultSetMapping(name = "MonthlyCallTimeView", classes = @ConstructorResult(targetClass = MonthlyCallTimeView.class, columns = {
+        @ColumnResult(name = "subscriber_id", type = Long.class),
+        @ColumnResult(name = "usage_year", type = Integer.class),
+        @ColumnResult(name = "usage_month", type = Integer.class),
+        @ColumnResult(name = "total_call_time_nanos", type = Long.class),
+        @ColumnResult(name = "calls", type = Long.class)
+}))
+@SqlResultSetMapping(name = "DailyCallTimeView", classes = @ConstructorResult(targetClass = DailyCallTimeView.class, columns = {
+        @ColumnResult(name = "msisdn", type = String.class),
+        @ColumnResult(name = "usage_day", type = LocalDate.class),
+        @ColumnResult(name = "total_call_time_nanos", type = Long.class)
+}))
 @Schema(description = "Запись данных вызова (Call Data Record)")
 public class Cdr {
 
     /**
      * Уникальный идентификатор записи CDR.
      * <p>
-     * Автоматически генерируется базой данных при сохранении.
+     * Выделяется из последовательности {@code cdrs_seq} блоками по 50 значений
+     * (оптимизатор pooled-lo), что позволяет Hibernate объединять вставки в JDBC-пакеты.
      * </p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cdrs_seq")
+    @SequenceGenerator(name = "cdrs_seq", sequenceName = "cdrs_seq", allocationSize = 50)
     @Schema(description = "Уникальный идентификатор записи", example = "1")
     private Long id;
 
@@ -40,36 +85,54 @@ public class Cdr {
      * </p>
      */
     @Column(name = "call_type", nullable = false)
+    @Convert(converter = CallTypeConverter.class)
     @Schema(description = "Тип вызова (01 - входящий, 02 - исходящий)", example = "01")
     private String callType;
 
     /**
-     * Номер телефона вызывающего абонента.
+     * Вызывающий абонент.
      */
-    @Column(name = "caller_number", nullable = false)
-    @Schema(description = "Номер вызывающего абонента", example = "79123456789")
-    private String callerNumber;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "caller_id", nullable = false, foreignKey = @ForeignKey(name = "fk_cdrs_caller_id"))
+    @Schema(hidden = true)
+    private Subscriber caller;
 
     /**
-     * Номер телефона вызываемого абонента.
+     * Вызываемый абонент.
      */
-    @Column(name = "called_number", nullable = false)
-    @Schema(description = "Номер вызываемого абонента", example = "79876543210")
-    private String calledNumber;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "called_id", nullable = false, foreignKey = @ForeignKey(name = "fk_cdrs_called_id"))
+    @Schema(hidden = true)
+    private Subscriber called;
 
     /**
      * Дата и время начала вызова.
      */
-    @Column(name = "start_date_time", nullable = false)
+    @Column(name = "start_epoch_milli", nullable = false)
+    @Convert(converter = EpochMilliConverter.class)
     @Schema(description = "Время начала вызова", example = "2023-01-15T14:30:15")
     private LocalDateTime startDateTime;
 
     /**
-     * Дата и время окончания вызова.
+     * Дата и время окончания вызова, заданные до времени начала.
+     * <p>
+     * Не хранится в базе данных: как только задано время начала, окончание
+     * переводится в продолжительность вызова и далее только вычисляется по ним.
+     * </p>
      */
-    @Column(name = "finish_date_time", nullable = false)
-    @Schema(description = "Время завершения вызова", example = "2023-01-15T14:35:45")
-    private LocalDateTime finishDateTime;
+    @Transient
+    private LocalDateTime pendingFinishDateTime;
+
+    /**
+     * Продолжительность вызова в миллисекундах.
+     * <p>
+     * Единственный источник времени окончания вызова: оно вычисляется как
+     * время начала плюс продолжительность.
+     * </p>
+     */
+    @Column(name = "duration_millis", nullable = false)
+    @Schema(hidden = true)
+    private long durationMillis;
 
     public Long getId() {
         return id;
@@ -87,48 +150,101 @@ public class Cdr {
         this.callType = callType;
     }
 
-    public String getCallerNumber() {
-        return callerNumber;
+    public Subscriber getCaller() {
+        return caller;
     }
 
-    public void setCallerNumber(String callerNumber) {
-        this.callerNumber = callerNumber;
+    public void setCaller(Subscriber caller) {
+        this.caller = caller;
     }
 
-    public String getCalledNumber() {
-        return calledNumber;
+    public Subscriber getCalled() {
+        return called;
     }
 
-    public void setCalledNumber(String calledNumber) {
-        this.calledNumber = calledNumber;
+    public void setCalled(Subscriber called) {
+        this.called = called;
+    }
+
+    /**
+     * @return Номер вызывающего абонента или {@code null}, если абонент не задан
+     */
+    public String getCallerNumber() {
+        return caller != null ? caller.getMsisdn() : null;
+    }
+
+    /**
+     * @return Номер вызываемого абонента или {@code null}, если абонент не задан
+     */
+    public String getCalledNumber() {
+        return called != null ? called.getMsisdn() : null;
     }
 
     public LocalDateTime getStartDateTime() {
         return startDateTime;
     }
 
+    /**
+     * Задает время начала вызова с точностью хранения в базе данных.
+     * <p>
+     * Если время окончания было задано раньше времени начала, продолжительность
+     * вычисляется по ним; иначе продолжительность сохраняется, и время окончания
+     * сдвигается вместе с временем начала.
+     * </p>
+     *
+     * @param startDateTime Время начала вызова
+     */
     public void setStartDateTime(LocalDateTime startDateTime) {
-        this.startDateTime = startDateTime;
+        this.startDateTime = startDateTime == null ? null : startDateTime.truncatedTo(ChronoUnit.MILLIS);
+        if (this.startDateTime != null && pendingFinishDateTime != null) {
+            setFinishDateTime(pendingFinishDateTime);
+        }
     }
 
+    /**
+     * @return Время начала плюс продолжительность вызова либо время окончания,
+     * заданное до времени начала
+     */
+    @Schema(description = "Время завершения вызова", example = "2023-01-15T14:35:45")
     public LocalDateTime getFinishDateTime() {
-        return finishDateTime;
+        if (startDateTime == null) return pendingFinishDateTime;
+        return EpochMilliConverter.fromEpochMilli(EpochMilliConverter.toEpochMilli(startDateTime) + durationMillis);
     }
 
+    /**
+     * Задает время окончания вызова через продолжительность от времени начала.
+     * <p>
+     * Если время начала еще не задано, время окончания запоминается до его установки.
+     * </p>
+     *
+     * @param finishDateTime Время окончания вызова
+     */
     public void setFinishDateTime(LocalDateTime finishDateTime) {
-        this.finishDateTime = finishDateTime;
+        if (startDateTime == null || finishDateTime == null) {
+            pendingFinishDateTime = finishDateTime == null ? null : finishDateTime.truncatedTo(ChronoUnit.MILLIS);
+            return;
+        }
+        pendingFinishDateTime = null;
+        durationMillis = EpochMilliConverter.toEpochMilli(finishDateTime) - EpochMilliConverter.toEpochMilli(startDateTime);
+    }
+
+    /**
+     * @return Продолжительность вызова в миллисекундах с точностью хранения времени в базе данных
+     */
+    public long getDurationMillis() {
+        return durationMillis;
     }
 
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         Cdr cdr = (Cdr) o;
-        return Objects.equals(id, cdr.id) && Objects.equals(callType, cdr.callType) && Objects.equals(callerNumber, cdr.callerNumber) && Objects.equals(calledNumber, cdr.calledNumber) && Objects.equals(startDateTime, cdr.startDateTime) && Objects.equals(finishDateTime, cdr.finishDateTime);
+        return Objects.equals(id, cdr.id) && Objects.equals(callType, cdr.callType) && Objects.equals(getCallerNumber(), cdr.getCallerNumber()) && Objects.equals(getCalledNumber(), cdr.getCalledNumber()) && Objects.equals(startDateTime, cdr.startDateTime) && Objects.equals(getFinishDateTime(), cdr.getFinishDateTime());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, callType, callerNumber, calledNumber, startDateTime, finishDateTime);
+        return Objects.hash(id, callType, getCallerNumber(), getCalledNumber(), startDateTime, getFinishDateTime());
     }
 
     @Override
@@ -136,10 +252,10 @@ public class Cdr {
         return "Cdr{" +
                 "id=" + id +
                 ", callType='" + callType + '\'' +
-                ", callerNumber='" + callerNumber + '\'' +
-                ", calledNumber='" + calledNumber + '\'' +
+                ", callerNumber='" + getCallerNumber() + '\'' +
+                ", calledNumber='" + getCalledNumber() + '\'' +
                 ", startDateTime=" + startDateTime +
-                ", finishDateTime=" + finishDateTime +
+                ", finishDateTime=" + getFinishDateTime() +
                 '}';
     }
 }
@@ -17,17 +17,20 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "subscribers")
+@EntityListeners(SubscriberEntityListener.class)
 @Schema(description = "Сущность абонента")
 public class Subscriber {
 
     /**
      * Уникальный идентификатор абонента.
      * <p>
-     * Автоматически генерируется базой данных при сохранении.
+     * Выделяется из последовательности {@code subscribers_seq} блоками по 50 значений
+     * (оптимизатор pooled-lo), что позволяет Hibernate объединять вставки в JDBC-пакеты.
      * </p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "subscribers_seq")
+    @SequenceGenerator(name = "subscribers_seq", sequenceName = "subscribers_seq", allocationSize = 50)
     @Schema(description = "Уникальный идентификатор абонента", example = "1")
     private Long id;
 
@@ -0,0 +1,38 @@
+package org.example.roamingaggregatorservice.entities;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import org.example.roamingaggregatorservice.events.SubscriberPersistedEvent;
+import org.example.roamingaggregatorservice.events.SubscriberRemovedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Слушатель жизненного цикла сущности {@link Subscriber}.
+ * <p>
+ * Публикует события о сохранении и удалении абонентов сразу при вызове
+ * {@code persist}/{@code remove}, не дожидаясь сброса контекста персистентности,
+ * чтобы слушатели могли привязать свои действия к фиксации той же транзакции.
+ * Экземпляр создается Hibernate через контейнер бинов Spring.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class SubscriberEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public SubscriberEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PrePersist
+    void onPersist(Subscriber subscriber) {
+        eventPublisher.publishEvent(new SubscriberPersistedEvent(subscriber.getMsisdn()));
+    }
+
+    @PreRemove
+    void onRemove(Subscriber subscriber) {
+        eventPublisher.publishEvent(new SubscriberRemovedEvent(subscriber.getMsisdn()));
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.roamingaggregatorservice.entities;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+
+import java.util.Objects;
+
+/**
+ * Сущность "Помесячное использование связи абонентом".
+ * <p>
+ * Агрегат над записями CDR: суммарное время и количество входящих и исходящих
+ * звонков абонента за один календарный месяц. Абонент задается идентификатором,
+ * так же как стороны звонка в таблице {@code cdrs}, поэтому приращения и перестройка
+ * не требуют перевода идентификаторов в номера, а номер подставляется при чтении. Месяц звонка определяется по
+ * времени его начала, так же как в выборках CDR за месяц. Время хранится в
+ * наносекундах, чтобы суммы совпадали с суммой продолжительностей исходных звонков.
+ * </p>
+ * <p>
+ * Строки обновляются инкрементально при сохранении новых CDR и могут быть
+ * полностью перестроены по таблице {@code cdrs}.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Entity
+@Table(name = "subscriber_monthly_usage", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_subscriber_monthly_usage_subscriber_month", columnNames = {"subscriber_id", "usage_year", "usage_month"})
+})
+@Schema(description = "Помесячное использование связи абонентом")
+public class SubscriberMonthlyUsage {
+
+    /**
+     * Уникальный идентификатор строки.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "subscriber_monthly_usage_seq")
+    @SequenceGenerator(name = "subscriber_monthly_usage_seq", sequenceName = "subscriber_monthly_usage_seq", allocationSize = 50)
+    @Schema(description = "Уникальный идентификатор строки", example = "1")
+    private Long id;
+
+    /**
+     * Идентификатор абонента.
+     */
+    @Column(name = "subscriber_id", nullable = false)
+    @Schema(description = "Идентификатор абонента", example = "1")
+    private Long subscriberId;
+
+    /**
+     * Год, к которому относятся звонки.
+     */
+    @Column(name = "usage_year", nullable = false)
+    @Schema(description = "Год", example = "2023")
+    private int usageYear;
+
+    /**
+     * Месяц (1-12), к которому относятся звонки.
+     */
+    @Column(name = "usage_month", nullable = false)
+    @Schema(description = "Месяц", example = "5")
+    private int usageMonth;
+
+    /**
+     * Суммарное время входящих звонков в наносекундах.
+     */
+    @Column(name = "incoming_call_time_nanos", nullable = false)
+    @Schema(description = "Суммарное время входящих звонков, нс", example = "930000000000")
+    private long incomingCallTimeNanos;
+
+    /**
+     * Суммарное время исходящих звонков в наносекундах.
+     */
+    @Column(name = "outgoing_call_time_nanos", nullable = false)
+    @Schema(description = "Суммарное время исходящих звонков, нс", example = "630000000000")
+    private long outgoingCallTimeNanos;
+
+    /**
+     * Количество входящих звонков.
+     */
+    @Column(name = "incoming_calls", nullable = false)
+    @Schema(description = "Количество входящих звонков", example = "2")
+    private long incomingCalls;
+
+    /**
+     * Количество исходящих звонков.
+     */
+    @Column(name = "outgoing_calls", nullable = false)
+    @Schema(description = "Количество исходящих звонков", example = "1")
+    private long outgoingCalls;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getSubscriberId() {
+        return subscriberId;
+    }
+
+    public void setSubscriberId(Long subscriberId) {
+        this.subscriberId = subscriberId;
+    }
+
+    public int getUsageYear() {
+        return usageYear;
+    }
+
+    public void setUsageYear(int usageYear) {
+        this.usageYear = usageYear;
+    }
+
+    public int getUsageMonth() {
+        return usageMonth;
+    }
+
+    public void setUsageMonth(int usageMonth) {
+        this.usageMonth = usageMonth;
+    }
+
+    public long getIncomingCallTimeNanos() {
+        return incomingCallTimeNanos;
+    }
+
+    public void setIncomingCallTimeNanos(long incomingCallTimeNanos) {
+        this.incomingCallTimeNanos = incomingCallTimeNanos;
+    }
+
+    public long getOutgoingCallTimeNanos() {
+        return outgoingCallTimeNanos;
+    }
+
+    public void setOutgoingCallTimeNanos(long outgoingCallTimeNanos) {
+        this.outgoingCallTimeNanos = outgoingCallTimeNanos;
+    }
+
+    public long getIncomingCalls() {
+        return incomingCalls;
+    }
+
+    public void setIncomingCalls(long incomingCalls) {
+        this.incomingCalls = incomingCalls;
+    }
+
+    public long getOutgoingCalls() {
+        return outgoingCalls;
+    }
+
+    public void setOutgoingCalls(long outgoingCalls) {
+        this.outgoingCalls = outgoingCalls;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        SubscriberMonthlyUsage that = (SubscriberMonthlyUsage) o;
+        return usageYear == that.usageYear && usageMonth == that.usageMonth && incomingCallTimeNanos == that.incomingCallTimeNanos && outgoingCallTimeNanos == that.outgoingCallTimeNanos && incomingCalls == that.incomingCalls && outgoingCalls == that.outgoingCalls && Objects.equals(id, that.id) && Objects.equals(subscriberId, that.subscriberId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, subscriberId, usageYear, usageMonth, incomingCallTimeNanos, outgoingCallTimeNanos, incomingCalls, outgoingCalls);
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriberMonthlyUsage{" +
+                "id=" + id +
+                ", subscriberId=" + subscriberId +
+                ", usageYear=" + usageYear +
+                ", usageMonth=" + usageMonth +
+                ", incomingCallTimeNanos=" + incomingCallTimeNanos +
+                ", outgoingCallTimeNanos=" + outgoingCallTimeNanos +
+                ", incomingCalls=" + incomingCalls +
+                ", outgoingCalls=" + outgoingCalls +
+                '}';
+    }
+}
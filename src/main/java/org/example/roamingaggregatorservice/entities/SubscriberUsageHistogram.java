@@ -0,0 +1,152 @@
+package org.example.roamingaggregatorservice.entities;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import org.example.roamingaggregatorservice.utils.UsageHistogram;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Сущность "Помесячная гистограмма использования связи абонентом".
+ * <p>
+ * Агрегат над записями CDR: время входящих и исходящих звонков абонента за один
+ * календарный месяц, разложенное по дням недели и часам суток (см. {@link UsageHistogram}).
+ * Месяц звонка определяется по времени его начала, так же как в помесячной витрине
+ * использования; звонок, продолжающийся в следующем часе или дне, раскладывается
+ * по всем пересеченным часам. Каждая гистограмма хранится в компактном двоичном виде
+ * размером {@link UsageHistogram#SIZE_IN_BYTES} байт. Абонент задается идентификатором,
+ * так же как в помесячной витрине использования.
+ * </p>
+ * <p>
+ * Строки обновляются инкрементально при сохранении новых CDR и могут быть
+ * полностью перестроены по таблице {@code cdrs}.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Entity
+@Table(name = "subscriber_usage_histogram", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_subscriber_usage_histogram_subscriber_month", columnNames = {"subscriber_id", "usage_year", "usage_month"})
+})
+@Schema(description = "Помесячная гистограмма использования связи абонентом")
+public class SubscriberUsageHistogram {
+
+    /**
+     * Уникальный идентификатор строки.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "subscriber_usage_histogram_seq")
+    @SequenceGenerator(name = "subscriber_usage_histogram_seq", sequenceName = "subscriber_usage_histogram_seq", allocationSize = 50)
+    @Schema(description = "Уникальный идентификатор строки", example = "1")
+    private Long id;
+
+    /**
+     * Идентификатор абонента.
+     */
+    @Column(name = "subscriber_id", nullable = false)
+    @Schema(description = "Идентификатор абонента", example = "1")
+    private Long subscriberId;
+
+    /**
+     * Год, к которому относятся звонки.
+     */
+    @Column(name = "usage_year", nullable = false)
+    @Schema(description = "Год", example = "2023")
+    private int usageYear;
+
+    /**
+     * Месяц (1-12), к которому относятся звонки.
+     */
+    @Column(name = "usage_month", nullable = false)
+    @Schema(description = "Месяц", example = "5")
+    private int usageMonth;
+
+    /**
+     * Гистограмма времени входящих звонков, сериализованная {@link UsageHistogram#toBytes()}.
+     */
+    @Column(name = "incoming_seconds", nullable = false, length = UsageHistogram.SIZE_IN_BYTES)
+    @Schema(description = "Гистограмма времени входящих звонков")
+    private byte[] incomingSeconds;
+
+    /**
+     * Гистограмма времени исходящих звонков, сериализованная {@link UsageHistogram#toBytes()}.
+     */
+    @Column(name = "outgoing_seconds", nullable = false, length = UsageHistogram.SIZE_IN_BYTES)
+    @Schema(description = "Гистограмма времени исходящих звонков")
+    private byte[] outgoingSeconds;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getSubscriberId() {
+        return subscriberId;
+    }
+
+    public void setSubscriberId(Long subscriberId) {
+        this.subscriberId = subscriberId;
+    }
+
+    public int getUsageYear() {
+        return usageYear;
+    }
+
+    public void setUsageYear(int usageYear) {
+        this.usageYear = usageYear;
+    }
+
+    public int getUsageMonth() {
+        return usageMonth;
+    }
+
+    public void setUsageMonth(int usageMonth) {
+        this.usageMonth = usageMonth;
+    }
+
+    public byte[] getIncomingSeconds() {
+        return incomingSeconds;
+    }
+
+    public void setIncomingSeconds(byte[] incomingSeconds) {
+        this.incomingSeconds = incomingSeconds;
+    }
+
+    public byte[] getOutgoingSeconds() {
+        return outgoingSeconds;
+    }
+
+    public void setOutgoingSeconds(byte[] outgoingSeconds) {
+        this.outgoingSeconds = outgoingSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        SubscriberUsageHistogram that = (SubscriberUsageHistogram) o;
+        return usageYear == that.usageYear && usageMonth == that.usageMonth && Objects.equals(id, that.id) && Objects.equals(subscriberId, that.subscriberId) && Arrays.equals(incomingSeconds, that.incomingSeconds) && Arrays.equals(outgoingSeconds, that.outgoingSeconds);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(id, subscriberId, usageYear, usageMonth);
+        result = 31 * result + Arrays.hashCode(incomingSeconds);
+        result = 31 * result + Arrays.hashCode(outgoingSeconds);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriberUsageHistogram{" +
+                "id=" + id +
+                ", subscriberId=" + subscriberId +
+                ", usageYear=" + usageYear +
+                ", usageMonth=" + usageMonth +
+                '}';
+    }
+}
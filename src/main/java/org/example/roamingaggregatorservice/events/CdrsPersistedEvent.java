@@ -0,0 +1,22 @@
+package org.example.roamingaggregatorservice.events;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+
+import java.util.List;
+
+/**
+ * Событие сохранения новых записей CDR.
+ * <p>
+ * Публикуется репозиторием CDR внутри транзакции, в которой записи были сохранены,
+ * поэтому синхронные обработчики выполняются в той же транзакции.
+ * </p>
+ *
+ * @param cdrs Сохраненные записи CDR
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public record CdrsPersistedEvent(
+        List<Cdr> cdrs
+) {
+
+}
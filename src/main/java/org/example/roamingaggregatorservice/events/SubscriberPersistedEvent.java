@@ -0,0 +1,18 @@
+package org.example.roamingaggregatorservice.events;
+
+/**
+ * Событие сохранения нового абонента.
+ * <p>
+ * Публикуется при вызове {@code persist} внутри транзакции, в которой абонент
+ * сохраняется, поэтому синхронные обработчики выполняются в той же транзакции.
+ * </p>
+ *
+ * @param msisdn Номер абонента
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public record SubscriberPersistedEvent(
+        String msisdn
+) {
+
+}
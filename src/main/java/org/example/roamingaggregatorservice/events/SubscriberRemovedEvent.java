@@ -0,0 +1,18 @@
+package org.example.roamingaggregatorservice.events;
+
+/**
+ * Событие удаления абонента.
+ * <p>
+ * Публикуется при вызове {@code remove} внутри транзакции, в которой абонент
+ * удаляется, поэтому синхронные обработчики выполняются в той же транзакции.
+ * </p>
+ *
+ * @param msisdn Номер абонента
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public record SubscriberRemovedEvent(
+        String msisdn
+) {
+
+}
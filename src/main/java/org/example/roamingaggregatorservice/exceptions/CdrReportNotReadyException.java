@@ -0,0 +1,25 @@
+package org.example.roamingaggregatorservice.exceptions;
+
+import org.example.roamingaggregatorservice.jobs.CdrReportJobStatus;
+
+import java.util.UUID;
+
+/**
+ * Исключение, которое выбрасывается при запросе результата незавершенного
+ * или завершившегося с ошибкой задания на формирование cdr-отчета.
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class CdrReportNotReadyException extends RuntimeException {
+
+    /**
+     * Создает новый экземпляр исключения с сообщением, содержащим состояние задания.
+     *
+     * @param uuid Идентификатор задания
+     * @param status Текущее состояние задания
+     */
+    public CdrReportNotReadyException(UUID uuid, CdrReportJobStatus status) {
+        super("Cdr-отчет с UUID %s не готов, состояние задания: %s".formatted(uuid, status));
+    }
+}
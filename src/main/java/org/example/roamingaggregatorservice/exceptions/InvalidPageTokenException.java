@@ -0,0 +1,20 @@
+package org.example.roamingaggregatorservice.exceptions;
+
+/**
+ * Исключение, которое выбрасывается, когда токен продолжения постраничной выдачи
+ * поврежден или выдан для другого запроса.
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class InvalidPageTokenException extends RuntimeException {
+
+    /**
+     * Создает новый экземпляр исключения с сообщением, содержащим токен.
+     *
+     * @param pageToken Недействительный токен продолжения
+     */
+    public InvalidPageTokenException(String pageToken) {
+        super("Токен продолжения " + pageToken + " недействителен для этого запроса");
+    }
+}
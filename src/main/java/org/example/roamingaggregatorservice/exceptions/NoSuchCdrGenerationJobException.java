@@ -0,0 +1,24 @@
+package org.example.roamingaggregatorservice.exceptions;
+
+import java.util.UUID;
+
+/**
+ * Исключение, которое выбрасывается, когда задание на массовую генерацию CDR не найдено.
+ * <p>
+ * Задание могло не существовать или быть удалено после истечения срока хранения.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class NoSuchCdrGenerationJobException extends RuntimeException {
+
+    /**
+     * Создает новый экземпляр исключения с сообщением, содержащим идентификатор задания.
+     *
+     * @param uuid Идентификатор задания, которое не было найдено
+     */
+    public NoSuchCdrGenerationJobException(UUID uuid) {
+        super("Задание на массовую генерацию CDR с UUID " + uuid + " не найдено");
+    }
+}
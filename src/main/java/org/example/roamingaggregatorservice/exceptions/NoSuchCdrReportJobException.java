@@ -0,0 +1,24 @@
+package org.example.roamingaggregatorservice.exceptions;
+
+import java.util.UUID;
+
+/**
+ * Исключение, которое выбрасывается, когда задание на формирование cdr-отчета не найдено.
+ * <p>
+ * Задание могло не существовать или быть удалено после истечения срока хранения.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class NoSuchCdrReportJobException extends RuntimeException {
+
+    /**
+     * Создает новый экземпляр исключения с сообщением, содержащим идентификатор задания.
+     *
+     * @param uuid Идентификатор задания, которое не было найдено
+     */
+    public NoSuchCdrReportJobException(UUID uuid) {
+        super("Задание на формирование cdr-отчета с UUID " + uuid + " не найдено");
+    }
+}
@@ -1,5 +1,8 @@
 package org.example.roamingaggregatorservice.exceptions;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * Исключение, которое выбрасывается, когда запрашиваемый абонент не найден в системе.
  * <p>
@@ -11,12 +14,17 @@ package org.example.roamingaggregatorservice.exceptions;
  * @since 1.0
  */
 public class NoSuchSubscriberException extends RuntimeException {
+
+    private static final int MAX_LISTED_MSISDNS = 10;
+
+    private final List<String> msisdns;
     
     /**
      * Создает новый экземпляр исключения с сообщением по умолчанию.
      */
     public NoSuchSubscriberException() {
         super("Абонент с указанным номером не найден");
+        this.msisdns = List.of();
     }
     
     /**
@@ -26,5 +34,28 @@ public class NoSuchSubscriberException extends RuntimeException {
      */
     public NoSuchSubscriberException(String msisdn) {
         super("Абонент с номером " + msisdn + " не найден");
+        this.msisdns = List.of(msisdn);
+    }
+
+    /**
+     * Создает новый экземпляр исключения с сообщением, содержащим не найденные номера абонентов.
+     * В сообщение попадают первые {@value #MAX_LISTED_MSISDNS} номеров.
+     *
+     * @param msisdns Номера абонентов, которые не были найдены
+     */
+    public NoSuchSubscriberException(List<String> msisdns) {
+        super("Абоненты с номерами %s не найдены (всего: %d)".formatted(
+                msisdns.stream().limit(MAX_LISTED_MSISDNS).collect(Collectors.joining(", ")),
+                msisdns.size()));
+        this.msisdns = List.copyOf(msisdns);
+    }
+
+    /**
+     * Возвращает не найденные номера абонентов, если они известны.
+     *
+     * @return Не найденные номера абонентов или пустой список
+     */
+    public List<String> getMsisdns() {
+        return msisdns;
     }
 }
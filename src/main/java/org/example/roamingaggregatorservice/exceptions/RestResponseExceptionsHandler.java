@@ -2,13 +2,16 @@ package org.example.roamingaggregatorservice.exceptions;
 
 import jakarta.validation.ConstraintViolationException;
 import org.example.roamingaggregatorservice.dto.ExceptionDTO;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.time.LocalDateTime;
+import java.util.stream.Collectors;
 
 /**
  * Обработчик исключений REST-запросов.
@@ -34,6 +37,25 @@ public class RestResponseExceptionsHandler {
         return new ResponseEntity<>(dto, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Обрабатывает исключения валидации тела запроса.
+     *
+     * @param ex Исключение валидации тела запроса
+     * @return ResponseEntity с информацией об ошибке
+     */
+    @ExceptionHandler(value = MethodArgumentNotValidException.class)
+    protected ResponseEntity<ExceptionDTO> handleConflict(MethodArgumentNotValidException ex) {
+        ExceptionDTO dto = new ExceptionDTO(
+            LocalDateTime.now(),
+            HttpStatus.BAD_REQUEST.value(),
+            "VALIDATION_ERROR",
+            ex.getBindingResult().getFieldErrors().stream()
+                    .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                    .collect(Collectors.joining(", "))
+        );
+        return new ResponseEntity<>(dto, HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * Обрабатывает исключения поиска несуществующего абонента.
      *
@@ -68,6 +90,23 @@ public class RestResponseExceptionsHandler {
         return new ResponseEntity<>(dto, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Обрабатывает исключения недействительного токена продолжения постраничной выдачи.
+     *
+     * @param ex Исключение недействительного токена
+     * @return ResponseEntity с информацией об ошибке
+     */
+    @ExceptionHandler(value = InvalidPageTokenException.class)
+    protected ResponseEntity<ExceptionDTO> handleConflict(InvalidPageTokenException ex) {
+        ExceptionDTO dto = new ExceptionDTO(
+                LocalDateTime.now(),
+                HttpStatus.BAD_REQUEST.value(),
+                "BAD_REQUEST",
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(dto, HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * Обрабатывает исключения, когда начальная дата позже конечной даты.
      *
@@ -84,4 +123,72 @@ public class RestResponseExceptionsHandler {
         );
         return new ResponseEntity<>(dto, HttpStatus.BAD_REQUEST);
     }
+
+    /**
+     * Обрабатывает исключения поиска несуществующего задания на формирование отчета.
+     *
+     * @param ex Исключение поиска задания
+     * @return ResponseEntity с информацией об ошибке
+     */
+    @ExceptionHandler(value = NoSuchCdrReportJobException.class)
+    protected ResponseEntity<ExceptionDTO> handleConflict(NoSuchCdrReportJobException ex) {
+        ExceptionDTO dto = new ExceptionDTO(
+                LocalDateTime.now(),
+                HttpStatus.NOT_FOUND.value(),
+                "NOT_FOUND",
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(dto, HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Обрабатывает исключения поиска несуществующего задания на массовую генерацию CDR.
+     *
+     * @param ex Исключение поиска задания
+     * @return ResponseEntity с информацией об ошибке
+     */
+    @ExceptionHandler(value = NoSuchCdrGenerationJobException.class)
+    protected ResponseEntity<ExceptionDTO> handleConflict(NoSuchCdrGenerationJobException ex) {
+        ExceptionDTO dto = new ExceptionDTO(
+                LocalDateTime.now(),
+                HttpStatus.NOT_FOUND.value(),
+                "NOT_FOUND",
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(dto, HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Обрабатывает исключения запроса результата несформированного отчета.
+     *
+     * @param ex Исключение несформированного отчета
+     * @return ResponseEntity с информацией об ошибке
+     */
+    @ExceptionHandler(value = CdrReportNotReadyException.class)
+    protected ResponseEntity<ExceptionDTO> handleConflict(CdrReportNotReadyException ex) {
+        ExceptionDTO dto = new ExceptionDTO(
+                LocalDateTime.now(),
+                HttpStatus.CONFLICT.value(),
+                "CONFLICT",
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(dto, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Обрабатывает исключения переполнения очереди фоновых заданий.
+     *
+     * @param ex Исключение отклонения задания исполнителем
+     * @return ResponseEntity с информацией об ошибке
+     */
+    @ExceptionHandler(value = TaskRejectedException.class)
+    protected ResponseEntity<ExceptionDTO> handleConflict(TaskRejectedException ex) {
+        ExceptionDTO dto = new ExceptionDTO(
+                LocalDateTime.now(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "SERVICE_UNAVAILABLE",
+                "Очередь заданий переполнена, повторите запрос позже"
+        );
+        return new ResponseEntity<>(dto, HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
@@ -0,0 +1,131 @@
+package org.example.roamingaggregatorservice.jobs;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Задание на массовую генерацию CDR.
+ * <p>
+ * Количество сохраненных записей увеличивается параллельно потоками, сохраняющими порции,
+ * поэтому хранится в {@link AtomicLong}; состояние и время выполнения обновляются потоком
+ * задания и читаются потоками запросов, поэтому хранятся в {@code volatile}-полях.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class CdrGenerationJob {
+
+    private final UUID uuid;
+    private final long requestedCdrs;
+    private final AtomicLong generatedCdrs = new AtomicLong();
+
+    private volatile CdrGenerationJobStatus status = CdrGenerationJobStatus.QUEUED;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile String errorMessage;
+
+    /**
+     * @param uuid Идентификатор задания
+     * @param requestedCdrs Количество записей для генерации
+     */
+    public CdrGenerationJob(UUID uuid, long requestedCdrs) {
+        this.uuid = uuid;
+        this.requestedCdrs = requestedCdrs;
+    }
+
+    /**
+     * Переводит задание в состояние {@link CdrGenerationJobStatus#RUNNING}.
+     */
+    public void markRunning() {
+        startedNanos = System.nanoTime();
+        status = CdrGenerationJobStatus.RUNNING;
+    }
+
+    /**
+     * Переводит задание в состояние {@link CdrGenerationJobStatus#DONE}.
+     */
+    public void markDone() {
+        finishedNanos = System.nanoTime();
+        status = CdrGenerationJobStatus.DONE;
+    }
+
+    /**
+     * Переводит задание в состояние {@link CdrGenerationJobStatus#FAILED}.
+     *
+     * @param cause Причина ошибки
+     */
+    public void markFailed(Throwable cause) {
+        finishedNanos = System.nanoTime();
+        errorMessage = cause.getMessage();
+        status = CdrGenerationJobStatus.FAILED;
+    }
+
+    /**
+     * @return {@code true}, если задание завершено успешно или с ошибкой
+     */
+    public boolean isFinished() {
+        CdrGenerationJobStatus current = status;
+        return current == CdrGenerationJobStatus.DONE || current == CdrGenerationJobStatus.FAILED;
+    }
+
+    /**
+     * Добавляет к заданию количество записей сохраненной порции.
+     *
+     * @param cdrs Количество сохраненных записей
+     */
+    public void addGeneratedCdrs(long cdrs) {
+        generatedCdrs.addAndGet(cdrs);
+    }
+
+    /**
+     * Время выполнения задания: ноль для ожидающего задания, текущее время
+     * выполнения для выполняющегося и итоговое - для завершенного.
+     *
+     * @return Время выполнения в миллисекундах
+     */
+    public long getElapsedMillis() {
+        CdrGenerationJobStatus current = status;
+        if (current == CdrGenerationJobStatus.QUEUED) return 0;
+
+        long until = current == CdrGenerationJobStatus.RUNNING ? System.nanoTime() : finishedNanos;
+        return TimeUnit.NANOSECONDS.toMillis(until - startedNanos);
+    }
+
+    /**
+     * @return Средняя пропускная способность с начала выполнения в записях в секунду
+     */
+    public long getCdrsPerSecond() {
+        long elapsedMillis = getElapsedMillis();
+        if (elapsedMillis == 0) return 0;
+        return generatedCdrs.get() * 1000 / elapsedMillis;
+    }
+
+    /**
+     * @return Момент завершения задания по {@link System#nanoTime()}
+     */
+    public long getFinishedNanos() {
+        return finishedNanos;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public long getRequestedCdrs() {
+        return requestedCdrs;
+    }
+
+    public long getGeneratedCdrs() {
+        return generatedCdrs.get();
+    }
+
+    public CdrGenerationJobStatus getStatus() {
+        return status;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.roamingaggregatorservice.jobs;
+
+/**
+ * Состояние задания на массовую генерацию CDR.
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public enum CdrGenerationJobStatus {
+
+    /**
+     * Задание принято и ожидает свободного потока исполнителя.
+     */
+    QUEUED,
+
+    /**
+     * Записи генерируются и сохраняются.
+     */
+    RUNNING,
+
+    /**
+     * Все запрошенные записи сохранены.
+     */
+    DONE,
+
+    /**
+     * Генерация завершилась ошибкой; сохраненные до ошибки порции остаются в базе данных.
+     */
+    FAILED
+}
@@ -0,0 +1,139 @@
+package org.example.roamingaggregatorservice.jobs;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задание на формирование cdr-отчета.
+ * <p>
+ * Параметры задания неизменяемы; состояние, количество записанных строк и
+ * время выполнения обновляются потоком исполнителя и читаются потоками запросов,
+ * поэтому хранятся в {@code volatile}-полях.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class CdrReportJob {
+
+    private final UUID uuid;
+    private final String msisdn;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Path reportFilePath;
+
+    private volatile CdrReportJobStatus status = CdrReportJobStatus.QUEUED;
+    private volatile long rowsWritten;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile String errorMessage;
+
+    /**
+     * @param uuid Идентификатор задания и отчета
+     * @param msisdn Номер абонента
+     * @param startDate Дата начала периода
+     * @param endDate Дата окончания периода
+     * @param reportFilePath Путь к файлу отчета
+     */
+    public CdrReportJob(UUID uuid, String msisdn, LocalDate startDate, LocalDate endDate, Path reportFilePath) {
+        this.uuid = uuid;
+        this.msisdn = msisdn;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.reportFilePath = reportFilePath;
+    }
+
+    /**
+     * Переводит задание в состояние {@link CdrReportJobStatus#RUNNING}.
+     */
+    public void markRunning() {
+        startedNanos = System.nanoTime();
+        status = CdrReportJobStatus.RUNNING;
+    }
+
+    /**
+     * Переводит задание в состояние {@link CdrReportJobStatus#DONE}.
+     */
+    public void markDone() {
+        finishedNanos = System.nanoTime();
+        status = CdrReportJobStatus.DONE;
+    }
+
+    /**
+     * Переводит задание в состояние {@link CdrReportJobStatus#FAILED}.
+     *
+     * @param cause Причина ошибки
+     */
+    public void markFailed(Throwable cause) {
+        finishedNanos = System.nanoTime();
+        errorMessage = cause.getMessage();
+        status = CdrReportJobStatus.FAILED;
+    }
+
+    /**
+     * @return {@code true}, если задание завершено успешно или с ошибкой
+     */
+    public boolean isFinished() {
+        CdrReportJobStatus current = status;
+        return current == CdrReportJobStatus.DONE || current == CdrReportJobStatus.FAILED;
+    }
+
+    /**
+     * Время выполнения задания: ноль для ожидающего задания, текущее время
+     * выполнения для выполняющегося и итоговое - для завершенного.
+     *
+     * @return Время выполнения в миллисекундах
+     */
+    public long getElapsedMillis() {
+        CdrReportJobStatus current = status;
+        if (current == CdrReportJobStatus.QUEUED) return 0;
+
+        long until = current == CdrReportJobStatus.RUNNING ? System.nanoTime() : finishedNanos;
+        return TimeUnit.NANOSECONDS.toMillis(until - startedNanos);
+    }
+
+    /**
+     * @return Момент завершения задания по {@link System#nanoTime()}
+     */
+    public long getFinishedNanos() {
+        return finishedNanos;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getMsisdn() {
+        return msisdn;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public Path getReportFilePath() {
+        return reportFilePath;
+    }
+
+    public CdrReportJobStatus getStatus() {
+        return status;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public void setRowsWritten(long rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
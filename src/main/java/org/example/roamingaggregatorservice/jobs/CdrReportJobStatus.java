@@ -0,0 +1,30 @@
+package org.example.roamingaggregatorservice.jobs;
+
+/**
+ * Состояние задания на формирование cdr-отчета.
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public enum CdrReportJobStatus {
+
+    /**
+     * Задание принято и ожидает свободного потока исполнителя.
+     */
+    QUEUED,
+
+    /**
+     * Отчет формируется.
+     */
+    RUNNING,
+
+    /**
+     * Отчет сформирован и доступен для скачивания.
+     */
+    DONE,
+
+    /**
+     * Формирование отчета завершилось ошибкой.
+     */
+    FAILED
+}
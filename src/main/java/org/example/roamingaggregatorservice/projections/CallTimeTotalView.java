@@ -0,0 +1,14 @@
+package org.example.roamingaggregatorservice.projections;
+
+/**
+ * Проекция суммарного времени звонков абонента, вычисленного в базе данных.
+ *
+ * @param msisdn Номер абонента
+ * @param totalCallTimeNanos Суммарное время звонков в наносекундах
+ */
+public record CallTimeTotalView(
+        String msisdn,
+        Long totalCallTimeNanos
+) {
+
+}
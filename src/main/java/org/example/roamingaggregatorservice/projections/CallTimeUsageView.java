@@ -0,0 +1,17 @@
+package org.example.roamingaggregatorservice.projections;
+
+/**
+ * Проекция суммарного времени входящих и исходящих звонков абонента,
+ * прочитанного из помесячной витрины использования.
+ *
+ * @param msisdn Номер абонента
+ * @param incomingCallTimeNanos Суммарное время входящих звонков в наносекундах
+ * @param outgoingCallTimeNanos Суммарное время исходящих звонков в наносекундах
+ */
+public record CallTimeUsageView(
+        String msisdn,
+        Long incomingCallTimeNanos,
+        Long outgoingCallTimeNanos
+) {
+
+}
@@ -0,0 +1,19 @@
+package org.example.roamingaggregatorservice.projections;
+
+import java.time.LocalDate;
+
+/**
+ * Проекция суммарного времени звонков абонента за один день,
+ * вычисленного в базе данных по таблице CDR.
+ *
+ * @param msisdn Номер абонента
+ * @param day День начала звонков
+ * @param totalCallTimeNanos Суммарное время звонков в наносекундах
+ */
+public record DailyCallTimeView(
+        String msisdn,
+        LocalDate day,
+        Long totalCallTimeNanos
+) {
+
+}
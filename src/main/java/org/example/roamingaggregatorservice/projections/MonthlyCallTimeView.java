@@ -0,0 +1,21 @@
+package org.example.roamingaggregatorservice.projections;
+
+/**
+ * Проекция суммарного времени и количества звонков абонента за один месяц,
+ * вычисленных в базе данных по таблице CDR.
+ *
+ * @param subscriberId Идентификатор абонента
+ * @param year Год начала звонков
+ * @param month Месяц начала звонков
+ * @param totalCallTimeNanos Суммарное время звонков в наносекундах
+ * @param calls Количество звонков
+ */
+public record MonthlyCallTimeView(
+        Long subscriberId,
+        Integer year,
+        Integer month,
+        Long totalCallTimeNanos,
+        Long calls
+) {
+
+}
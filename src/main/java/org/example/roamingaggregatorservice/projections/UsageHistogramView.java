@@ -0,0 +1,20 @@
+package org.example.roamingaggregatorservice.projections;
+
+/**
+ * Проекция помесячной гистограммы использования связи абонентом.
+ *
+ * @param msisdn Номер абонента
+ * @param year Год начала звонков
+ * @param month Месяц начала звонков
+ * @param incomingSeconds Сериализованная гистограмма времени входящих звонков
+ * @param outgoingSeconds Сериализованная гистограмма времени исходящих звонков
+ */
+public record UsageHistogramView(
+        String msisdn,
+        Integer year,
+        Integer month,
+        byte[] incomingSeconds,
+        byte[] outgoingSeconds
+) {
+
+}
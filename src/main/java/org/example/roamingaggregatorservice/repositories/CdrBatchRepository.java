@@ -0,0 +1,66 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.dto.CdrLineDTO;
+import org.example.roamingaggregatorservice.entities.Cdr;
+
+import java.util.List;
+
+/**
+ * Фрагмент репозитория CDR для пакетной записи.
+ * <p>
+ * Методы сохранения публикуют {@link org.example.roamingaggregatorservice.events.CdrsPersistedEvent}
+ * с новыми записями в той же транзакции, чтобы производные данные (например,
+ * помесячная витрина использования) обновлялись атомарно с самими CDR.
+ * </p>
+ * <p>
+ * Записи с номерами сторон ({@link CdrLineDTO}) сохраняются методом
+ * {@link #batchInsertLines(List)}: номера заменяются ссылками на абонентов
+ * одним запросом на пакет записей.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public interface CdrBatchRepository {
+
+    /**
+     * Сохраняет записи CDR через контекст персистентности.
+     * <p>
+     * Заменяет стандартную реализацию {@code saveAll}: новые записи (без идентификатора)
+     * сохраняются через {@code persist}, существующие - через {@code merge}. Событие
+     * публикуется только для новых записей.
+     * </p>
+     *
+     * @param cdrs Записи CDR для сохранения
+     * @param <S> Тип, производный от сущности Cdr
+     * @return Сохраненные записи
+     */
+    <S extends Cdr> List<S> saveAll(Iterable<S> cdrs);
+
+    /**
+     * Сохраняет записи CDR одним JDBC-пакетом в отдельной транзакции.
+     * <p>
+     * В отличие от {@link #saveAll(Iterable)}, записи не попадают
+     * в контекст персистентности, а абоненты, сохраненные через JPA в текущей
+     * транзакции, предварительно сбрасываются в базу данных.
+     * </p>
+     *
+     * @param cdrs Список записей CDR для сохранения со ссылками на сохраненных абонентов
+     * @return Количество сохраненных записей
+     */
+    int batchInsert(List<Cdr> cdrs);
+
+    /**
+     * Сохраняет записи CDR с номерами сторон одним JDBC-пакетом в отдельной транзакции.
+     * <p>
+     * Номера сторон заменяются ссылками на абонентов, выбранных одним запросом по всем
+     * номерам пакета, затем записи сохраняются так же, как {@link #batchInsert(List)}.
+     * </p>
+     *
+     * @param lines Записи CDR с номерами сторон
+     * @return Количество сохраненных записей
+     * @throws org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException
+     * если номер стороны звонка не принадлежит ни одному абоненту
+     */
+    int batchInsertLines(List<CdrLineDTO> lines);
+}
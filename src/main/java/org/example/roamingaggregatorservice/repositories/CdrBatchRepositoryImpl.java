@@ -0,0 +1,177 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.roamingaggregatorservice.converters.CallTypeConverter;
+import org.example.roamingaggregatorservice.converters.EpochMilliConverter;
+import org.example.roamingaggregatorservice.dto.CdrLineDTO;
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.events.CdrsPersistedEvent;
+import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Реализация пакетной записи CDR через контекст персистентности и {@link JdbcTemplate}.
+ * <p>
+ * Идентификаторы выделяются из той же последовательности {@code cdrs_seq}, что и
+ * при сохранении через JPA, и по той же схеме pooled-lo: каждое значение
+ * последовательности открывает блок из {@link #ID_ALLOCATION_SIZE} идентификаторов.
+ * Значения столбцов преобразуются в компактное представление теми же преобразователями,
+ * что и в отображении сущности {@link Cdr}, а номера сторон звонка - в идентификаторы абонентов.
+ * </p>
+ * <p>
+ * Сохранение CDR выполняется под разделяемой блокировкой {@link CdrWriteLock}
+ * до завершения транзакции.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class CdrBatchRepositoryImpl implements CdrBatchRepository {
+
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final String NEXT_ID_BLOCKS_SQL =
+            "SELECT NEXT VALUE FOR cdrs_seq FROM SYSTEM_RANGE(1, ?)";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cdrs (id, call_type, caller_id, called_id, start_epoch_milli, duration_millis) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String FIND_SUBSCRIBERS_SQL =
+            "SELECT s.id, s.msisdn FROM UNNEST(CAST(? AS VARCHAR(255) ARRAY)) AS r(msisdn) " +
+            "JOIN subscribers s ON s.msisdn = r.msisdn";
+
+    private static final CallTypeConverter CALL_TYPE_CONVERTER = new CallTypeConverter();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CdrWriteLock cdrWriteLock;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CdrBatchRepositoryImpl(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher, CdrWriteLock cdrWriteLock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.cdrWriteLock = cdrWriteLock;
+    }
+
+    @Override
+    @Transactional
+    public <S extends Cdr> List<S> saveAll(Iterable<S> cdrs) {
+        cdrWriteLock.lockShared();
+        List<S> saved = new ArrayList<>();
+        List<Cdr> persisted = new ArrayList<>();
+        for (S cdr : cdrs) {
+            if (cdr.getId() == null) {
+                entityManager.persist(cdr);
+                persisted.add(cdr);
+                saved.add(cdr);
+            } else {
+                saved.add(entityManager.merge(cdr));
+            }
+        }
+        if (!persisted.isEmpty()) eventPublisher.publishEvent(new CdrsPersistedEvent(persisted));
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public int batchInsert(List<Cdr> cdrs) {
+        if (cdrs.isEmpty()) return 0;
+        cdrWriteLock.lockShared();
+        if (entityManager.isJoinedToTransaction()) entityManager.flush();
+
+        assignIds(cdrs);
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, cdrs, cdrs.size(), (ps, cdr) -> {
+            ps.setLong(1, cdr.getId());
+            ps.setByte(2, CALL_TYPE_CONVERTER.convertToDatabaseColumn(cdr.getCallType()));
+            ps.setLong(3, cdr.getCaller().getId());
+            ps.setLong(4, cdr.getCalled().getId());
+            ps.setLong(5, EpochMilliConverter.toEpochMilli(cdr.getStartDateTime()));
+            ps.setLong(6, cdr.getDurationMillis());
+        });
+        eventPublisher.publishEvent(new CdrsPersistedEvent(cdrs));
+        return cdrs.size();
+    }
+
+    @Override
+    @Transactional
+    public int batchInsertLines(List<CdrLineDTO> lines) {
+        if (lines.isEmpty()) return 0;
+
+        Map<String, Subscriber> subscribers = findSubscribers(lines);
+        List<Cdr> cdrs = new ArrayList<>(lines.size());
+        for (CdrLineDTO line : lines) {
+            Cdr cdr = new Cdr();
+            cdr.setCallType(line.callType());
+            cdr.setCaller(subscribers.get(line.callerNumber()));
+            cdr.setCalled(subscribers.get(line.calledNumber()));
+            cdr.setStartDateTime(line.startDateTime());
+            cdr.setFinishDateTime(line.finishDateTime());
+            cdrs.add(cdr);
+        }
+        return batchInsert(cdrs);
+    }
+
+    /**
+     * Выбирает абонентов по номерам сторон звонков одним запросом.
+     * <p>
+     * Абоненты, сохраненные через JPA в текущей транзакции, предварительно сбрасываются в базу данных.
+     * </p>
+     *
+     * @param lines Записи CDR с номерами сторон
+     * @return Абоненты по номерам
+     * @throws NoSuchSubscriberException если номер не принадлежит ни одному абоненту
+     */
+    private Map<String, Subscriber> findSubscribers(List<CdrLineDTO> lines) {
+        Set<String> msisdns = new LinkedHashSet<>();
+        for (CdrLineDTO line : lines) {
+            msisdns.add(line.callerNumber());
+            msisdns.add(line.calledNumber());
+        }
+        if (entityManager.isJoinedToTransaction()) entityManager.flush();
+
+        Map<String, Subscriber> subscribers = new HashMap<>(msisdns.size() * 4 / 3 + 1);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FIND_SUBSCRIBERS_SQL);
+            ps.setArray(1, connection.createArrayOf("VARCHAR", msisdns.toArray()));
+            return ps;
+        }, rs -> {
+            Subscriber subscriber = new Subscriber();
+            subscriber.setId(rs.getLong(1));
+            subscriber.setMsisdn(rs.getString(2));
+            subscribers.put(subscriber.getMsisdn(), subscriber);
+        });
+
+        msisdns.removeAll(subscribers.keySet());
+        if (!msisdns.isEmpty()) throw new NoSuchSubscriberException(new ArrayList<>(msisdns));
+        return subscribers;
+    }
+
+    /**
+     * Присваивает идентификаторы записям, выбирая все необходимые блоки одним запросом.
+     *
+     * @param cdrs Список записей CDR без идентификаторов
+     */
+    private void assignIds(List<Cdr> cdrs) {
+        int blocks = (cdrs.size() + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+        List<Long> blockStarts = jdbcTemplate.queryForList(NEXT_ID_BLOCKS_SQL, Long.class, blocks);
+
+        for (int i = 0; i < cdrs.size(); i++) {
+            cdrs.get(i).setId(blockStarts.get(i / ID_ALLOCATION_SIZE) + i % ID_ALLOCATION_SIZE);
+        }
+    }
+}
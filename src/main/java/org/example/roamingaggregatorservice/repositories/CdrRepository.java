@@ -1,7 +1,11 @@
 package org.example.roamingaggregatorservice.repositories;
 
 import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.projections.CallTimeTotalView;
+import org.example.roamingaggregatorservice.projections.DailyCallTimeView;
+import org.example.roamingaggregatorservice.projections.MonthlyCallTimeView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDateTime;
@@ -14,15 +18,21 @@ import java.util.List;
  * создания, чтения, обновления и удаления (CRUD) записей CDR.
  * Предоставляет методы для поиска записей по различным критериям,
  * таким как номер вызывающего, номер вызываемого, период времени и т.д.
+ * Пакетная запись больших объемов вынесена во фрагмент {@link CdrBatchRepository},
+ * потоковое чтение больших выборок - во фрагмент {@link CdrStreamRepository}.
  * </p>
  * 
  * @author Сервис роуминговой агрегации
  * @since 1.0
  */
-public interface CdrRepository extends JpaRepository<Cdr,Long> {
+public interface CdrRepository extends JpaRepository<Cdr,Long>, CdrBatchRepository, CdrStreamRepository {
 
     /**
      * Сохранение списка записей CDR.
+     * <p>
+     * Реализуется фрагментом {@link CdrBatchRepository}, который дополнительно
+     * публикует событие о сохранении новых записей.
+     * </p>
      *
      * @param entities Список записей CDR для сохранения
      * @param <S> Тип, производный от сущности Cdr
@@ -33,52 +43,224 @@ public interface CdrRepository extends JpaRepository<Cdr,Long> {
 
     /**
      * Поиск всех записей CDR, в которых указанный номер является вызываемым.
+     * <p>
+     * Абоненты обеих сторон загружаются тем же запросом.
+     * </p>
      *
      * @param calledNumber Номер вызываемого абонента
      * @return Список записей CDR, где абонент был вызываемым
      */
+    @Query("SELECT e FROM Cdr e JOIN FETCH e.caller JOIN FETCH e.called s WHERE s.msisdn = :calledNumber")
     List<Cdr> findAllByCalledNumber(String calledNumber);
 
     /**
      * Поиск всех записей CDR, в которых указанный номер является вызывающим.
+     * <p>
+     * Абоненты обеих сторон загружаются тем же запросом.
+     * </p>
      *
      * @param callerNumber Номер вызывающего абонента
      * @return Список записей CDR, где абонент был вызывающим
      */
+    @Query("SELECT e FROM Cdr e JOIN FETCH e.caller s JOIN FETCH e.called WHERE s.msisdn = :callerNumber")
     List<Cdr> findAllByCallerNumber(String callerNumber);
 
     /**
-     * Поиск всех записей CDR для указанного вызываемого номера в определенный месяц и год.
+     * Поиск всех записей CDR для указанного вызываемого номера за период.
      * <p>
-     * Метод использует JPQL запрос для фильтрации записей по году и месяцу.
+     * Период задается полуоткрытым интервалом [from; to), поэтому запрос выполняется
+     * диапазонным сканированием индекса {@code (called_id, start_epoch_milli)}.
+     * Абоненты обеих сторон загружаются тем же запросом.
      * </p>
      *
      * @param calledNumber Номер вызываемого абонента
-     * @param year Год для фильтрации
-     * @param month Месяц для фильтрации (1-12)
+     * @param from Начало периода (включительно)
+     * @param to Конец периода (не включительно)
      * @return Список записей CDR, соответствующих критериям
      */
-    @Query("SELECT e FROM Cdr e WHERE YEAR(e.startDateTime) = :year AND MONTH(e.startDateTime) = :month AND e.calledNumber= :calledNumber")
-    List<Cdr> findAllByCalledNumberAndStartDateTime(String calledNumber, int year, int month);
+    @Query("SELECT e FROM Cdr e JOIN FETCH e.caller JOIN FETCH e.called s " +
+            "WHERE s.msisdn = :calledNumber AND e.startDateTime >= :from AND e.startDateTime < :to")
+    List<Cdr> findAllByCalledNumberAndStartDateTime(String calledNumber, LocalDateTime from, LocalDateTime to);
 
     /**
-     * Поиск всех записей CDR для указанного вызывающего номера в определенный месяц и год.
+     * Поиск всех записей CDR для указанного вызывающего номера за период.
      * <p>
-     * Метод использует JPQL запрос для фильтрации записей по году и месяцу.
+     * Период задается полуоткрытым интервалом [from; to), поэтому запрос выполняется
+     * диапазонным сканированием индекса {@code (caller_id, start_epoch_milli)}.
+     * Абоненты обеих сторон загружаются тем же запросом.
      * </p>
      *
      * @param callerNumber Номер вызывающего абонента
-     * @param year Год для фильтрации
-     * @param month Месяц для фильтрации (1-12)
+     * @param from Начало периода (включительно)
+     * @param to Конец периода (не включительно)
      * @return Список записей CDR, соответствующих критериям
      */
-    @Query("SELECT e FROM Cdr e WHERE YEAR(e.startDateTime) = :year AND MONTH(e.startDateTime) = :month AND e.callerNumber= :callerNumber")
-    List<Cdr> findAllByCallerNumberAndStartDateTime(String callerNumber, int year, int month);
+    @Query("SELECT e FROM Cdr e JOIN FETCH e.caller s JOIN FETCH e.called " +
+            "WHERE s.msisdn = :callerNumber AND e.startDateTime >= :from AND e.startDateTime < :to")
+    List<Cdr> findAllByCallerNumberAndStartDateTime(String callerNumber, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Суммарное время всех звонков, в которых указанный номер был вызывающим.
+     * <p>
+     * Суммируются хранимые продолжительности звонков в миллисекундах, результат
+     * переводится в наносекунды.
+     * </p>
+     *
+     * @param callerNumber Номер вызывающего абонента
+     * @return Суммарное время звонков в наносекундах или 0, если звонков не было
+     */
+    @Query("SELECT COALESCE(SUM(e.durationMillis), 0L) * 1000000L FROM Cdr e WHERE e.caller.msisdn = :callerNumber")
+    long sumCallTimeByCallerNumber(String callerNumber);
+
+    /**
+     * Суммарное время всех звонков, в которых указанный номер был вызываемым.
+     *
+     * @param calledNumber Номер вызываемого абонента
+     * @return Суммарное время звонков в наносекундах или 0, если звонков не было
+     */
+    @Query("SELECT COALESCE(SUM(e.durationMillis), 0L) * 1000000L FROM Cdr e WHERE e.called.msisdn = :calledNumber")
+    long sumCallTimeByCalledNumber(String calledNumber);
+
+    /**
+     * Суммарное время звонков за период, в которых указанный номер был вызывающим.
+     *
+     * @param callerNumber Номер вызывающего абонента
+     * @param from Начало периода (включительно)
+     * @param to Конец периода (не включительно)
+     * @return Суммарное время звонков в наносекундах или 0, если звонков не было
+     */
+    @Query("SELECT COALESCE(SUM(e.durationMillis), 0L) * 1000000L FROM Cdr e " +
+            "WHERE e.caller.msisdn = :callerNumber AND e.startDateTime >= :from AND e.startDateTime < :to")
+    long sumCallTimeByCallerNumberAndStartDateTime(String callerNumber, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Суммарное время звонков за период, в которых указанный номер был вызываемым.
+     *
+     * @param calledNumber Номер вызываемого абонента
+     * @param from Начало периода (включительно)
+     * @param to Конец периода (не включительно)
+     * @return Суммарное время звонков в наносекундах или 0, если звонков не было
+     */
+    @Query("SELECT COALESCE(SUM(e.durationMillis), 0L) * 1000000L FROM Cdr e " +
+            "WHERE e.called.msisdn = :calledNumber AND e.startDateTime >= :from AND e.startDateTime < :to")
+    long sumCallTimeByCalledNumberAndStartDateTime(String calledNumber, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Суммарное время исходящих звонков за период по каждому вызывающему номеру.
+     * <p>
+     * Время суммируется по идентификатору абонента, номер подставляется в сгруппированные строки.
+     * </p>
+     *
+     * @param from Начало периода (включительно)
+     * @param to Конец периода (не включительно)
+     * @return Суммарное время звонков в наносекундах для каждого номера, звонившего в период
+     */
+    @Query("SELECT new org.example.roamingaggregatorservice.projections.CallTimeTotalView(s.msisdn, t.callTimeMillis * 1000000L) " +
+            "FROM (SELECT e.caller.id AS subscriberId, SUM(e.durationMillis) AS callTimeMillis FROM Cdr e " +
+            "WHERE e.startDateTime >= :from AND e.startDateTime < :to GROUP BY e.caller.id) t " +
+            "JOIN Subscriber s ON s.id = t.subscriberId")
+    List<CallTimeTotalView> sumCallTimeGroupedByCallerNumber(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Суммарное время входящих звонков за период по каждому вызываемому номеру.
+     * <p>
+     * Время суммируется по идентификатору абонента, номер подставляется в сгруппированные строки.
+     * </p>
+     *
+     * @param from Начало периода (включительно)
+     * @param to Конец периода (не включительно)
+     * @return Суммарное время звонков в наносекундах для каждого номера, принимавшего звонки в период
+     */
+    @Query("SELECT new org.example.roamingaggregatorservice.projections.CallTimeTotalView(s.msisdn, t.callTimeMillis * 1000000L) " +
+            "FROM (SELECT e.called.id AS subscriberId, SUM(e.durationMillis) AS callTimeMillis FROM Cdr e " +
+            "WHERE e.startDateTime >= :from AND e.startDateTime < :to GROUP BY e.called.id) t " +
+            "JOIN Subscriber s ON s.id = t.subscriberId")
+    List<CallTimeTotalView> sumCallTimeGroupedByCalledNumber(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Суммарное время и количество исходящих звонков по каждому вызывающему абоненту и месяцу.
+     * <p>
+     * Используется для полной перестройки помесячной витрины использования.
+     * Время звонков сначала суммируется по идентификатору абонента и дню от начала эпохи,
+     * вычисленному целочисленным делением времени начала, затем дни группируются по месяцам:
+     * перевод в дату выполняется для сгруппированных строк, а не для каждой записи.
+     * </p>
+     *
+     * @return Время и количество звонков по абоненту и месяцу начала звонка
+     */
+    @NativeQuery(sqlResultSetMapping = "MonthlyCallTimeView", value =
+            "SELECT m.subscriber_id, m.usage_year, m.usage_month, m.call_time_millis * 1000000 AS total_call_time_nanos, m.calls " +
+            "FROM (SELECT subscriber_id, EXTRACT(YEAR FROM usage_day) AS usage_year, EXTRACT(MONTH FROM usage_day) AS usage_month, " +
+            "SUM(call_time_millis) AS call_time_millis, SUM(calls) AS calls " +
+            "FROM (SELECT subscriber_id, DATEADD(DAY, epoch_day, DATE '1970-01-01') AS usage_day, call_time_millis, calls " +
+            "FROM (SELECT caller_id AS subscriber_id, start_epoch_milli / 86400000 AS epoch_day, SUM(duration_millis) AS call_time_millis, COUNT(*) AS calls " +
+            "FROM cdrs GROUP BY caller_id, start_epoch_milli / 86400000)) " +
+            "GROUP BY subscriber_id, EXTRACT(YEAR FROM usage_day), EXTRACT(MONTH FROM usage_day)) m")
+    List<MonthlyCallTimeView> sumCallTimeGroupedByCallerAndMonth();
+
+    /**
+     * Суммарное время и количество входящих звонков по каждому вызываемому абоненту и месяцу.
+     * <p>
+     * Используется для полной перестройки помесячной витрины использования.
+     * Время звонков сначала суммируется по идентификатору абонента и дню от начала эпохи,
+     * вычисленному целочисленным делением времени начала, затем дни группируются по месяцам:
+     * перевод в дату выполняется для сгруппированных строк, а не для каждой записи.
+     * </p>
+     *
+     * @return Время и количество звонков по абоненту и месяцу начала звонка
+     */
+    @NativeQuery(sqlResultSetMapping = "MonthlyCallTimeView", value =
+            "SELECT m.subscriber_id, m.usage_year, m.usage_month, m.call_time_millis * 1000000 AS total_call_time_nanos, m.calls " +
+            "FROM (SELECT subscriber_id, EXTRACT(YEAR FROM usage_day) AS usage_year, EXTRACT(MONTH FROM usage_day) AS usage_month, " +
+            "SUM(call_time_millis) AS call_time_millis, SUM(calls) AS calls " +
+            "FROM (SELECT subscriber_id, DATEADD(DAY, epoch_day, DATE '1970-01-01') AS usage_day, call_time_millis, calls " +
+            "FROM (SELECT called_id AS subscriber_id, start_epoch_milli / 86400000 AS epoch_day, SUM(duration_millis) AS call_time_millis, COUNT(*) AS calls " +
+            "FROM cdrs GROUP BY called_id, start_epoch_milli / 86400000)) " +
+            "GROUP BY subscriber_id, EXTRACT(YEAR FROM usage_day), EXTRACT(MONTH FROM usage_day)) m")
+    List<MonthlyCallTimeView> sumCallTimeGroupedByCalledAndMonth();
+
+    /**
+     * Суммарное время исходящих звонков по каждому вызывающему номеру и дню.
+     * <p>
+     * Используется для построения накопленного по дням времени звонков абонентов.
+     * Время суммируется по идентификатору абонента и дню, вычисленному целочисленным делением
+     * времени начала в миллисекундах от начала эпохи; перевод в дату и подстановка номера
+     * выполняются для сгруппированных строк, а не для каждой записи.
+     * </p>
+     *
+     * @return Время звонков по номеру и дню начала звонка
+     */
+    @NativeQuery(sqlResultSetMapping = "DailyCallTimeView", value =
+            "SELECT s.msisdn, DATEADD(DAY, d.epoch_day, DATE '1970-01-01') AS usage_day, d.call_time_millis * 1000000 AS total_call_time_nanos " +
+            "FROM (SELECT caller_id AS subscriber_id, start_epoch_milli / 86400000 AS epoch_day, SUM(duration_millis) AS call_time_millis " +
+            "FROM cdrs GROUP BY caller_id, start_epoch_milli / 86400000) d " +
+            "JOIN subscribers s ON s.id = d.subscriber_id")
+    List<DailyCallTimeView> sumCallTimeGroupedByCallerNumberAndDay();
+
+    /**
+     * Суммарное время входящих звонков по каждому вызываемому номеру и дню.
+     * <p>
+     * Используется для построения накопленного по дням времени звонков абонентов.
+     * Время суммируется по идентификатору абонента и дню, вычисленному целочисленным делением
+     * времени начала в миллисекундах от начала эпохи; перевод в дату и подстановка номера
+     * выполняются для сгруппированных строк, а не для каждой записи.
+     * </p>
+     *
+     * @return Время звонков по номеру и дню начала звонка
+     */
+    @NativeQuery(sqlResultSetMapping = "DailyCallTimeView", value =
+            "SELECT s.msisdn, DATEADD(DAY, d.epoch_day, DATE '1970-01-01') AS usage_day, d.call_time_millis * 1000000 AS total_call_time_nanos " +
+            "FROM (SELECT called_id AS subscriber_id, start_epoch_milli / 86400000 AS epoch_day, SUM(duration_millis) AS call_time_millis " +
+            "FROM cdrs GROUP BY called_id, start_epoch_milli / 86400000) d " +
+            "JOIN subscribers s ON s.id = d.subscriber_id")
+    List<DailyCallTimeView> sumCallTimeGroupedByCalledNumberAndDay();
 
     /**
      * Поиск всех записей CDR, где абонент был либо вызывающим, либо вызываемым, в указанный период времени.
      * <p>
      * Метод возвращает записи, отсортированные по времени начала вызова.
+     * Вся выборка загружается в память; для больших периодов используйте
+     * {@link #forEachByMsisdnAndStartDateTimeBetween}.
      * </p>
      *
      * @param msisdn Номер абонента
@@ -86,6 +268,7 @@ public interface CdrRepository extends JpaRepository<Cdr,Long> {
      * @param endDate Конец периода времени
      * @return Отсортированный список записей CDR, соответствующих критериям
      */
-    @Query("select c from Cdr c where (c.calledNumber= :msisdn OR c.callerNumber= :msisdn) AND c.startDateTime BETWEEN :startDate AND :endDate ORDER BY c.startDateTime ASC")
+    @Query("select c from Cdr c join fetch c.caller cr join fetch c.called cd " +
+            "where (cd.msisdn = :msisdn OR cr.msisdn = :msisdn) AND c.startDateTime BETWEEN :startDate AND :endDate ORDER BY c.startDateTime ASC")
     List<Cdr> findAllByCalledNumberOrCalledNumberAndStartDateTimeBetweenOrderByStartDateTimeAsc(String msisdn, LocalDateTime startDate, LocalDateTime endDate);
 }
@@ -0,0 +1,50 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Фрагмент репозитория CDR для потокового чтения больших выборок.
+ * <p>
+ * Записи читаются однонаправленным курсором и передаются обработчику по одной,
+ * не накапливаясь ни в списке, ни в контексте персистентности, поэтому
+ * потребление памяти не зависит от размера выборки.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public interface CdrStreamRepository {
+
+    /**
+     * Передает обработчику все записи CDR, где абонент был либо вызывающим, либо вызываемым,
+     * в указанный период времени, в порядке времени начала вызова.
+     * <p>
+     * Записи читаются в отдельной сессии без контекста персистентности и
+     * передаются обработчику отсоединенными, только для чтения.
+     * </p>
+     *
+     * @param msisdn Номер абонента
+     * @param startDate Начало периода времени
+     * @param endDate Конец периода времени
+     * @param fetchSize Количество строк, выбираемых драйвером за одно обращение к базе данных
+     * @param action Обработчик записи
+     * @return Количество переданных обработчику записей
+     */
+    long forEachByMsisdnAndStartDateTimeBetween(String msisdn, LocalDateTime startDate, LocalDateTime endDate, int fetchSize, Consumer<Cdr> action);
+
+    /**
+     * Передает обработчику все записи CDR в порядке времени начала вызова.
+     * <p>
+     * Стороны звонка не загружаются: у переданных записей доступны только
+     * идентификаторы вызывающего и вызываемого абонентов.
+     * </p>
+     *
+     * @param fetchSize Количество строк, выбираемых драйвером за одно обращение к базе данных
+     * @param action Обработчик записи
+     * @return Количество переданных обработчику записей
+     */
+    long forEachOrderByStartDateTime(int fetchSize, Consumer<Cdr> action);
+}
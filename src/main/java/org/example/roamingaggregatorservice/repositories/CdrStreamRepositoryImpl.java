@@ -0,0 +1,95 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Реализация потокового чтения CDR через {@link StatelessSession}.
+ * <p>
+ * Сессия открывается на соединении текущей транзакции, если она есть, поэтому
+ * видит еще не зафиксированные в ней записи; вне транзакции соединение берется
+ * из пула на время чтения. Номер абонента заменяется его идентификатором до выборки,
+ * поэтому записи фильтруются по внешним ключам сторон звонка, а номера сторон
+ * загружаются тем же запросом.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class CdrStreamRepositoryImpl implements CdrStreamRepository {
+
+    private static final String SUBSCRIBER_ID_QUERY =
+            "select s.id from Subscriber s where s.msisdn = :msisdn";
+
+    private static final String REPORT_QUERY =
+            "select c from Cdr c join fetch c.caller join fetch c.called " +
+            "where (c.called.id = :subscriberId or c.caller.id = :subscriberId) " +
+            "and c.startDateTime between :startDate and :endDate order by c.startDateTime asc";
+
+    private static final String ALL_QUERY =
+            "select c from Cdr c order by c.startDateTime asc";
+
+    private final SessionFactory sessionFactory;
+    private final DataSource dataSource;
+
+    public CdrStreamRepositoryImpl(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public long forEachByMsisdnAndStartDateTimeBetween(String msisdn, LocalDateTime startDate, LocalDateTime endDate, int fetchSize, Consumer<Cdr> action) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (StatelessSession session = sessionFactory.withStatelessOptions().connection(connection).openStatelessSession()) {
+            Long subscriberId = session.createSelectionQuery(SUBSCRIBER_ID_QUERY, Long.class)
+                    .setParameter("msisdn", msisdn)
+                    .getSingleResultOrNull();
+            if (subscriberId == null) return 0;
+
+            try (ScrollableResults<Cdr> cdrs = session.createSelectionQuery(REPORT_QUERY, Cdr.class)
+                    .setParameter("subscriberId", subscriberId)
+                    .setParameter("startDate", startDate)
+                    .setParameter("endDate", endDate)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                return forEach(cdrs, action);
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    @Override
+    public long forEachOrderByStartDateTime(int fetchSize, Consumer<Cdr> action) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (StatelessSession session = sessionFactory.withStatelessOptions().connection(connection).openStatelessSession();
+             ScrollableResults<Cdr> cdrs = session.createSelectionQuery(ALL_QUERY, Cdr.class)
+                     .setFetchSize(fetchSize)
+                     .setReadOnly(true)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            return forEach(cdrs, action);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static long forEach(ScrollableResults<Cdr> cdrs, Consumer<Cdr> action) {
+        long count = 0;
+        while (cdrs.next()) {
+            action.accept(cdrs.get());
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Блокировка записи CDR и производных от них данных, удерживаемая до завершения транзакции.
+ * <p>
+ * Транзакции, сохраняющие CDR, захватывают разделяемую блокировку и друг друга не ждут:
+ * их приращения к витринам складываются построчно. Перестройка витрин заменяет строки,
+ * а не прибавляет к ним, поэтому захватывает исключительную блокировку: она ждет
+ * завершения сохраняющих транзакций, а новые сохранения ждут ее завершения, и запись CDR,
+ * одновременная с ней, не теряется и не учитывается дважды.
+ * </p>
+ * <p>
+ * Блокировка захватывается до первой записи транзакции и отпускается после ее фиксации
+ * или отката, поэтому ожидание блокировки никогда не происходит под блокировками строк
+ * базы данных, захваченными другой стороной (кроме перехода транзакции от разделяемой
+ * блокировки к исключительной, см. {@link #lockExclusive()}). Повторный захват в той же
+ * транзакции ничего не делает.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Component
+public class CdrWriteLock {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Захватывает разделяемую блокировку до завершения текущей транзакции.
+     *
+     * @throws IllegalStateException если транзакция не активна
+     */
+    public void lockShared() {
+        if (heldLock() != null) return;
+        lockUntilCompletion(lock.readLock());
+    }
+
+    /**
+     * Захватывает исключительную блокировку до завершения текущей транзакции.
+     * <p>
+     * Если транзакция уже сохраняла CDR под разделяемой блокировкой, та отпускается
+     * на время ожидания исключительной: иначе поток ждал бы сам себя. Собственные
+     * незафиксированные записи транзакции при этом видны ей самой.
+     * </p>
+     *
+     * @throws IllegalStateException если транзакция не активна
+     */
+    public void lockExclusive() {
+        HeldLock held = heldLock();
+        if (held == null) {
+            lockUntilCompletion(lock.writeLock());
+        } else if (held.lock != lock.writeLock()) {
+            held.lock.unlock();
+            held.lock = lock.writeLock();
+            held.lock.lock();
+        }
+    }
+
+    private HeldLock heldLock() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Блокировка записи CDR захватывается только в транзакции");
+        }
+        return (HeldLock) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private void lockUntilCompletion(Lock acquired) {
+        acquired.lock();
+        HeldLock held = new HeldLock(acquired);
+        TransactionSynchronizationManager.bindResource(this, held);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CdrWriteLock.this);
+                held.lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Блокировка, удерживаемая транзакцией.
+     */
+    private static final class HeldLock {
+
+        private Lock lock;
+
+        private HeldLock(Lock lock) {
+            this.lock = lock;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Выполнение последовательности аддитивных {@code MERGE} при параллельной записи тех же ключей.
+ * <p>
+ * {@code MERGE ... USING} в H2 не атомарен относительно вставки: если две транзакции
+ * одновременно не находят строку с ключом, вторая вставка завершается нарушением
+ * уникального ключа после фиксации первой. Такой элемент сразу выполняется повторно
+ * в той же транзакции: ошибка оператора в H2 не откатывает транзакцию, а повторный
+ * {@code MERGE} уже видит зафиксированную строку и прибавляет к ней приращение.
+ * </p>
+ * <p>
+ * Остальные конфликты разрешаются блокировками строк в базе данных. Чтобы параллельные
+ * транзакции не блокировали друг друга взаимно, элементы должны быть упорядочены по ключу
+ * и выполняются строго в этом порядке, поэтому JDBC-пакет не используется: драйвер H2
+ * продолжает пакет после ошибочного элемента, и повтор захватывал бы блокировку строки
+ * после блокировок следующих элементов. Встроенная база H2 выполняет элементы пакета по
+ * одному, поэтому отдельные вызовы одного подготовленного оператора его не замедляют.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+final class MergeBatches {
+
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+    private MergeBatches() {
+    }
+
+    /**
+     * Выполняет оператор {@code MERGE} для каждого элемента по порядку, повторяя элемент,
+     * вставка которого нарушила уникальный ключ.
+     *
+     * @param jdbcTemplate Шаблон JDBC текущего источника данных
+     * @param sql Аддитивный оператор {@code MERGE}
+     * @param rows Элементы, упорядоченные по ключу
+     * @param setter Установка параметров оператора для элемента
+     * @param <T> Тип элемента
+     */
+    static <T> void execute(JdbcTemplate jdbcTemplate, String sql, List<T> rows, ParameterizedPreparedStatementSetter<T> setter) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (T row : rows) {
+                    setter.setValues(ps, row);
+                    try {
+                        ps.executeUpdate();
+                    } catch (SQLException e) {
+                        if (!UNIQUE_VIOLATION_SQL_STATE.equals(e.getSQLState())) throw e;
+                        ps.executeUpdate();
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Фрагмент репозитория помесячной витрины для выборки времени звонков набора абонентов.
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public interface SubscriberCallTimeLookupRepository {
+
+    /**
+     * Время звонков зарегистрированных абонентов из набора за месяц или за все время.
+     * <p>
+     * Выполняется одним запросом: номера передаются одним параметром-массивом,
+     * соединяются с абонентами по уникальному индексу номера и со строками витрины,
+     * после чего время суммируется с группировкой по абоненту. Незарегистрированные
+     * номера в результат не попадают; зарегистрированные абоненты без звонков
+     * возвращаются с нулевым временем.
+     * </p>
+     *
+     * @param msisdns Номера абонентов без повторов
+     * @param year Год или {@code null} для выборки за все время
+     * @param month Месяц или {@code null} для выборки за все время
+     * @return Время входящих и исходящих звонков зарегистрированных абонентов в произвольном порядке
+     */
+    List<CallTimeUsageView> findCallTimesByMsisdns(Collection<String> msisdns, Integer year, Integer month);
+}
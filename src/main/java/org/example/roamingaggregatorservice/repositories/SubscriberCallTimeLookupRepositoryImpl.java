@@ -0,0 +1,61 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import jakarta.persistence.EntityManager;
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Реализация выборки времени звонков набора абонентов через {@code UNNEST} массива номеров.
+ * <p>
+ * Массив передается одним параметром, поэтому текст запроса не зависит от количества
+ * номеров и план запроса переиспользуется. Несохраненные изменения контекста
+ * персистентности текущей транзакции перед запросом сбрасываются в базу.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class SubscriberCallTimeLookupRepositoryImpl implements SubscriberCallTimeLookupRepository {
+
+    private static final String SELECT_SQL =
+            "SELECT s.msisdn, " +
+            "CAST(COALESCE(SUM(u.incoming_call_time_nanos), 0) AS BIGINT), " +
+            "CAST(COALESCE(SUM(u.outgoing_call_time_nanos), 0) AS BIGINT) " +
+            "FROM UNNEST(CAST(? AS VARCHAR(255) ARRAY)) AS r(msisdn) " +
+            "JOIN subscribers s ON s.msisdn = r.msisdn " +
+            "LEFT JOIN subscriber_monthly_usage u ON u.subscriber_id = s.id";
+
+    private static final String FOR_ALL_TIME_SQL = SELECT_SQL + " GROUP BY s.msisdn";
+
+    private static final String FOR_MONTH_SQL = SELECT_SQL +
+            " AND u.usage_year = ? AND u.usage_month = ? GROUP BY s.msisdn";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    public SubscriberCallTimeLookupRepositoryImpl(EntityManager entityManager, JdbcTemplate jdbcTemplate) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<CallTimeUsageView> findCallTimesByMsisdns(Collection<String> msisdns, Integer year, Integer month) {
+        if (msisdns.isEmpty()) return List.of();
+        if (entityManager.isJoinedToTransaction()) entityManager.flush();
+
+        boolean forMonth = year != null && month != null;
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(forMonth ? FOR_MONTH_SQL : FOR_ALL_TIME_SQL);
+            ps.setArray(1, connection.createArrayOf("VARCHAR", msisdns.toArray()));
+            if (forMonth) {
+                ps.setInt(2, year);
+                ps.setInt(3, month);
+            }
+            return ps;
+        }, (rs, rowNum) -> new CallTimeUsageView(rs.getString(1), rs.getLong(2), rs.getLong(3)));
+    }
+}
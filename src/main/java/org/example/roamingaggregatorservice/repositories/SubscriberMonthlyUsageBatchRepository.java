@@ -0,0 +1,30 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.entities.SubscriberMonthlyUsage;
+
+import java.util.List;
+
+/**
+ * Фрагмент репозитория помесячной витрины использования для инкрементального обновления.
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public interface SubscriberMonthlyUsageBatchRepository {
+
+    /**
+     * Прибавляет приращения к строкам витрины по одному оператору на приращение.
+     * <p>
+     * Для отсутствующих пар (абонент, месяц) строки создаются. Приращения
+     * не попадают в контекст персистентности и не должны иметь идентификаторов.
+     * Приращения разных транзакций к одной строке складываются базой данных,
+     * поэтому вызывающий код не должен сериализовать вызовы; чтобы параллельные
+     * транзакции не блокировали друг друга взаимно, приращения упорядочиваются
+     * по абоненту и месяцу.
+     * </p>
+     *
+     * @param deltas Приращения времени и количества звонков по абоненту и месяцу
+     * @return Количество обработанных приращений
+     */
+    int batchMerge(List<SubscriberMonthlyUsage> deltas);
+}
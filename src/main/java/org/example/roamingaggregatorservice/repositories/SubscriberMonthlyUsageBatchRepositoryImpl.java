@@ -0,0 +1,60 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.entities.SubscriberMonthlyUsage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Реализация инкрементального обновления витрины через {@code MERGE ... USING}.
+ * <p>
+ * Совпавшая строка увеличивается на приращение, отсутствующая - вставляется с
+ * идентификатором из последовательности {@code subscriber_monthly_usage_seq}.
+ * Параллельные транзакции обновляют одни и те же строки под блокировками строк
+ * базы данных, а одновременная вставка одной строки повторяется через {@link MergeBatches}.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class SubscriberMonthlyUsageBatchRepositoryImpl implements SubscriberMonthlyUsageBatchRepository {
+
+    private static final String MERGE_SQL =
+            "MERGE INTO subscriber_monthly_usage u " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS INTEGER), CAST(? AS INTEGER), " +
+            "CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT))) " +
+            "AS d(subscriber_id, usage_year, usage_month, incoming_call_time_nanos, outgoing_call_time_nanos, incoming_calls, outgoing_calls) " +
+            "ON u.subscriber_id = d.subscriber_id AND u.usage_year = d.usage_year AND u.usage_month = d.usage_month " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "incoming_call_time_nanos = u.incoming_call_time_nanos + d.incoming_call_time_nanos, " +
+            "outgoing_call_time_nanos = u.outgoing_call_time_nanos + d.outgoing_call_time_nanos, " +
+            "incoming_calls = u.incoming_calls + d.incoming_calls, " +
+            "outgoing_calls = u.outgoing_calls + d.outgoing_calls " +
+            "WHEN NOT MATCHED THEN INSERT (id, subscriber_id, usage_year, usage_month, incoming_call_time_nanos, outgoing_call_time_nanos, incoming_calls, outgoing_calls) " +
+            "VALUES (NEXT VALUE FOR subscriber_monthly_usage_seq, d.subscriber_id, d.usage_year, d.usage_month, " +
+            "d.incoming_call_time_nanos, d.outgoing_call_time_nanos, d.incoming_calls, d.outgoing_calls)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SubscriberMonthlyUsageBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public int batchMerge(List<SubscriberMonthlyUsage> deltas) {
+        if (deltas.isEmpty()) return 0;
+
+        MergeBatches.execute(jdbcTemplate, MERGE_SQL, deltas, (ps, delta) -> {
+            ps.setLong(1, delta.getSubscriberId());
+            ps.setInt(2, delta.getUsageYear());
+            ps.setInt(3, delta.getUsageMonth());
+            ps.setLong(4, delta.getIncomingCallTimeNanos());
+            ps.setLong(5, delta.getOutgoingCallTimeNanos());
+            ps.setLong(6, delta.getIncomingCalls());
+            ps.setLong(7, delta.getOutgoingCalls());
+        });
+        return deltas.size();
+    }
+}
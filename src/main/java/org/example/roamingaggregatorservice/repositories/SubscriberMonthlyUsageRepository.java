@@ -0,0 +1,77 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.entities.SubscriberMonthlyUsage;
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий помесячной витрины использования связи абонентами.
+ * <p>
+ * Методы чтения возвращают проекции, а не управляемые сущности: строки витрины
+ * обновляются в обход контекста персистентности, и загруженные сущности
+ * могли бы устареть в пределах транзакции.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public interface SubscriberMonthlyUsageRepository extends JpaRepository<SubscriberMonthlyUsage, Long>, SubscriberMonthlyUsageBatchRepository,
+        SubscriberMonthlyUsageStreamRepository, SubscriberCallTimeLookupRepository {
+
+    /**
+     * Время звонков абонента за указанный месяц.
+     *
+     * @param msisdn Номер абонента
+     * @param year Год
+     * @param month Месяц
+     * @return Время входящих и исходящих звонков или пустой Optional, если звонков не было
+     */
+    @Query("SELECT new org.example.roamingaggregatorservice.projections.CallTimeUsageView(s.msisdn, u.incomingCallTimeNanos, u.outgoingCallTimeNanos) " +
+            "FROM SubscriberMonthlyUsage u JOIN Subscriber s ON s.id = u.subscriberId WHERE s.msisdn = :msisdn AND u.usageYear = :year AND u.usageMonth = :month")
+    Optional<CallTimeUsageView> findCallTimeByMsisdnAndMonth(String msisdn, int year, int month);
+
+    /**
+     * Время звонков абонента за все время, суммированное по месяцам.
+     *
+     * @param msisdn Номер абонента
+     * @return Время входящих и исходящих звонков или пустой Optional, если звонков не было
+     */
+    @Query("SELECT new org.example.roamingaggregatorservice.projections.CallTimeUsageView(s.msisdn, SUM(u.incomingCallTimeNanos), SUM(u.outgoingCallTimeNanos)) " +
+            "FROM SubscriberMonthlyUsage u JOIN Subscriber s ON s.id = u.subscriberId WHERE s.msisdn = :msisdn GROUP BY s.msisdn")
+    Optional<CallTimeUsageView> findCallTimeByMsisdn(String msisdn);
+
+    /**
+     * Время звонков всех абонентов, звонивших или принимавших звонки в указанном месяце.
+     *
+     * @param year Год
+     * @param month Месяц
+     * @return Время входящих и исходящих звонков для каждого абонента
+     */
+    @Query("SELECT new org.example.roamingaggregatorservice.projections.CallTimeUsageView(s.msisdn, u.incomingCallTimeNanos, u.outgoingCallTimeNanos) " +
+            "FROM SubscriberMonthlyUsage u JOIN Subscriber s ON s.id = u.subscriberId WHERE u.usageYear = :year AND u.usageMonth = :month")
+    List<CallTimeUsageView> findAllCallTimesByMonth(int year, int month);
+
+    /**
+     * Время звонков за указанный месяц для абонентов с номером больше заданного,
+     * в порядке возрастания номера. Абоненты выбираются диапазонным запросом по
+     * уникальному индексу номера, строки витрины - по ее уникальному ключу
+     * (абонент, год, месяц). Абоненты без звонков за месяц возвращаются с нулевым временем.
+     *
+     * @param afterMsisdn Номер, после которого начинается выборка; пустая строка - с начала
+     * @param year Год
+     * @param month Месяц
+     * @param limit Максимальное количество абонентов
+     * @return Время входящих и исходящих звонков для каждого абонента
+     */
+    @Query("SELECT new org.example.roamingaggregatorservice.projections.CallTimeUsageView(s.msisdn, " +
+            "COALESCE(u.incomingCallTimeNanos, 0L), COALESCE(u.outgoingCallTimeNanos, 0L)) " +
+            "FROM Subscriber s LEFT JOIN SubscriberMonthlyUsage u " +
+            "ON u.subscriberId = s.id AND u.usageYear = :year AND u.usageMonth = :month " +
+            "WHERE s.msisdn > :afterMsisdn ORDER BY s.msisdn")
+    List<CallTimeUsageView> findSubscriberCallTimesByMonthAfter(String afterMsisdn, int year, int month, Limit limit);
+}
@@ -0,0 +1,31 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+
+import java.util.function.Consumer;
+
+/**
+ * Фрагмент репозитория помесячной витрины для потокового чтения по всем абонентам.
+ * <p>
+ * Строки читаются однонаправленным курсором и передаются обработчику по одной,
+ * поэтому потребление памяти не зависит от количества абонентов.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public interface SubscriberMonthlyUsageStreamRepository {
+
+    /**
+     * Передает обработчику время звонков каждого абонента за указанный месяц
+     * в порядке регистрации абонентов. Абоненты без звонков за месяц передаются
+     * с нулевым временем.
+     *
+     * @param year Год
+     * @param month Месяц
+     * @param fetchSize Количество строк, выбираемых драйвером за одно обращение к базе данных
+     * @param action Обработчик времени звонков абонента
+     * @return Количество переданных обработчику абонентов
+     */
+    long forEachSubscriberCallTimeForMonth(int year, int month, int fetchSize, Consumer<CallTimeUsageView> action);
+}
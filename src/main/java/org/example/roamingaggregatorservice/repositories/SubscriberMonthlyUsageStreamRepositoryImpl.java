@@ -0,0 +1,68 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import jakarta.persistence.EntityManager;
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.function.Consumer;
+
+/**
+ * Реализация потокового чтения витрины через {@link StatelessSession}.
+ * <p>
+ * Абоненты соединяются со строками витрины за месяц внешним соединением, так что
+ * каждый абонент читается ровно одной строкой. Сессия открывается на соединении
+ * текущей транзакции, если она есть; несохраненные изменения контекста персистентности
+ * этой транзакции перед чтением сбрасываются в базу, чтобы курсор их видел.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class SubscriberMonthlyUsageStreamRepositoryImpl implements SubscriberMonthlyUsageStreamRepository {
+
+    private static final String SUBSCRIBERS_CALL_TIME_QUERY =
+            "select new org.example.roamingaggregatorservice.projections.CallTimeUsageView(" +
+            "s.msisdn, coalesce(u.incomingCallTimeNanos, 0L), coalesce(u.outgoingCallTimeNanos, 0L)) " +
+            "from Subscriber s left join SubscriberMonthlyUsage u " +
+            "on u.subscriberId = s.id and u.usageYear = :year and u.usageMonth = :month " +
+            "order by s.id";
+
+    private final EntityManager entityManager;
+    private final SessionFactory sessionFactory;
+    private final DataSource dataSource;
+
+    public SubscriberMonthlyUsageStreamRepositoryImpl(EntityManager entityManager, DataSource dataSource) {
+        this.entityManager = entityManager;
+        this.sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public long forEachSubscriberCallTimeForMonth(int year, int month, int fetchSize, Consumer<CallTimeUsageView> action) {
+        if (entityManager.isJoinedToTransaction()) entityManager.flush();
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (StatelessSession session = sessionFactory.withStatelessOptions().connection(connection).openStatelessSession();
+             ScrollableResults<CallTimeUsageView> callTimes = session.createSelectionQuery(SUBSCRIBERS_CALL_TIME_QUERY, CallTimeUsageView.class)
+                     .setParameter("year", year)
+                     .setParameter("month", month)
+                     .setFetchSize(fetchSize)
+                     .setReadOnly(true)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            long count = 0;
+            while (callTimes.next()) {
+                action.accept(callTimes.get());
+                count++;
+            }
+            return count;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
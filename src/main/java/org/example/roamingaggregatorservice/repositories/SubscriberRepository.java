@@ -3,6 +3,7 @@ package org.example.roamingaggregatorservice.repositories;
 import org.example.roamingaggregatorservice.entities.Subscriber;
 import org.springframework.data.domain.Example;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -40,4 +41,20 @@ public interface SubscriberRepository extends JpaRepository<Subscriber, Long> {
      * @return Optional, содержащий найденного абонента, или пустой Optional, если абонент не найден
      */
     Optional<Subscriber> findSubscriberByMsisdn(String msisdn);
+
+    /**
+     * Проверка существования абонента по номеру телефона (MSISDN) без загрузки сущности.
+     *
+     * @param msisdn Номер мобильного телефона абонента
+     * @return {@code true}, если абонент с таким номером существует
+     */
+    boolean existsByMsisdn(String msisdn);
+
+    /**
+     * Получение номеров всех абонентов без загрузки сущностей.
+     *
+     * @return Список номеров всех абонентов
+     */
+    @Query("SELECT s.msisdn FROM Subscriber s")
+    List<String> findAllMsisdns();
 }
@@ -0,0 +1,30 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.entities.SubscriberUsageHistogram;
+
+import java.util.List;
+
+/**
+ * Фрагмент репозитория помесячных гистограмм использования для инкрементального обновления.
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public interface SubscriberUsageHistogramBatchRepository {
+
+    /**
+     * Прибавляет приращения гистограмм к строкам, выполняя по одному оператору на приращение.
+     * <p>
+     * Для отсутствующих пар (абонент, месяц) строки создаются. Приращения
+     * не попадают в контекст персистентности и не должны иметь идентификаторов.
+     * Приращения разных транзакций к одной строке складываются базой данных,
+     * поэтому вызывающий код не должен сериализовать вызовы; чтобы параллельные
+     * транзакции не блокировали друг друга взаимно, приращения упорядочиваются
+     * по абоненту и месяцу.
+     * </p>
+     *
+     * @param histograms Приращения гистограмм по абоненту и месяцу
+     * @return Количество обработанных приращений
+     */
+    int batchMerge(List<SubscriberUsageHistogram> histograms);
+}
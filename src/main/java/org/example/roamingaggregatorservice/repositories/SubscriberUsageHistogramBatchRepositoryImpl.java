@@ -0,0 +1,71 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.entities.SubscriberUsageHistogram;
+import org.example.roamingaggregatorservice.utils.UsageHistogram;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Реализация инкрементального обновления гистограмм через {@code MERGE ... USING}.
+ * <p>
+ * Гистограммы хранятся в двоичном виде, поэтому складываются функцией базы данных
+ * {@code USAGE_HISTOGRAM_ADD} ({@link UsageHistogram#add(byte[], byte[])}), которая
+ * создается при запуске. Совпавшая строка увеличивается на приращение в том же операторе,
+ * отсутствующая - вставляется с идентификатором из последовательности
+ * {@code subscriber_usage_histogram_seq}; одновременная вставка одной строки
+ * повторяется через {@link MergeBatches}.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class SubscriberUsageHistogramBatchRepositoryImpl implements SubscriberUsageHistogramBatchRepository, InitializingBean {
+
+    private static final String CREATE_ADD_FUNCTION_SQL =
+            "CREATE ALIAS IF NOT EXISTS USAGE_HISTOGRAM_ADD DETERMINISTIC FOR '" + UsageHistogram.class.getName() + ".add'";
+
+    private static final String MERGE_SQL =
+            "MERGE INTO subscriber_usage_histogram h " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS INTEGER), CAST(? AS INTEGER), " +
+            "CAST(? AS VARBINARY), CAST(? AS VARBINARY))) " +
+            "AS d(subscriber_id, usage_year, usage_month, incoming_seconds, outgoing_seconds) " +
+            "ON h.subscriber_id = d.subscriber_id AND h.usage_year = d.usage_year AND h.usage_month = d.usage_month " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "incoming_seconds = USAGE_HISTOGRAM_ADD(h.incoming_seconds, d.incoming_seconds), " +
+            "outgoing_seconds = USAGE_HISTOGRAM_ADD(h.outgoing_seconds, d.outgoing_seconds) " +
+            "WHEN NOT MATCHED THEN INSERT (id, subscriber_id, usage_year, usage_month, incoming_seconds, outgoing_seconds) " +
+            "VALUES (NEXT VALUE FOR subscriber_usage_histogram_seq, d.subscriber_id, d.usage_year, d.usage_month, " +
+            "d.incoming_seconds, d.outgoing_seconds)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SubscriberUsageHistogramBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Создает функцию сложения гистограмм, если ее еще нет в базе данных.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        jdbcTemplate.execute(CREATE_ADD_FUNCTION_SQL);
+    }
+
+    @Override
+    @Transactional
+    public int batchMerge(List<SubscriberUsageHistogram> histograms) {
+        if (histograms.isEmpty()) return 0;
+
+        MergeBatches.execute(jdbcTemplate, MERGE_SQL, histograms, (ps, histogram) -> {
+            ps.setLong(1, histogram.getSubscriberId());
+            ps.setInt(2, histogram.getUsageYear());
+            ps.setInt(3, histogram.getUsageMonth());
+            ps.setBytes(4, histogram.getIncomingSeconds());
+            ps.setBytes(5, histogram.getOutgoingSeconds());
+        });
+        return histograms.size();
+    }
+}
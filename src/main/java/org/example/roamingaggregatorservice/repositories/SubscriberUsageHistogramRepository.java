@@ -0,0 +1,34 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.entities.SubscriberUsageHistogram;
+import org.example.roamingaggregatorservice.projections.UsageHistogramView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+/**
+ * Репозиторий помесячных гистограмм использования связи абонентами.
+ * <p>
+ * Методы чтения возвращают проекции, а не управляемые сущности: строки гистограмм
+ * обновляются в обход контекста персистентности, и загруженные сущности
+ * могли бы устареть в пределах транзакции.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public interface SubscriberUsageHistogramRepository extends JpaRepository<SubscriberUsageHistogram, Long>, SubscriberUsageHistogramBatchRepository {
+
+    /**
+     * Гистограмма использования абонента за указанный месяц.
+     *
+     * @param msisdn Номер абонента
+     * @param year Год
+     * @param month Месяц
+     * @return Гистограммы входящих и исходящих звонков или пустой Optional, если звонков не было
+     */
+    @Query("SELECT new org.example.roamingaggregatorservice.projections.UsageHistogramView(s.msisdn, h.usageYear, h.usageMonth, h.incomingSeconds, h.outgoingSeconds) " +
+            "FROM SubscriberUsageHistogram h JOIN Subscriber s ON s.id = h.subscriberId WHERE s.msisdn = :msisdn AND h.usageYear = :year AND h.usageMonth = :month")
+    Optional<UsageHistogramView> findHistogramByMsisdnAndMonth(String msisdn, int year, int month);
+}
@@ -0,0 +1,166 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.config.AsyncConfig;
+import org.example.roamingaggregatorservice.dto.CdrGenerationJobDTO;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.exceptions.NoSuchCdrGenerationJobException;
+import org.example.roamingaggregatorservice.jobs.CdrGenerationJob;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Сервис заданий на массовую генерацию CDR.
+ * <p>
+ * Задание ставится в очередь исполнителя {@link AsyncConfig#CDR_GENERATION_JOB_EXECUTOR},
+ * а вызывающий сразу получает UUID задания. Поток задания нарезает генерацию на порции
+ * по {@code cdr.generation.chunk-size} и передает их общему исполнителю
+ * {@link AsyncConfig#CDR_GENERATION_EXECUTOR}. Количество переданных, но не сохраненных
+ * порций всех заданий ограничено семафором по сумме размера пула и емкости очереди
+ * этого исполнителя: поток задания ждет освобождения места, а память не зависит от объема
+ * генерации. Поток пула освобождает место до того, как забирает следующую порцию из очереди,
+ * поэтому очередь еще может оказаться заполненной; такую порцию сохраняет сам поток задания. Состояние заданий хранится в памяти;
+ * завершенные задания удаляются по истечении {@code cdr.generation.jobs.retention}.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Service
+public class CdrGenerationJobService {
+
+    private final CdrService cdrService;
+    private final SubscriberService subscriberService;
+    private final ThreadPoolTaskExecutor jobExecutor;
+    private final ThreadPoolTaskExecutor chunkExecutor;
+    private final Semaphore chunkPermits;
+
+    private final Map<UUID, CdrGenerationJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${cdr.generation.chunk-size:10000}")
+    private int chunkSize;
+
+    @Value("${cdr.generation.jobs.retention:1h}")
+    private Duration jobRetention;
+
+    public CdrGenerationJobService(CdrService cdrService, SubscriberService subscriberService,
+                                   @Qualifier(AsyncConfig.CDR_GENERATION_JOB_EXECUTOR) ThreadPoolTaskExecutor jobExecutor,
+                                   @Qualifier(AsyncConfig.CDR_GENERATION_EXECUTOR) ThreadPoolTaskExecutor chunkExecutor) {
+        this.cdrService = cdrService;
+        this.subscriberService = subscriberService;
+        this.jobExecutor = jobExecutor;
+        this.chunkExecutor = chunkExecutor;
+        this.chunkPermits = new Semaphore(chunkExecutor.getMaxPoolSize() + chunkExecutor.getQueueCapacity());
+    }
+
+    /**
+     * Ставит в очередь задание на генерацию случайных записей CDR за последний год.
+     *
+     * @param count Количество записей для генерации
+     * @return UUID задания
+     * @throws TaskRejectedException если очередь заданий генерации заполнена
+     */
+    public UUID submitCdrGeneration(long count) {
+        UUID uuid = UUID.randomUUID();
+        CdrGenerationJob job = new CdrGenerationJob(uuid, count);
+        jobs.put(uuid, job);
+        try {
+            jobExecutor.execute(() -> runCdrGenerationJob(job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(uuid);
+            throw e;
+        }
+        return uuid;
+    }
+
+    /**
+     * Возвращает состояние задания.
+     *
+     * @param uuid UUID задания
+     * @return Состояние задания
+     * @throws NoSuchCdrGenerationJobException если задание не найдено
+     */
+    public CdrGenerationJobDTO getCdrGenerationJob(UUID uuid) {
+        CdrGenerationJob job = jobs.get(uuid);
+        if (job == null) throw new NoSuchCdrGenerationJobException(uuid);
+        return new CdrGenerationJobDTO(job.getUuid(), job.getStatus(), job.getRequestedCdrs(), job.getGeneratedCdrs(),
+                job.getElapsedMillis(), job.getCdrsPerSecond(), job.getErrorMessage());
+    }
+
+    /**
+     * Выполняет задание: передает порции исполнителю по мере освобождения места
+     * и дожидается сохранения всех переданных порций.
+     * <p>
+     * После первой ошибки новые порции не передаются, уже сохраненные остаются в базе
+     * данных, а задание завершается с ошибкой.
+     * </p>
+     *
+     * @param job Задание на генерацию
+     */
+    void runCdrGenerationJob(CdrGenerationJob job) {
+        job.markRunning();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Phaser inFlight = new Phaser(1);
+        try {
+            List<Subscriber> subscribers = subscriberService.findAll();
+            for (long offset = 0; offset < job.getRequestedCdrs() && failure.get() == null; offset += chunkSize) {
+                int size = (int) Math.min(chunkSize, job.getRequestedCdrs() - offset);
+                chunkPermits.acquire();
+                inFlight.register();
+                Runnable chunk = () -> {
+                    try {
+                        if (failure.get() == null) job.addGeneratedCdrs(cdrService.generateCdrChunk(subscribers, size));
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.arriveAndDeregister();
+                        chunkPermits.release();
+                    }
+                };
+                try {
+                    chunkExecutor.execute(chunk);
+                } catch (TaskRejectedException e) {
+                    chunk.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, new IllegalStateException("Генерация CDR прервана", e));
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            inFlight.arriveAndAwaitAdvance();
+        }
+
+        if (failure.get() == null) {
+            job.markDone();
+        } else {
+            job.markFailed(failure.get());
+        }
+    }
+
+    /**
+     * Удаляет завершенные задания, срок хранения которых истек.
+     * <p>
+     * Выполняется периодически с интервалом {@code cdr.generation.jobs.eviction-interval}.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${cdr.generation.jobs.eviction-interval:1m}")
+    public void evictExpiredJobs() {
+        long now = System.nanoTime();
+        long retentionNanos = jobRetention.toNanos();
+        jobs.values().removeIf(job -> job.isFinished() && now - job.getFinishedNanos() > retentionNanos);
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.dto.CdrReportJobDTO;
+import org.example.roamingaggregatorservice.exceptions.CdrReportNotReadyException;
+import org.example.roamingaggregatorservice.exceptions.NoSuchCdrReportJobException;
+import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
+import org.example.roamingaggregatorservice.exceptions.StartDateIsAfterEndDateException;
+import org.example.roamingaggregatorservice.jobs.CdrReportJob;
+import org.example.roamingaggregatorservice.jobs.CdrReportJobStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис заданий на формирование cdr-отчетов.
+ * <p>
+ * Параметры запроса проверяются синхронно, после чего задание ставится в очередь
+ * исполнителя отчетов, а вызывающий сразу получает UUID задания. Состояние
+ * заданий хранится в памяти; завершенные задания удаляются по истечении
+ * {@code cdr.report.jobs.retention}, файлы отчетов при этом сохраняются и остаются
+ * доступными для скачивания по UUID, в том числе после перезапуска приложения,
+ * до истечения {@code cdr.report.files.retention}.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Service
+public class CdrReportJobService {
+
+    private final CdrService cdrService;
+
+    private final Map<UUID, CdrReportJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${cdr.report.jobs.retention:1h}")
+    private Duration jobRetention;
+
+    @Value("${cdr.report.files.retention:24h}")
+    private Duration fileRetention;
+
+    public CdrReportJobService(CdrService cdrService) {
+        this.cdrService = cdrService;
+    }
+
+    /**
+     * Ставит в очередь задание на формирование отчета по звонкам абонента.
+     *
+     * @param msisdn Номер телефона абонента
+     * @param startDate Начальная дата периода
+     * @param endDate Конечная дата периода
+     * @return UUID задания, совпадающий с UUID отчета
+     * @throws NoSuchSubscriberException если абонент с указанным номером не найден
+     * @throws StartDateIsAfterEndDateException если начальная дата позже конечной даты
+     * @throws TaskRejectedException если очередь исполнителя отчетов заполнена
+     */
+    public UUID submitCdrReport(String msisdn, LocalDate startDate, LocalDate endDate) {
+        cdrService.validateCdrReportRequest(msisdn, startDate, endDate);
+
+        UUID requestUUID = UUID.randomUUID();
+        CdrReportJob job = new CdrReportJob(requestUUID, msisdn, startDate, endDate, cdrService.resolveCdrReportPath(msisdn, requestUUID));
+        jobs.put(requestUUID, job);
+        try {
+            cdrService.runCdrReportJob(job);
+        } catch (TaskRejectedException e) {
+            jobs.remove(requestUUID);
+            throw e;
+        }
+        return requestUUID;
+    }
+
+    /**
+     * Возвращает состояние задания.
+     *
+     * @param uuid UUID задания
+     * @return Состояние задания
+     * @throws NoSuchCdrReportJobException если задание не найдено
+     */
+    public CdrReportJobDTO getCdrReportJob(UUID uuid) {
+        CdrReportJob job = findJobOrElseThrow(uuid);
+        return new CdrReportJobDTO(job.getUuid(), job.getMsisdn(), job.getStatus(), job.getRowsWritten(), job.getElapsedMillis(), job.getErrorMessage());
+    }
+
+    /**
+     * Возвращает путь к файлу сформированного отчета.
+     * <p>
+     * Если задание уже удалено из памяти, файл отчета ищется в директории отчетов по UUID.
+     * </p>
+     *
+     * @param uuid UUID задания
+     * @return Путь к файлу отчета
+     * @throws NoSuchCdrReportJobException если нет ни задания, ни файла отчета
+     * @throws CdrReportNotReadyException если отчет еще не сформирован или задание завершилось ошибкой
+     */
+    public Path getCdrReportPath(UUID uuid) {
+        CdrReportJob job = jobs.get(uuid);
+        if (job == null) return cdrService.findCdrReportPath(uuid).orElseThrow(() -> new NoSuchCdrReportJobException(uuid));
+        if (job.getStatus() != CdrReportJobStatus.DONE) throw new CdrReportNotReadyException(uuid, job.getStatus());
+        return job.getReportFilePath();
+    }
+
+    /**
+     * Находит задание по UUID.
+     *
+     * @param uuid UUID задания
+     * @return Задание
+     * @throws NoSuchCdrReportJobException если задание не найдено
+     */
+    private CdrReportJob findJobOrElseThrow(UUID uuid) {
+        CdrReportJob job = jobs.get(uuid);
+        if (job == null) throw new NoSuchCdrReportJobException(uuid);
+        return job;
+    }
+
+    /**
+     * Удаляет завершенные задания и файлы отчетов, срок хранения которых истек.
+     * <p>
+     * Выполняется периодически с интервалом {@code cdr.report.jobs.eviction-interval},
+     * поэтому память и диск освобождаются и без новых заданий.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${cdr.report.jobs.eviction-interval:1m}")
+    public void evictExpiredJobs() {
+        long now = System.nanoTime();
+        long retentionNanos = jobRetention.toNanos();
+        jobs.values().removeIf(job -> job.isFinished() && now - job.getFinishedNanos() > retentionNanos);
+        cdrService.deleteCdrReportsModifiedBefore(Instant.now().minus(fileRetention));
+    }
+}
@@ -1,28 +1,45 @@
 package org.example.roamingaggregatorservice.services;
 
+import org.example.roamingaggregatorservice.config.AsyncConfig;
+import org.example.roamingaggregatorservice.dto.CdrIngestResultDTO;
+import org.example.roamingaggregatorservice.dto.CdrLineDTO;
 import org.example.roamingaggregatorservice.entities.Cdr;
 import org.example.roamingaggregatorservice.entities.Subscriber;
 import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
 import org.example.roamingaggregatorservice.exceptions.StartDateIsAfterEndDateException;
+import org.example.roamingaggregatorservice.jobs.CdrReportJob;
+import org.example.roamingaggregatorservice.projections.CallTimeTotalView;
 import org.example.roamingaggregatorservice.repositories.CdrRepository;
-import org.example.roamingaggregatorservice.repositories.SubscriberRepository;
+import org.example.roamingaggregatorservice.utils.CdrReportLineEncoder;
+import org.example.roamingaggregatorservice.utils.CdrReportLineParser;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.*;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.*;
+import java.util.function.LongConsumer;
 
 /**
  * Сервис для работы с записями данных вызовов (CDR - Call Data Record).
@@ -34,6 +51,12 @@ public class CdrService {
     private final SubscriberService subscriberService;
     private final CdrRepository cdrRepository;
 
+    @Value("${cdr.ingest.chunk-size:10000}")
+    private int ingestChunkSize;
+
+    @Value("${cdr.report.fetch-size:1000}")
+    private int reportFetchSize;
+
     public CdrService(SubscriberService subscriberService, CdrRepository cdrRepository) {
         this.subscriberService = subscriberService;
         this.cdrRepository = cdrRepository;
@@ -57,44 +80,162 @@ public class CdrService {
         int totalNumberOfCalls = ThreadLocalRandom.current().nextInt(1000,2001);
 
         for (int i = 0; i < totalNumberOfCalls; i++) {
+            generatedCdrs.add(generateRandomCdr(subscribers, startMillis, endMillis));
+        }
 
-            Cdr generatedCdr = new Cdr();
+        generatedCdrs.sort(Comparator.comparing(Cdr::getStartDateTime));
 
+        cdrRepository.saveAll(generatedCdrs);
+    }
 
-            String callType = (ThreadLocalRandom.current().nextBoolean()) ? "01" : "02";
+    /**
+     * Генерирует и сохраняет одну порцию случайных записей CDR за последний год.
+     * <p>
+     * Записи порции упорядочиваются по времени начала и сохраняются одним JDBC-пакетом
+     * в отдельной транзакции. Метод потокобезопасен и вызывается параллельно
+     * заданиями массовой генерации (см. {@link CdrGenerationJobService}).
+     * </p>
+     *
+     * @param subscribers Абоненты, между которыми генерируются звонки
+     * @param size Количество записей в порции
+     * @return Количество сохраненных записей
+     */
+    public int generateCdrChunk(List<Subscriber> subscribers, int size) {
+        LocalDateTime startDateTime = LocalDateTime.now().minusYears(1);
+        LocalDateTime endDateTime = LocalDateTime.now();
 
+        long startMillis = startDateTime.atZone(ZoneId.of("Europe/Moscow")).toInstant().toEpochMilli();
+        long endMillis = endDateTime.atZone(ZoneId.of("Europe/Moscow")).toInstant().toEpochMilli();
 
-            int randomCallerIndex = ThreadLocalRandom.current().nextInt(subscribers.size());
+        List<Cdr> chunk = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            chunk.add(generateRandomCdr(subscribers, startMillis, endMillis));
+        }
+        chunk.sort(Comparator.comparing(Cdr::getStartDateTime));
+        return cdrRepository.batchInsert(chunk);
+    }
 
-            int randomCalledIndex;
-            do {
-                randomCalledIndex = ThreadLocalRandom.current().nextInt(subscribers.size());
-            }while (randomCalledIndex == randomCallerIndex);
+    /**
+     * Загружает записи CDR из CSV в формате cdr-отчета.
+     * <p>
+     * Поток читается построчно, записи сохраняются порциями по {@code cdr.ingest.chunk-size}
+     * через JDBC-пакеты, каждая порция - в отдельной транзакции, поэтому в памяти
+     * находится не больше одной порции независимо от размера загрузки. Пустые строки
+     * пропускаются; строки неверного формата (см. {@link CdrReportLineParser}) и строки
+     * с незарегистрированными номерами отклоняются, не прерывая загрузку. Номера
+     * проверяются по индексу в памяти; если при сохранении порции абонент все же не найден
+     * в базе данных, отклоняются только строки с этим номером (см. {@link #insertChunk(List)}).
+     * При ошибке чтения потока уже сохраненные порции остаются в базе данных.
+     * </p>
+     *
+     * @param csv Поток строк CSV в кодировке UTF-8
+     * @return Количество сохраненных и отклоненных записей и достигнутая пропускная способность
+     * @throws UncheckedIOException при ошибке чтения потока
+     */
+    public CdrIngestResultDTO ingestCdrs(InputStream csv) {
+        long startNanos = System.nanoTime();
+        long acceptedCdrs = 0;
+        long rejectedCdrs = 0;
+
+        List<CdrLineDTO> chunk = new ArrayList<>(ingestChunkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8), 64 * 1024)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isBlank()) continue;
+
+                CdrLineDTO cdr = CdrReportLineParser.parse(line);
+                if (cdr == null || !subscriberService.exists(cdr.callerNumber()) || !subscriberService.exists(cdr.calledNumber())) {
+                    rejectedCdrs++;
+                    continue;
+                }
+                chunk.add(cdr);
+                if (chunk.size() == ingestChunkSize) {
+                    int inserted = insertChunk(chunk);
+                    acceptedCdrs += inserted;
+                    rejectedCdrs += chunk.size() - inserted;
+                    chunk = new ArrayList<>(ingestChunkSize);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int inserted = insertChunk(chunk);
+        acceptedCdrs += inserted;
+        rejectedCdrs += chunk.size() - inserted;
+
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return new CdrIngestResultDTO(acceptedCdrs, rejectedCdrs, elapsedMillis, acceptedCdrs * 1000 / elapsedMillis);
+    }
+
+    /**
+     * Сохраняет порцию загружаемых записей, отбрасывая записи с номерами, не найденными в базе данных.
+     * <p>
+     * Индекс номеров может расходиться с таблицей абонентов (например, абонент удален
+     * после проверки), и тогда {@code batchInsertLines} откатывает всю порцию. В этом случае
+     * записи с не найденными номерами исключаются и порция сохраняется повторно.
+     * </p>
+     *
+     * @param chunk Порция записей CDR
+     * @return Количество сохраненных записей
+     */
+    private int insertChunk(List<CdrLineDTO> chunk) {
+        List<CdrLineDTO> remaining = chunk;
+        while (true) {
+            try {
+                return cdrRepository.batchInsertLines(remaining);
+            } catch (NoSuchSubscriberException e) {
+                Set<String> unknown = new HashSet<>(e.getMsisdns());
+                List<CdrLineDTO> known = new ArrayList<>(remaining.size());
+                for (CdrLineDTO cdr : remaining) {
+                    if (!unknown.contains(cdr.callerNumber()) && !unknown.contains(cdr.calledNumber())) known.add(cdr);
+                }
+                if (known.size() == remaining.size()) throw e;
+                remaining = known;
+            }
+        }
+    }
 
-            Subscriber caller = subscribers.get(randomCallerIndex);
-            Subscriber called = subscribers.get(randomCalledIndex);
+    /**
+     * Создает одну случайную запись CDR между двумя различными абонентами.
+     *
+     * @param subscribers Список абонентов
+     * @param startMillis Нижняя граница времени начала звонка (epoch millis)
+     * @param endMillis Верхняя граница времени окончания звонка (epoch millis)
+     * @return Сгенерированная запись CDR
+     */
+    private Cdr generateRandomCdr(List<Subscriber> subscribers, long startMillis, long endMillis) {
 
+        Cdr generatedCdr = new Cdr();
 
-            long durationMillis = ThreadLocalRandom.current().nextLong(1,5*60*60*1000);
 
-            long callStartMillis = ThreadLocalRandom.current().nextLong(startMillis,endMillis-durationMillis);//endMillis-durationMillis to make [l;r) maybe redo
-            long callFinishMillis = callStartMillis + durationMillis;
+        String callType = (ThreadLocalRandom.current().nextBoolean()) ? "01" : "02";
 
-            var callStartDateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(callStartMillis),ZoneId.of("Europe/Moscow"));
-            var callFinishDateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(callFinishMillis),ZoneId.of("Europe/Moscow"));
 
-            generatedCdr.setCallType(callType);
-            generatedCdr.setCallerNumber(caller.getMsisdn());
-            generatedCdr.setCalledNumber(called.getMsisdn());
-            generatedCdr.setStartDateTime(callStartDateTime);
-            generatedCdr.setFinishDateTime(callFinishDateTime);
+        int randomCallerIndex = ThreadLocalRandom.current().nextInt(subscribers.size());
 
-            generatedCdrs.add(generatedCdr);
-        }
+        int randomCalledIndex;
+        do {
+            randomCalledIndex = ThreadLocalRandom.current().nextInt(subscribers.size());
+        }while (randomCalledIndex == randomCallerIndex);
 
-        generatedCdrs.sort(Comparator.comparing(Cdr::getStartDateTime));
+        Subscriber caller = subscribers.get(randomCallerIndex);
+        Subscriber called = subscribers.get(randomCalledIndex);
 
-        cdrRepository.saveAll(generatedCdrs);
+
+        long durationMillis = ThreadLocalRandom.current().nextLong(1,5*60*60*1000);
+
+        long callStartMillis = ThreadLocalRandom.current().nextLong(startMillis,endMillis-durationMillis);//endMillis-durationMillis to make [l;r) maybe redo
+        long callFinishMillis = callStartMillis + durationMillis;
+
+        var callStartDateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(callStartMillis),ZoneId.of("Europe/Moscow"));
+        var callFinishDateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(callFinishMillis),ZoneId.of("Europe/Moscow"));
+
+        generatedCdr.setCallType(callType);
+        generatedCdr.setCaller(caller);
+        generatedCdr.setCalled(called);
+        generatedCdr.setStartDateTime(callStartDateTime);
+        generatedCdr.setFinishDateTime(callFinishDateTime);
+
+        return generatedCdr;
     }
 
     /**
@@ -126,7 +267,8 @@ public class CdrService {
      * @return Список CDR, где абонент был вызываемой стороной за указанный период
      */
     public List<Cdr> findAllByCalledNumberAndStartDateTimeLike(String msisdn, int year, int month) {
-        return cdrRepository.findAllByCalledNumberAndStartDateTime(msisdn, year, month);
+        LocalDateTime monthStart = YearMonth.of(year, month).atDay(1).atStartOfDay();
+        return cdrRepository.findAllByCalledNumberAndStartDateTime(msisdn, monthStart, monthStart.plusMonths(1));
     }
 
     /**
@@ -138,7 +280,182 @@ public class CdrService {
      * @return Список CDR, где абонент был вызывающей стороной за указанный период
      */
     public List<Cdr> findAllByCallerNumberAndStartDateTimeLike(String msisdn, int year, int month) {
-        return cdrRepository.findAllByCallerNumberAndStartDateTime(msisdn, year, month);
+        LocalDateTime monthStart = YearMonth.of(year, month).atDay(1).atStartOfDay();
+        return cdrRepository.findAllByCallerNumberAndStartDateTime(msisdn, monthStart, monthStart.plusMonths(1));
+    }
+
+    /**
+     * Вычисляет суммарное время всех входящих звонков абонента.
+     *
+     * @param msisdn Номер телефона абонента
+     * @return Суммарное время звонков в наносекундах
+     */
+    public long sumIncomingCallTime(String msisdn) {
+        return cdrRepository.sumCallTimeByCalledNumber(msisdn);
+    }
+
+    /**
+     * Вычисляет суммарное время всех исходящих звонков абонента.
+     *
+     * @param msisdn Номер телефона абонента
+     * @return Суммарное время звонков в наносекундах
+     */
+    public long sumOutgoingCallTime(String msisdn) {
+        return cdrRepository.sumCallTimeByCallerNumber(msisdn);
+    }
+
+    /**
+     * Вычисляет суммарное время входящих звонков абонента за указанный месяц и год.
+     *
+     * @param msisdn Номер телефона абонента
+     * @param year Год
+     * @param month Месяц
+     * @return Суммарное время звонков в наносекундах
+     */
+    public long sumIncomingCallTimeForMonth(String msisdn, int year, int month) {
+        LocalDateTime monthStart = YearMonth.of(year, month).atDay(1).atStartOfDay();
+        return cdrRepository.sumCallTimeByCalledNumberAndStartDateTime(msisdn, monthStart, monthStart.plusMonths(1));
+    }
+
+    /**
+     * Вычисляет суммарное время исходящих звонков абонента за указанный месяц и год.
+     *
+     * @param msisdn Номер телефона абонента
+     * @param year Год
+     * @param month Месяц
+     * @return Суммарное время звонков в наносекундах
+     */
+    public long sumOutgoingCallTimeForMonth(String msisdn, int year, int month) {
+        LocalDateTime monthStart = YearMonth.of(year, month).atDay(1).atStartOfDay();
+        return cdrRepository.sumCallTimeByCallerNumberAndStartDateTime(msisdn, monthStart, monthStart.plusMonths(1));
+    }
+
+    /**
+     * Вычисляет суммарное время входящих звонков за указанный месяц и год по каждому абоненту.
+     *
+     * @param year Год
+     * @param month Месяц
+     * @return Суммарное время звонков в наносекундах для каждого абонента, принимавшего звонки
+     */
+    public List<CallTimeTotalView> sumIncomingCallTimeForMonthByMsisdn(int year, int month) {
+        LocalDateTime monthStart = YearMonth.of(year, month).atDay(1).atStartOfDay();
+        return cdrRepository.sumCallTimeGroupedByCalledNumber(monthStart, monthStart.plusMonths(1));
+    }
+
+    /**
+     * Вычисляет суммарное время исходящих звонков за указанный месяц и год по каждому абоненту.
+     *
+     * @param year Год
+     * @param month Месяц
+     * @return Суммарное время звонков в наносекундах для каждого абонента, совершавшего звонки
+     */
+    public List<CallTimeTotalView> sumOutgoingCallTimeForMonthByMsisdn(int year, int month) {
+        LocalDateTime monthStart = YearMonth.of(year, month).atDay(1).atStartOfDay();
+        return cdrRepository.sumCallTimeGroupedByCallerNumber(monthStart, monthStart.plusMonths(1));
+    }
+
+    /**
+     * Проверяет параметры запроса на формирование отчета по звонкам абонента.
+     *
+     * @param msisdn Номер телефона абонента
+     * @param startDate Начальная дата периода
+     * @param endDate Конечная дата периода
+     * @throws NoSuchSubscriberException если абонент с указанным номером не найден
+     * @throws StartDateIsAfterEndDateException если начальная дата позже конечной даты
+     */
+    public void validateCdrReportRequest(String msisdn, LocalDate startDate, LocalDate endDate) {
+
+        subscriberService.checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
+
+        if (startDate.isAfter(endDate)) throw new StartDateIsAfterEndDateException(startDate, endDate);
+    }
+
+    /**
+     * Возвращает путь к файлу отчета в директории "reports".
+     *
+     * @param msisdn Номер телефона абонента
+     * @param requestUUID Уникальный идентификатор запроса
+     * @return Путь к файлу отчета
+     */
+    public Path resolveCdrReportPath(String msisdn, UUID requestUUID) {
+        String fileName = msisdn + "_%s.txt".formatted(requestUUID.toString());
+        return reportsDirectory().resolve(fileName);
+    }
+
+    /**
+     * Находит файл сформированного отчета в директории "reports" по UUID запроса.
+     * <p>
+     * Используется, когда задание уже неизвестно (удалено по истечении срока хранения
+     * или после перезапуска приложения). Файл с именем отчета появляется только после
+     * полной записи отчета, поэтому найденный файл всегда содержит отчет целиком.
+     * </p>
+     *
+     * @param requestUUID Уникальный идентификатор запроса
+     * @return Путь к файлу отчета или пустой результат, если файла нет
+     */
+    public Optional<Path> findCdrReportPath(UUID requestUUID) {
+        Path reportsPath = reportsDirectory();
+        if (!Files.isDirectory(reportsPath)) return Optional.empty();
+
+        try (DirectoryStream<Path> reports = Files.newDirectoryStream(reportsPath, "*_" + requestUUID + ".txt")) {
+            Iterator<Path> iterator = reports.iterator();
+            return iterator.hasNext() ? Optional.of(iterator.next()) : Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Удаляет файлы отчетов и недописанные файлы, которые не изменялись с указанного момента.
+     * <p>
+     * Файл отчета не изменяется после записи, а недописанный файл выполняющегося
+     * задания изменяется при каждой записи, поэтому удаляются только отчеты с истекшим
+     * сроком хранения и файлы прерванных заданий.
+     * </p>
+     *
+     * @param cutoff Момент, раньше которого файл должен быть изменен в последний раз
+     * @return Количество удаленных файлов
+     */
+    public int deleteCdrReportsModifiedBefore(Instant cutoff) {
+        Path reportsPath = reportsDirectory();
+        if (!Files.isDirectory(reportsPath)) return 0;
+
+        int deleted = 0;
+        try (DirectoryStream<Path> reports = Files.newDirectoryStream(reportsPath, "*_*.{txt,txt.part}")) {
+            for (Path report : reports) {
+                if (Files.getLastModifiedTime(report).toInstant().isBefore(cutoff) && Files.deleteIfExists(report)) deleted++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return deleted;
+    }
+
+    private static Path reportsDirectory() {
+        return Paths.get(System.getProperty("user.dir"), "reports");
+    }
+
+    /**
+     * Выполняет задание на формирование отчета в пуле потоков {@link AsyncConfig#CDR_REPORT_EXECUTOR}.
+     * <p>
+     * Параметры задания проверяются при его постановке в очередь, поэтому повторно
+     * не проверяются. Состояние и количество записанных строк сохраняются в задании
+     * по ходу выполнения. Ошибка формирования отчета не пробрасывается, а фиксируется в задании.
+     * </p>
+     *
+     * @param job Задание на формирование отчета
+     * @return Future, завершающийся по окончании выполнения задания
+     */
+    @Async(AsyncConfig.CDR_REPORT_EXECUTOR)
+    public CompletableFuture<Void> runCdrReportJob(CdrReportJob job) {
+        job.markRunning();
+        try {
+            writeCdrReport(job.getMsisdn(), job.getStartDate(), job.getEndDate(), job.getUuid(), job::setRowsWritten);
+            job.markDone();
+        } catch (RuntimeException e) {
+            job.markFailed(e);
+        }
+        return CompletableFuture.completedFuture(null);
     }
 
     /**
@@ -154,18 +471,33 @@ public class CdrService {
      * @throws RuntimeException при ошибках ввода-вывода
      */
     public void generateCdrReport(String msisdn, LocalDate startDate, LocalDate endDate, UUID requestUUID) {
+        validateCdrReportRequest(msisdn, startDate, endDate);
+        writeCdrReport(msisdn, startDate, endDate, requestUUID, rowsWritten -> {});
+    }
 
-        subscriberService.checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-
-        if (startDate.isAfter(endDate)) throw new StartDateIsAfterEndDateException(startDate, endDate);
+    /**
+     * Записывает в файл отчет по звонкам абонента за указанный период, сообщая о ходе записи.
+     * <p>
+     * Записи читаются курсором порциями по {@code cdr.report.fetch-size} строк и
+     * записываются в файл по одной, поэтому потребление памяти не зависит от размера отчета.
+     * Строки кодируются {@link CdrReportLineEncoder} прямо в буфер канала файла.
+     * Отчет записывается во временный файл {@code .part} и переименовывается в файл
+     * отчета только после полной записи.
+     * </p>
+     *
+     * @param msisdn Номер телефона абонента
+     * @param startDate Начальная дата периода
+     * @param endDate Конечная дата периода
+     * @param requestUUID Уникальный идентификатор запроса
+     * @param rowsWrittenListener Получает количество записанных в файл записей после каждой записи
+     */
+    private void writeCdrReport(String msisdn, LocalDate startDate, LocalDate endDate, UUID requestUUID, LongConsumer rowsWrittenListener) {
 
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
 
-        List<Cdr> cdrs = cdrRepository.findAllByCalledNumberOrCalledNumberAndStartDateTimeBetweenOrderByStartDateTimeAsc(msisdn, startDateTime, endDateTime);
-
-        String fileName = msisdn + "_%s.txt".formatted(requestUUID.toString());
-        Path reportsPath = Paths.get(System.getProperty("user.dir"), "reports");
+        Path reportFilePath = resolveCdrReportPath(msisdn, requestUUID);
+        Path reportsPath = reportFilePath.getParent();
         if (!Files.exists(reportsPath)) {
             try {
                 Files.createDirectories(reportsPath);
@@ -174,19 +506,24 @@ public class CdrService {
             }
         }
 
-        Path reportFilePath = reportsPath.resolve(fileName);
-        try (BufferedWriter writer = Files.newBufferedWriter(reportFilePath, StandardCharsets.UTF_8)){
-            for (Cdr cdr: cdrs){
-                writer.write(String.format("%s,%s,%s,%s,%s",
-                        cdr.getCallType(),
-                        cdr.getCallerNumber(),
-                        cdr.getCalledNumber(),
-                        cdr.getStartDateTime(),
-                        cdr.getFinishDateTime()
-                ));
-                writer.newLine();
-                writer.newLine();
-            }
+        Path partFilePath = reportFilePath.resolveSibling(reportFilePath.getFileName() + ".part");
+        try (FileChannel channel = FileChannel.open(partFilePath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             CdrReportLineEncoder encoder = new CdrReportLineEncoder(channel)){
+            long[] rowsWritten = {0};
+            cdrRepository.forEachByMsisdnAndStartDateTimeBetween(msisdn, startDateTime, endDateTime, reportFetchSize, cdr -> {
+                try {
+                    encoder.write(cdr);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rowsWrittenListener.accept(++rowsWritten[0]);
+            });
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Cant write to file.");
+        }
+
+        try {
+            Files.move(partFilePath, reportFilePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
             throw new RuntimeException("Cant write to file.");
         }
@@ -0,0 +1,58 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Сервис снимков файловой базы данных H2.
+ * <p>
+ * Снимок создается командой {@code BACKUP TO}: файл MVStore копируется в zip-архив
+ * целиком, без выгрузки строк в SQL, поэтому размер и время создания снимка
+ * определяются размером файла базы, а не количеством записей. Снимок согласован
+ * и создается без остановки приложения. Восстановление из снимка выполняется при
+ * старте (см. {@link org.example.roamingaggregatorservice.config.DatabaseSnapshotRestorer}).
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Service
+@Profile("persistent")
+public class DatabaseSnapshotService {
+
+    private static final DateTimeFormatter SNAPSHOT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path snapshotDir;
+
+    public DatabaseSnapshotService(JdbcTemplate jdbcTemplate, @Value("${h2.snapshot.dir}") Path snapshotDir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotDir = snapshotDir;
+    }
+
+    /**
+     * Создает снимок базы данных в каталоге {@code h2.snapshot.dir}.
+     *
+     * @return Путь к архиву снимка
+     */
+    public Path createSnapshot() {
+        Path snapshot = snapshotDir.resolve("roaming-aggregator-db-%s.zip".formatted(LocalDateTime.now().format(SNAPSHOT_TIMESTAMP)))
+                .toAbsolutePath();
+        try {
+            Files.createDirectories(snapshotDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        jdbcTemplate.execute("BACKUP TO '" + snapshot.toString().replace("'", "''") + "'");
+        return snapshot;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.dto.UdrDTO;
+import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Асинхронный вариант {@link UdrService} для профиля {@code reactive}.
+ * <p>
+ * UDR формируются тем же {@link UdrService}, поэтому используются те же кэши UDR абонента,
+ * объединение одновременных запросов UDR всех абонентов и помесячная витрина. Чтение
+ * через JDBC блокирующее, поэтому подписка переносится в планировщик
+ * {@link Schedulers#boundedElastic()}: поток обработки запроса освобождается, но поток
+ * планировщика и соединение с базой заняты на все время чтения. Неблокирующего доступа
+ * к базе этот режим не дает; встроенная база H2 не выполняет сетевого ввода-вывода,
+ * которого можно было бы не ждать.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUdrService {
+
+    private final UdrService udrService;
+
+    public ReactiveUdrService(UdrService udrService) {
+        this.udrService = udrService;
+    }
+
+    /**
+     * Генерирует UDR для указанного абонента за конкретный месяц.
+     *
+     * @param msisdn Номер телефона абонента
+     * @param yearAndMonth Год и месяц в формате "YYYY-MM"
+     * @return UdrDTO или ошибка {@link NoSuchSubscriberException}, если абонент не найден
+     */
+    public Mono<UdrDTO> generateUdrForSubscriberForMonth(String msisdn, String yearAndMonth) {
+        return Mono.fromCallable(() -> udrService.generateUdrForSubscriberForMonth(msisdn, yearAndMonth))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Генерирует UDR для указанного абонента за всё время.
+     *
+     * @param msisdn Номер телефона абонента
+     * @return UdrDTO или ошибка {@link NoSuchSubscriberException}, если абонент не найден
+     */
+    public Mono<UdrDTO> generateUdrForSubscriberForAllTime(String msisdn) {
+        return Mono.fromCallable(() -> udrService.generateUdrForSubscriberForAllTime(msisdn))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Генерирует UDR для всех абонентов за указанный месяц.
+     * <p>
+     * Список строится {@link UdrService#generateUdrForAllSubscribersForMonth(String)},
+     * поэтому одновременные запросы за один месяц вычисляются один раз.
+     * </p>
+     *
+     * @param yearAndMonth Год и месяц в формате "YYYY-MM"
+     * @return Поток UdrDTO, по одному на абонента
+     */
+    public Flux<UdrDTO> generateUdrForAllSubscribersForMonth(String yearAndMonth) {
+        return Mono.fromCallable(() -> udrService.generateUdrForAllSubscribersForMonth(yearAndMonth))
+                .flatMapIterable(udrs -> udrs)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,382 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.events.CdrsPersistedEvent;
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+import org.example.roamingaggregatorservice.projections.DailyCallTimeView;
+import org.example.roamingaggregatorservice.repositories.CdrRepository;
+import org.example.roamingaggregatorservice.utils.DailyCallTimePrefixSums;
+import org.example.roamingaggregatorservice.utils.Msisdns;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс накопленного по дням времени звонков абонентов в памяти для выборки UDR
+ * за произвольный период без обращения к базе данных.
+ * <p>
+ * Для каждого номера хранятся префиксные суммы времени входящих и исходящих звонков
+ * по дням начала звонков (см. {@link DailyCallTimePrefixSums}), поэтому время за период
+ * вычисляется за O(1) независимо от его длины. Индекс загружается целиком при старте
+ * приложения по таблице CDR и обновляется по событиям сохранения CDR после фиксации
+ * транзакции, поэтому незафиксированные звонки не видны другим транзакциям, а откат
+ * транзакции не требует перезагрузки. Транзакция, сохранившая CDR, видит свои приращения
+ * до фиксации. Транзакция, перезагружающая индекс (пересчет агрегатов), до завершения читает
+ * время звонков запросом к базе данных, а после ее фиксации индекс перезагружается целиком
+ * одним чтением таблицы CDR. CDR, добавленные или удаленные в обход JPA, попадают в индекс при следующей перезагрузке.
+ * </p>
+ * <p>
+ * Номера хранятся числами ({@link Msisdns#toLong(String)}); время звонков нечисловых номеров
+ * в индекс не попадает и читается запросом к базе данных. Индекс не ограничен по размеру:
+ * на каждый номер приходится 16 байт на каждый день от его первого до последнего дня
+ * со звонками (массивы сокращаются после загрузки) и около 100 байт на запись словаря,
+ * например, 100 000 номеров со звонками в течение года занимают около 600 МБ кучи.
+ * При таком объеме данных размер кучи следует увеличить соответственно.
+ * </p>
+ * <p>
+ * Приращения времени звонков, в отличие от изменений набора номеров, не идемпотентны:
+ * приращение транзакции, зафиксированной во время чтения таблицы CDR, может уже войти
+ * в прочитанные суммы, и повторное применение удвоило бы его. Поэтому транзакции с CDR
+ * фиксируются под разделяемой блокировкой и отпускают ее после применения своих приращений,
+ * а перезагрузка держит исключительную блокировку от начала чтения до подмены индекса:
+ * транзакции, фиксирующиеся в это время, ждут ее окончания и применяют приращения уже
+ * к новому индексу. Транзакции друг друга не ждут, а перезагрузки выполняются только
+ * при старте и при пересчете агрегатов. Поток, держащий разделяемую
+ * блокировку (от начала фиксации своей транзакции до ее завершения), не ждет исключительную:
+ * вместо перезагрузки он сбрасывает индекс, читает время звонков запросом к базе данных,
+ * а индекс загружается при следующем обращении другого потока.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Service
+public class SubscriberDailyUsageIndex {
+
+    private final CdrRepository cdrRepository;
+    private final TransactionTemplate committedRead;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private Map<Long, DailyCallTimePrefixSums> usages = new HashMap<>();
+    private volatile boolean loaded;
+
+    public SubscriberDailyUsageIndex(CdrRepository cdrRepository, PlatformTransactionManager transactionManager) {
+        this.cdrRepository = cdrRepository;
+        this.committedRead = new TransactionTemplate(transactionManager);
+        this.committedRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.committedRead.setReadOnly(true);
+    }
+
+    /**
+     * Возвращает время звонков абонента за период.
+     * <p>
+     * Внутри транзакции, сохранившей CDR, к индексу прибавляются ее незафиксированные
+     * приращения. Время звонков нечислового номера, внутри транзакции, перезагружающей
+     * индекс, и в потоке, который не может загрузить индекс, не дожидаясь фиксации
+     * собственной транзакции, читается запросом к базе данных.
+     * </p>
+     *
+     * @param msisdn Номер абонента
+     * @param from Первый день периода (включительно)
+     * @param to Последний день периода (включительно)
+     * @return Время входящих и исходящих звонков в наносекундах, нулевое, если звонков не было
+     */
+    public CallTimeUsageView findCallTime(String msisdn, LocalDate from, LocalDate to) {
+        long number = Msisdns.toLong(msisdn);
+        PendingChanges pending = pendingChanges();
+        if (number == Msisdns.NOT_NUMERIC || (pending != null && pending.readsDatabase)) {
+            return readCallTime(msisdn, from, to);
+        }
+        if (!loaded) {
+            if (holdsCommitLock()) return readCallTime(msisdn, from, to);
+            reloadCommitted();
+        }
+
+        long incoming = 0;
+        long outgoing = 0;
+        if (pending != null) {
+            for (CallTime callTime : pending.changes) {
+                if (callTime.msisdn() == number && !callTime.day().isBefore(from) && !callTime.day().isAfter(to)) {
+                    incoming += callTime.incomingNanos();
+                    outgoing += callTime.outgoingNanos();
+                }
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            DailyCallTimePrefixSums sums = usages.get(number);
+            if (sums == null) return new CallTimeUsageView(msisdn, incoming, outgoing);
+            return new CallTimeUsageView(msisdn, incoming + sums.getIncoming(from, to), outgoing + sums.getOutgoing(from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Время звонков абонента за период по таблице CDR.
+     * <p>
+     * Запрос выполняется в текущей транзакции и видит ее изменения.
+     * </p>
+     */
+    private CallTimeUsageView readCallTime(String msisdn, LocalDate from, LocalDate to) {
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        return new CallTimeUsageView(msisdn,
+                cdrRepository.sumCallTimeByCalledNumberAndStartDateTime(msisdn, start, end),
+                cdrRepository.sumCallTimeByCallerNumberAndStartDateTime(msisdn, start, end));
+    }
+
+    /**
+     * Полностью перезагружает индекс из таблицы CDR.
+     * <p>
+     * Вне транзакции индекс строится по зафиксированным данным и подменяется сразу.
+     * Внутри транзакции до ее завершения время звонков читается запросом к базе данных,
+     * а общий индекс перезагружается после фиксации.
+     * </p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reloadCommitted();
+            return;
+        }
+
+        PendingChanges pending = bindPendingChanges();
+        pending.readsDatabase = true;
+        pending.changes.clear();
+    }
+
+    /**
+     * Перезагружает общий индекс по зафиксированным данным.
+     * <p>
+     * Чтение выполняется в отдельной транзакции, чтобы в индекс не попали незафиксированные
+     * изменения вызывающей транзакции. На время чтения фиксация транзакций с CDR
+     * приостанавливается, поэтому каждое приращение учитывается в индексе ровно один раз.
+     * Если поток сам держит разделяемую блокировку фиксации, ожидание исключительной
+     * заблокировало бы его навсегда, поэтому индекс только сбрасывается и будет загружен
+     * при следующем обращении.
+     * </p>
+     */
+    private void reloadCommitted() {
+        if (holdsCommitLock()) {
+            invalidate();
+            return;
+        }
+
+        commitLock.writeLock().lock();
+        try {
+            Map<Long, DailyCallTimePrefixSums> reloaded = committedRead.execute(status -> readUsages());
+
+            lock.writeLock().lock();
+            try {
+                usages = reloaded;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает индекс: приращения до следующей загрузки пропускаются, так как будут прочитаны ею.
+     */
+    private void invalidate() {
+        lock.writeLock().lock();
+        try {
+            usages = new HashMap<>();
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code true}, если текущий поток держит разделяемую блокировку фиксации
+     */
+    private boolean holdsCommitLock() {
+        return commitLock.getReadHoldCount() > 0;
+    }
+
+    /**
+     * Строит префиксные суммы по таблице CDR.
+     * <p>
+     * Время звонков суммируется в базе данных по номеру и дню, затем дни каждого номера
+     * добавляются в хронологическом порядке, чтобы каждое добавление выполнялось за O(1).
+     * Нечисловые номера пропускаются.
+     * </p>
+     *
+     * @return Префиксные суммы по номерам абонентов
+     */
+    private Map<Long, DailyCallTimePrefixSums> readUsages() {
+        Map<Long, TreeMap<LocalDate, long[]>> dailyCallTimes = new HashMap<>();
+        for (DailyCallTimeView total : cdrRepository.sumCallTimeGroupedByCalledNumberAndDay()) {
+            addDailyCallTime(dailyCallTimes, total, 0);
+        }
+        for (DailyCallTimeView total : cdrRepository.sumCallTimeGroupedByCallerNumberAndDay()) {
+            addDailyCallTime(dailyCallTimes, total, 1);
+        }
+
+        Map<Long, DailyCallTimePrefixSums> result = new HashMap<>(dailyCallTimes.size() * 4 / 3 + 1);
+        dailyCallTimes.forEach((number, days) -> {
+            DailyCallTimePrefixSums sums = new DailyCallTimePrefixSums();
+            days.forEach((day, callTime) -> {
+                sums.addIncoming(day, callTime[0]);
+                sums.addOutgoing(day, callTime[1]);
+            });
+            sums.trimToSize();
+            result.put(number, sums);
+        });
+        return result;
+    }
+
+    private void addDailyCallTime(Map<Long, TreeMap<LocalDate, long[]>> dailyCallTimes, DailyCallTimeView total, int direction) {
+        long number = Msisdns.toLong(total.msisdn());
+        if (number == Msisdns.NOT_NUMERIC) return;
+        dailyCallTimes.computeIfAbsent(number, key -> new TreeMap<>())
+                .computeIfAbsent(total.day(), day -> new long[2])[direction] += total.totalCallTimeNanos();
+    }
+
+    /**
+     * Прибавляет к индексу время звонков из новых записей CDR после фиксации транзакции.
+     * <p>
+     * Приращения одной транзакции накапливаются в списке, привязанном к транзакции,
+     * и применяются одной операцией после фиксации; при откате они отбрасываются.
+     * Вне транзакции приращения применяются сразу.
+     * </p>
+     *
+     * @param event Событие сохранения новых записей CDR
+     */
+    @EventListener
+    public void onCdrsPersisted(CdrsPersistedEvent event) {
+        List<CallTime> changes = new ArrayList<>(event.cdrs().size() * 2);
+        for (Cdr cdr : event.cdrs()) {
+            long callTimeNanos = ChronoUnit.NANOS.between(cdr.getStartDateTime(), cdr.getFinishDateTime());
+            LocalDate day = cdr.getStartDateTime().toLocalDate();
+            long callerNumber = Msisdns.toLong(cdr.getCallerNumber());
+            long calledNumber = Msisdns.toLong(cdr.getCalledNumber());
+            if (callerNumber != Msisdns.NOT_NUMERIC) changes.add(new CallTime(callerNumber, day, 0L, callTimeNanos));
+            if (calledNumber != Msisdns.NOT_NUMERIC) changes.add(new CallTime(calledNumber, day, callTimeNanos, 0L));
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(changes);
+            return;
+        }
+        bindPendingChanges().changes.addAll(changes);
+    }
+
+    /**
+     * Возвращает незафиксированные изменения текущей транзакции.
+     *
+     * @return Изменения текущей транзакции или {@code null}, если их нет
+     */
+    private PendingChanges pendingChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return null;
+        return (PendingChanges) TransactionSynchronizationManager.getResource(this);
+    }
+
+    /**
+     * Возвращает изменения текущей транзакции, регистрируя их применение при первом обращении.
+     * <p>
+     * Перед фиксацией транзакция захватывает разделяемую блокировку фиксации, после фиксации
+     * применяет приращения или, если перезагружала индекс, перезагружает общий индекс,
+     * отпустив блокировку.
+     * </p>
+     *
+     * @return Изменения текущей транзакции
+     */
+    private PendingChanges bindPendingChanges() {
+        PendingChanges pending = pendingChanges();
+        if (pending != null) return pending;
+
+        PendingChanges bound = new PendingChanges();
+        TransactionSynchronizationManager.bindResource(this, bound);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitLock.readLock().lock();
+                bound.commitLocked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                if (!bound.readsDatabase) apply(bound.changes);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SubscriberDailyUsageIndex.this);
+                if (bound.commitLocked) commitLock.readLock().unlock();
+                if (status == STATUS_COMMITTED && bound.readsDatabase) reloadCommitted();
+            }
+        });
+        return bound;
+    }
+
+    /**
+     * Применяет зафиксированные приращения к загруженному индексу.
+     * <p>
+     * До первой загрузки приращения пропускаются: их CDR уже зафиксированы и будут
+     * прочитаны загрузкой.
+     * </p>
+     *
+     * @param changes Зафиксированные приращения
+     */
+    private void apply(List<CallTime> changes) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) return;
+            for (CallTime change : changes) {
+                change.applyTo(usages);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Незафиксированные изменения индекса одной транзакции.
+     */
+    private static final class PendingChanges {
+
+        private final List<CallTime> changes = new ArrayList<>();
+        private boolean readsDatabase;
+        private boolean commitLocked;
+    }
+
+    /**
+     * Приращение времени звонков номера за день.
+     *
+     * @param msisdn        Номер абонента в числовом виде
+     * @param day           День начала звонка
+     * @param incomingNanos Время входящего звонка в наносекундах
+     * @param outgoingNanos Время исходящего звонка в наносекундах
+     */
+    private record CallTime(long msisdn, LocalDate day, long incomingNanos, long outgoingNanos) {
+
+        void applyTo(Map<Long, DailyCallTimePrefixSums> usages) {
+            DailyCallTimePrefixSums sums = usages.computeIfAbsent(msisdn, key -> new DailyCallTimePrefixSums());
+            if (incomingNanos != 0) sums.addIncoming(day, incomingNanos);
+            if (outgoingNanos != 0) sums.addOutgoing(day, outgoingNanos);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.SubscriberMonthlyUsage;
+import org.example.roamingaggregatorservice.events.CdrsPersistedEvent;
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+import org.example.roamingaggregatorservice.projections.MonthlyCallTimeView;
+import org.example.roamingaggregatorservice.repositories.CdrRepository;
+import org.example.roamingaggregatorservice.repositories.SubscriberMonthlyUsageRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Сервис помесячной витрины использования связи абонентами.
+ * <p>
+ * Витрина обновляется синхронно при сохранении новых CDR в той же транзакции:
+ * приращения группируются по абоненту и месяцу и прибавляются к строкам
+ * аддитивным {@code MERGE}. Параллельные транзакции не сериализуются сервисом:
+ * приращения к одной строке складываются базой данных под блокировкой этой строки,
+ * а упорядочивание приращений по ключу исключает взаимную блокировку транзакций.
+ * </p>
+ * <p>
+ * Удаление месяца и перестройка заменяют строки витрины, а не прибавляют к ним,
+ * поэтому выполняются под исключительной блокировкой записи CDR
+ * ({@link org.example.roamingaggregatorservice.repositories.CdrWriteLock}), а сохранение
+ * CDR - под разделяемой: они не пересекаются с транзакциями, сохраняющими CDR,
+ * и каждая запись CDR учитывается в витрине ровно один раз.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Service
+public class SubscriberMonthlyUsageService {
+
+    private static final Comparator<SubscriberMonthlyUsage> USAGE_KEY_ORDER = Comparator
+            .comparing(SubscriberMonthlyUsage::getSubscriberId)
+            .thenComparingInt(SubscriberMonthlyUsage::getUsageYear)
+            .thenComparingInt(SubscriberMonthlyUsage::getUsageMonth);
+
+    private final SubscriberMonthlyUsageRepository usageRepository;
+    private final CdrRepository cdrRepository;
+
+    public SubscriberMonthlyUsageService(SubscriberMonthlyUsageRepository usageRepository, CdrRepository cdrRepository) {
+        this.usageRepository = usageRepository;
+        this.cdrRepository = cdrRepository;
+    }
+
+    /**
+     * Прибавляет к витрине время и количество звонков из новых записей CDR.
+     *
+     * @param event Событие сохранения новых записей CDR
+     */
+    @EventListener
+    public void onCdrsPersisted(CdrsPersistedEvent event) {
+        Map<SubscriberMonthlyUsage, SubscriberMonthlyUsage> deltas = new TreeMap<>(USAGE_KEY_ORDER);
+        for (Cdr cdr : event.cdrs()) {
+            long callTimeNanos = ChronoUnit.NANOS.between(cdr.getStartDateTime(), cdr.getFinishDateTime());
+            int year = cdr.getStartDateTime().getYear();
+            int month = cdr.getStartDateTime().getMonthValue();
+
+            SubscriberMonthlyUsage outgoing = deltaFor(deltas, cdr.getCaller().getId(), year, month);
+            outgoing.setOutgoingCallTimeNanos(outgoing.getOutgoingCallTimeNanos() + callTimeNanos);
+            outgoing.setOutgoingCalls(outgoing.getOutgoingCalls() + 1);
+
+            SubscriberMonthlyUsage incoming = deltaFor(deltas, cdr.getCalled().getId(), year, month);
+            incoming.setIncomingCallTimeNanos(incoming.getIncomingCallTimeNanos() + callTimeNanos);
+            incoming.setIncomingCalls(incoming.getIncomingCalls() + 1);
+        }
+        if (!deltas.isEmpty()) usageRepository.batchMerge(new ArrayList<>(deltas.values()));
+    }
+
+    /**
+     * Полностью перестраивает витрину по таблице CDR.
+     *
+     * @return Количество строк витрины после перестройки
+     */
+    @Transactional
+    public long rebuild() {
+        usageRepository.deleteAllInBatch();
+
+        Map<SubscriberMonthlyUsage, SubscriberMonthlyUsage> deltas = new TreeMap<>(USAGE_KEY_ORDER);
+        for (MonthlyCallTimeView total : cdrRepository.sumCallTimeGroupedByCallerAndMonth()) {
+            SubscriberMonthlyUsage usage = deltaFor(deltas, total.subscriberId(), total.year(), total.month());
+            usage.setOutgoingCallTimeNanos(total.totalCallTimeNanos());
+            usage.setOutgoingCalls(total.calls());
+        }
+        for (MonthlyCallTimeView total : cdrRepository.sumCallTimeGroupedByCalledAndMonth()) {
+            SubscriberMonthlyUsage usage = deltaFor(deltas, total.subscriberId(), total.year(), total.month());
+            usage.setIncomingCallTimeNanos(total.totalCallTimeNanos());
+            usage.setIncomingCalls(total.calls());
+        }
+        return usageRepository.batchMerge(new ArrayList<>(deltas.values()));
+    }
+
+    /**
+     * Возвращает время звонков абонента за указанный месяц.
+     *
+     * @param msisdn Номер абонента
+     * @param year Год
+     * @param month Месяц
+     * @return Время входящих и исходящих звонков или пустой Optional, если звонков не было
+     */
+    public Optional<CallTimeUsageView> findCallTimeForMonth(String msisdn, int year, int month) {
+        return usageRepository.findCallTimeByMsisdnAndMonth(msisdn, year, month);
+    }
+
+    /**
+     * Возвращает время звонков абонента за все время.
+     *
+     * @param msisdn Номер абонента
+     * @return Время входящих и исходящих звонков или пустой Optional, если звонков не было
+     */
+    public Optional<CallTimeUsageView> findCallTimeForAllTime(String msisdn) {
+        return usageRepository.findCallTimeByMsisdn(msisdn);
+    }
+
+    /**
+     * Передает обработчику время звонков каждого абонента за указанный месяц
+     * в порядке регистрации абонентов, не накапливая их в памяти.
+     *
+     * @param year Год
+     * @param month Месяц
+     * @param fetchSize Количество строк, выбираемых за одно обращение к базе данных
+     * @param action Обработчик времени звонков абонента
+     * @return Количество абонентов
+     */
+    public long forEachSubscriberCallTimeForMonth(int year, int month, int fetchSize, Consumer<CallTimeUsageView> action) {
+        return usageRepository.forEachSubscriberCallTimeForMonth(year, month, fetchSize, action);
+    }
+
+    /**
+     * Возвращает время звонков за указанный месяц для следующих по номеру абонентов.
+     *
+     * @param afterMsisdn Номер, после которого начинается выборка; пустая строка - с начала
+     * @param year Год
+     * @param month Месяц
+     * @param limit Максимальное количество абонентов
+     * @return Время входящих и исходящих звонков в порядке возрастания номера
+     */
+    public List<CallTimeUsageView> findSubscriberCallTimesForMonthAfter(String afterMsisdn, int year, int month, int limit) {
+        return usageRepository.findSubscriberCallTimesByMonthAfter(afterMsisdn, year, month, Limit.of(limit));
+    }
+
+    /**
+     * Возвращает время звонков зарегистрированных абонентов из набора одним запросом.
+     *
+     * @param msisdns Номера абонентов без повторов
+     * @param year Год или {@code null} для выборки за все время
+     * @param month Месяц или {@code null} для выборки за все время
+     * @return Время входящих и исходящих звонков; незарегистрированные номера в результат не попадают
+     */
+    public List<CallTimeUsageView> findCallTimesForSubscribers(Collection<String> msisdns, Integer year, Integer month) {
+        return usageRepository.findCallTimesByMsisdns(msisdns, year, month);
+    }
+
+    /**
+     * Возвращает строку приращений для пары (абонент, месяц), создавая ее при необходимости.
+     *
+     * @param deltas Приращения, упорядоченные по абоненту и месяцу
+     * @param subscriberId Идентификатор абонента
+     * @param year Год
+     * @param month Месяц
+     * @return Строка приращений
+     */
+    private SubscriberMonthlyUsage deltaFor(Map<SubscriberMonthlyUsage, SubscriberMonthlyUsage> deltas, Long subscriberId, int year, int month) {
+        SubscriberMonthlyUsage key = new SubscriberMonthlyUsage();
+        key.setSubscriberId(subscriberId);
+        key.setUsageYear(year);
+        key.setUsageMonth(month);
+        return deltas.computeIfAbsent(key, k -> k);
+    }
+}
@@ -0,0 +1,257 @@
+package org.example.roamingaggregatorservice.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.roamingaggregatorservice.events.SubscriberPersistedEvent;
+import org.example.roamingaggregatorservice.events.SubscriberRemovedEvent;
+import org.example.roamingaggregatorservice.repositories.SubscriberRepository;
+import org.example.roamingaggregatorservice.utils.LongHashSet;
+import org.example.roamingaggregatorservice.utils.Msisdns;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс номеров абонентов в памяти для проверки существования абонента без обращения к базе данных.
+ * <p>
+ * Числовые MSISDN хранятся в {@link LongHashSet}. Индекс загружается целиком при старте
+ * приложения и обновляется по событиям сохранения и удаления абонентов после фиксации
+ * транзакции, поэтому незафиксированные абоненты не видны другим транзакциям, а откат
+ * транзакции не требует перезагрузки. Транзакция, изменившая абонентов, видит свои
+ * изменения до фиксации.
+ * Номера, которые нельзя представить числом, проверяются запросом к базе данных.
+ * Абоненты, добавленные в обход JPA, попадают в индекс при следующей перезагрузке.
+ * </p>
+ * <p>
+ * Метрики: {@code subscriber.index.lookups} с тегом {@code result} (hit, miss, database)
+ * и {@code subscriber.index.refreshes} с тегом {@code type} (full, insert, delete).
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Service
+public class SubscriberMsisdnIndex {
+
+    private final SubscriberRepository subscriberRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongHashSet msisdns = new LongHashSet();
+    private volatile boolean loaded;
+    private final List<Change> changeLog = new ArrayList<>();
+    private int reloadsInProgress;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter databaseLookups;
+    private final Counter fullRefreshes;
+    private final Counter insertRefreshes;
+    private final Counter deleteRefreshes;
+
+    public SubscriberMsisdnIndex(SubscriberRepository subscriberRepository, MeterRegistry meterRegistry) {
+        this.subscriberRepository = subscriberRepository;
+        this.hits = meterRegistry.counter("subscriber.index.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("subscriber.index.lookups", "result", "miss");
+        this.databaseLookups = meterRegistry.counter("subscriber.index.lookups", "result", "database");
+        this.fullRefreshes = meterRegistry.counter("subscriber.index.refreshes", "type", "full");
+        this.insertRefreshes = meterRegistry.counter("subscriber.index.refreshes", "type", "insert");
+        this.deleteRefreshes = meterRegistry.counter("subscriber.index.refreshes", "type", "delete");
+    }
+
+    /**
+     * Проверяет существование абонента с указанным номером.
+     *
+     * @param msisdn Номер абонента
+     * @return {@code true}, если абонент существует
+     */
+    public boolean contains(String msisdn) {
+        long key = Msisdns.toLong(msisdn);
+        if (key == Msisdns.NOT_NUMERIC) {
+            databaseLookups.increment();
+            return msisdn != null && subscriberRepository.existsByMsisdn(msisdn);
+        }
+        if (!loaded) reload();
+
+        Boolean pending = pendingPresence(key);
+        boolean found;
+        if (pending != null) {
+            found = pending;
+        } else {
+            lock.readLock().lock();
+            try {
+                found = msisdns.contains(key);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        (found ? hits : misses).increment();
+        return found;
+    }
+
+    /**
+     * Возвращает состояние номера по незафиксированным изменениям текущей транзакции.
+     *
+     * @param key Числовой номер абонента
+     * @return {@code true} или {@code false}, если текущая транзакция добавила или удалила
+     * номер, иначе {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    private Boolean pendingPresence(long key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return null;
+
+        List<Change> pending = (List<Change>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) return null;
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            if (pending.get(i).key() == key) return pending.get(i).present();
+        }
+        return null;
+    }
+
+    /**
+     * Полностью перезагружает индекс из таблицы абонентов.
+     * <p>
+     * Чтение из базы данных выполняется без блокировки. Изменения, зафиксированные
+     * за время чтения, записываются в журнал и повторно применяются к новому набору
+     * перед его подменой, поэтому параллельные вставки и удаления не теряются.
+     * </p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        int changeLogStart;
+        lock.writeLock().lock();
+        try {
+            reloadsInProgress++;
+            changeLogStart = changeLog.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            List<String> allMsisdns = subscriberRepository.findAllMsisdns();
+            LongHashSet reloaded = new LongHashSet(allMsisdns.size());
+            for (String msisdn : allMsisdns) {
+                long key = Msisdns.toLong(msisdn);
+                if (key != Msisdns.NOT_NUMERIC) reloaded.add(key);
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (Change change : changeLog.subList(changeLogStart, changeLog.size())) {
+                    change.applyTo(reloaded);
+                }
+                msisdns = reloaded;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            fullRefreshes.increment();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (--reloadsInProgress == 0) changeLog.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Добавляет номер сохраняемого абонента в индекс после фиксации транзакции.
+     *
+     * @param event Событие сохранения абонента
+     */
+    @EventListener
+    public void onSubscriberPersisted(SubscriberPersistedEvent event) {
+        long key = Msisdns.toLong(event.msisdn());
+        if (key != Msisdns.NOT_NUMERIC) applyAfterCommit(new Change(key, true));
+    }
+
+    /**
+     * Удаляет номер удаляемого абонента из индекса после фиксации транзакции.
+     *
+     * @param event Событие удаления абонента
+     */
+    @EventListener
+    public void onSubscriberRemoved(SubscriberRemovedEvent event) {
+        long key = Msisdns.toLong(event.msisdn());
+        if (key != Msisdns.NOT_NUMERIC) applyAfterCommit(new Change(key, false));
+    }
+
+    /**
+     * Откладывает изменение индекса до фиксации текущей транзакции.
+     * <p>
+     * Изменения одной транзакции накапливаются в списке, привязанном к транзакции,
+     * и применяются одной операцией после фиксации; при откате они отбрасываются.
+     * Вне транзакции изменение применяется сразу.
+     * </p>
+     *
+     * @param change Изменение индекса
+     */
+    @SuppressWarnings("unchecked")
+    private void applyAfterCommit(Change change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(List.of(change));
+            return;
+        }
+
+        List<Change> pending = (List<Change>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Change> changes = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SubscriberMsisdnIndex.this);
+                }
+            });
+            pending = changes;
+        }
+        pending.add(change);
+    }
+
+    /**
+     * Применяет зафиксированные изменения к индексу и записывает их в журнал,
+     * если в это время выполняется перезагрузка.
+     *
+     * @param changes Зафиксированные изменения
+     */
+    private void apply(List<Change> changes) {
+        lock.writeLock().lock();
+        try {
+            for (Change change : changes) {
+                change.applyTo(msisdns);
+                if (reloadsInProgress > 0) changeLog.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Change change : changes) {
+            (change.present() ? insertRefreshes : deleteRefreshes).increment();
+        }
+    }
+
+    /**
+     * Изменение индекса: добавление или удаление номера.
+     *
+     * @param key     Числовой номер абонента
+     * @param present {@code true} для добавления, {@code false} для удаления
+     */
+    private record Change(long key, boolean present) {
+
+        void applyTo(LongHashSet set) {
+            if (present) set.add(key);
+            else set.remove(key);
+        }
+    }
+}
@@ -15,9 +15,11 @@ import java.util.List;
 public class SubscriberService {
 
     private final SubscriberRepository subscriberRepository;
+    private final SubscriberMsisdnIndex subscriberMsisdnIndex;
 
-    public SubscriberService(SubscriberRepository subscriberRepository) {
+    public SubscriberService(SubscriberRepository subscriberRepository, SubscriberMsisdnIndex subscriberMsisdnIndex) {
         this.subscriberRepository = subscriberRepository;
+        this.subscriberMsisdnIndex = subscriberMsisdnIndex;
     }
 
     /**
@@ -29,14 +31,26 @@ public class SubscriberService {
         return subscriberRepository.findAll();
     }
 
+    /**
+     * Проверяет существование абонента с указанным номером телефона
+     * по индексу номеров в памяти {@link SubscriberMsisdnIndex}.
+     *
+     * @param msisdn Номер телефона абонента
+     * @return {@code true}, если абонент существует
+     */
+    public boolean exists(String msisdn) {
+        return subscriberMsisdnIndex.contains(msisdn);
+    }
+
     /**
      * Проверяет существование абонента с указанным номером телефона.
      * Выбрасывает исключение, если абонент не найден.
+     * Проверка выполняется по индексу номеров в памяти {@link SubscriberMsisdnIndex}.
      *
      * @param msisdn Номер телефона абонента
      * @throws NoSuchSubscriberException если абонент с указанным номером не найден
      */
     public void checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(String msisdn){
-        subscriberRepository.findSubscriberByMsisdn(msisdn).orElseThrow(NoSuchSubscriberException::new);
+        if (!subscriberMsisdnIndex.contains(msisdn)) throw new NoSuchSubscriberException();
     }
 }
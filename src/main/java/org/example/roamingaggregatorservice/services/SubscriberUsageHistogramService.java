@@ -0,0 +1,163 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.SubscriberUsageHistogram;
+import org.example.roamingaggregatorservice.events.CdrsPersistedEvent;
+import org.example.roamingaggregatorservice.projections.UsageHistogramView;
+import org.example.roamingaggregatorservice.repositories.CdrRepository;
+import org.example.roamingaggregatorservice.repositories.SubscriberUsageHistogramRepository;
+import org.example.roamingaggregatorservice.utils.UsageHistogram;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Сервис помесячных гистограмм использования связи абонентами по дням недели и часам суток.
+ * <p>
+ * Гистограммы обновляются синхронно при сохранении новых CDR в той же транзакции:
+ * звонки раскладываются по часам в памяти, группируются по абоненту и месяцу и
+ * прибавляются к сохраненным гистограммам аддитивным {@code MERGE}, который складывает
+ * гистограммы функцией базы данных. Параллельные транзакции не сериализуются сервисом:
+ * приращения к одной строке складываются базой данных под блокировкой этой строки,
+ * а упорядочивание приращений по ключу исключает взаимную блокировку транзакций.
+ * </p>
+ * <p>
+ * Удаление месяца и перестройка согласованы с записями CDR так же, как в
+ * помесячной витрине использования (см. {@link SubscriberMonthlyUsageService}).
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Service
+public class SubscriberUsageHistogramService {
+
+    private static final Comparator<SubscriberUsageHistogram> HISTOGRAM_KEY_ORDER = Comparator
+            .comparing(SubscriberUsageHistogram::getSubscriberId)
+            .thenComparingInt(SubscriberUsageHistogram::getUsageYear)
+            .thenComparingInt(SubscriberUsageHistogram::getUsageMonth);
+
+    private static final int INCOMING = 0;
+    private static final int OUTGOING = 1;
+
+    private final SubscriberUsageHistogramRepository histogramRepository;
+    private final CdrRepository cdrRepository;
+
+    public SubscriberUsageHistogramService(SubscriberUsageHistogramRepository histogramRepository, CdrRepository cdrRepository) {
+        this.histogramRepository = histogramRepository;
+        this.cdrRepository = cdrRepository;
+    }
+
+    /**
+     * Прибавляет к гистограммам время звонков из новых записей CDR.
+     *
+     * @param event Событие сохранения новых записей CDR
+     */
+    @EventListener
+    public void onCdrsPersisted(CdrsPersistedEvent event) {
+        Map<SubscriberUsageHistogram, UsageHistogram[]> deltas = new TreeMap<>(HISTOGRAM_KEY_ORDER);
+        for (Cdr cdr : event.cdrs()) {
+            addCall(deltas, cdr);
+        }
+        applyDeltas(deltas);
+    }
+
+    /**
+     * Полностью перестраивает гистограммы по таблице CDR.
+     * <p>
+     * Записи читаются курсором в порядке времени начала, поэтому в памяти
+     * накапливаются гистограммы только текущего месяца: они записываются,
+     * как только курсор переходит к следующему месяцу.
+     * </p>
+     *
+     * @param fetchSize Количество строк, выбираемых за одно обращение к базе данных
+     * @return Количество гистограмм после перестройки
+     */
+    @Transactional
+    public long rebuild(int fetchSize) {
+        histogramRepository.deleteAllInBatch();
+
+        Map<SubscriberUsageHistogram, UsageHistogram[]> deltas = new TreeMap<>(HISTOGRAM_KEY_ORDER);
+        YearMonth[] month = new YearMonth[1];
+        long[] rows = new long[1];
+        cdrRepository.forEachOrderByStartDateTime(fetchSize, cdr -> {
+            YearMonth cdrMonth = YearMonth.from(cdr.getStartDateTime());
+            if (!cdrMonth.equals(month[0])) {
+                rows[0] += applyDeltas(deltas);
+                deltas.clear();
+                month[0] = cdrMonth;
+            }
+            addCall(deltas, cdr);
+        });
+        return rows[0] + applyDeltas(deltas);
+    }
+
+    /**
+     * Возвращает гистограммы использования абонента за указанный месяц.
+     *
+     * @param msisdn Номер абонента
+     * @param year Год
+     * @param month Месяц
+     * @return Гистограммы входящих и исходящих звонков или пустой Optional, если звонков не было
+     */
+    public Optional<UsageHistogramView> findHistogramForMonth(String msisdn, int year, int month) {
+        return histogramRepository.findHistogramByMsisdnAndMonth(msisdn, year, month);
+    }
+
+    /**
+     * Раскладывает время звонка в приращения гистограмм обеих сторон звонка за месяц его начала.
+     *
+     * @param deltas Приращения, упорядоченные по абоненту и месяцу
+     * @param cdr Запись CDR со ссылками на абонентов
+     */
+    private void addCall(Map<SubscriberUsageHistogram, UsageHistogram[]> deltas, Cdr cdr) {
+        int year = cdr.getStartDateTime().getYear();
+        int month = cdr.getStartDateTime().getMonthValue();
+
+        deltaFor(deltas, cdr.getCaller().getId(), year, month)[OUTGOING].addCall(cdr.getStartDateTime(), cdr.getFinishDateTime());
+        deltaFor(deltas, cdr.getCalled().getId(), year, month)[INCOMING].addCall(cdr.getStartDateTime(), cdr.getFinishDateTime());
+    }
+
+    /**
+     * Возвращает приращения гистограмм для пары (абонент, месяц), создавая их при необходимости.
+     *
+     * @param deltas Приращения, упорядоченные по абоненту и месяцу
+     * @param subscriberId Идентификатор абонента
+     * @param year Год
+     * @param month Месяц
+     * @return Приращения гистограмм входящих и исходящих звонков
+     */
+    private UsageHistogram[] deltaFor(Map<SubscriberUsageHistogram, UsageHistogram[]> deltas, Long subscriberId, int year, int month) {
+        SubscriberUsageHistogram key = new SubscriberUsageHistogram();
+        key.setSubscriberId(subscriberId);
+        key.setUsageYear(year);
+        key.setUsageMonth(month);
+        return deltas.computeIfAbsent(key, k -> new UsageHistogram[]{new UsageHistogram(), new UsageHistogram()});
+    }
+
+    /**
+     * Прибавляет приращения к сохраненным гистограммам.
+     *
+     * @param deltas Приращения, упорядоченные по абоненту и месяцу
+     * @return Количество обработанных приращений
+     */
+    private int applyDeltas(Map<SubscriberUsageHistogram, UsageHistogram[]> deltas) {
+        if (deltas.isEmpty()) return 0;
+
+        List<SubscriberUsageHistogram> histograms = new ArrayList<>(deltas.size());
+        deltas.forEach((histogram, delta) -> {
+            histogram.setIncomingSeconds(delta[INCOMING].toBytes());
+            histogram.setOutgoingSeconds(delta[OUTGOING].toBytes());
+            histograms.add(histogram);
+        });
+        return histogramRepository.batchMerge(histograms);
+    }
+}
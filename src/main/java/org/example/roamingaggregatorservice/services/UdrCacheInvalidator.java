@@ -0,0 +1,103 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.config.CacheConfig;
+import org.example.roamingaggregatorservice.config.GenerationCheckedCache;
+import org.example.roamingaggregatorservice.config.GenerationCheckedCacheResolver;
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.events.CdrsPersistedEvent;
+import org.example.roamingaggregatorservice.events.SubscriberRemovedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Точечная инвалидация кэшей UDR.
+ * <p>
+ * При сохранении новых CDR из кэша удаляются только UDR затронутых абонентов:
+ * за месяц начала каждого звонка и за все время. Записи удаляются сразу, чтобы
+ * чтения в той же транзакции видели новые данные, и повторно после завершения
+ * транзакции, чтобы удалить значения, закэшированные по ее незафиксированным данным.
+ * Значения, которые параллельные запросы вычислили по данным до фиксации и положили
+ * в кэш позже, отбрасываются проверкой поколения ключей (см. {@link GenerationCheckedCache}).
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+@Service
+public class UdrCacheInvalidator {
+
+    private final GenerationCheckedCacheResolver cacheResolver;
+
+    public UdrCacheInvalidator(GenerationCheckedCacheResolver cacheResolver) {
+        this.cacheResolver = cacheResolver;
+    }
+
+    /**
+     * Удаляет из кэша UDR абонентов, участвовавших в новых звонках.
+     *
+     * @param event Событие сохранения новых записей CDR
+     */
+    @EventListener
+    public void onCdrsPersisted(CdrsPersistedEvent event) {
+        Set<String> monthKeys = new HashSet<>();
+        Set<String> msisdns = new HashSet<>();
+        for (Cdr cdr : event.cdrs()) {
+            String yearAndMonth = YearMonth.from(cdr.getStartDateTime()).toString();
+            monthKeys.add(CacheConfig.udrByMonthKey(cdr.getCallerNumber(), yearAndMonth));
+            monthKeys.add(CacheConfig.udrByMonthKey(cdr.getCalledNumber(), yearAndMonth));
+            msisdns.add(cdr.getCallerNumber());
+            msisdns.add(cdr.getCalledNumber());
+        }
+        evictNowAndAfterCompletion(() -> evict(monthKeys, msisdns));
+    }
+
+    /**
+     * Удаляет из кэша все UDR удаленного абонента.
+     *
+     * @param event Событие удаления абонента
+     */
+    @EventListener
+    public void onSubscriberRemoved(SubscriberRemovedEvent event) {
+        String monthKeyPrefix = CacheConfig.udrByMonthKey(event.msisdn(), "");
+        evictNowAndAfterCompletion(() -> {
+            GenerationCheckedCache byMonth = cacheResolver.getCache(CacheConfig.UDR_BY_MONTH_CACHE);
+            if (byMonth != null) byMonth.evictIf(key -> key.toString().startsWith(monthKeyPrefix));
+            evict(Set.of(), Set.of(event.msisdn()));
+        });
+    }
+
+    private void evict(Set<String> monthKeys, Set<String> msisdns) {
+        GenerationCheckedCache byMonth = cacheResolver.getCache(CacheConfig.UDR_BY_MONTH_CACHE);
+        if (byMonth != null) monthKeys.forEach(byMonth::evict);
+
+        GenerationCheckedCache allTime = cacheResolver.getCache(CacheConfig.UDR_ALL_TIME_CACHE);
+        if (allTime != null) msisdns.forEach(allTime::evict);
+    }
+
+    /**
+     * Выполняет удаление сразу и, если есть активная транзакция, повторно после ее завершения.
+     * <p>
+     * Повторное удаление выполняется и при откате: значения, закэшированные транзакцией
+     * по ее собственным изменениям, после отката устарели.
+     * </p>
+     *
+     * @param eviction Удаление записей из кэша
+     */
+    private void evictNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                eviction.run();
+            }
+        });
+    }
+}
@@ -1,30 +1,76 @@
 package org.example.roamingaggregatorservice.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.roamingaggregatorservice.config.CacheConfig;
 import org.example.roamingaggregatorservice.dto.CallDataDTO;
+import org.example.roamingaggregatorservice.dto.CallHistogramDTO;
 import org.example.roamingaggregatorservice.dto.UdrDTO;
-import org.example.roamingaggregatorservice.entities.Cdr;
-import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.dto.UdrHistogramDTO;
+import org.example.roamingaggregatorservice.dto.UdrPageDTO;
+import org.example.roamingaggregatorservice.exceptions.InvalidPageTokenException;
 import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
+import org.example.roamingaggregatorservice.exceptions.StartDateIsAfterEndDateException;
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+import org.example.roamingaggregatorservice.projections.UsageHistogramView;
+import org.example.roamingaggregatorservice.repositories.CdrWriteLock;
+import org.example.roamingaggregatorservice.utils.PageTokens;
+import org.example.roamingaggregatorservice.utils.SingleFlight;
+import org.example.roamingaggregatorservice.utils.UsageHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Сервис для генерации и управления записями данных пользователя (UDR - User Data Record).
  * Предоставляет методы для создания UDR на основе CDR (Call Data Record) для абонентов.
+ * UDR отдельного абонента кэшируются (см. {@link CacheConfig}) до сохранения новых CDR этого абонента.
  */
 @Service
 public class UdrService {
 
-    private final CdrService cdrService;
+    private static final CallTimeUsageView NO_CALLS = new CallTimeUsageView(null, 0L, 0L);
+
+    private final SubscriberMonthlyUsageService usageService;
     private final SubscriberService subscriberService;
+    private final SubscriberDailyUsageIndex dailyUsageIndex;
+    private final SubscriberUsageHistogramService histogramService;
+    private final CdrWriteLock cdrWriteLock;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final SingleFlight<String, List<UdrDTO>> allSubscribersForMonthFlight = new SingleFlight<>("udr.all");
+
+    @Value("${udr.all.fetch-size:1000}")
+    private int allSubscribersFetchSize;
 
 
-    public UdrService(CdrService cdrService, SubscriberService subscriberService) {
-        this.cdrService = cdrService;
+    public UdrService(SubscriberMonthlyUsageService usageService, SubscriberService subscriberService,
+                      SubscriberDailyUsageIndex dailyUsageIndex, SubscriberUsageHistogramService histogramService,
+                      CdrWriteLock cdrWriteLock, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.usageService = usageService;
         this.subscriberService = subscriberService;
+        this.dailyUsageIndex = dailyUsageIndex;
+        this.histogramService = histogramService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cdrWriteLock = cdrWriteLock;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        allSubscribersForMonthFlight.bindTo(meterRegistry);
     }
 
     /**
@@ -35,6 +81,8 @@ public class UdrService {
      * @return UdrDTO содержащий информацию о входящих и исходящих вызовах
      * @throws NoSuchSubscriberException если абонент с указанным номером не найден
      */
+    @Cacheable(cacheNames = CacheConfig.UDR_BY_MONTH_CACHE, cacheResolver = CacheConfig.UDR_CACHE_RESOLVER,
+            key = "T(org.example.roamingaggregatorservice.config.CacheConfig).udrByMonthKey(#msisdn, #yearAndMonth)")
     public UdrDTO generateUdrForSubscriberForMonth(String msisdn, String yearAndMonth){
 
         subscriberService.checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
@@ -42,11 +90,9 @@ public class UdrService {
         int year = Integer.valueOf(yearAndMonth.split("-")[0]);
         int month = Integer.valueOf(yearAndMonth.split("-")[1]);
 
-        List<Cdr> cdrs = cdrService.findAllByCalledNumberAndStartDateTimeLike(msisdn, year, month);
-        String totalTimeOfIncomingCalls =  calculateTotalTimeOfCalls(cdrs);
-
-        cdrs = cdrService.findAllByCallerNumberAndStartDateTimeLike(msisdn, year, month);
-        String totalTimeOfOutcomingCalls =  calculateTotalTimeOfCalls(cdrs);
+        CallTimeUsageView usage = usageService.findCallTimeForMonth(msisdn, year, month).orElse(NO_CALLS);
+        String totalTimeOfIncomingCalls = formatTotalTime(usage.incomingCallTimeNanos());
+        String totalTimeOfOutcomingCalls = formatTotalTime(usage.outgoingCallTimeNanos());
 
         return new UdrDTO(msisdn, new CallDataDTO(totalTimeOfIncomingCalls), new CallDataDTO(totalTimeOfOutcomingCalls));
     }
@@ -58,53 +104,251 @@ public class UdrService {
      * @return UdrDTO содержащий информацию о входящих и исходящих вызовах
      * @throws NoSuchSubscriberException если абонент с указанным номером не найден
      */
+    @Cacheable(cacheNames = CacheConfig.UDR_ALL_TIME_CACHE, cacheResolver = CacheConfig.UDR_CACHE_RESOLVER, key = "#msisdn")
     public UdrDTO generateUdrForSubscriberForAllTime(String msisdn){
 
         subscriberService.checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
 
-        List<Cdr> cdrs = cdrService.findAllByCalledNumber(msisdn);
-        String totalTimeOfIncomingCalls =  calculateTotalTimeOfCalls(cdrs);
+        CallTimeUsageView usage = usageService.findCallTimeForAllTime(msisdn).orElse(NO_CALLS);
+        String totalTimeOfIncomingCalls = formatTotalTime(usage.incomingCallTimeNanos());
+        String totalTimeOfOutcomingCalls = formatTotalTime(usage.outgoingCallTimeNanos());
 
-        cdrs = cdrService.findAllByCallerNumber(msisdn);
-        String totalTimeOfOutcomingCalls =  calculateTotalTimeOfCalls(cdrs);
+        return new UdrDTO(msisdn, new CallDataDTO(totalTimeOfIncomingCalls), new CallDataDTO(totalTimeOfOutcomingCalls));
+    }
+
+    /**
+     * Генерирует UDR для указанного абонента за период.
+     * <p>
+     * Время звонков берется из индекса накопленного по дням времени звонков
+     * (см. {@link SubscriberDailyUsageIndex}) двумя обращениями к нему независимо
+     * от длины периода. Звонок относится к дню своего начала.
+     * </p>
+     *
+     * @param msisdn Номер телефона абонента
+     * @param startDate Первый день периода (включительно)
+     * @param endDate Последний день периода (включительно)
+     * @return UdrDTO содержащий информацию о входящих и исходящих вызовах
+     * @throws StartDateIsAfterEndDateException если начальная дата позже конечной даты
+     * @throws NoSuchSubscriberException если абонент с указанным номером не найден
+     */
+    public UdrDTO generateUdrForSubscriberForPeriod(String msisdn, LocalDate startDate, LocalDate endDate) {
+
+        if (startDate.isAfter(endDate)) throw new StartDateIsAfterEndDateException(startDate, endDate);
+        subscriberService.checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
+
+        CallTimeUsageView usage = dailyUsageIndex.findCallTime(msisdn, startDate, endDate);
+        String totalTimeOfIncomingCalls = formatTotalTime(usage.incomingCallTimeNanos());
+        String totalTimeOfOutcomingCalls = formatTotalTime(usage.outgoingCallTimeNanos());
 
         return new UdrDTO(msisdn, new CallDataDTO(totalTimeOfIncomingCalls), new CallDataDTO(totalTimeOfOutcomingCalls));
     }
 
+    /**
+     * Генерирует гистограмму использования связи абонентом за месяц по часам суток
+     * и дням недели.
+     * <p>
+     * Гистограмма читается из помесячного хранилища гистограмм одной строкой,
+     * без обращения к записям CDR.
+     * </p>
+     *
+     * @param msisdn Номер телефона абонента
+     * @param yearAndMonth Год и месяц в формате "YYYY-MM"
+     * @return UdrHistogramDTO с распределением времени входящих и исходящих звонков
+     * @throws NoSuchSubscriberException если абонент с указанным номером не найден
+     */
+    public UdrHistogramDTO generateUsageHistogramForSubscriberForMonth(String msisdn, String yearAndMonth) {
+
+        subscriberService.checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
+
+        int year = Integer.valueOf(yearAndMonth.split("-")[0]);
+        int month = Integer.valueOf(yearAndMonth.split("-")[1]);
+
+        Optional<UsageHistogramView> histogram = histogramService.findHistogramForMonth(msisdn, year, month);
+        UsageHistogram incoming = histogram.map(h -> UsageHistogram.fromBytes(h.incomingSeconds())).orElseGet(UsageHistogram::new);
+        UsageHistogram outgoing = histogram.map(h -> UsageHistogram.fromBytes(h.outgoingSeconds())).orElseGet(UsageHistogram::new);
+
+        return new UdrHistogramDTO(msisdn, yearAndMonth, toCallHistogram(incoming), toCallHistogram(outgoing));
+    }
+
     /**
      * Генерирует UDR для всех абонентов за указанный месяц.
+     * <p>
+     * Номера абонентов и строки помесячной витрины за месяц читаются одним запросом
+     * с внешним соединением, как в {@link #forEachUdrForAllSubscribersForMonth(String, Consumer)},
+     * без загрузки сущностей абонентов.
+     * </p>
+     * <p>
+     * Одновременные запросы за один и тот же месяц объединяются (см. {@link SingleFlight}):
+     * вычисление в транзакции только для чтения выполняет первый запрос, остальные ждут его
+     * результата, не занимая соединений с базой. Возвращаемый список общий для всех
+     * объединенных запросов, поэтому неизменяем.
+     * </p>
      *
      * @param yearAndMonth Год и месяц в формате "YYYY-MM"
-     * @return Список UdrDTO для всех абонентов
+     * @return Неизменяемый список UdrDTO для всех абонентов
      */
     public List<UdrDTO> generateUdrForAllSubscribersForMonth(String yearAndMonth){
+        return allSubscribersForMonthFlight.execute(yearAndMonth,
+                () -> readOnlyTransaction.execute(status -> computeUdrForAllSubscribersForMonth(yearAndMonth)));
+    }
 
-        List<Subscriber> subscribers = subscriberService.findAll();
+    /**
+     * Передает обработчику UDR каждого абонента за указанный месяц по мере чтения.
+     * <p>
+     * Абоненты и строки помесячной витрины читаются одним запросом с внешним соединением
+     * через однонаправленный курсор, поэтому потребление памяти и время до первого UDR
+     * не зависят от количества абонентов. Порядок абонентов совпадает с
+     * {@link #generateUdrForAllSubscribersForMonth(String)}.
+     * </p>
+     *
+     * @param yearAndMonth Год и месяц в формате "YYYY-MM"
+     * @param action Обработчик UDR абонента
+     * @return Количество абонентов
+     */
+    @Transactional(readOnly = true)
+    public long forEachUdrForAllSubscribersForMonth(String yearAndMonth, Consumer<UdrDTO> action) {
 
-        List<UdrDTO> udrDTOList = new ArrayList<>();
-        subscribers.forEach( subscriber -> {
-            udrDTOList.add(generateUdrForSubscriberForMonth(subscriber.getMsisdn(),yearAndMonth));
+        int year = Integer.valueOf(yearAndMonth.split("-")[0]);
+        int month = Integer.valueOf(yearAndMonth.split("-")[1]);
+
+        return usageService.forEachSubscriberCallTimeForMonth(year, month, allSubscribersFetchSize, usage -> {
+            String totalTimeOfIncomingCalls = formatTotalTime(usage.incomingCallTimeNanos());
+            String totalTimeOfOutcomingCalls = formatTotalTime(usage.outgoingCallTimeNanos());
+            action.accept(new UdrDTO(usage.msisdn(), new CallDataDTO(totalTimeOfIncomingCalls), new CallDataDTO(totalTimeOfOutcomingCalls)));
         });
-        return udrDTOList;
     }
 
     /**
-     * Вычисляет общее время вызовов из списка CDR.
+     * Генерирует страницу UDR всех абонентов за указанный месяц.
+     * <p>
+     * Абоненты упорядочены по номеру; страница начинается после номера, сохраненного
+     * в токене продолжения, и читается одним запросом: диапазон по индексу номеров
+     * абонентов, соединенный со строками помесячной витрины за месяц. Страницы не
+     * зависят друг от друга, поэтому их можно запрашивать параллельно разными
+     * потребителями и возобновлять выдачу с последнего полученного токена.
+     * </p>
      *
-     * @param cdrs Список записей данных вызовов
-     * @return Строка с общим временем в формате "HH:MM:SS"
+     * @param yearAndMonth Год и месяц в формате "YYYY-MM"
+     * @param pageSize Максимальное количество UDR на странице
+     * @param pageToken Токен продолжения из предыдущей страницы или {@code null} для первой страницы
+     * @return Страница UDR с токеном следующей страницы
+     * @throws InvalidPageTokenException если токен поврежден или выдан для другого месяца
      */
-    private String calculateTotalTimeOfCalls(List<Cdr> cdrs) {
+    @Transactional(readOnly = true)
+    public UdrPageDTO generateUdrPageForAllSubscribersForMonth(String yearAndMonth, int pageSize, String pageToken) {
+
+        int year = Integer.valueOf(yearAndMonth.split("-")[0]);
+        int month = Integer.valueOf(yearAndMonth.split("-")[1]);
+        String afterMsisdn = pageToken == null ? "" : PageTokens.decode(pageToken, yearAndMonth);
+
+        List<CallTimeUsageView> usages = usageService.findSubscriberCallTimesForMonthAfter(afterMsisdn, year, month, pageSize + 1);
+        boolean hasNextPage = usages.size() > pageSize;
+
+        List<UdrDTO> udrDTOList = new ArrayList<>(Math.min(usages.size(), pageSize));
+        for (CallTimeUsageView usage : usages.subList(0, Math.min(usages.size(), pageSize))) {
+            String totalTimeOfIncomingCalls = formatTotalTime(usage.incomingCallTimeNanos());
+            String totalTimeOfOutcomingCalls = formatTotalTime(usage.outgoingCallTimeNanos());
+            udrDTOList.add(new UdrDTO(usage.msisdn(), new CallDataDTO(totalTimeOfIncomingCalls), new CallDataDTO(totalTimeOfOutcomingCalls)));
+        }
+
+        String nextPageToken = hasNextPage ? PageTokens.encode(yearAndMonth, udrDTOList.get(udrDTOList.size() - 1).msisdn()) : null;
+        return new UdrPageDTO(udrDTOList, nextPageToken);
+    }
+
+    /**
+     * Генерирует UDR для набора абонентов за месяц или за все время.
+     * <p>
+     * Существование абонентов проверяется и время звонков суммируется одним запросом
+     * по всему набору. Если хотя бы один номер не зарегистрирован, UDR не формируются.
+     * Результат возвращается в порядке номеров в запросе, повторяющиеся номера
+     * повторяются и в результате. Кэши UDR отдельных абонентов не используются.
+     * </p>
+     *
+     * @param msisdns Номера абонентов
+     * @param yearAndMonth Год и месяц в формате "YYYY-MM" или {@code null} для выборки за все время
+     * @return Список UdrDTO в порядке номеров в запросе
+     * @throws NoSuchSubscriberException если часть абонентов не найдена
+     */
+    @Transactional(readOnly = true)
+    public List<UdrDTO> generateUdrForSubscribers(List<String> msisdns, String yearAndMonth) {
+
+        Integer year = null;
+        Integer month = null;
+        if (yearAndMonth != null) {
+            year = Integer.valueOf(yearAndMonth.split("-")[0]);
+            month = Integer.valueOf(yearAndMonth.split("-")[1]);
+        }
+
+        Set<String> distinctMsisdns = new LinkedHashSet<>(msisdns);
+        Map<String, CallTimeUsageView> usages = new HashMap<>(distinctMsisdns.size() * 4 / 3 + 1);
+        for (CallTimeUsageView usage : usageService.findCallTimesForSubscribers(distinctMsisdns, year, month)) {
+            usages.put(usage.msisdn(), usage);
+        }
 
-        Duration totalDuration = Duration.ofSeconds(0);
+        if (usages.size() < distinctMsisdns.size()) {
+            List<String> missing = new ArrayList<>();
+            for (String msisdn : distinctMsisdns) {
+                if (!usages.containsKey(msisdn)) missing.add(msisdn);
+            }
+            throw new NoSuchSubscriberException(missing);
+        }
 
-        for (Cdr cdr: cdrs){
-            Duration duration = Duration.between(cdr.getStartDateTime(),cdr.getFinishDateTime());
-            totalDuration = totalDuration.plus(duration);
+        List<UdrDTO> udrDTOList = new ArrayList<>(msisdns.size());
+        for (String msisdn : msisdns) {
+            CallTimeUsageView usage = usages.get(msisdn);
+            String totalTimeOfIncomingCalls = formatTotalTime(usage.incomingCallTimeNanos());
+            String totalTimeOfOutcomingCalls = formatTotalTime(usage.outgoingCallTimeNanos());
+            udrDTOList.add(new UdrDTO(msisdn, new CallDataDTO(totalTimeOfIncomingCalls), new CallDataDTO(totalTimeOfOutcomingCalls)));
         }
+        return udrDTOList;
+    }
+
+    private List<UdrDTO> computeUdrForAllSubscribersForMonth(String yearAndMonth) {
+        List<UdrDTO> udrDTOList = new ArrayList<>();
+        forEachUdrForAllSubscribersForMonth(yearAndMonth, udrDTOList::add);
+        return Collections.unmodifiableList(udrDTOList);
+    }
 
-        return String.format("%02d:%02d:%02d", totalDuration.toHours(), totalDuration.toMinutesPart(), totalDuration.toSecondsPart());
+    /**
+     * Перестраивает помесячную витрину использования и гистограммы использования
+     * по всем сохраненным CDR, перезагружает индекс накопленного по дням времени
+     * звонков и очищает кэши UDR.
+     * <p>
+     * Витрина и гистограммы перестраиваются в одной транзакции под исключительной
+     * блокировкой записи CDR (см. {@link CdrWriteLock}): сохранение CDR ждет окончания
+     * перестройки, а при ошибке откатываются обе перестройки. Индекс по дням перезагружается
+     * после фиксации, кэши очищаются только после успешной фиксации.
+     * </p>
+     *
+     * @return Количество строк витрины после перестройки
+     */
+    @CacheEvict(cacheNames = {CacheConfig.UDR_BY_MONTH_CACHE, CacheConfig.UDR_ALL_TIME_CACHE},
+            cacheResolver = CacheConfig.UDR_CACHE_RESOLVER, allEntries = true)
+    public long rebuildMonthlyUsage() {
+        Long rows = writeTransaction.execute(status -> {
+            cdrWriteLock.lockExclusive();
+            long rebuilt = usageService.rebuild();
+            histogramService.rebuild(allSubscribersFetchSize);
+            dailyUsageIndex.reload();
+            return rebuilt;
+        });
+        return rows == null ? 0L : rows;
+    }
+
+    private static CallHistogramDTO toCallHistogram(UsageHistogram histogram) {
+        return new CallHistogramDTO(histogram.byHourOfDay(), histogram.byDayOfWeek(), histogram.byDayOfWeekAndHour());
+    }
+
+    /**
+     * Форматирует суммарное время звонков.
+     *
+     * @param totalCallTimeNanos Суммарная продолжительность звонков в наносекундах
+     * @return Строка с общим временем в формате "HH:MM:SS"
+     */
+    private String formatTotalTime(long totalCallTimeNanos) {
+        long totalSeconds = TimeUnit.NANOSECONDS.toSeconds(totalCallTimeNanos);
+        return String.format("%02d:%02d:%02d", totalSeconds / 3600, (totalSeconds % 3600) / 60, totalSeconds % 60);
     }
 
 
-}
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Кодировщик строк cdr-отчета в байты UTF-8.
+ * <p>
+ * Формирует строку {@code тип,вызывающий,вызываемый,начало,окончание} и две
+ * последовательности перевода строки побайтно, в переиспользуемый буфер, который
+ * сбрасывается в канал по заполнении. Результат совпадает байт в байт со строкой
+ * {@code String.format("%s,%s,%s,%s,%s", ...)}, записанной через
+ * {@link java.io.BufferedWriter#newLine()}: дата и время кодируются так же, как
+ * {@link LocalDateTime#toString()}, но без промежуточных строк.
+ * </p>
+ * <p>
+ * Экземпляр не потокобезопасен. Закрытие кодировщика сбрасывает буфер, но не закрывает канал.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public final class CdrReportLineEncoder implements Flushable, Closeable {
+
+    /**
+     * Размер буфера по умолчанию.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte SEPARATOR = ',';
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Максимальная длина даты и времени: {@code yyyy-MM-ddTHH:mm:ss.nnnnnnnnn}.
+     */
+    private static final int MAX_DATE_TIME_LENGTH = 29;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * @param channel Канал, в который записываются строки отчета
+     */
+    public CdrReportLineEncoder(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel Канал, в который записываются строки отчета
+     * @param bufferSize Размер буфера в байтах
+     */
+    public CdrReportLineEncoder(WritableByteChannel channel, int bufferSize) {
+        if (bufferSize < MAX_DATE_TIME_LENGTH + LINE_SEPARATOR.length * 2) {
+            throw new IllegalArgumentException("Buffer size is too small: " + bufferSize);
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Записывает строку отчета для одной записи CDR.
+     *
+     * @param cdr Запись CDR
+     * @throws IOException при ошибке записи в канал
+     */
+    public void write(Cdr cdr) throws IOException {
+        putString(cdr.getCallType());
+        putByte(SEPARATOR);
+        putString(cdr.getCallerNumber());
+        putByte(SEPARATOR);
+        putString(cdr.getCalledNumber());
+        putByte(SEPARATOR);
+        putDateTime(cdr.getStartDateTime());
+        putByte(SEPARATOR);
+        putDateTime(cdr.getFinishDateTime());
+        ensureRemaining(LINE_SEPARATOR.length * 2);
+        buffer.put(LINE_SEPARATOR);
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * Сбрасывает содержимое буфера в канал.
+     *
+     * @throws IOException при ошибке записи в канал
+     */
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Записывает строку в UTF-8. Строки из символов ASCII кодируются без промежуточного массива.
+     *
+     * @param value Строка; {@code null} записывается как "null"
+     * @throws IOException при ошибке записи в канал
+     */
+    private void putString(String value) throws IOException {
+        String s = String.valueOf(value);
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) >= 0x80) {
+                putBytes(s.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            putByte((byte) s.charAt(i));
+        }
+    }
+
+    /**
+     * Записывает дату и время в формате {@link LocalDateTime#toString()}.
+     * <p>
+     * Годы вне диапазона 0-9999 встречаются только в некорректных данных и
+     * кодируются через {@code toString()}.
+     * </p>
+     *
+     * @param dateTime Дата и время; {@code null} записывается как "null"
+     * @throws IOException при ошибке записи в канал
+     */
+    private void putDateTime(LocalDateTime dateTime) throws IOException {
+        if (dateTime == null || dateTime.getYear() < 0 || dateTime.getYear() > 9999) {
+            putString(String.valueOf(dateTime));
+            return;
+        }
+        ensureRemaining(MAX_DATE_TIME_LENGTH);
+
+        putDigits(dateTime.getYear(), 4);
+        buffer.put((byte) '-');
+        putDigits(dateTime.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        putDigits(dateTime.getDayOfMonth(), 2);
+        buffer.put((byte) 'T');
+        putDigits(dateTime.getHour(), 2);
+        buffer.put((byte) ':');
+        putDigits(dateTime.getMinute(), 2);
+
+        int second = dateTime.getSecond();
+        int nano = dateTime.getNano();
+        if (second == 0 && nano == 0) return;
+
+        buffer.put((byte) ':');
+        putDigits(second, 2);
+        if (nano == 0) return;
+
+        buffer.put((byte) '.');
+        if (nano % 1_000_000 == 0) {
+            putDigits(nano / 1_000_000, 3);
+        } else if (nano % 1_000 == 0) {
+            putDigits(nano / 1_000, 6);
+        } else {
+            putDigits(nano, 9);
+        }
+    }
+
+    /**
+     * Записывает неотрицательное число, дополненное ведущими нулями до указанной ширины.
+     * Место в буфере должно быть зарезервировано вызывающим.
+     *
+     * @param value Число
+     * @param width Количество цифр
+     */
+    private void putDigits(int value, int width) {
+        int end = buffer.position() + width;
+        for (int i = end - 1; i >= end - width; i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    private void putByte(byte b) throws IOException {
+        ensureRemaining(1);
+        buffer.put(b);
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureRemaining(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Сбрасывает буфер в канал, если в нем осталось меньше указанного количества байт.
+     *
+     * @param bytes Необходимое количество байт
+     * @throws IOException при ошибке записи в канал
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) flush();
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.example.roamingaggregatorservice.dto.CdrLineDTO;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Разбор строк CDR в формате cdr-отчета.
+ * <p>
+ * Строка состоит из пяти полей через запятую: {@code тип,вызывающий,вызываемый,начало,окончание},
+ * где тип - {@code 01} или {@code 02}, а начало и окончание - дата и время в формате
+ * {@link LocalDateTime#toString()}, как их записывает {@link CdrReportLineEncoder}.
+ * Существование абонентов не проверяется.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public final class CdrReportLineParser {
+
+    private static final char SEPARATOR = ',';
+
+    private CdrReportLineParser() {
+    }
+
+    /**
+     * Разбирает строку CDR.
+     *
+     * @param line Строка без перевода строки
+     * @return Запись CDR с номерами сторон или {@code null}, если строка не соответствует
+     * формату: другое количество полей, пустой номер, неизвестный тип вызова, некорректное
+     * время или окончание раньше начала
+     */
+    public static CdrLineDTO parse(String line) {
+        int callerStart = line.indexOf(SEPARATOR) + 1;
+        int calledStart = line.indexOf(SEPARATOR, callerStart) + 1;
+        int startStart = calledStart == 0 ? 0 : line.indexOf(SEPARATOR, calledStart) + 1;
+        int finishStart = startStart == 0 ? 0 : line.indexOf(SEPARATOR, startStart) + 1;
+        if (callerStart == 0 || calledStart == 0 || startStart == 0 || finishStart == 0
+                || line.indexOf(SEPARATOR, finishStart) >= 0) return null;
+
+        String callType = line.substring(0, callerStart - 1);
+        String callerNumber = line.substring(callerStart, calledStart - 1);
+        String calledNumber = line.substring(calledStart, startStart - 1);
+        if (!callType.equals("01") && !callType.equals("02") || callerNumber.isEmpty() || calledNumber.isEmpty()) return null;
+
+        LocalDateTime startDateTime;
+        LocalDateTime finishDateTime;
+        try {
+            startDateTime = LocalDateTime.parse(line.substring(startStart, finishStart - 1));
+            finishDateTime = LocalDateTime.parse(line.substring(finishStart));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        if (finishDateTime.isBefore(startDateTime)) return null;
+
+        return new CdrLineDTO(callType, callerNumber, calledNumber, startDateTime, finishDateTime);
+    }
+}
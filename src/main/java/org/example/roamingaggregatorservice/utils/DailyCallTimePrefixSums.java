@@ -0,0 +1,148 @@
+package org.example.roamingaggregatorservice.utils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Накопленное по дням время входящих и исходящих звонков одного абонента.
+ * <p>
+ * Для каждого дня от первого до последнего дня со звонками хранится сумма времени
+ * звонков с первого дня по этот день включительно (префиксные суммы) в примитивных
+ * массивах. Время звонков за любой период вычисляется двумя обращениями к массиву
+ * и вычитанием независимо от длины периода. Добавление звонка за последний день
+ * выполняется за O(1) амортизированно, за более ранний день - за время,
+ * пропорциональное количеству дней после него.
+ * Класс не потокобезопасен.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class DailyCallTimePrefixSums {
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private long firstDay;
+    private int days;
+    private long[] incoming = new long[0];
+    private long[] outgoing = new long[0];
+
+    /**
+     * Добавляет время входящего звонка за день.
+     *
+     * @param day День начала звонка
+     * @param time Время звонка
+     */
+    public void addIncoming(LocalDate day, long time) {
+        int index = indexOf(day);
+        add(incoming, index, time);
+    }
+
+    /**
+     * Добавляет время исходящего звонка за день.
+     *
+     * @param day День начала звонка
+     * @param time Время звонка
+     */
+    public void addOutgoing(LocalDate day, long time) {
+        int index = indexOf(day);
+        add(outgoing, index, time);
+    }
+
+    /**
+     * @param from Первый день периода (включительно)
+     * @param to Последний день периода (включительно)
+     * @return Суммарное время входящих звонков за период
+     */
+    public long getIncoming(LocalDate from, LocalDate to) {
+        return between(incoming, from, to);
+    }
+
+    /**
+     * @param from Первый день периода (включительно)
+     * @param to Последний день периода (включительно)
+     * @return Суммарное время исходящих звонков за период
+     */
+    public long getOutgoing(LocalDate from, LocalDate to) {
+        return between(outgoing, from, to);
+    }
+
+    /**
+     * Сокращает массивы до количества дней, освобождая запас емкости после построения сумм.
+     * <p>
+     * Занимаемая память после сокращения - 16 байт на каждый день от первого до последнего дня со звонками.
+     * </p>
+     */
+    public void trimToSize() {
+        if (incoming.length == days) return;
+        incoming = Arrays.copyOf(incoming, days);
+        outgoing = Arrays.copyOf(outgoing, days);
+    }
+
+    /**
+     * @return Количество дней от первого до последнего дня со звонками
+     */
+    public int days() {
+        return days;
+    }
+
+    private long between(long[] sums, LocalDate from, LocalDate to) {
+        return cumulative(sums, to.toEpochDay()) - cumulative(sums, from.toEpochDay() - 1);
+    }
+
+    private long cumulative(long[] sums, long epochDay) {
+        if (days == 0 || epochDay < firstDay) return 0;
+        return sums[(int) Math.min(epochDay - firstDay, days - 1)];
+    }
+
+    private void add(long[] sums, int index, long time) {
+        for (int i = index; i < days; i++) {
+            sums[i] += time;
+        }
+    }
+
+    /**
+     * Возвращает индекс дня в массивах, расширяя диапазон дней при необходимости.
+     * Новые дни после последнего получают накопленные суммы последнего дня,
+     * новые дни перед первым - нулевые.
+     */
+    private int indexOf(LocalDate day) {
+        long epochDay = day.toEpochDay();
+        if (days == 0) {
+            firstDay = epochDay;
+            days = 1;
+            incoming = new long[DEFAULT_CAPACITY];
+            outgoing = new long[DEFAULT_CAPACITY];
+            return 0;
+        }
+
+        if (epochDay < firstDay) {
+            int shift = Math.toIntExact(firstDay - epochDay);
+            int capacity = Math.max(days + shift, incoming.length);
+            incoming = shifted(incoming, shift, capacity);
+            outgoing = shifted(outgoing, shift, capacity);
+            firstDay = epochDay;
+            days += shift;
+            return 0;
+        }
+
+        int index = Math.toIntExact(epochDay - firstDay);
+        if (index >= days) {
+            if (index >= incoming.length) {
+                int capacity = Math.max(index + 1, incoming.length * 2);
+                incoming = Arrays.copyOf(incoming, capacity);
+                outgoing = Arrays.copyOf(outgoing, capacity);
+            }
+            Arrays.fill(incoming, days, index + 1, incoming[days - 1]);
+            Arrays.fill(outgoing, days, index + 1, outgoing[days - 1]);
+            days = index + 1;
+        }
+        return index;
+    }
+
+    private long[] shifted(long[] sums, int shift, int capacity) {
+        long[] result = new long[capacity];
+        System.arraycopy(sums, 0, result, shift, days);
+        return result;
+    }
+}
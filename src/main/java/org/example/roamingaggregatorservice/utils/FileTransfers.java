@@ -0,0 +1,134 @@
+package org.example.roamingaggregatorservice.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Отдача файлов в HTTP-ответ.
+ * <p>
+ * Если контейнер сервлетов поддерживает sendfile (Tomcat с NIO-коннектором),
+ * файл передается им напрямую из кэша страниц ОС в сокет без копирования через
+ * кучу JVM. Иначе содержимое копируется в поток ответа через буфер
+ * ({@link FileChannel#transferTo} в канал поверх {@code OutputStream}). Поддерживаются условные
+ * запросы ({@code If-None-Match}, {@code If-Modified-Since}, {@code If-Match},
+ * {@code If-Unmodified-Since}) и запрос одного диапазона байт ({@code Range},
+ * {@code If-Range}); запрос нескольких диапазонов обслуживается целым файлом.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public final class FileTransfers {
+
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    private FileTransfers() {
+    }
+
+    /**
+     * Отдает файл как вложение.
+     *
+     * @param request HTTP-запрос
+     * @param response HTTP-ответ
+     * @param file Путь к файлу
+     * @param contentType Тип содержимого файла
+     * @throws IOException при ошибке чтения файла или записи ответа
+     */
+    public static void sendAttachment(HttpServletRequest request, HttpServletResponse response, Path file, MediaType contentType) throws IOException {
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String eTag = "\"%x-%x\"".formatted(length, lastModified);
+
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) return;
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(contentType.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(file.getFileName().toString())
+                .build()
+                .toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, eTag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    if (start >= length || start > end) throw new IllegalArgumentException("Unsatisfiable range: " + range);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (ranges.size() == 1) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes %d-%d/%d".formatted(start, end, length));
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) return;
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (count > 0) {
+                long transferred = channel.transferTo(position, count, out);
+                if (transferred <= 0) break;
+                position += transferred;
+                count -= transferred;
+            }
+        }
+    }
+
+    /**
+     * Проверяет условие {@code If-Range}: диапазон отдается, только если файл не изменился
+     * с момента, указанного клиентом.
+     *
+     * @param request HTTP-запрос
+     * @param eTag Текущий ETag файла
+     * @param lastModified Время последнего изменения файла в миллисекундах
+     * @return {@code true}, если заголовка нет или он совпадает с текущим состоянием файла
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(eTag);
+
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
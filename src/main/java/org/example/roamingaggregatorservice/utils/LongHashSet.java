@@ -0,0 +1,118 @@
+package org.example.roamingaggregatorservice.utils;
+
+/**
+ * Множество положительных чисел {@code long} на хеш-таблице с открытой адресацией.
+ * <p>
+ * Элементы хранятся в одном примитивном массиве без объектов-оберток. Ключ {@code 0}
+ * зарезервирован под пустую ячейку, допустимы только положительные значения
+ * (см. {@link Msisdns#toLong(String)}). Удаление сдвигает последующие элементы
+ * цепочки, поэтому таблица не накапливает удаленных ячеек. Класс не потокобезопасен.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class LongHashSet {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] keys;
+    private int size;
+
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Ожидаемое количество элементов
+     */
+    public LongHashSet(int expectedSize) {
+        keys = new long[Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1];
+    }
+
+    /**
+     * @param value Положительное число
+     * @return {@code true}, если число содержится в множестве
+     */
+    public boolean contains(long value) {
+        int mask = keys.length - 1;
+        for (int slot = hash(value) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == value) return value != 0;
+            if (keys[slot] == 0) return false;
+        }
+    }
+
+    /**
+     * Добавляет число в множество.
+     *
+     * @param value Положительное число
+     * @return {@code true}, если числа в множестве не было
+     */
+    public boolean add(long value) {
+        if (value <= 0) throw new IllegalArgumentException("Значение должно быть положительным числом: " + value);
+
+        int mask = keys.length - 1;
+        for (int slot = hash(value) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == value) return false;
+            if (keys[slot] == 0) {
+                keys[slot] = value;
+                if (++size * 2 > keys.length) grow();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Удаляет число из множества.
+     *
+     * @param value Положительное число
+     * @return {@code true}, если число было в множестве
+     */
+    public boolean remove(long value) {
+        if (value <= 0) return false;
+
+        int mask = keys.length - 1;
+        int slot = hash(value) & mask;
+        while (keys[slot] != value) {
+            if (keys[slot] == 0) return false;
+            slot = (slot + 1) & mask;
+        }
+
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                gap = next;
+            }
+        }
+        keys[gap] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return Количество элементов
+     */
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        keys = new long[oldKeys.length * 2];
+
+        int mask = keys.length - 1;
+        for (long key : oldKeys) {
+            if (key == 0) continue;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = key;
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.roamingaggregatorservice.utils;
+
+/**
+ * Вспомогательные методы для работы с номерами абонентов (MSISDN).
+ * <p>
+ * MSISDN в формате E.164 состоит не более чем из 15 цифр, поэтому номер
+ * без потерь представляется положительным значением {@code long}. Это позволяет
+ * хранить номера в примитивных коллекциях без создания строк и объектов-оберток.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public final class Msisdns {
+
+    /**
+     * Значение, возвращаемое для номеров, которые нельзя представить числом.
+     */
+    public static final long NOT_NUMERIC = -1L;
+
+    private static final int MAX_DIGITS = 18;
+
+    private Msisdns() {
+    }
+
+    /**
+     * Преобразует MSISDN в число.
+     * <p>
+     * Номер с ведущим нулем не преобразуется, иначе он совпал бы с номером без нуля
+     * (например, {@code 079123456789} и {@code 79123456789}).
+     * </p>
+     *
+     * @param msisdn Номер абонента
+     * @return Числовое значение номера или {@link #NOT_NUMERIC}, если номер пустой,
+     * содержит не только цифры, начинается с нуля или слишком длинный
+     */
+    public static long toLong(String msisdn) {
+        if (msisdn == null || msisdn.isEmpty() || msisdn.length() > MAX_DIGITS) return NOT_NUMERIC;
+        if (msisdn.charAt(0) == '0') return NOT_NUMERIC;
+
+        long value = 0;
+        for (int i = 0; i < msisdn.length(); i++) {
+            char c = msisdn.charAt(i);
+            if (c < '0' || c > '9') return NOT_NUMERIC;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.example.roamingaggregatorservice.exceptions.InvalidPageTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Токены продолжения для постраничной выдачи по ключу (keyset pagination).
+ * <p>
+ * Токен хранит последний выданный ключ вместе с областью запроса (например, месяцем),
+ * закодированные в Base64url. Для клиента токен непрозрачен: его нужно только
+ * передать в следующий запрос с теми же параметрами.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public final class PageTokens {
+
+    private static final char SEPARATOR = ':';
+
+    private PageTokens() {
+    }
+
+    /**
+     * @param scope Область запроса, для которой действителен токен
+     * @param lastKey Последний выданный ключ
+     * @return Токен продолжения
+     */
+    public static String encode(String scope, String lastKey) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((scope + SEPARATOR + lastKey).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param pageToken Токен продолжения
+     * @param scope Область текущего запроса
+     * @return Последний выданный ключ
+     * @throws InvalidPageTokenException если токен поврежден или выдан для другой области
+     */
+    public static String decode(String pageToken, String scope) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageTokenException(pageToken);
+        }
+        if (!decoded.startsWith(scope + SEPARATOR)) throw new InvalidPageTokenException(pageToken);
+        return decoded.substring(scope.length() + 1);
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.roamingaggregatorservice.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных одинаковых вычислений.
+ * <p>
+ * Первый вызов с данным ключом выполняет вычисление в своем потоке, а вызовы с тем же
+ * ключом, пришедшие до его завершения, ждут и получают тот же результат или то же
+ * исключение. После завершения ключ освобождается: результат не кэшируется, и
+ * следующий вызов выполняет вычисление заново.
+ * </p>
+ * <p>
+ * Метрики: {@code singleflight.calls} с тегами {@code name} и {@code result}
+ * (executed - вычисление выполнено, shared - получен результат чужого вычисления)
+ * и {@code singleflight.in.flight} - количество выполняющихся вычислений.
+ * </p>
+ *
+ * @param <K> Тип ключа
+ * @param <V> Тип результата
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+
+    private final String name;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * @param name Имя для тега метрик
+     */
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Выполняет вычисление или присоединяется к уже выполняющемуся вычислению с тем же ключом.
+     *
+     * @param key Ключ вычисления
+     * @param computation Вычисление
+     * @return Результат вычисления
+     * @throws RuntimeException исключение, выброшенное вычислением
+     */
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            shared.incrementAndGet();
+            return join(existing);
+        }
+
+        executed.incrementAndGet();
+        try {
+            V result = computation.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * @return Количество выполненных вычислений
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /**
+     * @return Количество вызовов, получивших результат чужого вычисления
+     */
+    public long getSharedCount() {
+        return shared.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("singleflight.calls", executed, AtomicLong::get)
+                .tags("name", name, "result", "executed")
+                .register(registry);
+        FunctionCounter.builder("singleflight.calls", shared, AtomicLong::get)
+                .tags("name", name, "result", "shared")
+                .register(registry);
+        Gauge.builder("singleflight.in.flight", inFlight, Map::size)
+                .tag("name", name)
+                .register(registry);
+    }
+
+    private static <V> V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+}
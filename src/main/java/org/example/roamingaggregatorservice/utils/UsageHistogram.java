@@ -0,0 +1,156 @@
+package org.example.roamingaggregatorservice.utils;
+
+import java.nio.ByteBuffer;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * Гистограмма времени звонков по дням недели и часам суток.
+ * <p>
+ * Хранит 7 x 24 ячеек с суммарным временем звонков в секундах. Звонок раскладывается
+ * по всем часам, которые он пересекает, пропорционально времени внутри каждого часа;
+ * дробные секунды отбрасываются так, что сумма ячеек звонка равна его целой
+ * продолжительности в секундах. Для хранения гистограмма сериализуется в
+ * {@link #SIZE_IN_BYTES} байт. Класс не потокобезопасен.
+ * </p>
+ *
+ * @author Сервис роуминговой агрегации
+ * @since 1.0
+ */
+public class UsageHistogram {
+
+    /**
+     * Количество ячеек: часы суток для каждого дня недели, начиная с понедельника.
+     */
+    public static final int BUCKETS = 7 * 24;
+
+    /**
+     * Размер сериализованной гистограммы в байтах.
+     */
+    public static final int SIZE_IN_BYTES = BUCKETS * Integer.BYTES;
+
+    private final int[] seconds;
+
+    public UsageHistogram() {
+        this(new int[BUCKETS]);
+    }
+
+    private UsageHistogram(int[] seconds) {
+        this.seconds = seconds;
+    }
+
+    /**
+     * Восстанавливает гистограмму из сериализованного вида.
+     *
+     * @param bytes Гистограмма, сериализованная {@link #toBytes()}
+     * @return Гистограмма
+     */
+    public static UsageHistogram fromBytes(byte[] bytes) {
+        int[] seconds = new int[BUCKETS];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(seconds);
+        return new UsageHistogram(seconds);
+    }
+
+    /**
+     * @return Гистограмма, сериализованная в {@link #SIZE_IN_BYTES} байт
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE_IN_BYTES);
+        buffer.asIntBuffer().put(seconds);
+        return buffer.array();
+    }
+
+    /**
+     * Раскладывает время звонка по часам, которые он пересекает.
+     *
+     * @param start Время начала звонка
+     * @param finish Время окончания звонка
+     */
+    public void addCall(LocalDateTime start, LocalDateTime finish) {
+        LocalDateTime hourStart = start.truncatedTo(ChronoUnit.HOURS);
+        long countedSeconds = 0;
+        while (hourStart.isBefore(finish)) {
+            LocalDateTime hourEnd = hourStart.plusHours(1);
+            long elapsedSeconds = ChronoUnit.SECONDS.between(start, hourEnd.isBefore(finish) ? hourEnd : finish);
+            seconds[bucketOf(hourStart.getDayOfWeek(), hourStart.getHour())] += (int) (elapsedSeconds - countedSeconds);
+            countedSeconds = elapsedSeconds;
+            hourStart = hourEnd;
+        }
+    }
+
+    /**
+     * Прибавляет к гистограмме другую гистограмму.
+     *
+     * @param other Прибавляемая гистограмма
+     */
+    public void add(UsageHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            seconds[i] += other.seconds[i];
+        }
+    }
+
+    /**
+     * Складывает две сериализованные гистограммы.
+     * <p>
+     * Зарегистрирована в базе данных как функция {@code USAGE_HISTOGRAM_ADD}, чтобы
+     * приращения гистограмм прибавлялись к сохраненным строкам в {@code MERGE}.
+     * </p>
+     *
+     * @param bytes Гистограмма, сериализованная {@link #toBytes()}
+     * @param other Прибавляемая гистограмма, сериализованная {@link #toBytes()}
+     * @return Сумма гистограмм, сериализованная {@link #toBytes()}
+     */
+    public static byte[] add(byte[] bytes, byte[] other) {
+        UsageHistogram sum = fromBytes(bytes);
+        sum.add(fromBytes(other));
+        return sum.toBytes();
+    }
+
+    /**
+     * @param dayOfWeek День недели
+     * @param hour Час суток (0-23)
+     * @return Время звонков в секундах
+     */
+    public int get(DayOfWeek dayOfWeek, int hour) {
+        return seconds[bucketOf(dayOfWeek, hour)];
+    }
+
+    /**
+     * @return Время звонков в секундах по часам суток (0-23) за все дни недели
+     */
+    public long[] byHourOfDay() {
+        long[] byHour = new long[24];
+        for (int i = 0; i < BUCKETS; i++) {
+            byHour[i % 24] += seconds[i];
+        }
+        return byHour;
+    }
+
+    /**
+     * @return Время звонков в секундах по дням недели, начиная с понедельника
+     */
+    public long[] byDayOfWeek() {
+        long[] byDay = new long[7];
+        for (int i = 0; i < BUCKETS; i++) {
+            byDay[i / 24] += seconds[i];
+        }
+        return byDay;
+    }
+
+    /**
+     * @return Время звонков в секундах по дням недели, начиная с понедельника, и часам суток
+     */
+    public int[][] byDayOfWeekAndHour() {
+        int[][] byDayAndHour = new int[7][];
+        for (int day = 0; day < 7; day++) {
+            byDayAndHour[day] = Arrays.copyOfRange(seconds, day * 24, day * 24 + 24);
+        }
+        return byDayAndHour;
+    }
+
+    private static int bucketOf(DayOfWeek dayOfWeek, int hour) {
+        return (dayOfWeek.getValue() - 1) * 24 + hour;
+    }
+}
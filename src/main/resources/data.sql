@@ -1,13 +1,13 @@
-INSERT INTO subscribers (msisdn) VALUES ('79000000001');
-INSERT INTO subscribers (msisdn) VALUES ('79000000002');
-INSERT INTO subscribers (msisdn) VALUES ('79000000003');
-INSERT INTO subscribers (msisdn) VALUES ('79000000004');
-INSERT INTO subscribers (msisdn) VALUES ('79000000005');
-INSERT INTO subscribers (msisdn) VALUES ('79000000006');
-INSERT INTO subscribers (msisdn) VALUES ('79000000007');
-INSERT INTO subscribers (msisdn) VALUES ('79000000008');
-INSERT INTO subscribers (msisdn) VALUES ('79000000009');
-INSERT INTO subscribers (msisdn) VALUES ('79000000010');
-INSERT INTO subscribers (msisdn) VALUES ('79111111111');
-INSERT INTO subscribers (msisdn) VALUES ('79222222222');
-INSERT INTO subscribers (msisdn) VALUES ('79999999999');
\ No newline at end of file
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000001' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000001');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000002' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000002');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000003' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000003');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000004' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000004');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000005' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000005');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000006' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000006');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000007' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000007');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000008' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000008');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000009' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000009');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79000000010' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79000000010');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79111111111' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79111111111');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79222222222' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79222222222');
+INSERT INTO subscribers (id, msisdn) SELECT NEXT VALUE FOR subscribers_seq, '79999999999' WHERE NOT EXISTS (SELECT 1 FROM subscribers WHERE msisdn = '79999999999');
\ No newline at end of file
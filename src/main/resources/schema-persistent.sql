@@ -0,0 +1,4 @@
+-- Миграции файловой базы профиля persistent, которые ddl-auto: update не выполняет.
+-- Скрипт выполняется при каждом старте после обновления схемы Hibernate, поэтому операторы идемпотентны.
+-- duration_millis: INTEGER -> BIGINT (звонки длиннее Integer.MAX_VALUE миллисекунд); для BIGINT - без перезаписи таблицы.
+ALTER TABLE cdrs ALTER COLUMN duration_millis SET DATA TYPE BIGINT;
@@ -0,0 +1,137 @@
+package org.example.roamingaggregatorservice.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для кэша с проверкой поколения ключей GenerationCheckedCache.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки того, что значения, вычисленные
+ * до инвалидации ключа, не сохраняются в кэше.
+ * </p>
+ */
+public class GenerationCheckedCacheTest {
+
+    private ConcurrentMapCache delegate;
+
+    private GenerationCheckedCache cache;
+
+    @BeforeEach
+    void setUp() {
+        delegate = new ConcurrentMapCache("udrAllTime");
+        cache = new GenerationCheckedCache(delegate);
+    }
+
+    /**
+     * Тест сохранения значения после промаха.
+     * <p>
+     * Проверяет, что значение, вычисленное после промаха без инвалидации ключа, сохраняется.
+     * </p>
+     */
+    @Test
+    void put_AfterMiss_ShouldStoreValue() {
+        // When
+        assertNull(cache.get("79123456789"));
+        cache.put("79123456789", "udr");
+
+        // Then
+        assertEquals("udr", cache.get("79123456789").get());
+    }
+
+    /**
+     * Тест сохранения значения, вычисленного до инвалидации.
+     * <p>
+     * Проверяет, что значение не сохраняется, если ключ был инвалидирован другим потоком
+     * после промаха, в том числе удалением по условию, а инвалидация другого ключа
+     * сохранению не мешает.
+     * </p>
+     */
+    @Test
+    void put_AfterInvalidationSinceMiss_ShouldDropValue() {
+        // When
+        assertNull(cache.get("79123456789"));
+        CompletableFuture.runAsync(() -> cache.evict("79123456789")).join();
+        cache.put("79123456789", "stale");
+
+        assertNull(cache.get("79876543210"));
+        CompletableFuture.runAsync(() -> cache.evictIf(key -> key.toString().startsWith("7987"))).join();
+        cache.put("79876543210", "stale");
+
+        assertNull(cache.get("79000000001"));
+        cache.evict("79000000002");
+        cache.put("79000000001", "udr");
+
+        // Then
+        assertNull(delegate.get("79123456789"));
+        assertNull(delegate.get("79876543210"));
+        assertEquals("udr", delegate.get("79000000001").get());
+    }
+
+    /**
+     * Тест сохранения значения без промаха.
+     * <p>
+     * Проверяет, что значение, положенное без промаха по тому же ключу, сохраняется
+     * по поколению ключа на момент записи.
+     * </p>
+     */
+    @Test
+    void put_WithoutMiss_ShouldStoreValue() {
+        // When
+        assertNull(cache.get("79123456789"));
+        cache.put("79876543210", "udr");
+
+        // Then
+        assertEquals("udr", delegate.get("79876543210").get());
+    }
+
+    /**
+     * Тест сохранения значения после промаха типизированного чтения.
+     * <p>
+     * Проверяет, что промах {@code get(key, type)} проверяется так же, как промах {@code get(key)}.
+     * </p>
+     */
+    @Test
+    void put_AfterTypedMissAndInvalidation_ShouldDropValue() {
+        // When
+        assertNull(cache.get("79123456789", String.class));
+        CompletableFuture.runAsync(() -> cache.evict("79123456789")).join();
+        cache.put("79123456789", "stale");
+
+        // Then
+        assertNull(delegate.get("79123456789"));
+    }
+
+    /**
+     * Тест чтения с вычислением значения.
+     * <p>
+     * Проверяет, что значение, вычисленное кэшем, сохраняется, а вычисленное
+     * во время инвалидации ключей - удаляется.
+     * </p>
+     */
+    @Test
+    void getWithValueLoader_ShouldDropValueLoadedAcrossInvalidation() {
+        // Given
+        CaffeineCache caffeine = new CaffeineCache("udrAllTime", Caffeine.newBuilder().build());
+        GenerationCheckedCache caffeineCache = new GenerationCheckedCache(caffeine);
+
+        // When
+        String fresh = caffeineCache.get("79123456789", () -> "udr");
+        String stale = caffeineCache.get("79876543210", () -> {
+            CompletableFuture.runAsync(() -> caffeineCache.evictIf(key -> key.toString().startsWith("7900"))).join();
+            return "stale";
+        });
+
+        // Then
+        assertEquals("udr", fresh);
+        assertEquals("stale", stale);
+        assertEquals("udr", caffeine.get("79123456789").get());
+        assertNull(caffeine.get("79876543210"));
+    }
+}
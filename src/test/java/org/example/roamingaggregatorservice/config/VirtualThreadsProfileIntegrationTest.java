@@ -0,0 +1,77 @@
+package org.example.roamingaggregatorservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты профиля virtual-threads.
+ * <p>
+ * Данный класс проверяет, что приложение стартует с профилем virtual-threads и что
+ * {@code spring.threads.virtual.enabled} действует на Tomcat и исполнитель cdr-отчетов.
+ * Виртуальные потоки доступны с Java 21, поэтому тесты выполняются только на JDK 21+
+ * (Maven-профиль {@code jdk21}); на Java 17 они пропускаются.
+ * </p>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("virtual-threads")
+@EnabledForJreRange(min = JRE.JAVA_21)
+public class VirtualThreadsProfileIntegrationTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    @Qualifier(AsyncConfig.CDR_REPORT_EXECUTOR)
+    private ThreadPoolTaskExecutor cdrReportExecutor;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Тест обработки запросов Tomcat.
+     * <p>
+     * Проверяет, что запросы обслуживаются исполнителем виртуальных потоков,
+     * а размер пула соединений задается профилем.
+     * </p>
+     */
+    @Test
+    void contextLoads_ShouldServeRequestsOnVirtualThreads() {
+        // When
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        Object executor = webServer.getTomcat().getConnector().getProtocolHandler().getExecutor();
+
+        // Then
+        assertInstanceOf(VirtualThreadExecutor.class, executor);
+        assertEquals(32, ((HikariDataSource) dataSource).getMaximumPoolSize());
+    }
+
+    /**
+     * Тест исполнителя заданий на формирование cdr-отчетов.
+     * <p>
+     * Проверяет, что задания выполняются в виртуальных потоках.
+     * </p>
+     */
+    @Test
+    void cdrReportExecutor_ShouldRunTasksOnVirtualThreads() throws Exception {
+        // When
+        Thread thread = cdrReportExecutor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+    }
+}
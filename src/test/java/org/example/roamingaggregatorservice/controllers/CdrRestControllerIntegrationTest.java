@@ -20,20 +20,26 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * Интеграционные тесты для REST-контроллера CdrRestController..
  */
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "cdr.ingest.chunk-size=10")
 @AutoConfigureMockMvc
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 @Transactional
@@ -92,11 +98,44 @@ public class CdrRestControllerIntegrationTest {
                 .andExpect(content().string("Успешно сгенерированы cdr-записи."));
     }
 
+    /**
+     * Тест потоковой загрузки CDR из CSV.
+     * <p>
+     * Проверяет, что строки в формате cdr-отчета сохраняются порциями, пустые строки
+     * пропускаются, а строки неверного формата и с незарегистрированным номером
+     * отклоняются без прерывания загрузки.
+     * </p>
+     */
+    @Test
+    void ingestCdrs_ShouldSaveValidLinesAndCountRejectedOnes() throws Exception {
+        // Given
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            csv.append("02,%s,%s,2024-05-10T12:%02d,2024-05-10T12:%02d:30%n%n".formatted(TEST_MSISDN, SECOND_TEST_MSISDN, i, i));
+        }
+        csv.append("01,%s,%s,2024-05-11T10:00,2024-05-11T10:05%n".formatted(SECOND_TEST_MSISDN, TEST_MSISDN));
+        csv.append("02,%s,%s,2024-05-11T11:00,2024-05-11T11:05%n".formatted(TEST_MSISDN, INVALID_MSISDN));
+        csv.append("02,%s,%s,2024-05-11T11:00%n".formatted(TEST_MSISDN, SECOND_TEST_MSISDN));
+
+        // When & Then
+        mockMvc.perform(post("/v1/cdr/ingest")
+                .contentType("text/csv")
+                .content(csv.toString()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.acceptedCdrs", is(26)))
+                .andExpect(jsonPath("$.rejectedCdrs", is(2)));
+
+        assertEquals(25, cdrService.findAllByCallerNumber(TEST_MSISDN).size());
+        assertEquals(1, cdrService.findAllByCallerNumber(SECOND_TEST_MSISDN).size());
+    }
+
     /**
      * Тест успешной генерации отчета CDR.
      * <p>
-     * Проверяет, что контроллер правильно обрабатывает запрос на генерацию отчета CDR
-     * с правильными параметрами и возвращает сообщение об успехе с UUID отчета.
+     * Проверяет, что контроллер ставит задание на формирование отчета в очередь,
+     * сразу возвращает 202 Accepted с UUID задания, а после завершения задания
+     * отчет сохраняется в файл и доступен по UUID.
      * </п>
      */
     @Test
@@ -117,8 +156,8 @@ public class CdrRestControllerIntegrationTest {
                 .param("endDate", endDate.toString())
                 .contentType(MediaType.APPLICATION_JSON))
                 .andDo(print())
-                .andExpect(status().isOk())
-                .andExpect(content().string(containsString("Успешно сформирован cdr-отчет. UUID:")))
+                .andExpect(status().isAccepted())
+                .andExpect(content().string(containsString("Формирование cdr-отчета запущено. UUID:")))
                 .andReturn();
                 
         // Then
@@ -127,9 +166,51 @@ public class CdrRestControllerIntegrationTest {
         assertTrue(matcher.find(), "UUID должен присутствовать в ответе");
         
         String uuidStr = matcher.group(1);
+        awaitCdrReportJob(uuidStr);
+
+        mockMvc.perform(get("/v1/cdr/report/{uuid}/status", uuidStr))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("DONE")))
+                .andExpect(jsonPath("$.msisdn", is(msisdn)));
 
         Path reportFilePath = Paths.get(System.getProperty("user.dir"), "reports", msisdn + "_" + uuidStr + ".txt");
         assertTrue(Files.exists(reportFilePath), "Файл отчета должен быть создан");
+
+        mockMvc.perform(get("/v1/cdr/report/{uuid}", uuidStr))
+                .andExpect(status().isOk())
+                .andExpect(content().string(Files.readString(reportFilePath)));
+    }
+
+    /**
+     * Ожидает завершения задания на формирование отчета, опрашивая его состояние.
+     *
+     * @param uuid UUID задания
+     */
+    private void awaitCdrReportJob(String uuid) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            String state = mockMvc.perform(get("/v1/cdr/report/{uuid}/status", uuid))
+                    .andReturn().getResponse().getContentAsString();
+            if (state.contains("\"DONE\"") || state.contains("\"FAILED\"")) return;
+            Thread.sleep(50);
+        }
+        fail("Задание на формирование отчета не завершилось за 10 секунд");
+    }
+
+    /**
+     * Тест получения состояния несуществующего задания на формирование отчета.
+     * <p>
+     * Проверяет, что для неизвестного UUID возвращается 404 Not Found.
+     * </p>
+     */
+    @Test
+    void getCdrReportStatus_WithUnknownUuid_ShouldReturnNotFound() throws Exception {
+        // When + Then
+        mockMvc.perform(get("/v1/cdr/report/{uuid}/status", "a718ae8f-edf4-4c00-88d5-9d53eea95178"))
+                .andDo(print())
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.errorType", is("NOT_FOUND")));
     }
 
     /**
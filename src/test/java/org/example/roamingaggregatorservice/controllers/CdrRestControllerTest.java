@@ -1,30 +1,45 @@
 package org.example.roamingaggregatorservice.controllers;
 
+import org.example.roamingaggregatorservice.dto.CdrGenerationJobDTO;
+import org.example.roamingaggregatorservice.dto.CdrReportJobDTO;
+import org.example.roamingaggregatorservice.exceptions.CdrReportNotReadyException;
+import org.example.roamingaggregatorservice.exceptions.NoSuchCdrGenerationJobException;
+import org.example.roamingaggregatorservice.exceptions.NoSuchCdrReportJobException;
 import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
 import org.example.roamingaggregatorservice.exceptions.StartDateIsAfterEndDateException;
+import org.example.roamingaggregatorservice.jobs.CdrGenerationJobStatus;
+import org.example.roamingaggregatorservice.jobs.CdrReportJobStatus;
+import org.example.roamingaggregatorservice.services.CdrGenerationJobService;
+import org.example.roamingaggregatorservice.services.CdrReportJobService;
 import org.example.roamingaggregatorservice.services.CdrService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.containsString;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -40,8 +55,14 @@ public class CdrRestControllerTest {
     @MockitoBean
     private CdrService cdrService;
 
-    @Captor
-    private ArgumentCaptor<UUID> uuidCaptor;
+    @MockitoBean
+    private CdrReportJobService cdrReportJobService;
+
+    @MockitoBean
+    private CdrGenerationJobService cdrGenerationJobService;
+
+    @TempDir
+    Path tempDir;
 
     /**
      * Тест генерации CDR записей.
@@ -66,11 +87,104 @@ public class CdrRestControllerTest {
         verify(cdrService, times(1)).generateCdrForOneYear();
     }
 
+    /**
+     * Тест запуска массовой генерации CDR.
+     * <p>
+     * Проверяет, что метод ставит в очередь задание на генерацию запрошенного количества
+     * записей и сразу возвращает статус 202 с UUID задания и ссылкой на его состояние.
+     * </p>
+     */
+    @Test
+    public void generateCdrs_WithValidCount_ShouldAcceptJob() throws Exception {
+        // Given
+        UUID uuid = UUID.fromString("3f1c2a9e-7b4d-4e8a-9c51-0d2b6f8e4a17");
+        when(cdrGenerationJobService.submitCdrGeneration(10_000L)).thenReturn(uuid);
+
+        // When
+        mockMvc.perform(post("/v1/cdr/bulk")
+                        .param("count", "10000")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/v1/cdr/bulk/%s/status".formatted(uuid)))
+                .andExpect(content().string("Генерация cdr-записей запущена. UUID: %s".formatted(uuid)));
+
+        // Then
+        verify(cdrGenerationJobService, times(1)).submitCdrGeneration(10_000L);
+    }
+
+    /**
+     * Тест запуска массовой генерации CDR при переполненной очереди заданий.
+     * <p>
+     * Проверяет, что метод возвращает статус 503.
+     * </p>
+     */
+    @Test
+    public void generateCdrs_WhenQueueIsFull_ShouldReturnServiceUnavailable() throws Exception {
+        // Given
+        when(cdrGenerationJobService.submitCdrGeneration(10_000L)).thenThrow(new TaskRejectedException("queue is full"));
+
+        // When + Then
+        mockMvc.perform(post("/v1/cdr/bulk")
+                        .param("count", "10000")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    /**
+     * Тест получения состояния массовой генерации CDR.
+     * <p>
+     * Проверяет, что метод возвращает состояние задания и количество сохраненных записей,
+     * а для неизвестного задания - статус 404.
+     * </p>
+     */
+    @Test
+    public void getCdrGenerationStatus_ShouldReturnJobStateOrNotFound() throws Exception {
+        // Given
+        UUID uuid = UUID.fromString("3f1c2a9e-7b4d-4e8a-9c51-0d2b6f8e4a17");
+        UUID unknown = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        when(cdrGenerationJobService.getCdrGenerationJob(uuid))
+                .thenReturn(new CdrGenerationJobDTO(uuid, CdrGenerationJobStatus.RUNNING, 10_000L, 4_000L, 200L, 20_000L, null));
+        when(cdrGenerationJobService.getCdrGenerationJob(unknown)).thenThrow(new NoSuchCdrGenerationJobException(unknown));
+
+        // When + Then
+        mockMvc.perform(get("/v1/cdr/bulk/{uuid}/status", uuid))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("RUNNING")))
+                .andExpect(jsonPath("$.generatedCdrs", is(4_000)))
+                .andExpect(jsonPath("$.cdrsPerSecond", is(20_000)));
+        mockMvc.perform(get("/v1/cdr/bulk/{uuid}/status", unknown))
+                .andDo(print())
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Тест массовой генерации CDR с недопустимым количеством записей.
+     * <p>
+     * Проверяет, что метод возвращает ошибку валидации и не обращается к сервису.
+     * </p>
+     */
+    @Test
+    public void generateCdrs_WithNonPositiveCount_ShouldReturnBadRequest() throws Exception {
+        // When
+        mockMvc.perform(post("/v1/cdr/bulk")
+                        .param("count", "0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType", is("VALIDATION_ERROR")));
+
+        // Then
+        verify(cdrGenerationJobService, never()).submitCdrGeneration(anyLong());
+    }
+
     /**
      * Тест генерации отчета CDR с корректными параметрами.
      * <p>
-     * Проверяет, что метод корректно обрабатывает запрос на генерацию
-     * отчета CDR и возвращает сообщение об успешном выполнении.
+     * Проверяет, что метод ставит задание на формирование отчета в очередь
+     * и сразу возвращает 202 Accepted с UUID задания.
      * </p>
      */
     @Test
@@ -79,8 +193,9 @@ public class CdrRestControllerTest {
         String msisdn = "79123456789";
         LocalDate startDate = LocalDate.of(2023, 1, 1);
         LocalDate endDate = LocalDate.of(2023, 3, 31);
-        
-        doNothing().when(cdrService).generateCdrReport(eq(msisdn), eq(startDate), eq(endDate), any(UUID.class));
+        UUID jobUUID = UUID.randomUUID();
+
+        when(cdrReportJobService.submitCdrReport(msisdn, startDate, endDate)).thenReturn(jobUUID);
 
         // When
         mockMvc.perform(post("/v1/cdr/report")
@@ -89,15 +204,13 @@ public class CdrRestControllerTest {
                         .param("endDate", endDate.toString())
                         .contentType(MediaType.APPLICATION_JSON))
                 .andDo(print())
-                .andExpect(status().isOk())
-                .andExpect(content().string(containsString("Успешно сформирован cdr-отчет")));
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/v1/cdr/report/" + jobUUID + "/status"))
+                .andExpect(content().string("Формирование cdr-отчета запущено. UUID: " + jobUUID));
 
         // Then
-        verify(cdrService, times(1)).generateCdrReport(
-                eq(msisdn), 
-                eq(startDate), 
-                eq(endDate), 
-                any(UUID.class));
+        verify(cdrReportJobService, times(1)).submitCdrReport(eq(msisdn), eq(startDate), eq(endDate));
+        verify(cdrService, never()).generateCdrReport(any(), any(), any(), any());
     }
 
     /**
@@ -114,8 +227,8 @@ public class CdrRestControllerTest {
         LocalDate startDate = LocalDate.of(2023, 5, 1);
         LocalDate endDate = LocalDate.of(2023, 3, 31); // End date before start date
         
-        doThrow(new StartDateIsAfterEndDateException(startDate, endDate))
-                .when(cdrService).generateCdrReport(eq(msisdn), eq(startDate), eq(endDate), any(UUID.class));
+        when(cdrReportJobService.submitCdrReport(msisdn, startDate, endDate))
+                .thenThrow(new StartDateIsAfterEndDateException(startDate, endDate));
 
         // When + Then
         mockMvc.perform(post("/v1/cdr/report")
@@ -142,8 +255,8 @@ public class CdrRestControllerTest {
         LocalDate startDate = LocalDate.of(2023, 1, 1);
         LocalDate endDate = LocalDate.of(2023, 3, 31);
         
-        doThrow(new NoSuchSubscriberException(msisdn))
-                .when(cdrService).generateCdrReport(eq(msisdn), eq(startDate), eq(endDate), any(UUID.class));
+        when(cdrReportJobService.submitCdrReport(msisdn, startDate, endDate))
+                .thenThrow(new NoSuchSubscriberException(msisdn));
 
         // When + Then
         mockMvc.perform(post("/v1/cdr/report")
@@ -158,42 +271,147 @@ public class CdrRestControllerTest {
     }
 
     /**
-     * Тест генерации UUID для отчета CDR.
+     * Тест генерации отчета CDR при переполненной очереди заданий.
      * <p>
-     * Проверяет, что при генерации отчета метод создает валидный UUID
-     * и правильно передает его в сервис.
+     * Проверяет, что отклоненное исполнителем задание приводит к ответу
+     * 503 Service Unavailable, а не к ожиданию в потоке запроса.
      * </p>
      */
     @Test
-    public void generateCdrReport_ShouldGenerateValidUUID() throws Exception {
+    public void generateCdrReport_WhenQueueIsFull_ShouldReturnServiceUnavailable() throws Exception {
         // Given
-        String msisdn = "79123456789";
-        LocalDate startDate = LocalDate.of(2023, 1, 1);
-        LocalDate endDate = LocalDate.of(2023, 3, 31);
-        
-        doNothing().when(cdrService).generateCdrReport(
-                eq(msisdn), 
-                eq(startDate), 
-                eq(endDate), 
-                uuidCaptor.capture());
+        when(cdrReportJobService.submitCdrReport(any(), any(), any()))
+                .thenThrow(new TaskRejectedException("queue is full"));
 
-        // When
+        // When + Then
         mockMvc.perform(post("/v1/cdr/report")
-                        .param("msisdn", msisdn)
-                        .param("startDate", startDate.toString())
-                        .param("endDate", endDate.toString())
-                        .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                        .param("msisdn", "79123456789")
+                        .param("startDate", "2023-01-01")
+                        .param("endDate", "2023-03-31"))
+                .andDo(print())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.errorType", is("SERVICE_UNAVAILABLE")));
+    }
+
+    /**
+     * Тест получения состояния задания на формирование отчета.
+     * <p>
+     * Проверяет, что метод возвращает состояние, количество записанных строк
+     * и время выполнения задания.
+     * </p>
+     */
+    @Test
+    public void getCdrReportStatus_WithExistingJob_ShouldReturnJobState() throws Exception {
+        // Given
+        UUID jobUUID = UUID.randomUUID();
+        when(cdrReportJobService.getCdrReportJob(jobUUID))
+                .thenReturn(new CdrReportJobDTO(jobUUID, "79123456789", CdrReportJobStatus.RUNNING, 1500, 320, null));
+
+        // When + Then
+        mockMvc.perform(get("/v1/cdr/report/{uuid}/status", jobUUID))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uuid", is(jobUUID.toString())))
+                .andExpect(jsonPath("$.status", is("RUNNING")))
+                .andExpect(jsonPath("$.rowsWritten", is(1500)))
+                .andExpect(jsonPath("$.elapsedMillis", is(320)));
+    }
+
+    /**
+     * Тест получения состояния несуществующего задания.
+     * <p>
+     * Проверяет, что для неизвестного UUID возвращается 404 Not Found.
+     * </p>
+     */
+    @Test
+    public void getCdrReportStatus_WithUnknownJob_ShouldReturnNotFound() throws Exception {
+        // Given
+        UUID jobUUID = UUID.randomUUID();
+        when(cdrReportJobService.getCdrReportJob(jobUUID)).thenThrow(new NoSuchCdrReportJobException(jobUUID));
+
+        // When + Then
+        mockMvc.perform(get("/v1/cdr/report/{uuid}/status", jobUUID))
+                .andDo(print())
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.errorType", is("NOT_FOUND")));
+    }
+
+    /**
+     * Тест получения файла отчета.
+     * <p>
+     * Проверяет, что для сформированного отчета возвращается содержимое файла,
+     * а для несформированного - 409 Conflict.
+     * </p>
+     */
+    @Test
+    public void getCdrReport_ShouldReturnFileWhenDoneAndConflictOtherwise() throws Exception {
+        // Given
+        UUID doneUUID = UUID.randomUUID();
+        UUID runningUUID = UUID.randomUUID();
+        Path reportFile = tempDir.resolve("79123456789_" + doneUUID + ".txt");
+        Files.writeString(reportFile, "01,79123456789,79876543210,2023-01-05T10:00,2023-01-05T10:05:30");
+        when(cdrReportJobService.getCdrReportPath(doneUUID)).thenReturn(reportFile);
+        when(cdrReportJobService.getCdrReportPath(runningUUID))
+                .thenThrow(new CdrReportNotReadyException(runningUUID, CdrReportJobStatus.RUNNING));
+
+        // When + Then
+        mockMvc.perform(get("/v1/cdr/report/{uuid}", doneUUID))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", containsString(reportFile.getFileName().toString())))
+                .andExpect(content().string("01,79123456789,79876543210,2023-01-05T10:00,2023-01-05T10:05:30"));
+
+        mockMvc.perform(get("/v1/cdr/report/{uuid}", runningUUID))
+                .andDo(print())
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorType", is("CONFLICT")));
+    }
+
+    /**
+     * Тест частичного и условного получения файла отчета.
+     * <p>
+     * Проверяет, что запрос диапазона байт возвращает 206 Partial Content с
+     * заголовком Content-Range, диапазон за пределами файла - 416, устаревший
+     * If-Range - весь файл, а запрос с совпадающим ETag - 304 Not Modified.
+     * </p>
+     */
+    @Test
+    public void getCdrReport_WithRangeAndConditionalHeaders_ShouldHonorThem() throws Exception {
+        // Given
+        UUID doneUUID = UUID.randomUUID();
+        String content = "01,79123456789,79876543210,2023-01-05T10:00,2023-01-05T10:05:30";
+        Path reportFile = tempDir.resolve("79123456789_" + doneUUID + ".txt");
+        Files.writeString(reportFile, content);
+        when(cdrReportJobService.getCdrReportPath(doneUUID)).thenReturn(reportFile);
+
+        // When
+        String eTag = mockMvc.perform(get("/v1/cdr/report/{uuid}", doneUUID))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().longValue("Content-Length", content.length()))
+                .andReturn().getResponse().getHeader("ETag");
 
         // Then
-        UUID capturedUUID = uuidCaptor.getValue();
-        verify(cdrService, times(1)).generateCdrReport(
-                eq(msisdn), 
-                eq(startDate), 
-                eq(endDate), 
-                eq(capturedUUID));
-
-        UUID parsedUUID = UUID.fromString(capturedUUID.toString());
-        assertEquals(capturedUUID, parsedUUID);
+        mockMvc.perform(get("/v1/cdr/report/{uuid}", doneUUID).header("Range", "bytes=3-13"))
+                .andDo(print())
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 3-13/" + content.length()))
+                .andExpect(content().string("79123456789"));
+
+        mockMvc.perform(get("/v1/cdr/report/{uuid}", doneUUID).header("Range", "bytes=-8").header("If-Range", eTag))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("10:05:30"));
+
+        mockMvc.perform(get("/v1/cdr/report/{uuid}", doneUUID).header("Range", "bytes=3-13").header("If-Range", "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(content));
+
+        mockMvc.perform(get("/v1/cdr/report/{uuid}", doneUUID).header("Range", "bytes=1000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */" + content.length()));
+
+        mockMvc.perform(get("/v1/cdr/report/{uuid}", doneUUID).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
     }
 }
@@ -0,0 +1,194 @@
+package org.example.roamingaggregatorservice.controllers;
+
+import org.example.roamingaggregatorservice.config.CacheConfig;
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.repositories.CdrRepository;
+import org.example.roamingaggregatorservice.repositories.SubscriberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Интеграционные тесты REST-контроллера ReactiveUdrRestController.
+ * <p>
+ * Данный класс содержит интеграционные тесты асинхронного чтения UDR в профиле reactive
+ * и проверяет, что ответы совпадают с ответами UdrRestController и используют те же кэши.
+ * </p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("reactive")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ReactiveUdrRestControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SubscriberRepository subscriberRepository;
+
+    @Autowired
+    private CdrRepository cdrRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final String CALLER_MSISDN = "79123456789";
+    private final String CALLED_MSISDN = "79876543210";
+    private final String NONEXISTENT_MSISDN = "70000000000";
+
+    @BeforeEach
+    void setUp() {
+        cdrRepository.deleteAll();
+        subscriberRepository.deleteAll();
+
+        for (String msisdn : List.of(CALLER_MSISDN, CALLED_MSISDN)) {
+            Subscriber subscriber = new Subscriber();
+            subscriber.setMsisdn(msisdn);
+            subscriberRepository.save(subscriber);
+        }
+
+        cdrRepository.saveAll(List.of(
+                createCdr(CALLED_MSISDN, CALLER_MSISDN,
+                        LocalDateTime.of(2023, 5, 10, 12, 0, 0),
+                        LocalDateTime.of(2023, 5, 10, 12, 15, 30)),
+                createCdr(CALLER_MSISDN, CALLED_MSISDN,
+                        LocalDateTime.of(2023, 5, 20, 9, 0, 0),
+                        LocalDateTime.of(2023, 5, 20, 9, 5, 45)),
+                createCdr(CALLED_MSISDN, CALLER_MSISDN,
+                        LocalDateTime.of(2023, 6, 5, 14, 0, 0),
+                        LocalDateTime.of(2023, 6, 5, 14, 8, 20))));
+    }
+
+    private Cdr createCdr(String callerNumber, String calledNumber, LocalDateTime startDateTime, LocalDateTime finishDateTime) {
+        Cdr cdr = new Cdr();
+        cdr.setCallType("01");
+        cdr.setCaller(subscriberRepository.findSubscriberByMsisdn(callerNumber).orElseThrow());
+        cdr.setCalled(subscriberRepository.findSubscriberByMsisdn(calledNumber).orElseThrow());
+        cdr.setStartDateTime(startDateTime);
+        cdr.setFinishDateTime(finishDateTime);
+        return cdr;
+    }
+
+    /**
+     * Тест получения UDR для абонента за месяц и за все время.
+     * <p>
+     * Проверяет, что ответы формируются асинхронно, совпадают с ответами
+     * UdrRestController и сохраняются в тех же кэшах UDR.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscriber_ShouldReturnMonthAndAllTimeData() throws Exception {
+        // When
+        MvcResult month = mockMvc.perform(get("/v1/udr/reactive")
+                        .param("msisdn", CALLER_MSISDN)
+                        .param("yearAndMonth", "2023-05"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult allTime = mockMvc.perform(get("/v1/udr/reactive")
+                        .param("msisdn", CALLER_MSISDN))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(month))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.msisdn", is(CALLER_MSISDN)))
+                .andExpect(jsonPath("$.incomingCall.totalTime", is("00:15:30")))
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:05:45")));
+        mockMvc.perform(asyncDispatch(allTime))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.incomingCall.totalTime", is("00:23:50"))) // 15:30 + 8:20
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:05:45")));
+        assertNotNull(cacheManager.getCache(CacheConfig.UDR_BY_MONTH_CACHE)
+                .get(CacheConfig.udrByMonthKey(CALLER_MSISDN, "2023-05")));
+        assertNotNull(cacheManager.getCache(CacheConfig.UDR_ALL_TIME_CACHE).get(CALLER_MSISDN));
+    }
+
+    /**
+     * Тест получения UDR для абонента через UdrRestController в профиле reactive.
+     * <p>
+     * Проверяет, что профиль не меняет запросы по пути /v1/udr: они обслуживаются синхронно.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscriber_OnBlockingPath_ShouldBeServedSynchronously() throws Exception {
+        // When + Then
+        mockMvc.perform(get("/v1/udr")
+                        .param("msisdn", CALLER_MSISDN))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.incomingCall.totalTime", is("00:23:50")))
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:05:45")));
+    }
+
+    /**
+     * Тест получения UDR для несуществующего абонента.
+     * <p>
+     * Проверяет, что ошибка из реактивного потока обрабатывается общим обработчиком исключений.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscriber_WithNonExistentMsisdn_ShouldReturnBadRequest() throws Exception {
+        // When
+        MvcResult result = mockMvc.perform(get("/v1/udr/reactive")
+                        .param("msisdn", NONEXISTENT_MSISDN))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType", is("BAD_REQUEST")))
+                .andExpect(jsonPath("$.message", containsString("не найден")));
+    }
+
+    /**
+     * Тест потоковой выдачи UDR всех абонентов в формате NDJSON.
+     * <p>
+     * Проверяет, что каждый абонент выдается отдельной строкой JSON в порядке
+     * регистрации, включая абонента без звонков за месяц.
+     * </p>
+     */
+    @Test
+    void getUdrForAllSubscribersForOneMonth_WithNdjson_ShouldStreamOneLinePerSubscriber() throws Exception {
+        // Given
+        Subscriber silent = new Subscriber();
+        silent.setMsisdn("79000000099");
+        subscriberRepository.save(silent);
+
+        // When
+        MvcResult result = mockMvc.perform(get("/v1/udr/reactive/all")
+                        .param("yearAndMonth", "2023-06")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(stringContainsInOrder(
+                        "{\"msisdn\":\"" + CALLER_MSISDN + "\",\"incomingCall\":{\"totalTime\":\"00:08:20\"},\"outcomingCall\":{\"totalTime\":\"00:00:00\"}}\n",
+                        "{\"msisdn\":\"" + CALLED_MSISDN + "\",\"incomingCall\":{\"totalTime\":\"00:00:00\"},\"outcomingCall\":{\"totalTime\":\"00:08:20\"}}\n",
+                        "{\"msisdn\":\"79000000099\",\"incomingCall\":{\"totalTime\":\"00:00:00\"},\"outcomingCall\":{\"totalTime\":\"00:00:00\"}}\n")));
+    }
+}
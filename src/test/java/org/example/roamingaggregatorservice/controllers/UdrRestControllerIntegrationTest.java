@@ -1,16 +1,22 @@
 package org.example.roamingaggregatorservice.controllers;
 
+import com.jayway.jsonpath.JsonPath;
+import org.example.roamingaggregatorservice.config.CacheConfig;
 import org.example.roamingaggregatorservice.entities.Cdr;
 import org.example.roamingaggregatorservice.entities.Subscriber;
 import org.example.roamingaggregatorservice.repositories.CdrRepository;
 import org.example.roamingaggregatorservice.repositories.SubscriberRepository;
 import org.example.roamingaggregatorservice.services.CdrService;
+import org.example.roamingaggregatorservice.utils.PageTokens;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,7 +28,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -47,6 +56,12 @@ public class UdrRestControllerIntegrationTest {
     @Autowired
     private CdrService cdrService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     private final String CALLER_MSISDN = "79123456789";
     private final String CALLED_MSISDN = "79876543210";
     private final String NONEXISTENT_MSISDN = "70000000000";
@@ -113,8 +128,8 @@ public class UdrRestControllerIntegrationTest {
                          LocalDateTime startDateTime, LocalDateTime finishDateTime) {
         Cdr cdr = new Cdr();
         cdr.setCallType(callType);
-        cdr.setCallerNumber(callerNumber);
-        cdr.setCalledNumber(calledNumber);
+        cdr.setCaller(subscriberRepository.findSubscriberByMsisdn(callerNumber).orElseThrow());
+        cdr.setCalled(subscriberRepository.findSubscriberByMsisdn(calledNumber).orElseThrow());
         cdr.setStartDateTime(startDateTime);
         cdr.setFinishDateTime(finishDateTime);
         return cdr;
@@ -287,4 +302,338 @@ public class UdrRestControllerIntegrationTest {
                 .andExpect(jsonPath("$.incomingCall.totalTime", is("00:00:00")))
                 .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:00:00")));
     }
+
+    /**
+     * Тест перестройки помесячной витрины использования.
+     * <p>
+     * Проверяет, что звонок, записанный в таблицу CDR в обход репозитория,
+     * не учитывается в UDR и гистограмме использования до перестройки витрины
+     * и учитывается после нее, а ранее учтенные звонки не удваиваются.
+     * </p>
+     */
+    @Test
+    void rebuildMonthlyUsage_ShouldIncludeCdrsInsertedBypassingRepository() throws Exception {
+        // Given
+        jdbcTemplate.update("INSERT INTO cdrs (id, call_type, caller_id, called_id, start_epoch_milli, duration_millis) "
+                + "VALUES (NEXT VALUE FOR cdrs_seq, 2, (SELECT id FROM subscribers WHERE msisdn = ?), (SELECT id FROM subscribers WHERE msisdn = ?), DATEDIFF(MILLISECOND, TIMESTAMP '1970-01-01 00:00:00', TIMESTAMP '2023-05-25 10:00:00'), 60000)",
+                CALLER_MSISDN, CALLED_MSISDN);
+
+        mockMvc.perform(get("/v1/udr")
+                .param("msisdn", CALLER_MSISDN)
+                .param("yearAndMonth", YEAR_AND_MONTH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:05:45")));
+        mockMvc.perform(get("/v1/udr/histogram")
+                .param("msisdn", CALLER_MSISDN)
+                .param("yearAndMonth", YEAR_AND_MONTH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.outcomingCall.byDayOfWeek", contains(0, 0, 0, 0, 0, 345, 0)));
+
+        // When
+        mockMvc.perform(post("/v1/udr/rollup/rebuild"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Строк: 4")));
+
+        // Then
+        mockMvc.perform(get("/v1/udr")
+                .param("msisdn", CALLER_MSISDN)
+                .param("yearAndMonth", YEAR_AND_MONTH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.incomingCall.totalTime", is("00:25:45")))
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:06:45"))); // 5:45 + 1:00
+        mockMvc.perform(get("/v1/udr/histogram")
+                .param("msisdn", CALLER_MSISDN)
+                .param("yearAndMonth", YEAR_AND_MONTH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.outcomingCall.byDayOfWeekAndHour[3][10]", is(60)))  // четверг 10:00-10:01
+                .andExpect(jsonPath("$.outcomingCall.byDayOfWeek", contains(0, 0, 0, 60, 0, 345, 0)))
+                .andExpect(jsonPath("$.incomingCall.byDayOfWeek", contains(615, 0, 930, 0, 0, 0, 0)));
+    }
+
+    /**
+     * Тест инвалидации кэша UDR при сохранении новых CDR.
+     * <p>
+     * Проверяет, что повторный запрос UDR обслуживается из кэша, а сохранение
+     * нового звонка удаляет из кэша только UDR его участников за месяц звонка
+     * и за все время, оставляя записи за другие месяцы.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscriber_AfterNewCdrs_ShouldEvictOnlyAffectedEntries() throws Exception {
+        // Given
+        mockMvc.perform(get("/v1/udr").param("msisdn", CALLER_MSISDN).param("yearAndMonth", YEAR_AND_MONTH))
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:05:45")));
+        mockMvc.perform(get("/v1/udr").param("msisdn", CALLER_MSISDN).param("yearAndMonth", "2023-06"))
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:12:10")));
+        mockMvc.perform(get("/v1/udr").param("msisdn", CALLER_MSISDN))
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:17:55")));
+
+        Cache byMonth = cacheManager.getCache(CacheConfig.UDR_BY_MONTH_CACHE);
+        Cache allTime = cacheManager.getCache(CacheConfig.UDR_ALL_TIME_CACHE);
+        assertNotNull(byMonth.get(CacheConfig.udrByMonthKey(CALLER_MSISDN, YEAR_AND_MONTH)));
+        assertNotNull(allTime.get(CALLER_MSISDN));
+
+        // When
+        cdrRepository.saveAll(List.of(createCdr("02", CALLER_MSISDN, CALLED_MSISDN,
+                LocalDateTime.of(2023, 5, 25, 10, 0, 0),
+                LocalDateTime.of(2023, 5, 25, 10, 1, 0))));
+
+        // Then
+        assertNull(byMonth.get(CacheConfig.udrByMonthKey(CALLER_MSISDN, YEAR_AND_MONTH)));
+        assertNull(allTime.get(CALLER_MSISDN));
+        assertNotNull(byMonth.get(CacheConfig.udrByMonthKey(CALLER_MSISDN, "2023-06")));
+
+        mockMvc.perform(get("/v1/udr").param("msisdn", CALLER_MSISDN).param("yearAndMonth", YEAR_AND_MONTH))
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:06:45"))); // 5:45 + 1:00
+        mockMvc.perform(get("/v1/udr").param("msisdn", CALLER_MSISDN))
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:18:55"))); // 17:55 + 1:00
+    }
+
+    /**
+     * Тест потоковой выдачи UDR всех абонентов в формате NDJSON.
+     * <p>
+     * Проверяет, что каждый абонент выдается отдельной строкой в порядке регистрации
+     * с тем же временем звонков, что и в ответе JSON.
+     * </p>
+     */
+    @Test
+    void getUdrForAllSubscribersForOneMonth_WithNdjsonAccept_ShouldStreamOneLinePerSubscriber() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/v1/udr/all")
+                .param("yearAndMonth", YEAR_AND_MONTH)
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"msisdn\":\"" + CALLER_MSISDN + "\",\"incomingCall\":{\"totalTime\":\"00:25:45\"},\"outcomingCall\":{\"totalTime\":\"00:05:45\"}}\n" +
+                        "{\"msisdn\":\"" + CALLED_MSISDN + "\",\"incomingCall\":{\"totalTime\":\"00:05:45\"},\"outcomingCall\":{\"totalTime\":\"00:25:45\"}}\n"));
+    }
+
+    /**
+     * Тест постраничной выдачи UDR всех абонентов.
+     * <p>
+     * Проверяет, что страницы выдаются по возрастанию номера, токен следующей страницы
+     * продолжает выдачу после последнего номера, а на последней странице токена нет.
+     * </p>
+     */
+    @Test
+    void getUdrPageForAllSubscribersForOneMonth_ShouldWalkPagesByMsisdn() throws Exception {
+        // When
+        String firstPage = mockMvc.perform(get("/v1/udr/all/page")
+                .param("yearAndMonth", YEAR_AND_MONTH)
+                .param("pageSize", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.udrs", hasSize(1)))
+                .andExpect(jsonPath("$.udrs[0].msisdn", is(CALLER_MSISDN)))
+                .andExpect(jsonPath("$.udrs[0].incomingCall.totalTime", is("00:25:45")))
+                .andExpect(jsonPath("$.nextPageToken", notNullValue()))
+                .andReturn().getResponse().getContentAsString();
+        String nextPageToken = JsonPath.read(firstPage, "$.nextPageToken");
+
+        // Then
+        mockMvc.perform(get("/v1/udr/all/page")
+                .param("yearAndMonth", YEAR_AND_MONTH)
+                .param("pageSize", "1")
+                .param("pageToken", nextPageToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.udrs", hasSize(1)))
+                .andExpect(jsonPath("$.udrs[0].msisdn", is(CALLED_MSISDN)))
+                .andExpect(jsonPath("$.udrs[0].outcomingCall.totalTime", is("00:25:45")))
+                .andExpect(jsonPath("$.nextPageToken").doesNotExist());
+    }
+
+    /**
+     * Тест постраничной выдачи с токеном другого месяца.
+     * <p>
+     * Проверяет, что токен, выданный для другого месяца, отклоняется с ошибкой 400.
+     * </p>
+     */
+    @Test
+    void getUdrPageForAllSubscribersForOneMonth_WithTokenOfAnotherMonth_ShouldReturnBadRequest() throws Exception {
+        // Given
+        String otherMonthToken = PageTokens.encode("2023-06", CALLER_MSISDN);
+
+        // When & Then
+        mockMvc.perform(get("/v1/udr/all/page")
+                .param("yearAndMonth", YEAR_AND_MONTH)
+                .param("pageToken", otherMonthToken))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType", is("BAD_REQUEST")))
+                .andExpect(jsonPath("$.message", containsString("недействителен")));
+    }
+
+    /**
+     * Тест получения UDR для набора абонентов за месяц.
+     * <p>
+     * Проверяет, что результаты возвращаются в порядке номеров в запросе,
+     * включая повторяющиеся номера.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscribers_WithYearAndMonth_ShouldReturnDataInRequestOrder() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/v1/udr/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"msisdns": ["%s", "%s", "%s"], "yearAndMonth": "%s"}
+                        """.formatted(CALLED_MSISDN, CALLER_MSISDN, CALLED_MSISDN, YEAR_AND_MONTH)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].msisdn", is(CALLED_MSISDN)))
+                .andExpect(jsonPath("$[0].outcomingCall.totalTime", is("00:25:45")))
+                .andExpect(jsonPath("$[1].msisdn", is(CALLER_MSISDN)))
+                .andExpect(jsonPath("$[1].incomingCall.totalTime", is("00:25:45")))
+                .andExpect(jsonPath("$[2].msisdn", is(CALLED_MSISDN)));
+    }
+
+    /**
+     * Тест получения UDR для набора абонентов с незарегистрированными номерами.
+     * <p>
+     * Проверяет, что запрос отклоняется с ошибкой, перечисляющей не найденные номера.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscribers_WithNonExistentMsisdn_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/v1/udr/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"msisdns": ["%s", "%s"]}
+                        """.formatted(CALLER_MSISDN, NONEXISTENT_MSISDN)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType", is("BAD_REQUEST")))
+                .andExpect(jsonPath("$.message", containsString(NONEXISTENT_MSISDN)));
+    }
+
+    /**
+     * Тест получения UDR для пустого набора абонентов.
+     * <p>
+     * Проверяет, что пустой список номеров отклоняется ошибкой валидации.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscribers_WithEmptyList_ShouldReturnValidationError() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/v1/udr/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"msisdns\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType", is("VALIDATION_ERROR")))
+                .andExpect(jsonPath("$.message", containsString("msisdns")));
+    }
+
+    /**
+     * Тест получения UDR для абонента за период.
+     * <p>
+     * Проверяет, что учитываются звонки, начатые с первого по последний день
+     * периода включительно, в том числе в разных месяцах.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscriberForPeriod_ShouldSumCallsStartedWithinPeriod() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/v1/udr/period")
+                .param("msisdn", CALLER_MSISDN)
+                .param("startDate", "2023-05-15")
+                .param("endDate", "2023-06-05"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.msisdn", is(CALLER_MSISDN)))
+                .andExpect(jsonPath("$.incomingCall.totalTime", is("00:18:35"))) // 10:15 + 8:20
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:05:45"))); // 5:45
+    }
+
+    /**
+     * Тест перезагрузки накопленного по дням времени звонков.
+     * <p>
+     * Проверяет, что звонок, записанный в таблицу CDR в обход репозитория,
+     * учитывается в UDR за период после перестройки витрины.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscriberForPeriod_AfterRebuild_ShouldIncludeCdrsInsertedBypassingRepository() throws Exception {
+        // Given
+        jdbcTemplate.update("INSERT INTO cdrs (id, call_type, caller_id, called_id, start_epoch_milli, duration_millis) "
+                + "VALUES (NEXT VALUE FOR cdrs_seq, 2, (SELECT id FROM subscribers WHERE msisdn = ?), (SELECT id FROM subscribers WHERE msisdn = ?), DATEDIFF(MILLISECOND, TIMESTAMP '1970-01-01 00:00:00', TIMESTAMP '2023-06-10 23:59:00'), 120000)",
+                CALLER_MSISDN, CALLED_MSISDN);
+
+        // When
+        mockMvc.perform(post("/v1/udr/rollup/rebuild"))
+                .andExpect(status().isOk());
+
+        // Then
+        mockMvc.perform(get("/v1/udr/period")
+                .param("msisdn", CALLER_MSISDN)
+                .param("startDate", "2023-06-10")
+                .param("endDate", "2023-06-10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.incomingCall.totalTime", is("00:00:00")))
+                .andExpect(jsonPath("$.outcomingCall.totalTime", is("00:14:10"))); // 12:10 + 2:00
+    }
+
+    /**
+     * Тест получения UDR за период с датой начала позже даты окончания.
+     * <p>
+     * Проверяет, что такой запрос отклоняется с ошибкой.
+     * </p>
+     */
+    @Test
+    void getUdrForSubscriberForPeriod_WithStartDateAfterEndDate_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/v1/udr/period")
+                .param("msisdn", CALLER_MSISDN)
+                .param("startDate", "2023-06-01")
+                .param("endDate", "2023-05-31"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType", is("BAD_REQUEST")));
+    }
+
+    /**
+     * Тест получения гистограммы использования абонента за месяц.
+     * <p>
+     * Проверяет, что звонки раскладываются по часам суток и дням недели, звонок,
+     * пересекающий полночь, делится между часами двух дней и учитывается в месяце
+     * своего начала, а повторное сохранение CDR прибавляется к сохраненной гистограмме.
+     * </p>
+     */
+    @Test
+    void getUsageHistogramForSubscriber_ShouldSplitCallsByHourAndDayOfWeek() throws Exception {
+        // Given
+        cdrRepository.saveAll(List.of(createCdr("02", CALLER_MSISDN, CALLED_MSISDN,
+                LocalDateTime.of(2023, 5, 31, 23, 50, 0),
+                LocalDateTime.of(2023, 6, 1, 0, 20, 30))));
+
+        // When & Then
+        mockMvc.perform(get("/v1/udr/histogram")
+                .param("msisdn", CALLER_MSISDN)
+                .param("yearAndMonth", YEAR_AND_MONTH))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.msisdn", is(CALLER_MSISDN)))
+                .andExpect(jsonPath("$.yearAndMonth", is(YEAR_AND_MONTH)))
+                .andExpect(jsonPath("$.incomingCall.byHourOfDay[12]", is(930)))  // среда 12:00-12:15:30
+                .andExpect(jsonPath("$.incomingCall.byHourOfDay[18]", is(615)))  // понедельник 18:00-18:10:15
+                .andExpect(jsonPath("$.incomingCall.byDayOfWeek", contains(615, 0, 930, 0, 0, 0, 0)))
+                .andExpect(jsonPath("$.outcomingCall.byHourOfDay[9]", is(345)))  // суббота 9:00-9:05:45
+                .andExpect(jsonPath("$.outcomingCall.byDayOfWeekAndHour[2][23]", is(600)))   // среда 23:50-24:00
+                .andExpect(jsonPath("$.outcomingCall.byDayOfWeekAndHour[3][0]", is(1230)))   // четверг 0:00-0:20:30
+                .andExpect(jsonPath("$.outcomingCall.byDayOfWeek", contains(0, 0, 600, 1230, 0, 345, 0)));
+    }
+
+    /**
+     * Тест получения гистограммы для несуществующего абонента.
+     * <p>
+     * Проверяет, что контроллер возвращает ошибку для незарегистрированного номера.
+     * </p>
+     */
+    @Test
+    void getUsageHistogramForSubscriber_WithNonExistentMsisdn_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/v1/udr/histogram")
+                .param("msisdn", NONEXISTENT_MSISDN)
+                .param("yearAndMonth", YEAR_AND_MONTH))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorType", is("BAD_REQUEST")));
+    }
 }
@@ -18,6 +18,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -25,6 +26,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -231,6 +233,38 @@ public class UdrRestControllerTest {
         verify(udrService, times(1)).generateUdrForAllSubscribersForMonth(eq(yearAndMonth));
     }
 
+    /**
+     * Тест потоковой выдачи UDR всех абонентов в формате NDJSON.
+     * <p>
+     * Проверяет, что при запросе application/x-ndjson каждый UDR записывается
+     * отдельной строкой JSON, а список UDR не строится.
+     * </p>
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getUdrForAllSubscribersForOneMonth_WithNdjsonAccept_ShouldStreamLines() throws Exception {
+        // Given
+        String yearAndMonth = "2023-05";
+        when(udrService.forEachUdrForAllSubscribersForMonth(eq(yearAndMonth), any())).thenAnswer(invocation -> {
+            Consumer<UdrDTO> action = invocation.getArgument(1);
+            action.accept(new UdrDTO("79123456789", new CallDataDTO("01:30:45"), new CallDataDTO("02:15:30")));
+            action.accept(new UdrDTO("79123456790", new CallDataDTO("00:45:15"), new CallDataDTO("01:10:30")));
+            return 2L;
+        });
+
+        // When & Then
+        mockMvc.perform(get("/v1/udr/all")
+                        .param("yearAndMonth", yearAndMonth)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"msisdn\":\"79123456789\",\"incomingCall\":{\"totalTime\":\"01:30:45\"},\"outcomingCall\":{\"totalTime\":\"02:15:30\"}}\n" +
+                        "{\"msisdn\":\"79123456790\",\"incomingCall\":{\"totalTime\":\"00:45:15\"},\"outcomingCall\":{\"totalTime\":\"01:10:30\"}}\n"));
+
+        verify(udrService, never()).generateUdrForAllSubscribersForMonth(any());
+    }
+
     /**
      * Тест получения UDR для всех абонентов с некорректным форматом месяца и года.
      * <p>
@@ -273,4 +307,25 @@ public class UdrRestControllerTest {
         // Then
         verify(udrService, times(0)).generateUdrForAllSubscribersForMonth(any());
     }
+
+    /**
+     * Тест перестройки помесячной витрины использования.
+     * <p>
+     * Проверяет, что метод вызывает перестройку витрины и возвращает
+     * количество строк в ответе.
+     * </p>
+     */
+    @Test
+    public void rebuildMonthlyUsage_ShouldReturnRowCount() throws Exception {
+        // Given
+        when(udrService.rebuildMonthlyUsage()).thenReturn(24L);
+
+        // When & Then
+        mockMvc.perform(post("/v1/udr/rollup/rebuild"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().string("Помесячная витрина использования перестроена. Строк: 24"));
+
+        verify(udrService, times(1)).rebuildMonthlyUsage();
+    }
 }
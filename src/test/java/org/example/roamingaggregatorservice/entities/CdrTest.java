@@ -0,0 +1,69 @@
+package org.example.roamingaggregatorservice.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для сущности Cdr.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки того, что время окончания вызова
+ * вычисляется по времени начала и продолжительности.
+ * </p>
+ */
+public class CdrTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 5, 10, 12, 0, 0, 120_000_000);
+
+    private static final LocalDateTime FINISH = LocalDateTime.of(2023, 5, 10, 12, 15, 30, 250_000_000);
+
+    /**
+     * Тест порядка установки времени начала и окончания.
+     * <p>
+     * Проверяет, что запись не зависит от того, какое время задано первым.
+     * </p>
+     */
+    @Test
+    void setters_InAnyOrder_ShouldGiveSameDuration() {
+        // Given
+        Cdr startFirst = new Cdr();
+        Cdr finishFirst = new Cdr();
+
+        // When
+        startFirst.setStartDateTime(START);
+        startFirst.setFinishDateTime(FINISH);
+        finishFirst.setFinishDateTime(FINISH);
+        finishFirst.setStartDateTime(START);
+
+        // Then
+        assertEquals(930_130L, startFirst.getDurationMillis());
+        assertEquals(930_130L, finishFirst.getDurationMillis());
+        assertEquals(FINISH, startFirst.getFinishDateTime());
+        assertEquals(FINISH, finishFirst.getFinishDateTime());
+    }
+
+    /**
+     * Тест изменения времени начала.
+     * <p>
+     * Проверяет, что при изменении времени начала продолжительность сохраняется,
+     * время окончания сдвигается, а доли миллисекунды отбрасываются, как при хранении.
+     * </p>
+     */
+    @Test
+    void setStartDateTime_ShouldKeepDurationAndShiftFinish() {
+        // Given
+        Cdr cdr = new Cdr();
+        cdr.setStartDateTime(START);
+        cdr.setFinishDateTime(FINISH);
+
+        // When
+        cdr.setStartDateTime(START.plusHours(1).plusNanos(999));
+
+        // Then
+        assertEquals(START.plusHours(1), cdr.getStartDateTime());
+        assertEquals(930_130L, cdr.getDurationMillis());
+        assertEquals(FINISH.plusHours(1), cdr.getFinishDateTime());
+    }
+}
@@ -1,15 +1,29 @@
 package org.example.roamingaggregatorservice.repositories;
 
+import org.example.roamingaggregatorservice.dto.CdrLineDTO;
 import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
+import org.example.roamingaggregatorservice.projections.CallTimeTotalView;
+import org.example.roamingaggregatorservice.projections.MonthlyCallTimeView;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,7 +33,8 @@ import static org.junit.jupiter.api.Assertions.*;
  * Данный класс содержит тесты для проверки функциональности репозитория CdrRepository.
  * </p>
  */
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(CdrWriteLock.class)
 public class CdrRepositoryTest {
 
     @Autowired
@@ -29,9 +44,33 @@ public class CdrRepositoryTest {
     private CdrRepository cdrRepository;
 
     // Generate unique MSISDN values for each test run
-    private final String callerMsisdn = "7910" + UUID.randomUUID().toString().substring(0, 8);
-    private final String calledMsisdn = "7920" + UUID.randomUUID().toString().substring(0, 8);
+    private final String callerMsisdn = "7910" + randomDigits();
+    private final String calledMsisdn = "7920" + randomDigits();
+
+    private final Map<String, Subscriber> subscribers = new HashMap<>();
     
+    /**
+     * @return Случайные 8 цифр для уникального номера абонента; номера хранятся числами
+     */
+    private static String randomDigits() {
+        return String.format("%08d", ThreadLocalRandom.current().nextInt(100_000_000));
+    }
+
+    /**
+     * Возвращает абонента с указанным номером, сохраняя его при первом обращении.
+     * Стороны звонка в CDR ссылаются на абонентов.
+     *
+     * @param msisdn Номер абонента
+     * @return Сохраненный абонент
+     */
+    private Subscriber subscriber(String msisdn) {
+        return subscribers.computeIfAbsent(msisdn, key -> {
+            Subscriber subscriber = new Subscriber();
+            subscriber.setMsisdn(key);
+            return entityManager.persist(subscriber);
+        });
+    }
+
     @BeforeEach
     void setUp() {
         cdrRepository.deleteAll();
@@ -79,8 +118,8 @@ public class CdrRepositoryTest {
                                     LocalDateTime startDateTime, LocalDateTime finishDateTime) {
         Cdr cdr = new Cdr();
         cdr.setCallType(callType);
-        cdr.setCallerNumber(callerNumber);
-        cdr.setCalledNumber(calledNumber);
+        cdr.setCaller(subscriber(callerNumber));
+        cdr.setCalled(subscriber(calledNumber));
         cdr.setStartDateTime(startDateTime);
         cdr.setFinishDateTime(finishDateTime);
         entityManager.persist(cdr);
@@ -121,16 +160,17 @@ public class CdrRepositoryTest {
     }
 
     /**
-     * Тест поиска всех CDR по номеру вызываемого абонента за указанный месяц и год.
+     * Тест поиска всех CDR по номеру вызываемого абонента за указанный период.
      * <p>
      * Проверяет, что метод findAllByCalledNumberAndStartDateTime корректно
-     * фильтрует записи по дате и возвращает только подходящие.
+     * фильтрует записи по полуоткрытому интервалу дат и возвращает только подходящие.
      * </п>
      */
     @Test
     public void findAllByCalledNumberAndStartDateTime_ShouldReturnCorrectCdrs() {
         // When
-        List<Cdr> results = cdrRepository.findAllByCalledNumberAndStartDateTime(calledMsisdn, 2023, 2);
+        List<Cdr> results = cdrRepository.findAllByCalledNumberAndStartDateTime(calledMsisdn,
+                LocalDateTime.of(2023, 2, 1, 0, 0), LocalDateTime.of(2023, 3, 1, 0, 0));
 
         // Then
         assertEquals(1, results.size());
@@ -141,16 +181,17 @@ public class CdrRepositoryTest {
     }
 
     /**
-     * Тест поиска всех CDR по номеру вызывающего абонента за указанный месяц и год.
+     * Тест поиска всех CDR по номеру вызывающего абонента за указанный период.
      * <p>
      * Проверяет, что метод findAllByCallerNumberAndStartDateTime корректно
-     * фильтрует записи по дате и возвращает только подходящие.
+     * фильтрует записи по полуоткрытому интервалу дат и возвращает только подходящие.
      * </п>
      */
     @Test
     public void findAllByCallerNumberAndStartDateTime_ShouldReturnCorrectCdrs() {
         // When
-        List<Cdr> results = cdrRepository.findAllByCallerNumberAndStartDateTime(callerMsisdn, 2023, 3);
+        List<Cdr> results = cdrRepository.findAllByCallerNumberAndStartDateTime(callerMsisdn,
+                LocalDateTime.of(2023, 3, 1, 0, 0), LocalDateTime.of(2023, 4, 1, 0, 0));
 
         // Then
         assertEquals(1, results.size());
@@ -160,6 +201,190 @@ public class CdrRepositoryTest {
         assertEquals(3, marchCdr.getStartDateTime().getMonthValue());
     }
 
+    /**
+     * Тест исключения правой границы периода.
+     * <p>
+     * Проверяет, что запись, начавшаяся ровно в начале следующего месяца,
+     * не попадает в выборку за текущий месяц.
+     * </p>
+     */
+    @Test
+    public void findAllByCallerNumberAndStartDateTime_ShouldExcludeUpperBound() {
+        // Given
+        createAndPersistCdr("01", callerMsisdn, calledMsisdn,
+                LocalDateTime.of(2023, 4, 1, 0, 0, 0),
+                LocalDateTime.of(2023, 4, 1, 0, 1, 0));
+
+        // When
+        List<Cdr> results = cdrRepository.findAllByCallerNumberAndStartDateTime(callerMsisdn,
+                LocalDateTime.of(2023, 3, 1, 0, 0), LocalDateTime.of(2023, 4, 1, 0, 0));
+
+        // Then
+        assertEquals(1, results.size());
+        assertEquals(3, results.get(0).getStartDateTime().getMonthValue());
+    }
+
+    /**
+     * Тест суммирования времени звонков абонента в базе данных.
+     * <p>
+     * Проверяет, что суммы за все время и за месяц совпадают с суммой
+     * продолжительностей звонков, в том числе с дробными секундами,
+     * и равны нулю при отсутствии звонков.
+     * </p>
+     */
+    @Test
+    public void sumCallTime_ShouldMatchSumOfCallDurations() {
+        // Given
+        createAndPersistCdr("01", callerMsisdn, calledMsisdn,
+                LocalDateTime.of(2023, 3, 20, 9, 0, 0, 900_000_000),
+                LocalDateTime.of(2023, 3, 20, 9, 0, 2, 100_000_000));
+
+        // When
+        long outgoingAllTime = cdrRepository.sumCallTimeByCallerNumber(callerMsisdn);
+        long incomingAllTime = cdrRepository.sumCallTimeByCalledNumber(callerMsisdn);
+        long outgoingMarch = cdrRepository.sumCallTimeByCallerNumberAndStartDateTime(callerMsisdn,
+                LocalDateTime.of(2023, 3, 1, 0, 0), LocalDateTime.of(2023, 4, 1, 0, 0));
+        long incomingMarch = cdrRepository.sumCallTimeByCalledNumberAndStartDateTime(callerMsisdn,
+                LocalDateTime.of(2023, 3, 1, 0, 0), LocalDateTime.of(2023, 4, 1, 0, 0));
+
+        // Then
+        assertEquals(Duration.ofMinutes(30).plusSeconds(30).plusMillis(1200).toNanos(), outgoingAllTime);
+        assertEquals(Duration.ofMinutes(11).plusSeconds(15).toNanos(), incomingAllTime);
+        assertEquals(Duration.ofMinutes(15).plusMillis(1200).toNanos(), outgoingMarch);
+        assertEquals(0L, incomingMarch);
+    }
+
+    /**
+     * Тест суммирования времени звонков за период с группировкой по номеру.
+     * <p>
+     * Проверяет, что запросы с группировкой возвращают по одной строке на номер,
+     * звонивший или принимавший звонки в периоде.
+     * </p>
+     */
+    @Test
+    public void sumCallTimeGrouped_ShouldReturnTotalsPerNumber() {
+        // Given
+        createAndPersistCdr("01", calledMsisdn, callerMsisdn,
+                LocalDateTime.of(2023, 5, 26, 8, 0, 0),
+                LocalDateTime.of(2023, 5, 26, 8, 1, 15));
+        LocalDateTime from = LocalDateTime.of(2023, 5, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2023, 6, 1, 0, 0);
+
+        // When
+        List<CallTimeTotalView> outgoing = cdrRepository.sumCallTimeGroupedByCallerNumber(from, to);
+        List<CallTimeTotalView> incoming = cdrRepository.sumCallTimeGroupedByCalledNumber(from, to);
+
+        // Then
+        assertEquals(List.of(new CallTimeTotalView(calledMsisdn, Duration.ofMinutes(5).toNanos())), outgoing);
+        assertEquals(List.of(new CallTimeTotalView(callerMsisdn, Duration.ofMinutes(5).toNanos())), incoming);
+    }
+
+    /**
+     * Тест суммирования времени звонков с группировкой по абоненту и месяцу.
+     * <p>
+     * Проверяет, что запросы для перестройки помесячной витрины возвращают
+     * по одной строке на пару (абонент, месяц) с суммой времени и количеством звонков.
+     * </p>
+     */
+    @Test
+    public void sumCallTimeGroupedBySubscriberAndMonth_ShouldReturnTotalsPerSubscriberAndMonth() {
+        // Given
+        createAndPersistCdr("01", callerMsisdn, calledMsisdn,
+                LocalDateTime.of(2023, 1, 20, 9, 0, 0),
+                LocalDateTime.of(2023, 1, 20, 9, 0, 30));
+
+        // When
+        List<MonthlyCallTimeView> outgoing = cdrRepository.sumCallTimeGroupedByCallerAndMonth();
+        List<MonthlyCallTimeView> incoming = cdrRepository.sumCallTimeGroupedByCalledAndMonth();
+
+        // Then
+        assertEquals(5, outgoing.size());
+        assertEquals(5, incoming.size());
+        MonthlyCallTimeView january = outgoing.stream()
+                .filter(view -> view.subscriberId().equals(subscriber(callerMsisdn).getId()) && view.month() == 1)
+                .findFirst().orElseThrow();
+        assertEquals(2023, january.year());
+        assertEquals(Duration.ofMinutes(6).toNanos(), january.totalCallTimeNanos());
+        assertEquals(2L, january.calls());
+    }
+
+    /**
+     * Тест использования индексов в запросах за месяц.
+     * <p>
+     * Проверяет по плану выполнения (EXPLAIN), что выборки звонков абонента
+     * за период используют составные индексы по номеру и времени начала вызова.
+     * </p>
+     */
+    @Test
+    public void monthQueries_ShouldUseCompositeIndexes() {
+        // When
+        String callerPlan = explain("SELECT * FROM cdrs WHERE caller_id = 1 "
+                + "AND start_epoch_milli >= 1677628800000 AND start_epoch_milli < 1680307200000");
+        String calledPlan = explain("SELECT * FROM cdrs WHERE called_id = 1 "
+                + "AND start_epoch_milli >= 1677628800000 AND start_epoch_milli < 1680307200000");
+
+        // Then
+        assertTrue(callerPlan.toUpperCase().contains("IDX_CDRS_CALLER_ID_START_EPOCH_MILLI"), callerPlan);
+        assertTrue(calledPlan.toUpperCase().contains("IDX_CDRS_CALLED_ID_START_EPOCH_MILLI"), calledPlan);
+    }
+
+    /**
+     * Тест компактного хранения записей CDR.
+     * <p>
+     * Проверяет, что стороны звонка, тип вызова и время хранятся в числовых столбцах,
+     * а загруженная из базы данных запись совпадает с сохраненной с точностью
+     * до миллисекунды, в том числе звонок длиннее {@code Integer.MAX_VALUE} миллисекунд.
+     * </p>
+     */
+    @Test
+    public void compactStorage_ShouldRoundTripCdr() {
+        // Given
+        createAndPersistCdr("02", callerMsisdn, calledMsisdn,
+                LocalDateTime.of(2023, 6, 1, 23, 59, 59, 999_000_000),
+                LocalDateTime.of(2023, 6, 2, 0, 1, 0, 250_000_000));
+        Cdr longCall = new Cdr();
+        longCall.setCallType("01");
+        longCall.setCaller(subscriber(calledMsisdn));
+        longCall.setCalled(subscriber(callerMsisdn));
+        longCall.setStartDateTime(LocalDateTime.of(2023, 8, 1, 0, 0));
+        longCall.setFinishDateTime(LocalDateTime.of(2023, 8, 31, 0, 0, 0, 1_000_000));
+        cdrRepository.batchInsert(List.of(longCall));
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<String> columnTypes = entityManager.getEntityManager()
+                .createNativeQuery("SELECT COLUMN_NAME || ' ' || DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
+                        + "WHERE TABLE_NAME = 'CDRS' ORDER BY COLUMN_NAME")
+                .getResultList();
+        Cdr cdr = cdrRepository.findAllByCallerNumberAndStartDateTime(callerMsisdn,
+                LocalDateTime.of(2023, 6, 1, 0, 0), LocalDateTime.of(2023, 7, 1, 0, 0)).get(0);
+        Cdr loadedLongCall = cdrRepository.findAllByCalledNumberAndStartDateTime(callerMsisdn,
+                LocalDateTime.of(2023, 8, 1, 0, 0), LocalDateTime.of(2023, 9, 1, 0, 0)).get(0);
+
+        // Then
+        assertEquals(List.of("CALLED_ID BIGINT", "CALLER_ID BIGINT", "CALL_TYPE TINYINT",
+                "DURATION_MILLIS BIGINT", "ID BIGINT", "START_EPOCH_MILLI BIGINT"), columnTypes);
+        assertEquals("02", cdr.getCallType());
+        assertEquals(calledMsisdn, cdr.getCalledNumber());
+        assertEquals(LocalDateTime.of(2023, 6, 1, 23, 59, 59, 999_000_000), cdr.getStartDateTime());
+        assertEquals(LocalDateTime.of(2023, 6, 2, 0, 1, 0, 250_000_000), cdr.getFinishDateTime());
+        assertEquals(30L * 24 * 60 * 60 * 1000 + 1, loadedLongCall.getDurationMillis());
+        assertEquals(LocalDateTime.of(2023, 8, 31, 0, 0, 0, 1_000_000), loadedLongCall.getFinishDateTime());
+    }
+
+    /**
+     * Возвращает план выполнения SQL-запроса.
+     *
+     * @param sql SQL-запрос
+     * @return Текст плана выполнения
+     */
+    private String explain(String sql) {
+        return String.valueOf(entityManager.getEntityManager()
+                .createNativeQuery("EXPLAIN " + sql)
+                .getSingleResult());
+    }
+
     /**
      * Тест поиска всех CDR в указанном диапазоне дат.
      * <p>
@@ -186,6 +411,35 @@ public class CdrRepositoryTest {
         assertTrue(results.get(0).getStartDateTime().isBefore(results.get(1).getStartDateTime()));
     }
 
+    /**
+     * Тест потокового чтения CDR за период.
+     * <p>
+     * Проверяет, что метод forEachByMsisdnAndStartDateTimeBetween передает обработчику
+     * те же записи и в том же порядке, что и выборка списком, а прочитанные записи
+     * не попадают в контекст персистентности.
+     * </p>
+     */
+    @Test
+    public void forEachByMsisdnAndStartDateTimeBetween_ShouldStreamSameCdrsAsListQuery() {
+        // Given
+        LocalDateTime startDate = LocalDateTime.of(2023, 2, 1, 0, 0, 0);
+        LocalDateTime endDate = LocalDateTime.of(2023, 4, 30, 23, 59, 59);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<Cdr> streamed = new ArrayList<>();
+        long count = cdrRepository.forEachByMsisdnAndStartDateTimeBetween(callerMsisdn, startDate, endDate, 2, streamed::add);
+
+        // Then
+        assertEquals(3, count);
+        assertEquals(
+                cdrRepository.findAllByCalledNumberOrCalledNumberAndStartDateTimeBetweenOrderByStartDateTimeAsc(callerMsisdn, startDate, endDate)
+                        .stream().map(Cdr::getId).toList(),
+                streamed.stream().map(Cdr::getId).toList());
+        assertTrue(streamed.stream().noneMatch(entityManager.getEntityManager()::contains));
+    }
+
     /**
      * Тест пакетного сохранения CDR записей.
      * <p>
@@ -196,22 +450,23 @@ public class CdrRepositoryTest {
     @Test
     public void saveAll_ShouldSaveMultipleCdrs() {
         // Given
-        String uniqueCaller1 = "7930" + UUID.randomUUID().toString().substring(0, 8);
-        String uniqueCalled1 = "7940" + UUID.randomUUID().toString().substring(0, 8);
-        String uniqueCaller2 = "7950" + UUID.randomUUID().toString().substring(0, 8);
-        String uniqueCalled2 = "7960" + UUID.randomUUID().toString().substring(0, 8);
+        String uniqueCaller1 = "7930" + randomDigits();
+        String uniqueCalled1 = "7940" + randomDigits();
+        String uniqueCaller2 = "7950" + randomDigits();
+        String uniqueCalled2 = "7960" + randomDigits();
+        List.of(uniqueCaller1, uniqueCalled1, uniqueCaller2, uniqueCalled2).forEach(this::subscriber);
         
         Cdr cdr1 = new Cdr();
         cdr1.setCallType("01");
-        cdr1.setCallerNumber(uniqueCaller1);
-        cdr1.setCalledNumber(uniqueCalled1);
+        cdr1.setCaller(subscriber(uniqueCaller1));
+        cdr1.setCalled(subscriber(uniqueCalled1));
         cdr1.setStartDateTime(LocalDateTime.of(2023, 6, 1, 10, 0, 0));
         cdr1.setFinishDateTime(LocalDateTime.of(2023, 6, 1, 10, 10, 0));
         
         Cdr cdr2 = new Cdr();
         cdr2.setCallType("02");
-        cdr2.setCallerNumber(uniqueCaller2);
-        cdr2.setCalledNumber(uniqueCalled2);
+        cdr2.setCaller(subscriber(uniqueCaller2));
+        cdr2.setCalled(subscriber(uniqueCalled2));
         cdr2.setStartDateTime(LocalDateTime.of(2023, 6, 2, 11, 0, 0));
         cdr2.setFinishDateTime(LocalDateTime.of(2023, 6, 2, 11, 15, 0));
         
@@ -227,4 +482,138 @@ public class CdrRepositoryTest {
         List<Cdr> allCdrs = cdrRepository.findAll();
         assertEquals(7, allCdrs.size());
     }
+
+    /**
+     * Тест сохранения CDR с номером, не принадлежащим абоненту.
+     * <p>
+     * Проверяет, что batchInsertLines отклоняет записи, сторона которых
+     * не является абонентом, и называет такой номер.
+     * </p>
+     */
+    @Test
+    public void batchInsertLines_WithUnknownNumber_ShouldThrowNoSuchSubscriberException() {
+        // Given
+        String unknownMsisdn = "7980" + randomDigits();
+        CdrLineDTO line = new CdrLineDTO("01", callerMsisdn, unknownMsisdn,
+                LocalDateTime.of(2023, 6, 1, 10, 0, 0), LocalDateTime.of(2023, 6, 1, 10, 10, 0));
+
+        // When / Then
+        NoSuchSubscriberException exception = assertThrows(NoSuchSubscriberException.class,
+                () -> cdrRepository.batchInsertLines(List.of(line)));
+        assertTrue(exception.getMessage().contains(unknownMsisdn), exception.getMessage());
+        assertEquals(5, cdrRepository.count());
+    }
+
+    /**
+     * Тест пакетной записи CDR с номерами сторон через JDBC.
+     * <p>
+     * Проверяет, что метод batchInsertLines заменяет номера ссылками на абонентов,
+     * сохраняет все переданные записи и они становятся доступны через запросы репозитория.
+     * </p>
+     */
+    @Test
+    public void batchInsertLines_ShouldInsertAllCdrs() {
+        // Given
+        String uniqueCaller = "7970" + randomDigits();
+        subscriber(uniqueCaller);
+        List<CdrLineDTO> linesToInsert = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            linesToInsert.add(new CdrLineDTO("02", uniqueCaller, calledMsisdn,
+                    LocalDateTime.of(2023, 7, 1, 10, 0, 0).plusMinutes(i),
+                    LocalDateTime.of(2023, 7, 1, 10, 0, 30).plusMinutes(i)));
+        }
+
+        // When
+        int inserted = cdrRepository.batchInsertLines(linesToInsert);
+
+        // Then
+        assertEquals(100, inserted);
+        assertEquals(100, cdrRepository.findAllByCallerNumber(uniqueCaller).size());
+    }
+
+    /**
+     * Тест объединения вставок CDR в JDBC-пакеты.
+     * <p>
+     * Проверяет, что при сохранении через saveAll идентификаторы выделяются
+     * из последовательности блоками, а вставки уходят в базу многострочными
+     * пакетами, а не отдельным запросом на каждую запись.
+     * </p>
+     */
+    @Test
+    public void saveAll_ShouldInsertCdrsInJdbcBatches() {
+        // Given
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        entityManager.flush();
+        statistics.clear();
+
+        List<Cdr> cdrsToSave = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Cdr cdr = new Cdr();
+            cdr.setCallType("01");
+            cdr.setCaller(subscriber(callerMsisdn));
+            cdr.setCalled(subscriber(calledMsisdn));
+            cdr.setStartDateTime(LocalDateTime.of(2023, 8, 1, 10, 0, 0).plusMinutes(i));
+            cdr.setFinishDateTime(LocalDateTime.of(2023, 8, 1, 10, 1, 0).plusMinutes(i));
+            cdrsToSave.add(cdr);
+        }
+
+        // When
+        cdrRepository.saveAll(cdrsToSave);
+        entityManager.flush();
+
+        // Then
+        assertEquals(200, statistics.getEntityInsertCount());
+        // 4 выборки из последовательности + 4 пакета по 50 вставок
+        assertTrue(statistics.getPrepareStatementCount() <= 8,
+                "Ожидались пакетные вставки, подготовлено запросов: " + statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Тест выделения идентификаторов при пакетной записи через JDBC.
+     * <p>
+     * Проверяет, что batchInsert присваивает записям уникальные идентификаторы
+     * из общей последовательности, не пересекающиеся с выделенными через JPA.
+     * </p>
+     */
+    @Test
+    public void batchInsert_ShouldAssignUniqueIdsFromSequence() {
+        // Given
+        List<Cdr> cdrsToInsert = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Cdr cdr = new Cdr();
+            cdr.setCallType("01");
+            cdr.setCaller(subscriber(callerMsisdn));
+            cdr.setCalled(subscriber(calledMsisdn));
+            cdr.setStartDateTime(LocalDateTime.of(2023, 9, 1, 10, 0, 0).plusMinutes(i));
+            cdr.setFinishDateTime(LocalDateTime.of(2023, 9, 1, 10, 2, 0).plusMinutes(i));
+            cdrsToInsert.add(cdr);
+        }
+
+        // When
+        cdrRepository.batchInsert(cdrsToInsert);
+        Cdr savedAfterBatch = cdrRepository.saveAndFlush(copyOf(cdrsToInsert.get(0)));
+
+        // Then
+        Set<Long> ids = new HashSet<>();
+        cdrsToInsert.forEach(cdr -> assertTrue(ids.add(cdr.getId())));
+        assertFalse(ids.contains(savedAfterBatch.getId()));
+        assertEquals(126, cdrRepository.count());
+    }
+
+    /**
+     * Создает копию записи CDR без идентификатора.
+     *
+     * @param cdr Исходная запись
+     * @return Новая запись с теми же данными
+     */
+    private Cdr copyOf(Cdr cdr) {
+        Cdr copy = new Cdr();
+        copy.setCallType(cdr.getCallType());
+        copy.setCaller(cdr.getCaller());
+        copy.setCalled(cdr.getCalled());
+        copy.setStartDateTime(cdr.getStartDateTime());
+        copy.setFinishDateTime(cdr.getFinishDateTime());
+        return copy;
+    }
 }
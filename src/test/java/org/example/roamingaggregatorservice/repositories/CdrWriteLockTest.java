@@ -0,0 +1,101 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для блокировки записи CDR CdrWriteLock.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки того, что блокировка удерживается
+ * до завершения транзакции и исключительная блокировка не пересекается с разделяемой.
+ * </p>
+ */
+public class CdrWriteLockTest {
+
+    private final CdrWriteLock cdrWriteLock = new CdrWriteLock();
+
+    /**
+     * Тест ожидания исключительной блокировки.
+     * <p>
+     * Проверяет, что транзакции с разделяемой блокировкой не ждут друг друга,
+     * а исключительная блокировка захватывается только после их завершения.
+     * </p>
+     */
+    @Test
+    void lockExclusive_ShouldWaitForSharedTransactionsToComplete() throws Exception {
+        // Given
+        CountDownLatch sharedLocked = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?>[] writers = new CompletableFuture<?>[2];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = CompletableFuture.runAsync(() -> runInTransaction(() -> {
+                cdrWriteLock.lockShared();
+                cdrWriteLock.lockShared();
+                sharedLocked.countDown();
+                await(release);
+            }));
+        }
+        assertTrue(sharedLocked.await(10, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(() -> runInTransaction(cdrWriteLock::lockExclusive));
+
+        // Then
+        assertThrows(Exception.class, () -> rebuild.get(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        CompletableFuture.allOf(writers).get(10, TimeUnit.SECONDS);
+        rebuild.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Тест захвата исключительной блокировки транзакцией, сохранявшей CDR.
+     * <p>
+     * Проверяет, что транзакция переходит от разделяемой блокировки к исключительной
+     * без ожидания самой себя, отпускает ее по завершении, а вне транзакции блокировка
+     * не захватывается.
+     * </p>
+     */
+    @Test
+    void lockExclusive_WhileHoldingShared_ShouldUpgradeUntilCompletion() throws Exception {
+        // When
+        runInTransaction(() -> {
+            cdrWriteLock.lockShared();
+            cdrWriteLock.lockExclusive();
+            cdrWriteLock.lockShared();
+            assertThrows(Exception.class, () -> CompletableFuture.runAsync(() -> runInTransaction(cdrWriteLock::lockShared))
+                    .get(200, TimeUnit.MILLISECONDS));
+        });
+
+        // Then
+        assertThrows(IllegalStateException.class, cdrWriteLock::lockShared);
+        CompletableFuture.runAsync(() -> runInTransaction(cdrWriteLock::lockExclusive)).get(10, TimeUnit.SECONDS);
+    }
+
+    private void runInTransaction(Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
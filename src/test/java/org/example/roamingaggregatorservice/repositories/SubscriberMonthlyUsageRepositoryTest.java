@@ -0,0 +1,191 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.entities.SubscriberMonthlyUsage;
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты для репозитория SubscriberMonthlyUsageRepository.
+ * <p>
+ * Данный класс содержит тесты для проверки инкрементального обновления
+ * помесячной витрины использования и чтения из нее.
+ * </p>
+ */
+@DataJpaTest
+@Import(CdrWriteLock.class)
+public class SubscriberMonthlyUsageRepositoryTest {
+
+    @Autowired
+    private SubscriberMonthlyUsageRepository usageRepository;
+
+    @Autowired
+    private SubscriberRepository subscriberRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final String msisdn = "79123456789";
+
+    @BeforeEach
+    void setUp() {
+        usageRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Сохраняет абонента.
+     *
+     * @param msisdn Номер абонента
+     * @return Идентификатор абонента
+     */
+    private Long createSubscriber(String msisdn) {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setMsisdn(msisdn);
+        return subscriberRepository.save(subscriber).getId();
+    }
+
+    /**
+     * Создает приращение витрины для абонента и месяца.
+     *
+     * @param subscriberId Идентификатор абонента
+     * @param month Месяц 2023 года
+     * @param incomingNanos Время входящих звонков в наносекундах
+     * @param outgoingNanos Время исходящих звонков в наносекундах
+     * @return Приращение витрины
+     */
+    private SubscriberMonthlyUsage delta(Long subscriberId, int month, long incomingNanos, long outgoingNanos) {
+        SubscriberMonthlyUsage delta = new SubscriberMonthlyUsage();
+        delta.setSubscriberId(subscriberId);
+        delta.setUsageYear(2023);
+        delta.setUsageMonth(month);
+        delta.setIncomingCallTimeNanos(incomingNanos);
+        delta.setOutgoingCallTimeNanos(outgoingNanos);
+        delta.setIncomingCalls(incomingNanos > 0 ? 1 : 0);
+        delta.setOutgoingCalls(outgoingNanos > 0 ? 1 : 0);
+        return delta;
+    }
+
+    /**
+     * Тест инкрементального обновления витрины.
+     * <p>
+     * Проверяет, что первое приращение создает строку, а повторное
+     * для той же пары (абонент, месяц) прибавляется к ней.
+     * </p>
+     */
+    @Test
+    public void batchMerge_ShouldInsertMissingRowsAndIncrementExistingOnes() {
+        // Given
+        Long subscriberId = createSubscriber(msisdn);
+        usageRepository.batchMerge(List.of(delta(subscriberId, 5, 100, 0), delta(subscriberId, 6, 0, 40)));
+
+        // When
+        usageRepository.batchMerge(List.of(delta(subscriberId, 5, 20, 7)));
+
+        // Then
+        List<SubscriberMonthlyUsage> rows = usageRepository.findAll();
+        assertEquals(2, rows.size());
+        SubscriberMonthlyUsage may = rows.stream().filter(row -> row.getUsageMonth() == 5).findFirst().orElseThrow();
+        assertEquals(120, may.getIncomingCallTimeNanos());
+        assertEquals(7, may.getOutgoingCallTimeNanos());
+        assertEquals(2, may.getIncomingCalls());
+        assertEquals(1, may.getOutgoingCalls());
+    }
+
+    /**
+     * Тест чтения времени звонков из витрины.
+     * <p>
+     * Проверяет выборки за месяц, за все время и по всем абонентам за месяц,
+     * а также пустой результат для месяца без звонков.
+     * </p>
+     */
+    @Test
+    public void findCallTime_ShouldReadMonthAndAllTimeTotals() {
+        // Given
+        Long subscriberId = createSubscriber(msisdn);
+        Long otherSubscriberId = createSubscriber("79876543210");
+        usageRepository.batchMerge(List.of(
+                delta(subscriberId, 5, 100, 30),
+                delta(subscriberId, 6, 50, 0),
+                delta(otherSubscriberId, 5, 30, 100)));
+
+        // When
+        Optional<CallTimeUsageView> may = usageRepository.findCallTimeByMsisdnAndMonth(msisdn, 2023, 5);
+        Optional<CallTimeUsageView> july = usageRepository.findCallTimeByMsisdnAndMonth(msisdn, 2023, 7);
+        Optional<CallTimeUsageView> allTime = usageRepository.findCallTimeByMsisdn(msisdn);
+        List<CallTimeUsageView> allSubscribersInMay = usageRepository.findAllCallTimesByMonth(2023, 5);
+
+        // Then
+        assertEquals(Optional.of(new CallTimeUsageView(msisdn, 100L, 30L)), may);
+        assertTrue(july.isEmpty());
+        assertEquals(Optional.of(new CallTimeUsageView(msisdn, 150L, 30L)), allTime);
+        assertEquals(2, allSubscribersInMay.size());
+    }
+
+    /**
+     * Тест параллельного инкрементального обновления витрины.
+     * <p>
+     * Проверяет, что приращения, одновременно прибавляемые к одним и тем же,
+     * в том числе еще не существующим строкам из разных транзакций, не теряются
+     * и не приводят к ошибкам уникального ключа.
+     * </p>
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void batchMerge_FromConcurrentTransactions_ShouldSumAllDeltas() throws Exception {
+        // Given
+        List<Long> subscriberIds = new ArrayList<>();
+        for (String number : List.of("79000000001", "79000000002", "79000000003", "79000000004")) {
+            subscriberIds.add(subscriberRepository.findSubscriberByMsisdn(number).orElseThrow().getId());
+        }
+        int threads = 8;
+        int batches = 50;
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            // When
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int b = 0; b < batches; b++) {
+                        List<SubscriberMonthlyUsage> deltas = new ArrayList<>();
+                        for (Long id : subscriberIds) {
+                            deltas.add(delta(id, b % 12 + 1, 10, 1));
+                        }
+                        transactionTemplate.executeWithoutResult(status -> usageRepository.batchMerge(deltas));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+
+            // Then
+            List<SubscriberMonthlyUsage> rows = usageRepository.findAll();
+            assertEquals(subscriberIds.size() * 12, rows.size());
+            assertEquals((long) threads * batches * subscriberIds.size(), rows.stream().mapToLong(SubscriberMonthlyUsage::getIncomingCalls).sum());
+            assertEquals(10L * threads * batches * subscriberIds.size(), rows.stream().mapToLong(SubscriberMonthlyUsage::getIncomingCallTimeNanos).sum());
+        } finally {
+            executor.shutdownNow();
+            usageRepository.deleteAllInBatch();
+        }
+    }
+}
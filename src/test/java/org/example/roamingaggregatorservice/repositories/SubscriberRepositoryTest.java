@@ -6,7 +6,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -19,6 +21,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * </p>
  */
 @DataJpaTest
+@Import(CdrWriteLock.class)
 public class SubscriberRepositoryTest {
 
     @Autowired
@@ -145,4 +148,26 @@ public class SubscriberRepositoryTest {
         assertNotNull(foundInDb);
         assertEquals(msisdn, foundInDb.getMsisdn());
     }
+
+    /**
+     * Тест проверки существования и выборки номеров абонентов.
+     * <p>
+     * Проверяет, что методы existsByMsisdn и findAllMsisdns работают
+     * по номерам без загрузки сущностей.
+     * </p>
+     */
+    @Test
+    public void existsByMsisdnAndFindAllMsisdns_ShouldReflectStoredSubscribers() {
+        // Given
+        String msisdn = "7906" + UUID.randomUUID().toString().substring(0, 8);
+        Subscriber subscriber = new Subscriber();
+        subscriber.setMsisdn(msisdn);
+        entityManager.persist(subscriber);
+        entityManager.flush();
+
+        // When + Then
+        assertTrue(subscriberRepository.existsByMsisdn(msisdn));
+        assertFalse(subscriberRepository.existsByMsisdn("7907" + UUID.randomUUID().toString().substring(0, 8)));
+        assertEquals(List.of(msisdn), subscriberRepository.findAllMsisdns());
+    }
 }
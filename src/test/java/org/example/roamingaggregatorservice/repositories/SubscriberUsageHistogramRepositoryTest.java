@@ -0,0 +1,155 @@
+package org.example.roamingaggregatorservice.repositories;
+
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.entities.SubscriberUsageHistogram;
+import org.example.roamingaggregatorservice.projections.UsageHistogramView;
+import org.example.roamingaggregatorservice.utils.UsageHistogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты для репозитория SubscriberUsageHistogramRepository.
+ * <p>
+ * Данный класс содержит тесты для проверки инкрементального обновления
+ * помесячных гистограмм использования и чтения из них.
+ * </p>
+ */
+@DataJpaTest
+@Import(CdrWriteLock.class)
+public class SubscriberUsageHistogramRepositoryTest {
+
+    @Autowired
+    private SubscriberUsageHistogramRepository histogramRepository;
+
+    @Autowired
+    private SubscriberRepository subscriberRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        histogramRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Создает приращение гистограмм для абонента за май 2023 года
+     * из одного входящего и одного исходящего звонка, начатых в 12:00.
+     *
+     * @param subscriberId Идентификатор абонента
+     * @param day День мая
+     * @param incomingSeconds Продолжительность входящего звонка в секундах
+     * @param outgoingSeconds Продолжительность исходящего звонка в секундах
+     * @return Приращение гистограмм
+     */
+    private SubscriberUsageHistogram delta(Long subscriberId, int day, int incomingSeconds, int outgoingSeconds) {
+        LocalDateTime start = LocalDateTime.of(2023, 5, day, 12, 0);
+        UsageHistogram incoming = new UsageHistogram();
+        incoming.addCall(start, start.plusSeconds(incomingSeconds));
+        UsageHistogram outgoing = new UsageHistogram();
+        outgoing.addCall(start, start.plusSeconds(outgoingSeconds));
+
+        SubscriberUsageHistogram delta = new SubscriberUsageHistogram();
+        delta.setSubscriberId(subscriberId);
+        delta.setUsageYear(2023);
+        delta.setUsageMonth(5);
+        delta.setIncomingSeconds(incoming.toBytes());
+        delta.setOutgoingSeconds(outgoing.toBytes());
+        return delta;
+    }
+
+    /**
+     * Тест инкрементального обновления гистограмм.
+     * <p>
+     * Проверяет, что первое приращение создает строку, а повторное для той же пары
+     * (абонент, месяц) складывается с ней поячеечно средствами базы данных.
+     * </p>
+     */
+    @Test
+    public void batchMerge_ShouldInsertMissingRowsAndAddToExistingOnes() {
+        // Given
+        Subscriber subscriber = new Subscriber();
+        subscriber.setMsisdn("79123456789");
+        Long subscriberId = subscriberRepository.save(subscriber).getId();
+        histogramRepository.batchMerge(List.of(delta(subscriberId, 10, 930, 0)));  // среда
+
+        // When
+        histogramRepository.batchMerge(List.of(delta(subscriberId, 17, 600, 345)));  // среда
+
+        // Then
+        UsageHistogramView view = histogramRepository.findHistogramByMsisdnAndMonth("79123456789", 2023, 5).orElseThrow();
+        assertEquals(1, histogramRepository.count());
+        assertEquals(930 + 600, UsageHistogram.fromBytes(view.incomingSeconds()).get(DayOfWeek.WEDNESDAY, 12));
+        assertEquals(345, UsageHistogram.fromBytes(view.outgoingSeconds()).get(DayOfWeek.WEDNESDAY, 12));
+    }
+
+    /**
+     * Тест параллельного инкрементального обновления гистограмм.
+     * <p>
+     * Проверяет, что приращения, одновременно прибавляемые к одним и тем же,
+     * в том числе еще не существующим строкам из разных транзакций, не теряются
+     * и не приводят к ошибкам уникального ключа.
+     * </p>
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void batchMerge_FromConcurrentTransactions_ShouldSumAllDeltas() throws Exception {
+        // Given
+        List<Long> subscriberIds = new ArrayList<>();
+        for (String number : List.of("79000000001", "79000000002", "79000000003", "79000000004")) {
+            subscriberIds.add(subscriberRepository.findSubscriberByMsisdn(number).orElseThrow().getId());
+        }
+        int threads = 8;
+        int batches = 50;
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            // When
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int b = 0; b < batches; b++) {
+                        List<SubscriberUsageHistogram> deltas = new ArrayList<>();
+                        for (Long id : subscriberIds) {
+                            deltas.add(delta(id, 10, 1, 2));
+                        }
+                        transactionTemplate.executeWithoutResult(status -> histogramRepository.batchMerge(deltas));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+
+            // Then
+            List<SubscriberUsageHistogram> rows = histogramRepository.findAll();
+            assertEquals(subscriberIds.size(), rows.size());
+            for (SubscriberUsageHistogram row : rows) {
+                assertEquals(threads * batches, UsageHistogram.fromBytes(row.getIncomingSeconds()).get(DayOfWeek.WEDNESDAY, 12));
+                assertEquals(2 * threads * batches, UsageHistogram.fromBytes(row.getOutgoingSeconds()).get(DayOfWeek.WEDNESDAY, 12));
+            }
+        } finally {
+            executor.shutdownNow();
+            histogramRepository.deleteAllInBatch();
+        }
+    }
+}
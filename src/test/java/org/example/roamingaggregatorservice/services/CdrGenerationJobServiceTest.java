@@ -0,0 +1,173 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.dto.CdrGenerationJobDTO;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.exceptions.NoSuchCdrGenerationJobException;
+import org.example.roamingaggregatorservice.jobs.CdrGenerationJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для сервиса CdrGenerationJobService.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки постановки заданий на массовую
+ * генерацию CDR в очередь, ограничения количества переданных исполнителю порций
+ * и получения состояния заданий.
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+public class CdrGenerationJobServiceTest {
+
+    @Mock
+    private CdrService cdrService;
+
+    @Mock
+    private SubscriberService subscriberService;
+
+    private ThreadPoolTaskExecutor jobExecutor;
+    private ThreadPoolTaskExecutor chunkExecutor;
+    private CdrGenerationJobService cdrGenerationJobService;
+
+    private final List<Subscriber> subscribers = List.of(new Subscriber(), new Subscriber());
+
+    @BeforeEach
+    void setUp() {
+        jobExecutor = executor(1, 0);
+        chunkExecutor = executor(2, 1);
+        cdrGenerationJobService = new CdrGenerationJobService(cdrService, subscriberService, jobExecutor, chunkExecutor);
+        ReflectionTestUtils.setField(cdrGenerationJobService, "chunkSize", 10);
+        ReflectionTestUtils.setField(cdrGenerationJobService, "jobRetention", Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobExecutor.shutdown();
+        chunkExecutor.shutdown();
+    }
+
+    /**
+     * Тест выполнения задания на генерацию.
+     * <p>
+     * Проверяет, что запрошенный объем нарезается на порции, все порции передаются
+     * на сохранение, хотя их больше емкости пула и очереди исполнителя,
+     * одновременно сохраняется не больше порций, чем разрешений семафора, а задание завершается
+     * с количеством сохраненных записей.
+     * </p>
+     */
+    @Test
+    void submitCdrGeneration_ShouldGenerateAllChunksWithBoundedInFlightChunks() throws Exception {
+        // Given
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(subscriberService.findAll()).thenReturn(subscribers);
+        when(cdrService.generateCdrChunk(eq(subscribers), anyInt())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(2);
+            running.decrementAndGet();
+            return invocation.getArgument(1);
+        });
+
+        // When
+        UUID uuid = cdrGenerationJobService.submitCdrGeneration(205);
+        CdrGenerationJobDTO state = awaitFinished(uuid);
+
+        // Then
+        assertEquals(CdrGenerationJobStatus.DONE, state.status(), state.errorMessage());
+        assertEquals(205, state.requestedCdrs());
+        assertEquals(205, state.generatedCdrs());
+        assertTrue(maxRunning.get() <= 3);
+        verify(cdrService, times(20)).generateCdrChunk(subscribers, 10);
+        verify(cdrService, times(1)).generateCdrChunk(subscribers, 5);
+    }
+
+    /**
+     * Тест ошибки сохранения порции.
+     * <p>
+     * Проверяет, что после ошибки новые порции не передаются, а задание завершается
+     * с ошибкой и количеством записей, сохраненных до нее.
+     * </p>
+     */
+    @Test
+    void submitCdrGeneration_WhenChunkFails_ShouldStopAndFailJob() throws Exception {
+        // Given
+        when(subscriberService.findAll()).thenReturn(subscribers);
+        when(cdrService.generateCdrChunk(eq(subscribers), anyInt()))
+                .thenReturn(10)
+                .thenThrow(new IllegalStateException("batch failed"));
+
+        // When
+        UUID uuid = cdrGenerationJobService.submitCdrGeneration(1_000_000);
+        CdrGenerationJobDTO state = awaitFinished(uuid);
+
+        // Then
+        assertEquals(CdrGenerationJobStatus.FAILED, state.status());
+        assertEquals("batch failed", state.errorMessage());
+        assertEquals(10, state.generatedCdrs());
+        verify(cdrService, atMost(5)).generateCdrChunk(eq(subscribers), anyInt());
+    }
+
+    /**
+     * Тест постановки задания при переполненной очереди заданий.
+     * <p>
+     * Проверяет, что отклоненное задание не остается в списке заданий.
+     * </p>
+     */
+    @Test
+    void submitCdrGeneration_WhenExecutorRejects_ShouldForgetJob() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        when(subscriberService.findAll()).thenReturn(subscribers);
+        when(cdrService.generateCdrChunk(eq(subscribers), anyInt())).thenAnswer(invocation -> {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return invocation.getArgument(1);
+        });
+        UUID running = cdrGenerationJobService.submitCdrGeneration(10);
+
+        // When
+        assertThrows(TaskRejectedException.class, () -> cdrGenerationJobService.submitCdrGeneration(10));
+
+        // Then
+        release.countDown();
+        assertEquals(CdrGenerationJobStatus.DONE, awaitFinished(running).status());
+        ReflectionTestUtils.setField(cdrGenerationJobService, "jobRetention", Duration.ZERO);
+        cdrGenerationJobService.evictExpiredJobs();
+        assertThrows(NoSuchCdrGenerationJobException.class, () -> cdrGenerationJobService.getCdrGenerationJob(running));
+    }
+
+    private CdrGenerationJobDTO awaitFinished(UUID uuid) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            CdrGenerationJobDTO state = cdrGenerationJobService.getCdrGenerationJob(uuid);
+            if (state.status() == CdrGenerationJobStatus.DONE || state.status() == CdrGenerationJobStatus.FAILED) return state;
+            Thread.sleep(5);
+        }
+        return fail("Задание не завершилось");
+    }
+
+    private static ThreadPoolTaskExecutor executor(int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.dto.CdrReportJobDTO;
+import org.example.roamingaggregatorservice.exceptions.CdrReportNotReadyException;
+import org.example.roamingaggregatorservice.exceptions.NoSuchCdrReportJobException;
+import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
+import org.example.roamingaggregatorservice.jobs.CdrReportJob;
+import org.example.roamingaggregatorservice.jobs.CdrReportJobStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для сервиса CdrReportJobService.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки постановки заданий на
+ * формирование cdr-отчетов в очередь и получения их состояния.
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+public class CdrReportJobServiceTest {
+
+    @Mock
+    private CdrService cdrService;
+
+    @InjectMocks
+    private CdrReportJobService cdrReportJobService;
+
+    @Captor
+    private ArgumentCaptor<CdrReportJob> jobCaptor;
+
+    private final String msisdn = "79123456789";
+    private final LocalDate startDate = LocalDate.of(2023, 1, 1);
+    private final LocalDate endDate = LocalDate.of(2023, 3, 31);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cdrReportJobService, "jobRetention", Duration.ofHours(1));
+        ReflectionTestUtils.setField(cdrReportJobService, "fileRetention", Duration.ofHours(24));
+    }
+
+    /**
+     * Тест постановки задания в очередь.
+     * <p>
+     * Проверяет, что параметры проверяются синхронно, задание передается
+     * исполнителю в состоянии QUEUED и доступно по возвращенному UUID.
+     * </p>
+     */
+    @Test
+    void submitCdrReport_ShouldQueueJobAndExposeItsState() {
+        // Given
+        when(cdrService.resolveCdrReportPath(eq(msisdn), any(UUID.class))).thenReturn(Path.of("report.txt"));
+
+        // When
+        UUID uuid = cdrReportJobService.submitCdrReport(msisdn, startDate, endDate);
+
+        // Then
+        verify(cdrService).validateCdrReportRequest(msisdn, startDate, endDate);
+        verify(cdrService).runCdrReportJob(jobCaptor.capture());
+        assertEquals(uuid, jobCaptor.getValue().getUuid());
+
+        CdrReportJobDTO state = cdrReportJobService.getCdrReportJob(uuid);
+        assertEquals(CdrReportJobStatus.QUEUED, state.status());
+        assertEquals(msisdn, state.msisdn());
+        assertEquals(0, state.rowsWritten());
+        assertThrows(CdrReportNotReadyException.class, () -> cdrReportJobService.getCdrReportPath(uuid));
+
+        jobCaptor.getValue().markRunning();
+        jobCaptor.getValue().setRowsWritten(2);
+        jobCaptor.getValue().markDone();
+        assertEquals(CdrReportJobStatus.DONE, cdrReportJobService.getCdrReportJob(uuid).status());
+        assertEquals(2, cdrReportJobService.getCdrReportJob(uuid).rowsWritten());
+        assertEquals(Path.of("report.txt"), cdrReportJobService.getCdrReportPath(uuid));
+    }
+
+    /**
+     * Тест постановки задания с некорректными параметрами.
+     * <p>
+     * Проверяет, что ошибка валидации пробрасывается вызывающему,
+     * а задание не создается.
+     * </p>
+     */
+    @Test
+    void submitCdrReport_WithNonExistentSubscriber_ShouldThrowWithoutQueueing() {
+        // Given
+        doThrow(new NoSuchSubscriberException(msisdn)).when(cdrService).validateCdrReportRequest(msisdn, startDate, endDate);
+
+        // When + Then
+        assertThrows(NoSuchSubscriberException.class, () -> cdrReportJobService.submitCdrReport(msisdn, startDate, endDate));
+        verify(cdrService, never()).runCdrReportJob(any());
+    }
+
+    /**
+     * Тест постановки задания при переполненной очереди исполнителя.
+     * <p>
+     * Проверяет, что отклоненное задание не остается в списке заданий.
+     * </p>
+     */
+    @Test
+    void submitCdrReport_WhenExecutorRejects_ShouldForgetJob() {
+        // Given
+        when(cdrService.resolveCdrReportPath(eq(msisdn), any(UUID.class))).thenReturn(Path.of("report.txt"));
+        when(cdrService.runCdrReportJob(any())).thenThrow(new TaskRejectedException("queue is full"));
+
+        // When
+        assertThrows(TaskRejectedException.class, () -> cdrReportJobService.submitCdrReport(msisdn, startDate, endDate));
+
+        // Then
+        verify(cdrService).runCdrReportJob(jobCaptor.capture());
+        UUID uuid = jobCaptor.getValue().getUuid();
+        assertThrows(NoSuchCdrReportJobException.class, () -> cdrReportJobService.getCdrReportJob(uuid));
+    }
+
+    /**
+     * Тест получения отчета по удаленному из памяти заданию.
+     * <p>
+     * Проверяет, что после удаления задания (по истечении срока хранения или после
+     * перезапуска) отчет находится по UUID в директории отчетов, а при отсутствии
+     * файла возвращается ошибка "задание не найдено".
+     * </p>
+     */
+    @Test
+    void getCdrReportPath_WithUnknownJob_ShouldFallBackToReportFile() {
+        // Given
+        UUID stored = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        when(cdrService.findCdrReportPath(stored)).thenReturn(Optional.of(Path.of("reports", msisdn + "_" + stored + ".txt")));
+        when(cdrService.findCdrReportPath(missing)).thenReturn(Optional.empty());
+
+        // When + Then
+        assertEquals(Path.of("reports", msisdn + "_" + stored + ".txt"), cdrReportJobService.getCdrReportPath(stored));
+        assertThrows(NoSuchCdrReportJobException.class, () -> cdrReportJobService.getCdrReportPath(missing));
+    }
+
+    /**
+     * Тест периодического удаления заданий.
+     * <p>
+     * Проверяет, что завершенное задание с истекшим сроком хранения удаляется без
+     * постановки новых заданий, выполняющееся задание остается, а файлы отчетов
+     * удаляются по своему сроку хранения.
+     * </p>
+     */
+    @Test
+    void evictExpiredJobs_ShouldForgetFinishedJobsAndDeleteOldReportFiles() {
+        // Given
+        ReflectionTestUtils.setField(cdrReportJobService, "jobRetention", Duration.ZERO);
+        when(cdrService.resolveCdrReportPath(eq(msisdn), any(UUID.class))).thenReturn(Path.of("report.txt"));
+        UUID finished = cdrReportJobService.submitCdrReport(msisdn, startDate, endDate);
+        UUID running = cdrReportJobService.submitCdrReport(msisdn, startDate, endDate);
+        verify(cdrService, times(2)).runCdrReportJob(jobCaptor.capture());
+        jobCaptor.getAllValues().get(0).markRunning();
+        jobCaptor.getAllValues().get(0).markDone();
+        jobCaptor.getAllValues().get(1).markRunning();
+
+        // When
+        Instant before = Instant.now();
+        cdrReportJobService.evictExpiredJobs();
+        Instant after = Instant.now();
+
+        // Then
+        assertThrows(NoSuchCdrReportJobException.class, () -> cdrReportJobService.getCdrReportJob(finished));
+        assertEquals(CdrReportJobStatus.RUNNING, cdrReportJobService.getCdrReportJob(running).status());
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(cdrService).deleteCdrReportsModifiedBefore(cutoff.capture());
+        assertFalse(cutoff.getValue().isBefore(before.minus(Duration.ofHours(24))));
+        assertFalse(cutoff.getValue().isAfter(after.minus(Duration.ofHours(24))));
+    }
+}
@@ -1,9 +1,14 @@
 package org.example.roamingaggregatorservice.services;
 
+import org.example.roamingaggregatorservice.dto.CdrIngestResultDTO;
+import org.example.roamingaggregatorservice.dto.CdrLineDTO;
 import org.example.roamingaggregatorservice.entities.Cdr;
 import org.example.roamingaggregatorservice.entities.Subscriber;
 import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
 import org.example.roamingaggregatorservice.exceptions.StartDateIsAfterEndDateException;
+import org.example.roamingaggregatorservice.jobs.CdrReportJob;
+import org.example.roamingaggregatorservice.jobs.CdrReportJobStatus;
+import org.example.roamingaggregatorservice.projections.CallTimeTotalView;
 import org.example.roamingaggregatorservice.repositories.CdrRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,16 +19,25 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -38,6 +52,8 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 public class CdrServiceTest {
 
+    private static final int REPORT_FETCH_SIZE = 1000;
+
     @Mock
     private SubscriberService subscriberService;
 
@@ -50,6 +66,9 @@ public class CdrServiceTest {
     @Captor
     private ArgumentCaptor<List<Cdr>> cdrListCaptor;
 
+    @Captor
+    private ArgumentCaptor<List<CdrLineDTO>> cdrLineListCaptor;
+
     @TempDir
     Path tempDir;
 
@@ -74,16 +93,16 @@ public class CdrServiceTest {
         Cdr cdr1 = new Cdr();
         cdr1.setId(1L);
         cdr1.setCallType("01");
-        cdr1.setCallerNumber("79876543210");
-        cdr1.setCalledNumber(msisdn);
+        cdr1.setCaller(subscriber2);
+        cdr1.setCalled(subscriber1);
         cdr1.setStartDateTime(LocalDateTime.of(2023, 5, 10, 12, 0, 0));
         cdr1.setFinishDateTime(LocalDateTime.of(2023, 5, 10, 12, 15, 30));
 
         Cdr cdr2 = new Cdr();
         cdr2.setId(2L);
         cdr2.setCallType("02");
-        cdr2.setCallerNumber(msisdn);
-        cdr2.setCalledNumber("79876543210");
+        cdr2.setCaller(subscriber1);
+        cdr2.setCalled(subscriber2);
         cdr2.setStartDateTime(LocalDateTime.of(2023, 5, 12, 10, 0, 0));
         cdr2.setFinishDateTime(LocalDateTime.of(2023, 5, 12, 10, 10, 30));
 
@@ -91,6 +110,21 @@ public class CdrServiceTest {
         
 
         System.setProperty("user.dir", tempDir.toString());
+        ReflectionTestUtils.setField(cdrService, "reportFetchSize", REPORT_FETCH_SIZE);
+    }
+
+    /**
+     * Имитирует потоковое чтение CDR: передает обработчику записи по одной.
+     *
+     * @param cdrs Записи, возвращаемые курсором
+     * @return Ответ для метода forEachByMsisdnAndStartDateTimeBetween
+     */
+    private static Answer<Long> streamOf(List<Cdr> cdrs) {
+        return invocation -> {
+            Consumer<Cdr> action = invocation.getArgument(4);
+            cdrs.forEach(action);
+            return (long) cdrs.size();
+        };
     }
 
     /**
@@ -135,6 +169,67 @@ public class CdrServiceTest {
         }
     }
 
+    /**
+     * Тест генерации порции CDR.
+     * <p>
+     * Проверяет, что метод сохраняет одним пакетом ровно запрошенное количество
+     * записей между различными абонентами в порядке времени начала.
+     * </p>
+     */
+    @Test
+    void generateCdrChunk_ShouldPersistSortedChunkInOneBatch() {
+        // Given
+        when(cdrRepository.batchInsert(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        // When
+        int inserted = cdrService.generateCdrChunk(subscribers, 25);
+
+        // Then
+        assertEquals(25, inserted);
+        verify(cdrRepository, times(1)).batchInsert(cdrListCaptor.capture());
+
+        List<Cdr> chunk = cdrListCaptor.getValue();
+        assertEquals(25, chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Cdr cdr = chunk.get(i);
+            assertNotEquals(cdr.getCallerNumber(), cdr.getCalledNumber());
+            assertTrue(cdr.getStartDateTime().isBefore(cdr.getFinishDateTime()));
+            if (i > 0) assertFalse(cdr.getStartDateTime().isBefore(chunk.get(i - 1).getStartDateTime()));
+        }
+        verify(cdrRepository, never()).saveAll(anyList());
+    }
+
+    /**
+     * Тест загрузки CDR при расхождении индекса номеров с базой данных.
+     * <p>
+     * Проверяет, что если абонент, прошедший проверку по индексу, не найден при сохранении
+     * порции, отклоняются только записи с этим номером, а остальные записи порции сохраняются.
+     * </p>
+     */
+    @Test
+    void ingestCdrs_WithSubscriberMissingFromDatabase_ShouldRejectOnlyItsRows() {
+        // Given
+        ReflectionTestUtils.setField(cdrService, "ingestChunkSize", 10);
+        String csv = """
+                01,79876543210,79123456789,2023-05-10T12:00:00,2023-05-10T12:15:30
+                02,79123456789,79000000001,2023-05-12T10:00:00,2023-05-12T10:10:30
+                02,79123456789,79876543210,2023-05-13T10:00:00,2023-05-13T10:01:00
+                """;
+        when(subscriberService.exists(anyString())).thenReturn(true);
+        when(cdrRepository.batchInsertLines(anyList()))
+                .thenThrow(new NoSuchSubscriberException(List.of("79000000001")))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        // When
+        CdrIngestResultDTO result = cdrService.ingestCdrs(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        assertEquals(2, result.acceptedCdrs());
+        assertEquals(1, result.rejectedCdrs());
+        verify(cdrRepository, times(2)).batchInsertLines(cdrLineListCaptor.capture());
+        assertTrue(cdrLineListCaptor.getValue().stream().noneMatch(cdr -> "79000000001".equals(cdr.calledNumber())));
+    }
+
     /**
      * Тест поиска всех CDR по номеру вызываемого абонента.
      * <p>
@@ -191,7 +286,7 @@ public class CdrServiceTest {
     @Test
     void findAllByCalledNumberAndStartDateTimeLike_ShouldReturnCorrectCdrs() {
         // Given
-        when(cdrRepository.findAllByCalledNumberAndStartDateTime(msisdn, 2023, 5)).thenReturn(cdrs.subList(0, 1));
+        when(cdrRepository.findAllByCalledNumberAndStartDateTime(msisdn, LocalDateTime.of(2023, 5, 1, 0, 0), LocalDateTime.of(2023, 6, 1, 0, 0))).thenReturn(cdrs.subList(0, 1));
 
         // When
         List<Cdr> result = cdrService.findAllByCalledNumberAndStartDateTimeLike(msisdn, 2023, 5);
@@ -203,7 +298,7 @@ public class CdrServiceTest {
         assertEquals(5, result.get(0).getStartDateTime().getMonthValue());
         assertEquals(2023, result.get(0).getStartDateTime().getYear());
         
-        verify(cdrRepository).findAllByCalledNumberAndStartDateTime(msisdn, 2023, 5);
+        verify(cdrRepository).findAllByCalledNumberAndStartDateTime(msisdn, LocalDateTime.of(2023, 5, 1, 0, 0), LocalDateTime.of(2023, 6, 1, 0, 0));
     }
 
     /**
@@ -216,7 +311,7 @@ public class CdrServiceTest {
     @Test
     void findAllByCallerNumberAndStartDateTimeLike_ShouldReturnCorrectCdrs() {
         // Given
-        when(cdrRepository.findAllByCallerNumberAndStartDateTime(msisdn, 2023, 5)).thenReturn(cdrs.subList(1, 2));
+        when(cdrRepository.findAllByCallerNumberAndStartDateTime(msisdn, LocalDateTime.of(2023, 5, 1, 0, 0), LocalDateTime.of(2023, 6, 1, 0, 0))).thenReturn(cdrs.subList(1, 2));
 
         // When
         List<Cdr> result = cdrService.findAllByCallerNumberAndStartDateTimeLike(msisdn, 2023, 5);
@@ -228,7 +323,34 @@ public class CdrServiceTest {
         assertEquals(5, result.get(0).getStartDateTime().getMonthValue());
         assertEquals(2023, result.get(0).getStartDateTime().getYear());
         
-        verify(cdrRepository).findAllByCallerNumberAndStartDateTime(msisdn, 2023, 5);
+        verify(cdrRepository).findAllByCallerNumberAndStartDateTime(msisdn, LocalDateTime.of(2023, 5, 1, 0, 0), LocalDateTime.of(2023, 6, 1, 0, 0));
+    }
+
+    /**
+     * Тест вычисления суммарного времени звонков абонента за месяц.
+     * <p>
+     * Проверяет, что сервис передает в репозиторий полуоткрытый диапазон
+     * [начало месяца, начало следующего месяца) и возвращает суммы из базы данных.
+     * </p>
+     */
+    @Test
+    void sumCallTimeForMonth_ShouldQueryMonthRange() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2023, 5, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2023, 6, 1, 0, 0);
+        when(cdrRepository.sumCallTimeByCalledNumberAndStartDateTime(msisdn, from, to)).thenReturn(1_500_000_000L);
+        when(cdrRepository.sumCallTimeByCallerNumberAndStartDateTime(msisdn, from, to)).thenReturn(0L);
+        when(cdrRepository.sumCallTimeGroupedByCallerNumber(from, to)).thenReturn(List.of(new CallTimeTotalView(msisdn, 42L)));
+
+        // When
+        long incoming = cdrService.sumIncomingCallTimeForMonth(msisdn, 2023, 5);
+        long outgoing = cdrService.sumOutgoingCallTimeForMonth(msisdn, 2023, 5);
+        List<CallTimeTotalView> outgoingByMsisdn = cdrService.sumOutgoingCallTimeForMonthByMsisdn(2023, 5);
+
+        // Then
+        assertEquals(1_500_000_000L, incoming);
+        assertEquals(0L, outgoing);
+        assertEquals(List.of(new CallTimeTotalView(msisdn, 42L)), outgoingByMsisdn);
     }
 
     /**
@@ -249,21 +371,24 @@ public class CdrServiceTest {
         LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
         
         doNothing().when(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        when(cdrRepository.findAllByCalledNumberOrCalledNumberAndStartDateTimeBetweenOrderByStartDateTimeAsc(
-                msisdn, startDateTime, endDateTime)).thenReturn(cdrs);
+        when(cdrRepository.forEachByMsisdnAndStartDateTimeBetween(
+                eq(msisdn), eq(startDateTime), eq(endDateTime), eq(REPORT_FETCH_SIZE), any())).thenAnswer(streamOf(cdrs));
 
         // When
         cdrService.generateCdrReport(msisdn, startDate, endDate, requestUUID);
 
         // Then
         verify(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        verify(cdrRepository).findAllByCalledNumberOrCalledNumberAndStartDateTimeBetweenOrderByStartDateTimeAsc(
-                msisdn, startDateTime, endDateTime);
+        verify(cdrRepository).forEachByMsisdnAndStartDateTimeBetween(
+                eq(msisdn), eq(startDateTime), eq(endDateTime), eq(REPORT_FETCH_SIZE), any());
         
 
         Path reportsDir = tempDir.resolve("reports");
         Path reportFile = reportsDir.resolve(msisdn + "_" + requestUUID.toString() + ".txt");
         assertTrue(Files.exists(reportFile));
+        assertFalse(Files.exists(reportsDir.resolve(reportFile.getFileName() + ".part")));
+        assertEquals(Optional.of(reportFile), cdrService.findCdrReportPath(requestUUID));
+        assertEquals(Optional.empty(), cdrService.findCdrReportPath(UUID.randomUUID()));
 
         List<String> fileLines = Files.readAllLines(reportFile);
         assertEquals(cdrs.size()*2, fileLines.size());
@@ -277,6 +402,74 @@ public class CdrServiceTest {
         assertEquals(expectedLine1, fileLines.get(0));
     }
 
+    /**
+     * Тест удаления файлов отчетов с истекшим сроком хранения.
+     * <p>
+     * Проверяет, что удаляются отчеты и недописанные файлы, не изменявшиеся с указанного
+     * момента, а более новые отчеты и посторонние файлы остаются.
+     * </p>
+     */
+    @Test
+    void deleteCdrReportsModifiedBefore_ShouldDeleteOnlyOldReportFiles() throws IOException {
+        // Given
+        Path reportsDir = Files.createDirectories(tempDir.resolve("reports"));
+        Instant cutoff = Instant.now().minus(Duration.ofHours(24));
+        FileTime old = FileTime.from(cutoff.minusSeconds(60));
+        Path oldReport = Files.writeString(reportsDir.resolve(msisdn + "_" + UUID.randomUUID() + ".txt"), "old");
+        Path oldPart = Files.writeString(reportsDir.resolve(msisdn + "_" + UUID.randomUUID() + ".txt.part"), "old");
+        Path otherFile = Files.writeString(reportsDir.resolve("notes.md"), "old");
+        Path newReport = Files.writeString(reportsDir.resolve(msisdn + "_" + UUID.randomUUID() + ".txt"), "new");
+        for (Path file : List.of(oldReport, oldPart, otherFile)) Files.setLastModifiedTime(file, old);
+
+        // When
+        int deleted = cdrService.deleteCdrReportsModifiedBefore(cutoff);
+
+        // Then
+        assertEquals(2, deleted);
+        assertFalse(Files.exists(oldReport));
+        assertFalse(Files.exists(oldPart));
+        assertTrue(Files.exists(otherFile));
+        assertTrue(Files.exists(newReport));
+    }
+
+    /**
+     * Тест выполнения задания на формирование отчета.
+     * <p>
+     * Проверяет, что успешное задание переходит в состояние DONE с количеством
+     * записанных строк, а задание, при выполнении которого произошла ошибка, - в состояние
+     * FAILED с сообщением об ошибке, без выброса исключения.
+     * </p>
+     */
+    @Test
+    void runCdrReportJob_ShouldRecordJobOutcome() {
+        // Given
+        LocalDate startDate = LocalDate.of(2023, 5, 1);
+        LocalDate endDate = LocalDate.of(2023, 5, 31);
+        UUID doneUUID = UUID.randomUUID();
+        CdrReportJob doneJob = new CdrReportJob(doneUUID, msisdn, startDate, endDate, cdrService.resolveCdrReportPath(msisdn, doneUUID));
+        CdrReportJob failedJob = new CdrReportJob(UUID.randomUUID(), "79000000000", startDate, endDate, null);
+        LocalDateTime startDateTime = startDate.atStartOfDay();
+        LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
+
+        when(cdrRepository.forEachByMsisdnAndStartDateTimeBetween(
+                eq(msisdn), eq(startDateTime), eq(endDateTime), eq(REPORT_FETCH_SIZE), any())).thenAnswer(streamOf(cdrs));
+        when(cdrRepository.forEachByMsisdnAndStartDateTimeBetween(
+                eq("79000000000"), eq(startDateTime), eq(endDateTime), eq(REPORT_FETCH_SIZE), any())).thenThrow(new IllegalStateException("database is unavailable"));
+
+        // When
+        cdrService.runCdrReportJob(doneJob);
+        cdrService.runCdrReportJob(failedJob);
+
+        // Then
+        assertEquals(CdrReportJobStatus.DONE, doneJob.getStatus());
+        assertEquals(cdrs.size(), doneJob.getRowsWritten());
+        assertTrue(Files.exists(doneJob.getReportFilePath()));
+
+        assertEquals(CdrReportJobStatus.FAILED, failedJob.getStatus());
+        assertEquals(0, failedJob.getRowsWritten());
+        assertEquals("database is unavailable", failedJob.getErrorMessage());
+    }
+
     /**
      * Тест генерации отчета CDR для несуществующего абонента.
      * <p>
@@ -300,8 +493,8 @@ public class CdrServiceTest {
         });
         
         verify(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        verify(cdrRepository, never()).findAllByCalledNumberOrCalledNumberAndStartDateTimeBetweenOrderByStartDateTimeAsc(
-                anyString(), any(), any());
+        verify(cdrRepository, never()).forEachByMsisdnAndStartDateTimeBetween(
+                anyString(), any(), any(), anyInt(), any());
     }
 
     /**
@@ -327,7 +520,7 @@ public class CdrServiceTest {
 
         // Then
         verify(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        verify(cdrRepository, never()).findAllByCalledNumberOrCalledNumberAndStartDateTimeBetweenOrderByStartDateTimeAsc(
-                anyString(), any(), any());
+        verify(cdrRepository, never()).forEachByMsisdnAndStartDateTimeBetween(
+                anyString(), any(), any(), anyInt(), any());
     }
 }
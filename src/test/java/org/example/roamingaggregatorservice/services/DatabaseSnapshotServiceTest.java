@@ -0,0 +1,83 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.config.DatabaseSnapshotRestorer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для снимков файловой базы данных DatabaseSnapshotService.
+ * <p>
+ * Данный класс содержит тесты создания снимка работающей базы H2 и восстановления
+ * из него при старте через DatabaseSnapshotRestorer.
+ * </p>
+ */
+public class DatabaseSnapshotServiceTest {
+
+    @TempDir
+    private Path tempDir;
+
+    /**
+     * Тест создания снимка и восстановления базы данных из него.
+     * <p>
+     * Проверяет, что восстановленная база содержит те же строки, что и исходная
+     * на момент снимка, а повторное восстановление не перезаписывает существующую базу.
+     * </p>
+     */
+    @Test
+    void createSnapshot_ShouldBeRestorableIntoEmptyDataDir() {
+        // Given
+        SingleConnectionDataSource source = fileDataSource(tempDir.resolve("source"));
+        JdbcTemplate sourceJdbc = new JdbcTemplate(source);
+        sourceJdbc.execute("CREATE TABLE cdrs (id BIGINT PRIMARY KEY, start_epoch_milli BIGINT NOT NULL)");
+        sourceJdbc.update("INSERT INTO cdrs SELECT X, X * 1000 FROM SYSTEM_RANGE(1, 10000)");
+        DatabaseSnapshotService snapshotService = new DatabaseSnapshotService(sourceJdbc, tempDir.resolve("snapshots"));
+
+        // When
+        Path snapshot = snapshotService.createSnapshot();
+        sourceJdbc.update("DELETE FROM cdrs");
+        source.destroy();
+        Path restoredDir = tempDir.resolve("restored");
+        boolean restored = DatabaseSnapshotRestorer.restoreIfAbsent(snapshot, restoredDir);
+        boolean restoredAgain = DatabaseSnapshotRestorer.restoreIfAbsent(snapshot, restoredDir);
+
+        // Then
+        assertTrue(Files.isRegularFile(snapshot));
+        assertTrue(restored);
+        assertFalse(restoredAgain);
+        SingleConnectionDataSource target = fileDataSource(restoredDir);
+        try {
+            JdbcTemplate targetJdbc = new JdbcTemplate(target);
+            assertEquals(10000L, targetJdbc.queryForObject("SELECT COUNT(*) FROM cdrs", Long.class));
+            assertEquals(10_000_000L, targetJdbc.queryForObject("SELECT MAX(start_epoch_milli) FROM cdrs", Long.class));
+        } finally {
+            target.destroy();
+        }
+    }
+
+    /**
+     * Тест восстановления из несуществующего снимка.
+     * <p>
+     * Проверяет, что старт с неверным путем к снимку завершается ошибкой, а не пустой базой.
+     * </p>
+     */
+    @Test
+    void restoreIfAbsent_WithMissingSnapshot_ShouldThrowIllegalStateException() {
+        // When & Then
+        assertThrows(IllegalStateException.class,
+                () -> DatabaseSnapshotRestorer.restoreIfAbsent(tempDir.resolve("missing.zip"), tempDir.resolve("data")));
+    }
+
+    private static SingleConnectionDataSource fileDataSource(Path dataDir) {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:file:" + dataDir.resolve(DatabaseSnapshotRestorer.DATABASE_NAME).toAbsolutePath(), "sa", "password", true);
+        dataSource.setDriverClassName("org.h2.Driver");
+        return dataSource;
+    }
+}
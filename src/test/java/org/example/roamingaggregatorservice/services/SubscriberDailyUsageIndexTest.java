@@ -0,0 +1,249 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.events.CdrsPersistedEvent;
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+import org.example.roamingaggregatorservice.projections.DailyCallTimeView;
+import org.example.roamingaggregatorservice.repositories.CdrRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для индекса времени звонков по дням SubscriberDailyUsageIndex.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки обновления индекса после фиксации
+ * транзакций, видимости незафиксированных изменений и перезагрузки индекса.
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+public class SubscriberDailyUsageIndexTest {
+
+    private static final String MSISDN = "79123456789";
+    private static final String OTHER_MSISDN = "79876543210";
+    private static final LocalDate FROM = LocalDate.of(2023, 4, 1);
+    private static final LocalDate TO = LocalDate.of(2023, 6, 30);
+
+    @Mock
+    private CdrRepository cdrRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SubscriberDailyUsageIndex dailyUsageIndex;
+
+    @BeforeEach
+    void setUp() {
+        dailyUsageIndex = new SubscriberDailyUsageIndex(cdrRepository, transactionManager);
+    }
+
+    /**
+     * Тест обновления индекса в транзакции.
+     * <p>
+     * Проверяет, что время звонков сохраненных CDR до фиксации видно только в своей
+     * транзакции, попадает в индекс после фиксации, а звонки откаченной транзакции
+     * в индекс не попадают и не вызывают перезагрузку.
+     * </p>
+     */
+    @Test
+    void onCdrsPersisted_ShouldApplyOnlyAfterCommit() {
+        // Given
+        givenCallTimes(List.of(new DailyCallTimeView(MSISDN, LocalDate.of(2023, 5, 10), 100L)), List.of());
+        dailyUsageIndex.reload();
+
+        // When
+        runInTransaction(() -> {
+            dailyUsageIndex.onCdrsPersisted(new CdrsPersistedEvent(List.of(cdr(LocalDateTime.of(2023, 5, 12, 10, 0), 30))));
+            assertCallTime(100L + 30_000_000_000L, 0L, dailyUsageIndex.findCallTime(MSISDN, FROM, TO));
+            assertCallTime(100L, 0L, CompletableFuture.supplyAsync(() -> dailyUsageIndex.findCallTime(MSISDN, FROM, TO)).join());
+        }, true);
+        runInTransaction(() -> dailyUsageIndex.onCdrsPersisted(
+                new CdrsPersistedEvent(List.of(cdr(LocalDateTime.of(2023, 5, 13, 10, 0), 60)))), false);
+
+        // Then
+        assertCallTime(100L + 30_000_000_000L, 0L, dailyUsageIndex.findCallTime(MSISDN, FROM, TO));
+        assertCallTime(0L, 30_000_000_000L, dailyUsageIndex.findCallTime(OTHER_MSISDN, FROM, TO));
+        verify(cdrRepository, times(1)).sumCallTimeGroupedByCalledNumberAndDay();
+    }
+
+    /**
+     * Тест перезагрузки индекса в транзакции пересчета агрегатов.
+     * <p>
+     * Проверяет, что перезагружающая транзакция до фиксации читает время звонков запросом
+     * к базе данных без повторного чтения всей таблицы CDR, другие транзакции видят прежний
+     * индекс, а после фиксации общий индекс перезагружается одним чтением таблицы.
+     * </p>
+     */
+    @Test
+    void reload_InTransaction_ShouldReloadSharedIndexOnlyAfterCommit() {
+        // Given
+        List<DailyCallTimeView> withoutMay = List.of(new DailyCallTimeView(MSISDN, LocalDate.of(2023, 4, 20), 100L));
+        when(cdrRepository.sumCallTimeGroupedByCalledNumberAndDay())
+                .thenReturn(List.of(
+                        new DailyCallTimeView(MSISDN, LocalDate.of(2023, 4, 20), 100L),
+                        new DailyCallTimeView(MSISDN, LocalDate.of(2023, 5, 10), 1_000L)))
+                .thenReturn(withoutMay);
+        when(cdrRepository.sumCallTimeGroupedByCallerNumberAndDay()).thenReturn(List.of());
+        when(cdrRepository.sumCallTimeByCalledNumberAndStartDateTime(MSISDN, FROM.atStartOfDay(), TO.plusDays(1).atStartOfDay()))
+                .thenReturn(100L + 2_000_000_000L);
+        dailyUsageIndex.reload();
+
+        // When
+        runInTransaction(() -> {
+            dailyUsageIndex.onCdrsPersisted(new CdrsPersistedEvent(List.of(cdr(LocalDateTime.of(2023, 5, 11, 10, 0), 1))));
+            dailyUsageIndex.reload();
+            dailyUsageIndex.onCdrsPersisted(new CdrsPersistedEvent(List.of(cdr(LocalDateTime.of(2023, 5, 12, 10, 0), 2))));
+            assertCallTime(100L + 2_000_000_000L, 0L, dailyUsageIndex.findCallTime(MSISDN, FROM, TO));
+            assertCallTime(1_100L, 0L, CompletableFuture.supplyAsync(() -> dailyUsageIndex.findCallTime(MSISDN, FROM, TO)).join());
+        }, true);
+
+        // Then
+        assertCallTime(100L, 0L, dailyUsageIndex.findCallTime(MSISDN, FROM, TO));
+        verify(cdrRepository, times(2)).sumCallTimeGroupedByCalledNumberAndDay();
+    }
+
+    /**
+     * Тест чтения незагруженного индекса во время фиксации транзакции.
+     * <p>
+     * Проверяет, что поток, держащий разделяемую блокировку фиксации своей транзакции,
+     * не ждет загрузки индекса, а читает время звонков запросом к базе данных, и индекс
+     * загружается при следующем обращении после завершения транзакции.
+     * </p>
+     */
+    @Test
+    void findCallTime_DuringCommitBeforeLoad_ShouldReadDatabaseInsteadOfReloading() {
+        // Given
+        givenCallTimes(List.of(new DailyCallTimeView(MSISDN, LocalDate.of(2023, 5, 10), 100L)), List.of());
+        when(cdrRepository.sumCallTimeByCalledNumberAndStartDateTime(MSISDN, FROM.atStartOfDay(), TO.plusDays(1).atStartOfDay()))
+                .thenReturn(100L);
+        AtomicReference<CallTimeUsageView> duringCommit = new AtomicReference<>();
+
+        // When
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> runInTransaction(() -> {
+            dailyUsageIndex.onCdrsPersisted(new CdrsPersistedEvent(List.of(cdr(LocalDateTime.of(2023, 5, 12, 10, 0), 30))));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    duringCommit.set(dailyUsageIndex.findCallTime(MSISDN, FROM, TO));
+                }
+            });
+        }, true));
+
+        // Then
+        assertCallTime(100L, 0L, duringCommit.get());
+        assertCallTime(100L, 0L, dailyUsageIndex.findCallTime(MSISDN, FROM, TO));
+        verify(cdrRepository, times(1)).sumCallTimeGroupedByCalledNumberAndDay();
+    }
+
+    /**
+     * Тест чтения времени звонков нечислового номера.
+     * <p>
+     * Проверяет, что нечисловые номера не попадают в индекс, а их время звонков
+     * читается запросом к базе данных.
+     * </p>
+     */
+    @Test
+    void findCallTime_NonNumericMsisdn_ShouldReadDatabase() {
+        // Given
+        givenCallTimes(List.of(new DailyCallTimeView("SERVICE", LocalDate.of(2023, 5, 10), 100L)), List.of());
+        when(cdrRepository.sumCallTimeByCalledNumberAndStartDateTime("SERVICE", FROM.atStartOfDay(), TO.plusDays(1).atStartOfDay()))
+                .thenReturn(100L);
+        when(cdrRepository.sumCallTimeByCallerNumberAndStartDateTime("SERVICE", FROM.atStartOfDay(), TO.plusDays(1).atStartOfDay()))
+                .thenReturn(5L);
+        dailyUsageIndex.reload();
+
+        // When
+        CallTimeUsageView usage = dailyUsageIndex.findCallTime("SERVICE", FROM, TO);
+
+        // Then
+        assertCallTime(100L, 5L, usage);
+    }
+
+    /**
+     * Тест перезагрузки индекса при параллельной фиксации транзакции.
+     * <p>
+     * Проверяет, что транзакция, фиксирующаяся во время чтения таблицы CDR, ждет
+     * окончания перезагрузки и ее приращение учитывается в индексе ровно один раз.
+     * </p>
+     */
+    @Test
+    void reload_ShouldApplyDeltaCommittedDuringReloadOnce() {
+        // Given
+        AtomicReference<CompletableFuture<Void>> commit = new AtomicReference<>();
+        when(cdrRepository.sumCallTimeGroupedByCalledNumberAndDay())
+                .thenReturn(List.of(new DailyCallTimeView(MSISDN, LocalDate.of(2023, 5, 10), 100L)))
+                .thenAnswer(invocation -> {
+                    commit.set(CompletableFuture.runAsync(() -> runInTransaction(() -> dailyUsageIndex.onCdrsPersisted(
+                            new CdrsPersistedEvent(List.of(cdr(LocalDateTime.of(2023, 5, 12, 10, 0), 30)))), true)));
+                    return List.of(new DailyCallTimeView(MSISDN, LocalDate.of(2023, 5, 10), 100L));
+                });
+        when(cdrRepository.sumCallTimeGroupedByCallerNumberAndDay()).thenReturn(List.of());
+        dailyUsageIndex.reload();
+
+        // When
+        dailyUsageIndex.reload();
+        commit.get().join();
+
+        // Then
+        assertCallTime(100L + 30_000_000_000L, 0L, dailyUsageIndex.findCallTime(MSISDN, FROM, TO));
+    }
+
+    private void givenCallTimes(List<DailyCallTimeView> incoming, List<DailyCallTimeView> outgoing) {
+        when(cdrRepository.sumCallTimeGroupedByCalledNumberAndDay()).thenReturn(incoming);
+        when(cdrRepository.sumCallTimeGroupedByCallerNumberAndDay()).thenReturn(outgoing);
+    }
+
+    private Cdr cdr(LocalDateTime start, int seconds) {
+        Cdr cdr = new Cdr();
+        cdr.setCallType("02");
+        cdr.setCaller(subscriber(OTHER_MSISDN));
+        cdr.setCalled(subscriber(MSISDN));
+        cdr.setStartDateTime(start);
+        cdr.setFinishDateTime(start.plusSeconds(seconds));
+        return cdr;
+    }
+
+    private Subscriber subscriber(String msisdn) {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setMsisdn(msisdn);
+        return subscriber;
+    }
+
+    private void assertCallTime(long incoming, long outgoing, CallTimeUsageView usage) {
+        assertEquals(incoming, usage.incomingCallTimeNanos());
+        assertEquals(outgoing, usage.outgoingCallTimeNanos());
+    }
+
+    private void runInTransaction(Runnable action, boolean commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (commit) {
+                TransactionSynchronizationUtils.triggerBeforeCommit(false);
+                TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            }
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                    commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
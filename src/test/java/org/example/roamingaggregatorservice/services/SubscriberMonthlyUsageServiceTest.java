@@ -0,0 +1,136 @@
+package org.example.roamingaggregatorservice.services;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.example.roamingaggregatorservice.entities.SubscriberMonthlyUsage;
+import org.example.roamingaggregatorservice.events.CdrsPersistedEvent;
+import org.example.roamingaggregatorservice.repositories.CdrRepository;
+import org.example.roamingaggregatorservice.repositories.SubscriberMonthlyUsageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для сервиса SubscriberMonthlyUsageService.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки расчета приращений
+ * помесячной витрины использования по сохраненным CDR.
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+public class SubscriberMonthlyUsageServiceTest {
+
+    @Mock
+    private SubscriberMonthlyUsageRepository usageRepository;
+
+    @Mock
+    private CdrRepository cdrRepository;
+
+    @InjectMocks
+    private SubscriberMonthlyUsageService usageService;
+
+    @Captor
+    private ArgumentCaptor<List<SubscriberMonthlyUsage>> deltasCaptor;
+
+    /**
+     * Создает абонента с идентификатором.
+     *
+     * @param id Идентификатор абонента
+     * @param msisdn Номер абонента
+     * @return Абонент
+     */
+    private static Subscriber createSubscriber(long id, String msisdn) {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setId(id);
+        subscriber.setMsisdn(msisdn);
+        return subscriber;
+    }
+
+    /**
+     * Создает сохраненную запись CDR со ссылками на абонентов.
+     *
+     * @param caller Вызывающий абонент
+     * @param called Вызываемый абонент
+     * @param startDateTime Время начала звонка
+     * @param duration Продолжительность звонка
+     * @return Запись CDR
+     */
+    private Cdr createCdr(Subscriber caller, Subscriber called, LocalDateTime startDateTime, Duration duration) {
+        Cdr cdr = new Cdr();
+        cdr.setCallType("01");
+        cdr.setCaller(caller);
+        cdr.setCalled(called);
+        cdr.setStartDateTime(startDateTime);
+        cdr.setFinishDateTime(startDateTime.plus(duration));
+        return cdr;
+    }
+
+    /**
+     * Тест расчета приращений витрины по новым CDR.
+     * <p>
+     * Проверяет, что звонки группируются по абоненту и месяцу начала звонка,
+     * время учитывается с точностью до наносекунд, а приращения передаются
+     * в репозиторий одним пакетом, упорядоченным по абоненту и месяцу.
+     * </p>
+     */
+    @Test
+    void onCdrsPersisted_ShouldMergeDeltasGroupedBySubscriberAndMonth() {
+        // Given
+        Subscriber first = createSubscriber(1, "79100000001");
+        Subscriber second = createSubscriber(2, "79200000002");
+        List<Cdr> cdrs = List.of(
+                createCdr(second, first, LocalDateTime.of(2023, 5, 31, 23, 59, 30), Duration.ofMinutes(1)),
+                createCdr(second, first, LocalDateTime.of(2023, 5, 10, 12, 0), Duration.ofMillis(1500)),
+                createCdr(first, second, LocalDateTime.of(2023, 6, 1, 0, 0), Duration.ofSeconds(10)));
+
+        // When
+        usageService.onCdrsPersisted(new CdrsPersistedEvent(cdrs));
+
+        // Then
+        verify(usageRepository).batchMerge(deltasCaptor.capture());
+        List<SubscriberMonthlyUsage> deltas = deltasCaptor.getValue();
+        assertEquals(4, deltas.size());
+
+        SubscriberMonthlyUsage firstMay = deltas.get(0);
+        assertEquals(1L, firstMay.getSubscriberId());
+        assertEquals(5, firstMay.getUsageMonth());
+        assertEquals(Duration.ofSeconds(61, 500_000_000).toNanos(), firstMay.getIncomingCallTimeNanos());
+        assertEquals(2, firstMay.getIncomingCalls());
+        assertEquals(0, firstMay.getOutgoingCalls());
+
+        SubscriberMonthlyUsage firstJune = deltas.get(1);
+        assertEquals(1L, firstJune.getSubscriberId());
+        assertEquals(6, firstJune.getUsageMonth());
+        assertEquals(Duration.ofSeconds(10).toNanos(), firstJune.getOutgoingCallTimeNanos());
+
+        assertEquals(2L, deltas.get(2).getSubscriberId());
+        assertEquals(5, deltas.get(2).getUsageMonth());
+        assertEquals(2, deltas.get(2).getOutgoingCalls());
+    }
+
+    /**
+     * Тест обработки события без записей.
+     * <p>
+     * Проверяет, что пустое событие не приводит к обращению к базе данных.
+     * </p>
+     */
+    @Test
+    void onCdrsPersisted_WithNoCdrs_ShouldNotTouchRepository() {
+        // When
+        usageService.onCdrsPersisted(new CdrsPersistedEvent(List.of()));
+
+        // Then
+        verifyNoInteractions(usageRepository);
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.roamingaggregatorservice.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.roamingaggregatorservice.events.SubscriberPersistedEvent;
+import org.example.roamingaggregatorservice.events.SubscriberRemovedEvent;
+import org.example.roamingaggregatorservice.repositories.SubscriberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для индекса номеров абонентов SubscriberMsisdnIndex.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки загрузки индекса, его обновления
+ * по событиям сохранения и удаления абонентов и счетчиков обращений.
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+public class SubscriberMsisdnIndexTest {
+
+    @Mock
+    private SubscriberRepository subscriberRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private SubscriberMsisdnIndex subscriberMsisdnIndex;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        subscriberMsisdnIndex = new SubscriberMsisdnIndex(subscriberRepository, meterRegistry);
+    }
+
+    /**
+     * Тест проверки существования абонентов по индексу.
+     * <p>
+     * Проверяет, что индекс загружается один раз при первом обращении, затем
+     * отвечает без обращения к базе данных, учитывает сохраненных и удаленных
+     * абонентов и считает попадания, промахи и обновления.
+     * </p>
+     */
+    @Test
+    void contains_ShouldAnswerFromIndexAndFollowSubscriberEvents() {
+        // Given
+        when(subscriberRepository.findAllMsisdns()).thenReturn(List.of("79123456789", "79876543210"));
+
+        // When
+        boolean existing = subscriberMsisdnIndex.contains("79123456789");
+        boolean missing = subscriberMsisdnIndex.contains("79999999999");
+        subscriberMsisdnIndex.onSubscriberPersisted(new SubscriberPersistedEvent("79999999999"));
+        subscriberMsisdnIndex.onSubscriberRemoved(new SubscriberRemovedEvent("79123456789"));
+
+        // Then
+        assertTrue(existing);
+        assertFalse(missing);
+        assertTrue(subscriberMsisdnIndex.contains("79999999999"));
+        assertFalse(subscriberMsisdnIndex.contains("79123456789"));
+        assertTrue(subscriberMsisdnIndex.contains("79876543210"));
+
+        verify(subscriberRepository, times(1)).findAllMsisdns();
+        verify(subscriberRepository, never()).existsByMsisdn(any());
+        assertEquals(3, meterRegistry.counter("subscriber.index.lookups", "result", "hit").count());
+        assertEquals(2, meterRegistry.counter("subscriber.index.lookups", "result", "miss").count());
+        assertEquals(1, meterRegistry.counter("subscriber.index.refreshes", "type", "full").count());
+        assertEquals(1, meterRegistry.counter("subscriber.index.refreshes", "type", "insert").count());
+        assertEquals(1, meterRegistry.counter("subscriber.index.refreshes", "type", "delete").count());
+    }
+
+    /**
+     * Тест проверки существования абонента с нечисловым номером.
+     * <p>
+     * Проверяет, что номера, которые нельзя представить числом, проверяются запросом к базе данных.
+     * </p>
+     */
+    @Test
+    void contains_WithNonNumericMsisdn_ShouldQueryDatabase() {
+        // Given
+        when(subscriberRepository.existsByMsisdn("+79123456789")).thenReturn(true);
+
+        // When + Then
+        assertTrue(subscriberMsisdnIndex.contains("+79123456789"));
+        assertFalse(subscriberMsisdnIndex.contains(null));
+        verify(subscriberRepository, never()).findAllMsisdns();
+        assertEquals(2, meterRegistry.counter("subscriber.index.lookups", "result", "database").count());
+    }
+
+    /**
+     * Тест обновления индекса в транзакции.
+     * <p>
+     * Проверяет, что сохраненный абонент до фиксации виден только в своей транзакции,
+     * попадает в индекс после фиксации, а изменения откаченной транзакции в индекс не попадают.
+     * </p>
+     */
+    @Test
+    void onSubscriberPersisted_ShouldApplyOnlyAfterCommit() {
+        // Given
+        when(subscriberRepository.findAllMsisdns()).thenReturn(List.of("79123456789"));
+        subscriberMsisdnIndex.reload();
+
+        // When
+        runInTransaction(() -> {
+            subscriberMsisdnIndex.onSubscriberPersisted(new SubscriberPersistedEvent("79999999999"));
+            assertTrue(subscriberMsisdnIndex.contains("79999999999"));
+            assertFalse(CompletableFuture.supplyAsync(() -> subscriberMsisdnIndex.contains("79999999999")).join());
+        }, true);
+        runInTransaction(() -> subscriberMsisdnIndex.onSubscriberRemoved(new SubscriberRemovedEvent("79123456789")), false);
+
+        // Then
+        assertTrue(subscriberMsisdnIndex.contains("79999999999"));
+        assertTrue(subscriberMsisdnIndex.contains("79123456789"));
+        verify(subscriberRepository, times(1)).findAllMsisdns();
+    }
+
+    /**
+     * Тест перезагрузки индекса при параллельных изменениях.
+     * <p>
+     * Проверяет, что изменения, зафиксированные во время чтения таблицы абонентов,
+     * не теряются при подмене индекса.
+     * </p>
+     */
+    @Test
+    void reload_ShouldKeepChangesCommittedDuringReload() {
+        // Given
+        when(subscriberRepository.findAllMsisdns())
+                .thenReturn(List.of("79123456789"))
+                .thenAnswer(invocation -> {
+                    subscriberMsisdnIndex.onSubscriberPersisted(new SubscriberPersistedEvent("79999999999"));
+                    subscriberMsisdnIndex.onSubscriberRemoved(new SubscriberRemovedEvent("79123456789"));
+                    return List.of("79123456789");
+                });
+        subscriberMsisdnIndex.reload();
+
+        // When
+        subscriberMsisdnIndex.reload();
+
+        // Then
+        assertTrue(subscriberMsisdnIndex.contains("79999999999"));
+        assertFalse(subscriberMsisdnIndex.contains("79123456789"));
+    }
+
+    private void runInTransaction(Runnable action, boolean commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (commit) TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                    commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -12,7 +12,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +28,9 @@ public class SubscriberServiceTest {
     @Mock
     private SubscriberRepository subscriberRepository;
 
+    @Mock
+    private SubscriberMsisdnIndex subscriberMsisdnIndex;
+
     @InjectMocks
     private SubscriberService subscriberService;
 
@@ -81,20 +83,22 @@ public class SubscriberServiceTest {
      * Тест проверки существования абонента.
      * <p>
      * Проверяет, что метод выбрасывает исключение NoSuchSubscriberException
-     * при поиске несуществующего абонента.
+     * при поиске несуществующего абонента, а проверка выполняется по индексу
+     * номеров без обращения к репозиторию.
      * </p>
      */
     @Test
     void checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException_WithNonExistentSubscriber_ShouldThrow() {
         // Given
-        when(subscriberRepository.findSubscriberByMsisdn(nonExistentMsisdn))
-                .thenReturn(Optional.empty());
+        when(subscriberMsisdnIndex.contains(nonExistentMsisdn)).thenReturn(false);
+        when(subscriberMsisdnIndex.contains(existingMsisdn)).thenReturn(true);
 
         // When + Then
         assertThrows(NoSuchSubscriberException.class, () -> {
             subscriberService.checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(nonExistentMsisdn);
         });
-        
-        verify(subscriberRepository).findSubscriberByMsisdn(nonExistentMsisdn);
+        assertDoesNotThrow(() -> subscriberService.checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(existingMsisdn));
+
+        verifyNoInteractions(subscriberRepository);
     }
 }
@@ -1,20 +1,30 @@
 package org.example.roamingaggregatorservice.services;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.example.roamingaggregatorservice.dto.UdrDTO;
-import org.example.roamingaggregatorservice.entities.Cdr;
-import org.example.roamingaggregatorservice.entities.Subscriber;
 import org.example.roamingaggregatorservice.exceptions.NoSuchSubscriberException;
+import org.example.roamingaggregatorservice.exceptions.StartDateIsAfterEndDateException;
+import org.example.roamingaggregatorservice.projections.CallTimeUsageView;
+import org.example.roamingaggregatorservice.repositories.CdrWriteLock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.Collections;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,53 +39,39 @@ import static org.mockito.Mockito.*;
 public class UdrServiceTest {
 
     @Mock
-    private CdrService cdrService;
+    private SubscriberMonthlyUsageService usageService;
 
     @Mock
     private SubscriberService subscriberService;
 
-    @InjectMocks
-    private UdrService udrService;
-
-    private final String msisdn = "79123456789";
-    private final String yearAndMonth = "2023-05";
-    private List<Cdr> incomingCalls;
-    private List<Cdr> outgoingCalls;
-    private List<Subscriber> subscribers;
-
-    @BeforeEach
-    void setUp() {
-        Cdr incomingCall1 = new Cdr();
-        incomingCall1.setCalledNumber(msisdn);
-        incomingCall1.setCallerNumber("79876543210");
-        incomingCall1.setStartDateTime(LocalDateTime.of(2023, 5, 10, 12, 0, 0));
-        incomingCall1.setFinishDateTime(LocalDateTime.of(2023, 5, 10, 12, 15, 30));
+    @Mock
+    private SubscriberDailyUsageIndex dailyUsageIndex;
 
-        Cdr incomingCall2 = new Cdr();
-        incomingCall2.setCalledNumber(msisdn);
-        incomingCall2.setCallerNumber("79876543211");
-        incomingCall2.setStartDateTime(LocalDateTime.of(2023, 5, 15, 14, 30, 0));
-        incomingCall2.setFinishDateTime(LocalDateTime.of(2023, 5, 15, 14, 45, 0));
+    @Mock
+    private SubscriberUsageHistogramService histogramService;
 
-        incomingCalls = Arrays.asList(incomingCall1, incomingCall2);
+    @Mock
+    private CdrWriteLock cdrWriteLock;
 
-        Cdr outgoingCall1 = new Cdr();
-        outgoingCall1.setCallerNumber(msisdn);
-        outgoingCall1.setCalledNumber("79876543210");
-        outgoingCall1.setStartDateTime(LocalDateTime.of(2023, 5, 12, 10, 0, 0));
-        outgoingCall1.setFinishDateTime(LocalDateTime.of(2023, 5, 12, 10, 10, 30));
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
-        outgoingCalls = Collections.singletonList(outgoingCall1);
+    private SimpleMeterRegistry meterRegistry;
 
-        Subscriber subscriber1 = new Subscriber();
-        subscriber1.setId(1L);
-        subscriber1.setMsisdn(msisdn);
+    private UdrService udrService;
 
-        Subscriber subscriber2 = new Subscriber();
-        subscriber2.setId(2L);
-        subscriber2.setMsisdn("79876543210");
+    private final String msisdn = "79123456789";
+    private final String yearAndMonth = "2023-05";
+    private final long incomingCallTime = Duration.ofMinutes(30).plusSeconds(30).toNanos(); // 15:30 + 15:00
+    private final long outgoingCallTime = Duration.ofMinutes(10).plusSeconds(30).toNanos();
+    private final List<CallTimeUsageView> subscriberUsages = List.of(
+            new CallTimeUsageView(msisdn, incomingCallTime, outgoingCallTime),
+            new CallTimeUsageView("79876543210", outgoingCallTime, Duration.ofMinutes(15).plusSeconds(30).toNanos()));
 
-        subscribers = Arrays.asList(subscriber1, subscriber2);
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        udrService = new UdrService(usageService, subscriberService, dailyUsageIndex, histogramService, cdrWriteLock, transactionManager, meterRegistry);
     }
 
     /**
@@ -89,8 +85,8 @@ public class UdrServiceTest {
     void generateUdrForSubscriberForMonth_ShouldReturnCorrectData() {
         // Given
         doNothing().when(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        when(cdrService.findAllByCalledNumberAndStartDateTimeLike(msisdn, 2023, 5)).thenReturn(incomingCalls);
-        when(cdrService.findAllByCallerNumberAndStartDateTimeLike(msisdn, 2023, 5)).thenReturn(outgoingCalls);
+        when(usageService.findCallTimeForMonth(msisdn, 2023, 5))
+                .thenReturn(Optional.of(new CallTimeUsageView(msisdn, incomingCallTime, outgoingCallTime)));
 
         // When
         UdrDTO result = udrService.generateUdrForSubscriberForMonth(msisdn, yearAndMonth);
@@ -102,8 +98,7 @@ public class UdrServiceTest {
         assertEquals("00:10:30", result.outcomingCall().totalTime()); // 10:30
 
         verify(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        verify(cdrService).findAllByCalledNumberAndStartDateTimeLike(msisdn, 2023, 5);
-        verify(cdrService).findAllByCallerNumberAndStartDateTimeLike(msisdn, 2023, 5);
+        verify(usageService).findCallTimeForMonth(msisdn, 2023, 5);
     }
 
     /**
@@ -125,8 +120,48 @@ public class UdrServiceTest {
         });
 
         verify(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        verify(cdrService, never()).findAllByCalledNumberAndStartDateTimeLike(anyString(), anyInt(), anyInt());
-        verify(cdrService, never()).findAllByCallerNumberAndStartDateTimeLike(anyString(), anyInt(), anyInt());
+        verify(usageService, never()).findCallTimeForMonth(anyString(), anyInt(), anyInt());
+    }
+
+    /**
+     * Тест генерации UDR для абонента за период.
+     * <p>
+     * Проверяет, что время звонков за период берется из индекса накопленного
+     * по дням времени звонков.
+     * </p>
+     */
+    @Test
+    void generateUdrForSubscriberForPeriod_ShouldReturnCallTimeFromDailyIndex() {
+        // Given
+        LocalDate startDate = LocalDate.of(2023, 5, 15);
+        LocalDate endDate = LocalDate.of(2023, 6, 5);
+        doNothing().when(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
+        when(dailyUsageIndex.findCallTime(msisdn, startDate, endDate))
+                .thenReturn(new CallTimeUsageView(msisdn, incomingCallTime, outgoingCallTime));
+
+        // When
+        UdrDTO result = udrService.generateUdrForSubscriberForPeriod(msisdn, startDate, endDate);
+
+        // Then
+        assertEquals(msisdn, result.msisdn());
+        assertEquals("00:30:30", result.incomingCall().totalTime());
+        assertEquals("00:10:30", result.outcomingCall().totalTime());
+    }
+
+    /**
+     * Тест генерации UDR за период с датой начала позже даты окончания.
+     * <p>
+     * Проверяет, что метод выбрасывает исключение StartDateIsAfterEndDateException,
+     * не обращаясь ни к абонентам, ни к индексу.
+     * </p>
+     */
+    @Test
+    void generateUdrForSubscriberForPeriod_WithStartDateAfterEndDate_ShouldThrowException() {
+        // When + Then
+        assertThrows(StartDateIsAfterEndDateException.class, () ->
+                udrService.generateUdrForSubscriberForPeriod(msisdn, LocalDate.of(2023, 6, 1), LocalDate.of(2023, 5, 31)));
+
+        verifyNoInteractions(subscriberService, dailyUsageIndex);
     }
 
     /**
@@ -140,8 +175,8 @@ public class UdrServiceTest {
     void generateUdrForSubscriberForAllTime_ShouldReturnCorrectData() {
         // Given
         doNothing().when(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        when(cdrService.findAllByCalledNumber(msisdn)).thenReturn(incomingCalls);
-        when(cdrService.findAllByCallerNumber(msisdn)).thenReturn(outgoingCalls);
+        when(usageService.findCallTimeForAllTime(msisdn))
+                .thenReturn(Optional.of(new CallTimeUsageView(msisdn, incomingCallTime, outgoingCallTime)));
 
         // When
         UdrDTO result = udrService.generateUdrForSubscriberForAllTime(msisdn);
@@ -153,31 +188,26 @@ public class UdrServiceTest {
         assertEquals("00:10:30", result.outcomingCall().totalTime());
 
         verify(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        verify(cdrService).findAllByCalledNumber(msisdn);
-        verify(cdrService).findAllByCallerNumber(msisdn);
+        verify(usageService).findCallTimeForAllTime(msisdn);
     }
 
     /**
      * Тест генерации UDR для всех абонентов за указанный месяц.
      * <p>
      * Проверяет, что метод правильно формирует список UDR для всех абонентов
-     * в системе за указанный месяц.
+     * в системе за указанный месяц по строкам помесячной витрины, прочитанным
+     * одним запросом вместе с номерами абонентов, без загрузки сущностей абонентов
+     * и без отдельных запросов для каждого абонента.
      * </p>
      */
     @Test
     void generateUdrForAllSubscribersForMonth_ShouldReturnAllSubscribers() {
         // Given
-        when(subscriberService.findAll()).thenReturn(subscribers);
-
-        doNothing().when(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(anyString());
-        
-        for (Subscriber subscriber : subscribers) {
-            String subscriberMsisdn = subscriber.getMsisdn();
-            when(cdrService.findAllByCalledNumberAndStartDateTimeLike(eq(subscriberMsisdn), eq(2023), eq(5)))
-                    .thenReturn(subscriberMsisdn.equals(msisdn) ? incomingCalls : Collections.emptyList());
-            when(cdrService.findAllByCallerNumberAndStartDateTimeLike(eq(subscriberMsisdn), eq(2023), eq(5)))
-                    .thenReturn(subscriberMsisdn.equals(msisdn) ? outgoingCalls : Collections.emptyList());
-        }
+        when(usageService.forEachSubscriberCallTimeForMonth(eq(2023), eq(5), anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<CallTimeUsageView> action = invocation.getArgument(3);
+            subscriberUsages.forEach(action);
+            return (long) subscriberUsages.size();
+        });
 
         // When
         List<UdrDTO> results = udrService.generateUdrForAllSubscribersForMonth(yearAndMonth);
@@ -185,24 +215,73 @@ public class UdrServiceTest {
         // Then
         assertNotNull(results);
         assertEquals(2, results.size());
-        
+        assertEquals(msisdn, results.get(0).msisdn());
+        assertEquals("79876543210", results.get(1).msisdn());
 
-        UdrDTO firstUdr = results.stream()
-                .filter(udr -> udr.msisdn().equals(msisdn))
-                .findFirst()
-                .orElseThrow();
+        UdrDTO firstUdr = results.get(0);
         assertEquals("00:30:30", firstUdr.incomingCall().totalTime());
         assertEquals("00:10:30", firstUdr.outcomingCall().totalTime());
 
-        UdrDTO secondUdr = results.stream()
-                .filter(udr -> udr.msisdn().equals("79876543210"))
-                .findFirst()
-                .orElseThrow();
-        assertEquals("00:00:00", secondUdr.incomingCall().totalTime());
-        assertEquals("00:00:00", secondUdr.outcomingCall().totalTime());
+        UdrDTO secondUdr = results.get(1);
+        assertEquals("00:10:30", secondUdr.incomingCall().totalTime()); // вызван первым абонентом
+        assertEquals("00:15:30", secondUdr.outcomingCall().totalTime()); // звонил первому абоненту
+
+        verify(usageService).forEachSubscriberCallTimeForMonth(eq(2023), eq(5), anyInt(), any());
+        verify(subscriberService, never()).findAll();
+        verify(subscriberService, never()).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(anyString());
+        verify(usageService, never()).findCallTimeForMonth(anyString(), anyInt(), anyInt());
+    }
+
+    /**
+     * Тест объединения одновременных запросов UDR всех абонентов за месяц.
+     * <p>
+     * Проверяет, что пока первый запрос читает витрину, одновременные запросы за тот же
+     * месяц не выполняют собственных запросов к базе, получают тот же результат
+     * и учитываются в метриках объединения.
+     * </p>
+     */
+    @Test
+    void generateUdrForAllSubscribersForMonth_ConcurrentCalls_ShouldShareOneComputation() throws Exception {
+        // Given
+        int callers = 8;
+        CountDownLatch computationStarted = new CountDownLatch(1);
+        CountDownLatch releaseComputation = new CountDownLatch(1);
+        when(usageService.forEachSubscriberCallTimeForMonth(eq(2023), eq(5), anyInt(), any())).thenAnswer(invocation -> {
+            computationStarted.countDown();
+            assertTrue(releaseComputation.await(10, TimeUnit.SECONDS));
+            Consumer<CallTimeUsageView> action = invocation.getArgument(3);
+            action.accept(new CallTimeUsageView(msisdn, incomingCallTime, outgoingCallTime));
+            return 1L;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            // When
+            List<Future<List<UdrDTO>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> udrService.generateUdrForAllSubscribersForMonth(yearAndMonth)));
+            assertTrue(computationStarted.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> udrService.generateUdrForAllSubscribersForMonth(yearAndMonth)));
+            }
+            while (meterRegistry.get("singleflight.calls").tag("result", "shared").functionCounter().count() < callers - 1) {
+                Thread.sleep(10);
+            }
+            releaseComputation.countDown();
+
+            // Then
+            List<UdrDTO> first = results.get(0).get(10, TimeUnit.SECONDS);
+            assertEquals("00:30:30", first.get(0).incomingCall().totalTime());
+            for (Future<List<UdrDTO>> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
 
-        verify(subscriberService).findAll();
-        verify(subscriberService, times(subscribers.size())).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(anyString());
+        verify(usageService, times(1)).forEachSubscriberCallTimeForMonth(eq(2023), eq(5), anyInt(), any());
+        verify(transactionManager, times(1)).getTransaction(any());
+        assertEquals(1.0, meterRegistry.get("singleflight.calls").tags("name", "udr.all", "result", "executed").functionCounter().count());
+        assertEquals(0.0, meterRegistry.get("singleflight.in.flight").gauge().value());
     }
 
     /**
@@ -216,8 +295,7 @@ public class UdrServiceTest {
     void generateUdrForSubscriberForMonth_WithNoCalls_ShouldReturnZeroDuration() {
         // Given
         doNothing().when(subscriberService).checkIfSubscriberExistsOrElseThrowNoSuchSubscriberException(msisdn);
-        when(cdrService.findAllByCalledNumberAndStartDateTimeLike(msisdn, 2023, 5)).thenReturn(Collections.emptyList());
-        when(cdrService.findAllByCallerNumberAndStartDateTimeLike(msisdn, 2023, 5)).thenReturn(Collections.emptyList());
+        when(usageService.findCallTimeForMonth(msisdn, 2023, 5)).thenReturn(Optional.empty());
 
         // When
         UdrDTO result = udrService.generateUdrForSubscriberForMonth(msisdn, yearAndMonth);
@@ -228,4 +306,51 @@ public class UdrServiceTest {
         assertEquals("00:00:00", result.incomingCall().totalTime());
         assertEquals("00:00:00", result.outcomingCall().totalTime());
     }
+
+    /**
+     * Тест перестройки витрин.
+     * <p>
+     * Проверяет, что витрина, гистограммы и индекс по дням перестраиваются в одной транзакции
+     * под исключительной блокировкой записи CDR, захваченной до перестройки.
+     * </p>
+     */
+    @Test
+    void rebuildMonthlyUsage_ShouldRebuildInOneTransactionUnderExclusiveLock() {
+        // Given
+        when(usageService.rebuild()).thenReturn(24L);
+
+        // When
+        long rows = udrService.rebuildMonthlyUsage();
+
+        // Then
+        assertEquals(24L, rows);
+        InOrder inOrder = inOrder(transactionManager, cdrWriteLock, usageService, histogramService, dailyUsageIndex);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(cdrWriteLock).lockExclusive();
+        inOrder.verify(usageService).rebuild();
+        inOrder.verify(histogramService).rebuild(anyInt());
+        inOrder.verify(dailyUsageIndex).reload();
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    /**
+     * Тест ошибки перестройки витрин.
+     * <p>
+     * Проверяет, что при ошибке перестройки гистограмм транзакция откатывается целиком
+     * вместе с перестройкой витрины, а индекс по дням не перезагружается.
+     * </p>
+     */
+    @Test
+    void rebuildMonthlyUsage_WhenHistogramRebuildFails_ShouldRollBack() {
+        // Given
+        when(histogramService.rebuild(anyInt())).thenThrow(new IllegalStateException("histogram"));
+
+        // When
+        assertThrows(IllegalStateException.class, () -> udrService.rebuildMonthlyUsage());
+
+        // Then
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(dailyUsageIndex, never()).reload();
+    }
 }
@@ -0,0 +1,86 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Тесты для кодировщика строк cdr-отчета CdrReportLineEncoder.
+ */
+public class CdrReportLineEncoderTest {
+
+    /**
+     * Тест совпадения вывода с прежним форматом отчета.
+     * <p>
+     * Проверяет, что для значений времени с секундами и без, с миллисекундами,
+     * микросекундами и наносекундами, для года меньше 1000, номеров не из ASCII
+     * и при многократном сбросе маленького буфера вывод совпадает байт в байт
+     * со строками, сформированными через String.format и BufferedWriter.
+     * </p>
+     */
+    @Test
+    void write_ShouldProduceSameBytesAsStringFormat() throws IOException {
+        // Given
+        LocalDateTime base = LocalDateTime.of(2023, 5, 10, 12, 0);
+        List<Cdr> cdrs = new ArrayList<>();
+        cdrs.add(cdr("01", "79123456789", "79876543210", base, base.plusMinutes(15).plusSeconds(30)));
+        cdrs.add(cdr("02", "79876543210", "79123456789", base.withNano(120_000_000), base.withNano(123_456_000)));
+        cdrs.add(cdr("01", "79123456789", "79876543210", base.withSecond(7).withNano(123_456_789), base.withNano(1)));
+        cdrs.add(cdr("02", "7912345678٩", "абонент", LocalDateTime.of(999, 1, 2, 3, 4, 5), LocalDateTime.of(9999, 12, 31, 23, 59, 59)));
+        cdrs.add(cdr(null, "79123456789", "79876543210", LocalDateTime.of(10000, 1, 1, 0, 0), base));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(expected, StandardCharsets.UTF_8))) {
+            for (Cdr cdr : cdrs) {
+                writer.write(String.format("%s,%s,%s,%s,%s",
+                        cdr.getCallType(),
+                        cdr.getCallerNumber(),
+                        cdr.getCalledNumber(),
+                        cdr.getStartDateTime(),
+                        cdr.getFinishDateTime()
+                ));
+                writer.newLine();
+                writer.newLine();
+            }
+        }
+
+        // When
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (CdrReportLineEncoder encoder = new CdrReportLineEncoder(Channels.newChannel(actual), 40)) {
+            for (Cdr cdr : cdrs) {
+                encoder.write(cdr);
+            }
+        }
+
+        // Then
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    private static Cdr cdr(String callType, String callerNumber, String calledNumber, LocalDateTime start, LocalDateTime finish) {
+        Cdr cdr = new Cdr();
+        cdr.setCallType(callType);
+        cdr.setCaller(subscriber(callerNumber));
+        cdr.setCalled(subscriber(calledNumber));
+        cdr.setStartDateTime(start);
+        cdr.setFinishDateTime(finish);
+        return cdr;
+    }
+
+    private static Subscriber subscriber(String msisdn) {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setMsisdn(msisdn);
+        return subscriber;
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.example.roamingaggregatorservice.dto.CdrLineDTO;
+import org.example.roamingaggregatorservice.entities.Cdr;
+import org.example.roamingaggregatorservice.entities.Subscriber;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для разбора строк CDR CdrReportLineParser.
+ */
+public class CdrReportLineParserTest {
+
+    /**
+     * Тест разбора строк, записанных кодировщиком cdr-отчета.
+     * <p>
+     * Проверяет, что строки отчета с временем без секунд, с секундами и с долями секунды
+     * (с точностью хранения записи до миллисекунды) разбираются в записи с теми же
+     * значениями полей, в том числе звонок длиннее {@code Integer.MAX_VALUE} миллисекунд.
+     * </p>
+     */
+    @Test
+    void parse_ShouldReadLinesWrittenByReportEncoder() throws IOException {
+        // Given
+        LocalDateTime base = LocalDateTime.of(2023, 5, 10, 12, 0);
+        List<CdrLineDTO> lines = List.of(
+                new CdrLineDTO("01", "79123456789", "79876543210", base, base.plusMinutes(15).plusSeconds(30)),
+                new CdrLineDTO("02", "79876543210", "79123456789", base.withNano(120_000_000), base.withSecond(7).withNano(123_000_000)),
+                new CdrLineDTO("01", "79123456789", "79876543210", base, base.plusDays(30)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CdrReportLineEncoder encoder = new CdrReportLineEncoder(Channels.newChannel(out))) {
+            for (CdrLineDTO line : lines) encoder.write(cdr(line));
+        }
+
+        // When
+        List<CdrLineDTO> parsed = out.toString(StandardCharsets.UTF_8).lines()
+                .filter(line -> !line.isBlank())
+                .map(CdrReportLineParser::parse)
+                .toList();
+
+        // Then
+        assertEquals(lines, parsed);
+    }
+
+    /**
+     * Тест отклонения некорректных строк.
+     * <p>
+     * Проверяет, что строки с другим количеством полей, неизвестным типом вызова,
+     * пустым номером, некорректным временем или окончанием раньше начала не разбираются.
+     * </p>
+     */
+    @Test
+    void parse_WithMalformedLine_ShouldReturnNull() {
+        // When & Then
+        assertNull(CdrReportLineParser.parse("01,79123456789,79876543210,2023-05-10T12:00"));
+        assertNull(CdrReportLineParser.parse("01,79123456789,79876543210,2023-05-10T12:00,2023-05-10T12:05,extra"));
+        assertNull(CdrReportLineParser.parse("03,79123456789,79876543210,2023-05-10T12:00,2023-05-10T12:05"));
+        assertNull(CdrReportLineParser.parse("01,,79876543210,2023-05-10T12:00,2023-05-10T12:05"));
+        assertNull(CdrReportLineParser.parse("01,79123456789,79876543210,10.05.2023 12:00,2023-05-10T12:05"));
+        assertNull(CdrReportLineParser.parse("01,79123456789,79876543210,2023-05-10T12:05,2023-05-10T12:00"));
+        assertNull(CdrReportLineParser.parse("type,caller,called,start,finish"));
+    }
+
+    private static Cdr cdr(CdrLineDTO line) {
+        Cdr cdr = new Cdr();
+        cdr.setCallType(line.callType());
+        cdr.setCaller(subscriber(line.callerNumber()));
+        cdr.setCalled(subscriber(line.calledNumber()));
+        cdr.setStartDateTime(line.startDateTime());
+        cdr.setFinishDateTime(line.finishDateTime());
+        return cdr;
+    }
+
+    private static Subscriber subscriber(String msisdn) {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setMsisdn(msisdn);
+        return subscriber;
+    }
+}
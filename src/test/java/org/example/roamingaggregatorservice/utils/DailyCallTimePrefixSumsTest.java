@@ -0,0 +1,101 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для накопленного по дням времени звонков DailyCallTimePrefixSums.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки вычисления времени звонков за период.
+ * </p>
+ */
+public class DailyCallTimePrefixSumsTest {
+
+    /**
+     * Тест вычисления времени звонков за период.
+     * <p>
+     * Проверяет, что время суммируется раздельно по направлениям с первого по последний
+     * день периода включительно, а периоды за пределами дней со звонками дают ноль.
+     * </p>
+     */
+    @Test
+    void get_ShouldSumCallTimeWithinPeriodInclusive() {
+        // Given
+        DailyCallTimePrefixSums sums = new DailyCallTimePrefixSums();
+
+        // When
+        sums.addIncoming(LocalDate.of(2023, 5, 10), 100);
+        sums.addOutgoing(LocalDate.of(2023, 5, 20), 30);
+        sums.addIncoming(LocalDate.of(2023, 6, 5), 50);
+        sums.addIncoming(LocalDate.of(2023, 5, 10), 1);
+
+        // Then
+        assertEquals(27, sums.days());
+        assertEquals(151, sums.getIncoming(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)));
+        assertEquals(101, sums.getIncoming(LocalDate.of(2023, 5, 10), LocalDate.of(2023, 5, 10)));
+        assertEquals(50, sums.getIncoming(LocalDate.of(2023, 5, 11), LocalDate.of(2023, 6, 5)));
+        assertEquals(30, sums.getOutgoing(LocalDate.of(2023, 5, 20), LocalDate.of(2023, 6, 30)));
+        assertEquals(0, sums.getOutgoing(LocalDate.of(2023, 5, 21), LocalDate.of(2023, 6, 30)));
+        assertEquals(0, sums.getIncoming(LocalDate.of(2023, 4, 1), LocalDate.of(2023, 5, 9)));
+        assertEquals(0, sums.getIncoming(LocalDate.of(2023, 7, 1), LocalDate.of(2023, 7, 31)));
+    }
+
+    /**
+     * Тест добавления звонков раньше первого дня.
+     * <p>
+     * Проверяет, что при расширении диапазона дней в начало и многократном расширении
+     * в конец ранее накопленные суммы сохраняются.
+     * </p>
+     */
+    @Test
+    void add_BeforeFirstDayAndAfterGrowth_ShouldKeepSums() {
+        // Given
+        DailyCallTimePrefixSums sums = new DailyCallTimePrefixSums();
+        LocalDate first = LocalDate.of(2024, 1, 1);
+
+        // When
+        for (int day = 0; day < 1000; day++) {
+            sums.addOutgoing(first.plusDays(day), 1);
+        }
+        sums.addOutgoing(first.minusDays(10), 5);
+        sums.addIncoming(first.minusDays(3), 7);
+
+        // Then
+        assertEquals(1010, sums.days());
+        assertEquals(1005, sums.getOutgoing(first.minusYears(1), first.plusYears(5)));
+        assertEquals(5, sums.getOutgoing(first.minusDays(10), first.minusDays(1)));
+        assertEquals(100, sums.getOutgoing(first.plusDays(900), first.plusDays(999)));
+        assertEquals(7, sums.getIncoming(first.minusDays(3), first.plusDays(999)));
+    }
+
+    /**
+     * Тест сокращения массивов.
+     * <p>
+     * Проверяет, что после сокращения суммы сохраняются, а дни можно добавлять
+     * как после последнего, так и перед первым днем.
+     * </p>
+     */
+    @Test
+    void trimToSize_ShouldKeepSumsAndAllowFurtherGrowth() {
+        // Given
+        DailyCallTimePrefixSums sums = new DailyCallTimePrefixSums();
+        LocalDate first = LocalDate.of(2024, 1, 1);
+        sums.addIncoming(first, 10);
+        sums.addIncoming(first.plusDays(2), 20);
+
+        // When
+        sums.trimToSize();
+        sums.addIncoming(first.plusDays(40), 30);
+        sums.trimToSize();
+        sums.addOutgoing(first.minusDays(1), 4);
+
+        // Then
+        assertEquals(42, sums.days());
+        assertEquals(60, sums.getIncoming(first, first.plusDays(40)));
+        assertEquals(30, sums.getIncoming(first.plusDays(3), first.plusDays(100)));
+        assertEquals(4, sums.getOutgoing(first.minusDays(1), first.plusDays(40)));
+    }
+}
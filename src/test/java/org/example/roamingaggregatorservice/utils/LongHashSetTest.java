@@ -0,0 +1,62 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для множества LongHashSet.
+ */
+public class LongHashSetTest {
+
+    /**
+     * Тест добавления, поиска и удаления элементов.
+     * <p>
+     * Проверяет, что после серии случайных добавлений и удалений с ростом таблицы
+     * множество содержит те же элементы, что и {@link HashSet}.
+     * </p>
+     */
+    @Test
+    void addAndRemove_ShouldMatchHashSet() {
+        // Given
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        // When
+        for (int i = 0; i < 20_000; i++) {
+            long value = 79_000_000_000L + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        // Then
+        assertEquals(expected.size(), set.size());
+        for (long value = 79_000_000_000L; value < 79_000_005_000L; value++) {
+            assertEquals(expected.contains(value), set.contains(value), "value " + value);
+        }
+    }
+
+    /**
+     * Тест добавления недопустимого значения.
+     * <p>
+     * Проверяет, что ноль и отрицательные значения не добавляются и не находятся.
+     * </p>
+     */
+    @Test
+    void add_WithNonPositiveValue_ShouldThrow() {
+        LongHashSet set = new LongHashSet();
+
+        assertThrows(IllegalArgumentException.class, () -> set.add(0));
+        assertThrows(IllegalArgumentException.class, () -> set.add(-1));
+        assertFalse(set.contains(0));
+        assertFalse(set.remove(0));
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тесты для вспомогательного класса Msisdns.
+ */
+public class MsisdnsTest {
+
+    /**
+     * Тест преобразования числового MSISDN.
+     * <p>
+     * Проверяет, что номер из цифр преобразуется в число без потерь.
+     * </p>
+     */
+    @Test
+    void toLong_WithNumericMsisdn_ShouldReturnNumber() {
+        assertEquals(79123456789L, Msisdns.toLong("79123456789"));
+    }
+
+    /**
+     * Тест преобразования нечислового MSISDN.
+     * <p>
+     * Проверяет, что пустые, нечисловые, нулевые и слишком длинные номера
+     * не преобразуются в число.
+     * </p>
+     */
+    @Test
+    void toLong_WithInvalidMsisdn_ShouldReturnNotNumeric() {
+        assertEquals(Msisdns.NOT_NUMERIC, Msisdns.toLong(null));
+        assertEquals(Msisdns.NOT_NUMERIC, Msisdns.toLong(""));
+        assertEquals(Msisdns.NOT_NUMERIC, Msisdns.toLong("+79123456789"));
+        assertEquals(Msisdns.NOT_NUMERIC, Msisdns.toLong("7910abcd1234"));
+        assertEquals(Msisdns.NOT_NUMERIC, Msisdns.toLong("0000"));
+        assertEquals(Msisdns.NOT_NUMERIC, Msisdns.toLong("1234567890123456789"));
+    }
+
+    /**
+     * Тест преобразования MSISDN с ведущим нулем.
+     * <p>
+     * Проверяет, что номер с ведущим нулем не совпадает с числом номера без нуля.
+     * </p>
+     */
+    @Test
+    void toLong_WithLeadingZero_ShouldNotAliasNumberWithoutZero() {
+        assertEquals(Msisdns.NOT_NUMERIC, Msisdns.toLong("079123456789"));
+        assertEquals(79123456789L, Msisdns.toLong("79123456789"));
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для объединения вычислений SingleFlight.
+ */
+public class SingleFlightTest {
+
+    /**
+     * Тест передачи исключения ожидающему вызову.
+     * <p>
+     * Проверяет, что вызов, присоединившийся к выполняющемуся вычислению, получает
+     * то же исключение, а после завершения ключ освобождается и следующий вызов
+     * выполняет вычисление заново.
+     * </p>
+     */
+    @Test
+    void execute_WhenComputationFails_ShouldRethrowToSharedCallAndReleaseKey() throws Exception {
+        // Given
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database is unavailable");
+        AtomicInteger executions = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // When
+            Future<Integer> leader = executor.submit(() -> flight.execute("2023-05", () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                throw failure;
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<Integer> follower = executor.submit(() -> flight.execute("2023-05", executions::incrementAndGet));
+            while (flight.getSharedCount() == 0) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            // Then
+            ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(10, TimeUnit.SECONDS));
+            ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(10, TimeUnit.SECONDS));
+            assertSame(failure, leaderError.getCause());
+            assertSame(failure, followerError.getCause());
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, flight.execute("2023-05", executions::incrementAndGet));
+        assertEquals(2, flight.getExecutedCount());
+        assertEquals(1, flight.getSharedCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.roamingaggregatorservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для гистограммы времени звонков UsageHistogram.
+ * <p>
+ * Данный класс содержит юнит-тесты для проверки раскладки звонков по часам
+ * и сериализации гистограммы.
+ * </p>
+ */
+public class UsageHistogramTest {
+
+    /**
+     * Тест раскладки звонка, пересекающего границы часа и суток.
+     * <p>
+     * Проверяет, что время звонка делится между пересеченными часами разных дней недели,
+     * дробные секунды отбрасываются, а сумма ячеек равна целой продолжительности звонка.
+     * </p>
+     */
+    @Test
+    void addCall_AcrossHourAndDayBoundaries_ShouldSplitCallTime() {
+        // Given
+        UsageHistogram histogram = new UsageHistogram();
+
+        // When
+        histogram.addCall(LocalDateTime.of(2023, 5, 28, 22, 59, 30, 500_000_000), // воскресенье
+                LocalDateTime.of(2023, 5, 29, 0, 0, 10, 900_000_000));            // понедельник
+
+        // Then
+        assertEquals(29, histogram.get(DayOfWeek.SUNDAY, 22));
+        assertEquals(3600, histogram.get(DayOfWeek.SUNDAY, 23));
+        assertEquals(11, histogram.get(DayOfWeek.MONDAY, 0));
+        assertEquals(3640, Arrays.stream(histogram.byDayOfWeek()).sum());
+        assertEquals(3629, histogram.byDayOfWeek()[6]);
+        assertEquals(3600, histogram.byHourOfDay()[23]);
+        assertEquals(11, histogram.byDayOfWeekAndHour()[0][0]);
+    }
+
+    /**
+     * Тест сериализации и сложения гистограмм.
+     * <p>
+     * Проверяет, что гистограмма восстанавливается из двоичного вида фиксированного
+     * размера и складывается поячеечно, в том числе в сериализованном виде.
+     * </p>
+     */
+    @Test
+    void fromBytes_AndAdd_ShouldRestoreAndSumBuckets() {
+        // Given
+        UsageHistogram first = new UsageHistogram();
+        first.addCall(LocalDateTime.of(2023, 5, 10, 12, 0), LocalDateTime.of(2023, 5, 10, 12, 15, 30));
+        UsageHistogram second = new UsageHistogram();
+        second.addCall(LocalDateTime.of(2023, 5, 17, 12, 30), LocalDateTime.of(2023, 5, 17, 12, 40));
+
+        // When
+        byte[] bytes = first.toBytes();
+        UsageHistogram restored = UsageHistogram.fromBytes(bytes);
+        restored.add(second);
+
+        // Then
+        assertEquals(UsageHistogram.SIZE_IN_BYTES, bytes.length);
+        assertEquals(930 + 600, restored.get(DayOfWeek.WEDNESDAY, 12));
+        assertEquals(930 + 600, Arrays.stream(restored.byHourOfDay()).sum());
+        assertArrayEquals(restored.toBytes(), UsageHistogram.add(bytes, second.toBytes()));
+    }
+}